@@ -1,6 +1,9 @@
 package com.h8.nh.nhoodengine.core;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * This interface is a main facade of core nhood engine functionality.
@@ -30,4 +33,73 @@ public interface DataFinder<K extends DataResourceKey, D> {
      * when find operation cannot be performed
      */
     List<DataFinderResult<K, D>> find(DataFinderCriteria<K> criteria) throws DataFinderFailedException;
+
+    /**
+     * Find a stream of DataResource's in accordance with given criteria
+     *
+     * Results are emitted lazily in an ascending order of distance, up to the criteria limit.
+     * Scores of the stream prefix are the same as returned by {@link #find(DataFinderCriteria)}.
+     * Implementations are encouraged to emit a result as soon as
+     * it is known that no closer resource exists, so that consuming only a prefix of the stream
+     * costs only the work required for that prefix.
+     * By default results are found eagerly with {@link #find(DataFinderCriteria)}.
+     *
+     * @param criteria a data finder criteria
+     * @return an ordered stream of data finder results's
+     *
+     * @throws DataFinderFailedException
+     * when find operation cannot be performed
+     */
+    default Stream<DataFinderResult<K, D>> stream(DataFinderCriteria<K> criteria)
+            throws DataFinderFailedException {
+        return find(criteria).stream();
+    }
+
+    /**
+     * Find a list of DataResource's in accordance with given criteria asynchronously
+     *
+     * Results are the same as returned by {@link #find(DataFinderCriteria)}.
+     * The returned future completes exceptionally with {@link DataFinderFailedException}
+     * when find operation cannot be performed, or with {@link DataFinderRejectedException}
+     * when a request has not been accepted because of overload.
+     * By default find operation is performed on a calling thread.
+     *
+     * @param criteria a data finder criteria
+     * @return a future of list of data finder results's
+     */
+    default CompletableFuture<List<DataFinderResult<K, D>>> findAsync(DataFinderCriteria<K> criteria) {
+        CompletableFuture<List<DataFinderResult<K, D>>> future = new CompletableFuture<>();
+        try {
+            future.complete(find(criteria));
+        } catch (DataFinderFailedException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Find lists of DataResource's in accordance with a batch of criteria
+     *
+     * Results are returned in the same order as given criteria.
+     * Each list of results is the same as it would be returned by {@link #find(DataFinderCriteria)}.
+     * Implementations are encouraged to share data source traversal between criteria.
+     *
+     * @param criteria a list of data finder criteria
+     * @return list of data finder results's for each of given criteria
+     *
+     * @throws DataFinderFailedException
+     * when find operation cannot be performed for any of given criteria
+     */
+    default List<List<DataFinderResult<K, D>>> findAll(List<DataFinderCriteria<K>> criteria)
+            throws DataFinderFailedException {
+        if (criteria == null) {
+            throw new DataFinderFailedException(
+                    "DataFinderCriteria list may not be null");
+        }
+        List<List<DataFinderResult<K, D>>> results = new ArrayList<>(criteria.size());
+        for (DataFinderCriteria<K> c : criteria) {
+            results.add(find(c));
+        }
+        return results;
+    }
 }
@@ -1,5 +1,6 @@
 package com.h8.nh.nhoodengine.core;
 
+import java.math.BigDecimal;
 import java.util.Objects;
 
 /**
@@ -9,6 +10,11 @@ import java.util.Objects;
  */
 public final class DataFinderCriteria<K extends DataResourceKey> {
 
+    /**
+     * Limit of size of results which are not limited by size, e.g. all results within a range
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
     /**
      * Metadata key vector representing a geometric point of interest
      */
@@ -20,13 +26,50 @@ public final class DataFinderCriteria<K extends DataResourceKey> {
     private final int limit;
 
     /**
-     * Default constructor
+     * Distance metric used to rank results
+     */
+    private final DistanceMetric metric;
+
+    /**
+     * Maximum distance of returned results. Results are not limited by distance when not defined.
+     */
+    private final BigDecimal range;
+
+    /**
+     * Default constructor. Results are ranked with euclidean distance.
      * @param metadata metadata key vector
      * @param limit size limit
      */
     public DataFinderCriteria(final K metadata, final int limit) {
+        this(metadata, limit, DistanceMetrics.euclidean());
+    }
+
+    /**
+     * Constructor
+     * @param metadata metadata key vector
+     * @param limit size limit
+     * @param metric distance metric
+     */
+    public DataFinderCriteria(final K metadata, final int limit, final DistanceMetric metric) {
+        this(metadata, limit, metric, null);
+    }
+
+    /**
+     * Constructor
+     * @param metadata metadata key vector
+     * @param limit size limit
+     * @param metric distance metric
+     * @param range maximum distance of results or null when not limited
+     */
+    public DataFinderCriteria(
+            final K metadata,
+            final int limit,
+            final DistanceMetric metric,
+            final BigDecimal range) {
         this.metadata = metadata;
         this.limit = limit;
+        this.metric = metric;
+        this.range = range;
     }
 
     /**
@@ -45,6 +88,22 @@ public final class DataFinderCriteria<K extends DataResourceKey> {
         return limit;
     }
 
+    /**
+     * Distance metric used to rank results
+     * @return actual distance metric value
+     */
+    public DistanceMetric getMetric() {
+        return metric;
+    }
+
+    /**
+     * Maximum distance of returned results
+     * @return actual range value or null when results are not limited by distance
+     */
+    public BigDecimal getRange() {
+        return range;
+    }
+
     /**
      * A static method exposing an auxiliary builder
      *
@@ -65,12 +124,14 @@ public final class DataFinderCriteria<K extends DataResourceKey> {
         }
         DataFinderCriteria<?> that = (DataFinderCriteria<?>) o;
         return limit == that.limit
-                && Objects.equals(metadata, that.metadata);
+                && Objects.equals(metadata, that.metadata)
+                && Objects.equals(metric, that.metric)
+                && Objects.equals(range, that.range);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(metadata, limit);
+        return Objects.hash(metadata, limit, metric, range);
     }
 
     @Override
@@ -78,6 +139,8 @@ public final class DataFinderCriteria<K extends DataResourceKey> {
         return "DataFinderCriteria{"
                 + "metadata=" + metadata
                 + ", limit=" + limit
+                + ", metric=" + metric
+                + ", range=" + range
                 + '}';
     }
 
@@ -88,7 +151,9 @@ public final class DataFinderCriteria<K extends DataResourceKey> {
     public static final class DataFinderCriteriaBuilder<K extends DataResourceKey> {
 
         private K metadata;
-        private int limit;
+        private Integer limit;
+        private DistanceMetric metric = DistanceMetrics.euclidean();
+        private BigDecimal range;
 
         private DataFinderCriteriaBuilder() {
         }
@@ -104,7 +169,8 @@ public final class DataFinderCriteria<K extends DataResourceKey> {
         }
 
         /**
-         * Limit of size of returned results
+         * Limit of size of returned results. When not set, results within a range are not limited by size,
+         * while results of criteria without a range are empty.
          * @param limit size limit value
          * @return builder instance
          */
@@ -113,12 +179,33 @@ public final class DataFinderCriteria<K extends DataResourceKey> {
             return this;
         }
 
+        /**
+         * Distance metric used to rank results. Euclidean distance is used by default.
+         * @param metric distance metric value
+         * @return builder instance
+         */
+        public DataFinderCriteriaBuilder<K> metric(final DistanceMetric metric) {
+            this.metric = metric;
+            return this;
+        }
+
+        /**
+         * Maximum distance of returned results. Results are not limited by distance by default.
+         * @param range maximum distance value
+         * @return builder instance
+         */
+        public DataFinderCriteriaBuilder<K> range(final BigDecimal range) {
+            this.range = range;
+            return this;
+        }
+
         /**
          * Method will combine all gathered properties into DataFinderCriteria instance
          * @return a build instance of DataFinderCriteria
          */
         public DataFinderCriteria<K> build() {
-            return new DataFinderCriteria<>(metadata, limit);
+            int actualLimit = limit != null ? limit : range != null ? UNLIMITED : 0;
+            return new DataFinderCriteria<>(metadata, actualLimit, metric, range);
         }
     }
 }
@@ -0,0 +1,25 @@
+package com.h8.nh.nhoodengine.core;
+
+/**
+ * This class is an exception that may be thrown by DataFinder
+ * when a request is not accepted because of overload
+ */
+public final class DataFinderRejectedException extends Exception {
+
+    /**
+     * A default exception constructor
+     * @param message exception message
+     */
+    public DataFinderRejectedException(final String message) {
+        super(message);
+    }
+
+    /**
+     * An exception constructor
+     * @param message exception message
+     * @param cause nested cause Throwable
+     */
+    public DataFinderRejectedException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,6 +1,5 @@
 package com.h8.nh.nhoodengine.core;
 
-import java.util.Objects;
 import java.util.UUID;
 
 /**
@@ -110,7 +109,7 @@ public final class DataResource<K extends DataResourceKey, D>
 
     @Override
     public int hashCode() {
-        return Objects.hash(uuid);
+        return uuid.hashCode();
     }
 
     @Override
@@ -23,4 +23,22 @@ public interface DataResourceKey {
      * @return actual metadata key unified value
      */
     BigDecimal[] unified();
+
+    /**
+     * Data metadata key vector of unified primitive array type double[].
+     *
+     * This representation is used by all distance computations of the library.
+     * By default it is bridged from {@link #unified()}. Keys backed by primitive
+     * values should override it in order to avoid a conversion on every call.
+     *
+     * @return actual metadata key unified primitive value
+     */
+    default double[] unifiedDoubles() {
+        BigDecimal[] unified = unified();
+        double[] result = new double[unified.length];
+        for (int i = 0; i < unified.length; i++) {
+            result[i] = unified[i].doubleValue();
+        }
+        return result;
+    }
 }
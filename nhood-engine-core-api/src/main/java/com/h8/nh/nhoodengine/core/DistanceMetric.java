@@ -0,0 +1,112 @@
+package com.h8.nh.nhoodengine.core;
+
+import java.util.Arrays;
+
+/**
+ * This interface defines a distance metric used to rank data resources
+ * against a given metadata vector.
+ *
+ * All computations are performed on unified primitive key vectors
+ * (see {@link DataResourceKey#unifiedDoubles()}).
+ *
+ * A metric works on two scales. A rank is an internal value used for
+ * ordering candidates (e.g. a squared euclidean distance) which has to be
+ * monotonic with a distance. A distance is a value exposed as a result score.
+ *
+ * Besides a point-to-point rank, a metric defines a lower bound of a rank
+ * between a point and an axis-aligned box, which is required in order to
+ * prune parts of the data matrix that cannot contain closer resources.
+ * Built-in metrics are exposed by {@link DistanceMetrics}.
+ */
+public interface DistanceMetric {
+
+    /**
+     * Computes a rank between two vectors of the same size.
+     * @param point a point of interest
+     * @param other a compared point
+     * @return a rank between points
+     */
+    double rank(double[] point, double[] other);
+
+    /**
+     * Computes a rank between two vectors of the same size.
+     * Implementations may abandon computation as soon as a rank is known
+     * to exceed a given bound. In such case any value greater than
+     * the bound may be returned.
+     * @param point a point of interest
+     * @param other a compared point
+     * @param bound a rank above which an exact result is not required
+     * @return a rank between points or any value greater than bound
+     */
+    default double rank(final double[] point, final double[] other, final double bound) {
+        return rank(point, other);
+    }
+
+    /**
+     * Computes a rank between a point and a vector packed within a block of vectors,
+     * which lets callers score contiguous coordinates without copying them.
+     * Implementations may abandon computation as soon as a rank is known
+     * to exceed a given bound, like {@link #rank(double[], double[], double)}.
+     * @param point a point of interest
+     * @param block a block of packed vectors of the same size as the point
+     * @param offset an index of the first coordinate of a compared vector within the block
+     * @param bound a rank above which an exact result is not required
+     * @return a rank between points or any value greater than bound
+     */
+    default double rank(final double[] point, final double[] block, final int offset, final double bound) {
+        return rank(point, Arrays.copyOfRange(block, offset, offset + point.length), bound);
+    }
+
+    /**
+     * Computes a lower bound of a rank between a point and any point
+     * of an axis-aligned box. The box is closed at its index and open
+     * at its closure.
+     * @param point a point of interest
+     * @param index lower corner of the box
+     * @param closure upper corner of the box
+     * @return a lower bound of a rank
+     */
+    double lowerBound(double[] point, double[] index, double[] closure);
+
+    /**
+     * Converts a rank into a distance
+     * @param rank a rank value
+     * @return a distance value
+     */
+    double toDistance(double rank);
+
+    /**
+     * Converts a distance into a rank
+     * @param distance a distance value
+     * @return a rank value
+     */
+    double toRank(double distance);
+
+    /**
+     * Informs whether all points within a given distance from a point
+     * of interest are wrapped by an axis-aligned box.
+     * Metrics that cannot determine it should keep the default
+     * implementation which is always false.
+     * @param point a point of interest
+     * @param distance a radius of neighbour range
+     * @param index lower corner of the box
+     * @param closure upper corner of the box
+     * @return true when the whole neighbour range is wrapped by the box
+     */
+    default boolean isWrappedBy(
+            final double[] point,
+            final double distance,
+            final double[] index,
+            final double[] closure) {
+        return false;
+    }
+
+    /**
+     * Informs whether metric may be applied to vectors of a given size
+     * @param size a size of metadata vector
+     * @return true when metric supports given size
+     */
+    default boolean supports(final int size) {
+        return true;
+    }
+}
@@ -0,0 +1,431 @@
+package com.h8.nh.nhoodengine.core;
+
+import java.util.Arrays;
+
+/**
+ * This class exposes built-in implementations of {@link DistanceMetric}.
+ */
+public final class DistanceMetrics {
+
+    private static final DistanceMetric EUCLIDEAN = new Euclidean();
+    private static final DistanceMetric MANHATTAN = new Manhattan();
+    private static final DistanceMetric CHEBYSHEV = new Chebyshev();
+    private static final DistanceMetric COSINE = new Cosine();
+
+    private DistanceMetrics() {
+    }
+
+    /**
+     * Euclidean distance. This is a default metric of the library.
+     * @return euclidean distance metric
+     */
+    public static DistanceMetric euclidean() {
+        return EUCLIDEAN;
+    }
+
+    /**
+     * Manhattan (taxicab) distance
+     * @return manhattan distance metric
+     */
+    public static DistanceMetric manhattan() {
+        return MANHATTAN;
+    }
+
+    /**
+     * Chebyshev (maximum) distance
+     * @return chebyshev distance metric
+     */
+    public static DistanceMetric chebyshev() {
+        return CHEBYSHEV;
+    }
+
+    /**
+     * Cosine distance defined as 1 - cosine similarity.
+     * A distance to a zero vector is assumed to be 1.
+     * @return cosine distance metric
+     */
+    public static DistanceMetric cosine() {
+        return COSINE;
+    }
+
+    /**
+     * Euclidean distance with a non-negative weight per dimension
+     * @param weights weights of dimensions
+     * @return weighted euclidean distance metric
+     */
+    public static DistanceMetric weightedEuclidean(final double... weights) {
+        if (weights == null || weights.length == 0) {
+            throw new IllegalArgumentException("Weights may not be empty");
+        }
+        for (double w : weights) {
+            if (!(w >= 0.0) || Double.isInfinite(w)) {
+                throw new IllegalArgumentException("Weights must be finite and non-negative");
+            }
+        }
+        return new WeightedEuclidean(weights);
+    }
+
+    private static double gap(final double value, final double index, final double closure) {
+        return Math.max(0.0, Math.max(index - value, value - closure));
+    }
+
+    private static boolean isWrappedBy(
+            final double[] point,
+            final double range,
+            final double[] index,
+            final double[] closure) {
+        for (int i = 0; i < point.length; i++) {
+            if (point[i] - range < index[i] || point[i] + range >= closure[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Euclidean implements DistanceMetric {
+
+        @Override
+        public double rank(final double[] point, final double[] other) {
+            return rank(point, other, Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] other, final double bound) {
+            return rank(point, other, 0, bound);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] block, final int offset, final double bound) {
+            double sumOfSquares = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                double d = point[i] - block[offset + i];
+                sumOfSquares += d * d;
+                if (sumOfSquares > bound) {
+                    return sumOfSquares;
+                }
+            }
+            return sumOfSquares;
+        }
+
+        @Override
+        public double lowerBound(final double[] point, final double[] index, final double[] closure) {
+            double sumOfSquares = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                double d = gap(point[i], index[i], closure[i]);
+                sumOfSquares += d * d;
+            }
+            return sumOfSquares;
+        }
+
+        @Override
+        public double toDistance(final double rank) {
+            return Math.sqrt(rank);
+        }
+
+        @Override
+        public double toRank(final double distance) {
+            return distance * distance;
+        }
+
+        @Override
+        public boolean isWrappedBy(
+                final double[] point,
+                final double distance,
+                final double[] index,
+                final double[] closure) {
+            return DistanceMetrics.isWrappedBy(point, distance, index, closure);
+        }
+
+        @Override
+        public String toString() {
+            return "euclidean";
+        }
+    }
+
+    private static final class Manhattan implements DistanceMetric {
+
+        @Override
+        public double rank(final double[] point, final double[] other) {
+            return rank(point, other, Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] other, final double bound) {
+            return rank(point, other, 0, bound);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] block, final int offset, final double bound) {
+            double sum = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                sum += Math.abs(point[i] - block[offset + i]);
+                if (sum > bound) {
+                    return sum;
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        public double lowerBound(final double[] point, final double[] index, final double[] closure) {
+            double sum = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                sum += gap(point[i], index[i], closure[i]);
+            }
+            return sum;
+        }
+
+        @Override
+        public double toDistance(final double rank) {
+            return rank;
+        }
+
+        @Override
+        public double toRank(final double distance) {
+            return distance;
+        }
+
+        @Override
+        public boolean isWrappedBy(
+                final double[] point,
+                final double distance,
+                final double[] index,
+                final double[] closure) {
+            return DistanceMetrics.isWrappedBy(point, distance, index, closure);
+        }
+
+        @Override
+        public String toString() {
+            return "manhattan";
+        }
+    }
+
+    private static final class Chebyshev implements DistanceMetric {
+
+        @Override
+        public double rank(final double[] point, final double[] other) {
+            return rank(point, other, Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] other, final double bound) {
+            return rank(point, other, 0, bound);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] block, final int offset, final double bound) {
+            double max = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                max = Math.max(max, Math.abs(point[i] - block[offset + i]));
+                if (max > bound) {
+                    return max;
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public double lowerBound(final double[] point, final double[] index, final double[] closure) {
+            double max = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                max = Math.max(max, gap(point[i], index[i], closure[i]));
+            }
+            return max;
+        }
+
+        @Override
+        public double toDistance(final double rank) {
+            return rank;
+        }
+
+        @Override
+        public double toRank(final double distance) {
+            return distance;
+        }
+
+        @Override
+        public boolean isWrappedBy(
+                final double[] point,
+                final double distance,
+                final double[] index,
+                final double[] closure) {
+            return DistanceMetrics.isWrappedBy(point, distance, index, closure);
+        }
+
+        @Override
+        public String toString() {
+            return "chebyshev";
+        }
+    }
+
+    private static final class WeightedEuclidean implements DistanceMetric {
+
+        private final double[] weights;
+
+        private WeightedEuclidean(final double[] weights) {
+            this.weights = Arrays.copyOf(weights, weights.length);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] other) {
+            return rank(point, other, Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] other, final double bound) {
+            return rank(point, other, 0, bound);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] block, final int offset, final double bound) {
+            double sumOfSquares = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                double d = point[i] - block[offset + i];
+                sumOfSquares += weights[i] * d * d;
+                if (sumOfSquares > bound) {
+                    return sumOfSquares;
+                }
+            }
+            return sumOfSquares;
+        }
+
+        @Override
+        public double lowerBound(final double[] point, final double[] index, final double[] closure) {
+            double sumOfSquares = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                double d = gap(point[i], index[i], closure[i]);
+                sumOfSquares += weights[i] * d * d;
+            }
+            return sumOfSquares;
+        }
+
+        @Override
+        public double toDistance(final double rank) {
+            return Math.sqrt(rank);
+        }
+
+        @Override
+        public double toRank(final double distance) {
+            return distance * distance;
+        }
+
+        @Override
+        public boolean isWrappedBy(
+                final double[] point,
+                final double distance,
+                final double[] index,
+                final double[] closure) {
+            for (int i = 0; i < point.length; i++) {
+                if (weights[i] == 0.0) {
+                    return false;
+                }
+                double range = distance / Math.sqrt(weights[i]);
+                if (point[i] - range < index[i] || point[i] + range >= closure[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean supports(final int size) {
+            return weights.length == size;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            WeightedEuclidean that = (WeightedEuclidean) o;
+            return Arrays.equals(weights, that.weights);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(weights);
+        }
+
+        @Override
+        public String toString() {
+            return "weightedEuclidean" + Arrays.toString(weights);
+        }
+    }
+
+    private static final class Cosine implements DistanceMetric {
+
+        @Override
+        public double rank(final double[] point, final double[] other) {
+            return rank(point, other, 0, Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        public double rank(final double[] point, final double[] block, final int offset, final double bound) {
+            double dot = 0.0;
+            double pointNorm = 0.0;
+            double otherNorm = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                double other = block[offset + i];
+                dot += point[i] * other;
+                pointNorm += point[i] * point[i];
+                otherNorm += other * other;
+            }
+            if (pointNorm == 0.0 || otherNorm == 0.0) {
+                return 1.0;
+            }
+            double similarity = dot / Math.sqrt(pointNorm * otherNorm);
+            return 1.0 - Math.max(-1.0, Math.min(1.0, similarity));
+        }
+
+        /**
+         * A similarity within a box is bounded from above by the highest
+         * possible dot product divided by the lowest (or the highest when
+         * the dot product is negative) possible norm of a box point.
+         */
+        @Override
+        public double lowerBound(final double[] point, final double[] index, final double[] closure) {
+            double maxDot = 0.0;
+            double pointNorm = 0.0;
+            double minNorm = 0.0;
+            double maxNorm = 0.0;
+            for (int i = 0; i < point.length; i++) {
+                maxDot += Math.max(point[i] * index[i], point[i] * closure[i]);
+                pointNorm += point[i] * point[i];
+                double g = gap(0.0, index[i], closure[i]);
+                minNorm += g * g;
+                double m = Math.max(Math.abs(index[i]), Math.abs(closure[i]));
+                maxNorm += m * m;
+            }
+            if (pointNorm == 0.0) {
+                return 1.0;
+            }
+            if (minNorm == 0.0 && maxDot > 0.0) {
+                return 0.0;
+            }
+            double norm = maxDot > 0.0 ? minNorm : maxNorm;
+            if (norm == 0.0) {
+                return 1.0;
+            }
+            double similarity = maxDot / Math.sqrt(pointNorm * norm);
+            return 1.0 - Math.max(-1.0, Math.min(1.0, similarity));
+        }
+
+        @Override
+        public double toDistance(final double rank) {
+            return rank;
+        }
+
+        @Override
+        public double toRank(final double distance) {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return "cosine";
+        }
+    }
+}
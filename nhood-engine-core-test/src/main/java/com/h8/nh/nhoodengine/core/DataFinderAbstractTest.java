@@ -7,7 +7,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_ROUNDING_MODE;
 import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_SCALE;
@@ -161,6 +167,44 @@ public abstract class DataFinderAbstractTest<K extends DataResourceKey, D>
                 .hasNoCause();
     }
 
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldThrowAnExceptionWhenCriteriaMetricIsNull() {
+        // given
+        K metadata = ctx.dataKey(0, 0, 0);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(10)
+                .metric(null)
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> dataFinder.find(criteria))
+                .isInstanceOf(DataFinderFailedException.class)
+                .hasMessage("DataFinderCriteria metric may not be null")
+                .hasNoCause();
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldThrowAnExceptionWhenCriteriaMetricDoesNotSupportMetadataSize() {
+        // given
+        K metadata = ctx.dataKey(0, 0, 0);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(10)
+                .metric(DistanceMetrics.weightedEuclidean(1.0, 1.0))
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> dataFinder.find(criteria))
+                .isInstanceOf(DataFinderFailedException.class)
+                .hasMessage("DataFinderCriteria metric does not support metadata size of data in repository")
+                .hasNoCause();
+    }
+
     @Override
     @Test
     @SuppressWarnings("checkstyle:magicnumber")
@@ -404,4 +448,451 @@ public abstract class DataFinderAbstractTest<K extends DataResourceKey, D>
                         ctx.resource(0, 0, -1)
                 );
     }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnListOfClosestResultForAGivenMetadataVectorAndManhattanMetric()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(7)
+                .metric(DistanceMetrics.manhattan())
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.find(criteria);
+
+        // then
+        assertThat(results)
+                .containsExactlyInAnyOrder(
+                        ctx.result(ctx.resource(5, -50, 50), DISTANCE_ZERO),
+                        ctx.result(ctx.resource(4, -50, 50), DISTANCE_ONE),
+                        ctx.result(ctx.resource(5, -49, 50), DISTANCE_ONE),
+                        ctx.result(ctx.resource(5, -50, 49), DISTANCE_ONE),
+                        ctx.result(ctx.resource(5, -50, 51), DISTANCE_ONE),
+                        ctx.result(ctx.resource(5, -51, 50), DISTANCE_ONE),
+                        ctx.result(ctx.resource(6, -50, 50), DISTANCE_ONE)
+                );
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnListOfClosestResultForAGivenMetadataVectorAndChebyshevMetric()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(27)
+                .metric(DistanceMetrics.chebyshev())
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.find(criteria);
+
+        // then
+        assertThat(results.subList(0, 1))
+                .extracting("score").containsOnly(DISTANCE_ZERO);
+        assertThat(results.subList(1, 27))
+                .extracting("score").containsOnly(DISTANCE_ONE);
+        assertThat(results)
+                .extracting("resource")
+                .containsExactlyInAnyOrderElementsOf(
+                        IntStream.rangeClosed(4, 6).boxed()
+                                .flatMap(x -> IntStream.rangeClosed(-51, -49).boxed()
+                                        .flatMap(y -> IntStream.rangeClosed(49, 51)
+                                                .mapToObj(z -> ctx.resource(x, y, z))))
+                                .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnListOfClosestResultForAGivenMetadataVectorAndWeightedEuclideanMetric()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(5)
+                .metric(DistanceMetrics.weightedEuclidean(1.0, 1.0, 0.0))
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.find(criteria);
+
+        // then
+        assertThat(results)
+                .hasSize(5)
+                .extracting("score").containsOnly(DISTANCE_ZERO);
+        assertThat(results)
+                .extracting("resource")
+                .isSubsetOf(IntStream.rangeClosed(-10, 99)
+                        .mapToObj(z -> ctx.resource(5, -50, z))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnListOfClosestResultForAGivenMetadataVectorAndCosineMetric()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(0, 0, 10);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(5)
+                .metric(DistanceMetrics.cosine())
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.find(criteria);
+
+        // then
+        assertThat(results)
+                .hasSize(5)
+                .extracting("score").containsOnly(DISTANCE_ZERO);
+        assertThat(results)
+                .extracting("resource")
+                .isSubsetOf(IntStream.rangeClosed(1, 99)
+                        .mapToObj(z -> ctx.resource(0, 0, z))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Test
+    public final void shouldThrowAnExceptionWhenCriteriaListIsNull() {
+        // when / then
+        assertThatThrownBy(() -> dataFinder.findAll(null))
+                .isInstanceOf(DataFinderFailedException.class)
+                .hasMessage("DataFinderCriteria list may not be null")
+                .hasNoCause();
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldThrowAnExceptionWhenAnyOfCriteriaListIsInvalid() {
+        // given
+        DataFinderCriteria<K> valid = DataFinderCriteria.<K>builder()
+                .metadata(ctx.dataKey(0, 0, 0))
+                .limit(10)
+                .build();
+        DataFinderCriteria<K> invalid = DataFinderCriteria.<K>builder()
+                .metadata(ctx.dataKey(0, 0, 0))
+                .limit(-1)
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> dataFinder.findAll(Arrays.asList(valid, invalid)))
+                .isInstanceOf(DataFinderFailedException.class)
+                .hasMessage("DataFinderCriteria limit may not be negative")
+                .hasNoCause();
+    }
+
+    @Override
+    @Test
+    public final void shouldReturnAnEmptyResultListWhenCriteriaListIsEmpty()
+            throws DataFinderFailedException {
+        // when
+        List<List<DataFinderResult<K, D>>> results = dataFinder.findAll(Collections.emptyList());
+
+        // then
+        assertThat(results).isEmpty();
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnResultListsOfAllCriteriaInAGivenOrder()
+            throws DataFinderFailedException {
+        // given
+        List<DataFinderCriteria<K>> criteria = Arrays.asList(
+                DataFinderCriteria.<K>builder()
+                        .metadata(ctx.dataKey(5, -50, 50))
+                        .limit(27)
+                        .build(),
+                DataFinderCriteria.<K>builder()
+                        .metadata(ctx.dataKey(0, 0, 0))
+                        .limit(0)
+                        .build(),
+                DataFinderCriteria.<K>builder()
+                        .metadata(ctx.dataKey(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE))
+                        .limit(4)
+                        .build(),
+                DataFinderCriteria.<K>builder()
+                        .metadata(ctx.dataKey(5, -50, 50))
+                        .limit(7)
+                        .metric(DistanceMetrics.manhattan())
+                        .build(),
+                DataFinderCriteria.<K>builder()
+                        .metadata(ctx.dataKey(0, 0, 0))
+                        .limit(7)
+                        .build());
+
+        // when
+        List<List<DataFinderResult<K, D>>> results = dataFinder.findAll(criteria);
+
+        // then
+        assertThat(results).hasSize(criteria.size());
+        for (int i = 0; i < criteria.size(); i++) {
+            assertThat(results.get(i))
+                    .containsExactlyInAnyOrderElementsOf(dataFinder.find(criteria.get(i)));
+        }
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnResultListAsynchronously()
+            throws DataFinderFailedException, InterruptedException, ExecutionException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(27)
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.findAsync(criteria).get();
+
+        // then
+        assertThat(results).isEqualTo(dataFinder.find(criteria));
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldCompleteAsynchronousResultExceptionallyWhenCriteriaIsInvalid() {
+        // given
+        K metadata = ctx.dataKey(0, 0, 0);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(-1)
+                .build();
+
+        // when
+        CompletableFuture<List<DataFinderResult<K, D>>> future = dataFinder.findAsync(criteria);
+
+        // then
+        assertThatThrownBy(future::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataFinderFailedException.class)
+                .hasRootCauseMessage("DataFinderCriteria limit may not be negative");
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldStreamResultsInAnOrderOfDistance()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(Integer.MAX_VALUE)
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.stream(criteria)
+                .limit(27)
+                .collect(Collectors.toList());
+
+        // then
+        assertThat(results.subList(0, 1))
+                .extracting("score").containsOnly(DISTANCE_ZERO);
+        assertThat(results.subList(1, 7))
+                .extracting("score").containsOnly(DISTANCE_ONE);
+        assertThat(results.subList(7, 19))
+                .extracting("score").containsOnly(DISTANCE_DIAGONAL_SQUARE);
+        assertThat(results.subList(19, 27))
+                .extracting("score").containsOnly(DISTANCE_DIAGONAL_CUBE);
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldStreamResultsOfTheSameScoresAsFound()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(Integer.MIN_VALUE, 0, Integer.MAX_VALUE);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(100)
+                .metric(DistanceMetrics.manhattan())
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.stream(criteria)
+                .collect(Collectors.toList());
+
+        // then
+        assertThat(results)
+                .extracting("score")
+                .containsExactlyElementsOf(dataFinder.find(criteria)
+                        .stream()
+                        .map(DataFinderResult::getScore)
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Test
+    public final void shouldThrowAnExceptionWhenStreamedCriteriaIsInvalid() {
+        // when / then
+        assertThatThrownBy(() -> dataFinder.stream(null))
+                .isInstanceOf(DataFinderFailedException.class)
+                .hasMessage("DataFinderCriteria may not be null")
+                .hasNoCause();
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldThrowAnExceptionWhenCriteriaRangeIsNegative() {
+        // given
+        K metadata = ctx.dataKey(0, 0, 0);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(10)
+                .range(BigDecimal.ONE.negate())
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> dataFinder.find(criteria))
+                .isInstanceOf(DataFinderFailedException.class)
+                .hasMessage("DataFinderCriteria range may not be negative")
+                .hasNoCause();
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnAllResultsWithinACriteriaRange()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(Integer.MAX_VALUE)
+                .range(BigDecimal.ONE)
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.find(criteria);
+
+        // then
+        assertThat(results)
+                .extracting("resource")
+                .containsExactlyInAnyOrder(
+                        ctx.resource(5, -50, 50),
+                        ctx.resource(4, -50, 50),
+                        ctx.resource(5, -49, 50),
+                        ctx.resource(5, -50, 49),
+                        ctx.resource(5, -50, 51),
+                        ctx.resource(5, -51, 50),
+                        ctx.resource(6, -50, 50)
+                );
+        assertThat(results.get(0).getScore()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(results.subList(1, results.size()))
+                .extracting("score")
+                .allMatch(score -> ((BigDecimal) score).compareTo(BigDecimal.ONE) == 0);
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnResultListOfLimitSizeWithinACriteriaRange()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(3)
+                .range(BigDecimal.TEN)
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.find(criteria);
+
+        // then
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getResource()).isEqualTo(ctx.resource(5, -50, 50));
+        assertThat(results)
+                .extracting("score")
+                .containsExactlyElementsOf(dataFinder.find(DataFinderCriteria.<K>builder()
+                        .metadata(metadata)
+                        .limit(3)
+                        .build())
+                        .stream()
+                        .map(DataFinderResult::getScore)
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnAllResultsWithinACriteriaRangeWhenLimitIsNotSet()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .range(BigDecimal.valueOf(2))
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.find(criteria);
+        List<DataFinderResult<K, D>> streamed = dataFinder.stream(criteria)
+                .collect(Collectors.toList());
+
+        // then
+        assertThat(criteria.getLimit()).isEqualTo(DataFinderCriteria.UNLIMITED);
+        assertThat(results).hasSize(33);
+        assertThat(results)
+                .extracting("score")
+                .allMatch(score -> ((BigDecimal) score).compareTo(BigDecimal.valueOf(2)) <= 0);
+        assertThat(results)
+                .extracting("score")
+                .isSortedAccordingTo((a, b) -> ((BigDecimal) a).compareTo((BigDecimal) b));
+        assertThat(streamed)
+                .extracting("resource")
+                .containsExactlyInAnyOrderElementsOf(results.stream()
+                        .map(DataFinderResult::getResource)
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldStreamResultsWithinACriteriaRange()
+            throws DataFinderFailedException {
+        // given
+        K metadata = ctx.dataKey(5, -50, 50);
+        DataFinderCriteria<K> criteria = DataFinderCriteria.<K>builder()
+                .metadata(metadata)
+                .limit(Integer.MAX_VALUE)
+                .range(BigDecimal.valueOf(2))
+                .metric(DistanceMetrics.manhattan())
+                .build();
+
+        // when
+        List<DataFinderResult<K, D>> results = dataFinder.stream(criteria)
+                .collect(Collectors.toList());
+
+        // then
+        assertThat(results)
+                .extracting("score")
+                .containsExactlyElementsOf(dataFinder.find(criteria)
+                        .stream()
+                        .map(DataFinderResult::getScore)
+                        .collect(Collectors.toList()));
+        assertThat(results)
+                .extracting("score")
+                .allMatch(score -> ((BigDecimal) score).compareTo(BigDecimal.valueOf(2)) <= 0);
+        assertThat(results).hasSize(25);
+    }
 }
@@ -1,5 +1,7 @@
 package com.h8.nh.nhoodengine.core;
 
+import java.util.concurrent.ExecutionException;
+
 /**
  * This interface defines basic requirements for DataFinder interface
  */
@@ -15,6 +17,10 @@ public interface DataFinderRequirements {
 
     void shouldThrowAnExceptionWhenCriteriaLimitIsNegative();
 
+    void shouldThrowAnExceptionWhenCriteriaMetricIsNull();
+
+    void shouldThrowAnExceptionWhenCriteriaMetricDoesNotSupportMetadataSize();
+
     void shouldReturnAnEmptyResultListWhenCriteriaLimitZero()
             throws DataFinderFailedException;
 
@@ -41,4 +47,53 @@ public interface DataFinderRequirements {
 
     void shouldReturnListOfClosestResultForAllZeroesMetadataVector()
             throws DataFinderFailedException;
+
+    void shouldReturnListOfClosestResultForAGivenMetadataVectorAndManhattanMetric()
+            throws DataFinderFailedException;
+
+    void shouldReturnListOfClosestResultForAGivenMetadataVectorAndChebyshevMetric()
+            throws DataFinderFailedException;
+
+    void shouldReturnListOfClosestResultForAGivenMetadataVectorAndWeightedEuclideanMetric()
+            throws DataFinderFailedException;
+
+    void shouldReturnListOfClosestResultForAGivenMetadataVectorAndCosineMetric()
+            throws DataFinderFailedException;
+
+    void shouldThrowAnExceptionWhenCriteriaListIsNull();
+
+    void shouldThrowAnExceptionWhenAnyOfCriteriaListIsInvalid();
+
+    void shouldReturnAnEmptyResultListWhenCriteriaListIsEmpty()
+            throws DataFinderFailedException;
+
+    void shouldReturnResultListsOfAllCriteriaInAGivenOrder()
+            throws DataFinderFailedException;
+
+    void shouldReturnResultListAsynchronously()
+            throws DataFinderFailedException, InterruptedException, ExecutionException;
+
+    void shouldCompleteAsynchronousResultExceptionallyWhenCriteriaIsInvalid();
+
+    void shouldStreamResultsInAnOrderOfDistance()
+            throws DataFinderFailedException;
+
+    void shouldStreamResultsOfTheSameScoresAsFound()
+            throws DataFinderFailedException;
+
+    void shouldThrowAnExceptionWhenStreamedCriteriaIsInvalid();
+
+    void shouldThrowAnExceptionWhenCriteriaRangeIsNegative();
+
+    void shouldReturnAllResultsWithinACriteriaRange()
+            throws DataFinderFailedException;
+
+    void shouldReturnResultListOfLimitSizeWithinACriteriaRange()
+            throws DataFinderFailedException;
+
+    void shouldReturnAllResultsWithinACriteriaRangeWhenLimitIsNotSet()
+            throws DataFinderFailedException;
+
+    void shouldStreamResultsWithinACriteriaRange()
+            throws DataFinderFailedException;
 }
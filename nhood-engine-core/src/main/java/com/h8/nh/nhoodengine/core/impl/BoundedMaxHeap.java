@@ -0,0 +1,157 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A bounded max-heap of elements ordered by a primitive score.
+ *
+ * Heap keeps at most {@code limit} elements with the lowest scores. The root
+ * of the heap is always the worst of kept elements, therefore a candidate
+ * that does not beat it is rejected in a constant time. Elements of equal
+ * scores are ordered with a given comparator.
+ *
+ * Unlike a sorted set, the heap does not look up kept elements, so an element offered twice
+ * with the same score is kept twice. Callers offer each element once, as neighbour iterators
+ * visit each cell once. A resource moved between cells in the meantime is offered again
+ * with a different score, which a sorted set would not deduplicate either.
+ *
+ * @param <E> a generic type of heap element.
+ */
+final class BoundedMaxHeap<E> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+    private final int limit;
+    private final Comparator<? super E> comparator;
+
+    private double[] scores;
+    private Object[] elements;
+    private int size;
+
+    BoundedMaxHeap(final int limit, final Comparator<? super E> comparator) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Heap limit must be greater than 0");
+        }
+        this.limit = limit;
+        this.comparator = comparator;
+
+        int capacity = Math.min(limit, DEFAULT_INITIAL_CAPACITY);
+        this.scores = new double[capacity];
+        this.elements = new Object[capacity];
+    }
+
+    /**
+     * Offers an element of a given score.
+     * @param score score of an element
+     * @param element element
+     * @return true when element has been kept within the heap
+     */
+    boolean offer(final double score, final E element) {
+        if (size < limit) {
+            ensureCapacity();
+            scores[size] = score;
+            elements[size] = element;
+            siftUp(size++);
+            return true;
+        }
+        if (!isLower(score, element, 0)) {
+            return false;
+        }
+        scores[0] = score;
+        elements[0] = element;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Informs whether the heap has reached its limit.
+     * @return true when heap is full
+     */
+    boolean isFull() {
+        return size >= limit;
+    }
+
+    /**
+     * Returns the highest score kept within the heap.
+     * @return the highest score
+     */
+    double peekScore() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        return scores[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    double scoreAt(final int i) {
+        return scores[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    E elementAt(final int i) {
+        return (E) elements[i];
+    }
+
+    private void ensureCapacity() {
+        if (size < scores.length) {
+            return;
+        }
+        int capacity = (int) Math.min((long) limit, 2L * scores.length);
+        scores = Arrays.copyOf(scores, capacity);
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    private void siftUp(final int from) {
+        int i = from;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isHigher(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(final int from) {
+        int i = from;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int highest = right < size && isHigher(right, left) ? right : left;
+            if (!isHigher(highest, i)) {
+                return;
+            }
+            swap(i, highest);
+            i = highest;
+        }
+    }
+
+    private boolean isHigher(final int i, final int j) {
+        return isLower(scores[j], elementAt(j), i);
+    }
+
+    private boolean isLower(final double score, final E element, final int i) {
+        if (score != scores[i]) {
+            return score < scores[i];
+        }
+        return comparator.compare(element, elementAt(i)) < 0;
+    }
+
+    private void swap(final int i, final int j) {
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+
+        Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+    }
+}
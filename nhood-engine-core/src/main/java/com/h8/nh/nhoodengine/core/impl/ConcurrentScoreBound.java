@@ -0,0 +1,44 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A primitive score bound shared between threads scoring chunks of a single find operation.
+ *
+ * The bound may only be lowered. Each thread lowers it with the worst score
+ * of its own full top-k heap, which is never lower than the worst score of a final top-k.
+ */
+final class ConcurrentScoreBound {
+
+    private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+
+    /**
+     * Returns a current bound.
+     * @return a current bound or positive infinity when not bounded yet
+     */
+    double get() {
+        return Double.longBitsToDouble(bits.get());
+    }
+
+    /**
+     * Informs whether a bound has already been defined.
+     * @return true when bound is finite
+     */
+    boolean isBounded() {
+        return get() != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Lowers a bound to a given score. Higher scores are ignored.
+     * @param score a new bound candidate
+     */
+    void lower(final double score) {
+        long current;
+        do {
+            current = bits.get();
+            if (!(score < Double.longBitsToDouble(current))) {
+                return;
+            }
+        } while (!bits.compareAndSet(current, Double.doubleToLongBits(score)));
+    }
+}
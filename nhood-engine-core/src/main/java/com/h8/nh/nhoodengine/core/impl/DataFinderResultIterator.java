@@ -0,0 +1,190 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import com.h8.nh.nhoodengine.core.DataFinderResult;
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_ROUNDING_MODE;
+import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_SCALE;
+
+/**
+ * A lazy iterator of results ordered by a distance from given metadata.
+ *
+ * Blocks of packed coordinates are pulled from a repository iterator only when needed,
+ * and a resource is resolved only once it is about to be emitted.
+ * A scored candidate is emitted once its distance does not exceed a lower bound
+ * of a distance of resources remaining within the repository iterator,
+ * and no more chunks are pulled until the next candidate is not known to be final.
+ * Resources out of a given range are neither kept nor emitted.
+ *
+ * At most as many candidates are kept as there are results remaining to be emitted.
+ * Once that many are kept, the worst of them is dropped whenever a better one is scored,
+ * and resources which cannot beat it are rejected while being scored.
+ * Growth of kept candidates is therefore bounded by a limit of results,
+ * and is unbounded only for an unlimited stream of results.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+final class DataFinderResultIterator<K extends DataResourceKey, D>
+        implements Iterator<DataFinderResult<K, D>> {
+
+    private final DataMatrixResourceIterator<K, D> iterator;
+    private final DistanceMetric metric;
+    private final double[] metadata;
+    private final double range;
+    private final double rankLimit;
+    private final NavigableSet<Candidate<K, D>> candidates;
+
+    private int remaining;
+
+    DataFinderResultIterator(
+            final DataMatrixResourceIterator<K, D> iterator,
+            final DistanceMetric metric,
+            final double[] metadata,
+            final int limit,
+            final double range) {
+        this.iterator = iterator;
+        this.metric = metric;
+        this.metadata = metadata;
+        this.range = range;
+        this.rankLimit = metric.toRank(range);
+        this.candidates = new TreeSet<>();
+        this.remaining = limit;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (remaining <= 0) {
+            return false;
+        }
+        while (true) {
+            while (!isHeadFinal() && hasNextChunk()) {
+                scoreBlock(iterator.nextBlock());
+            }
+            if (candidates.isEmpty()) {
+                return false;
+            }
+            if (candidates.first().resolve() != null) {
+                return true;
+            }
+            candidates.pollFirst();
+        }
+    }
+
+    private void scoreBlock(final DataMatrixResourceBlock<K, D> block) {
+        for (int i = 0; i < block.size(); i++) {
+            double bound = candidates.size() >= remaining
+                    ? Math.min(rankLimit, candidates.last().rank)
+                    : rankLimit;
+            double rank = block.rank(metric, metadata, i, bound);
+            if (rank > bound) {
+                continue;
+            }
+            UUID uuid = block.getUuid(i);
+            if (uuid != null && candidates.add(new Candidate<>(rank, block, i, uuid))
+                    && candidates.size() > remaining) {
+                candidates.pollLast();
+            }
+        }
+    }
+
+    @Override
+    public DataFinderResult<K, D> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        remaining--;
+        Candidate<K, D> candidate = candidates.pollFirst();
+        return new DataFinderResult<>(score(metric.toDistance(candidate.rank)), candidate.resolve());
+    }
+
+    private boolean hasNextChunk() {
+        return Double.isInfinite(range) ? iterator.hasNext() : iterator.hasNextWithinRange(range);
+    }
+
+    private boolean isHeadFinal() {
+        return !candidates.isEmpty()
+                && metric.toDistance(candidates.first().rank) <= iterator.remainingLowerBound();
+    }
+
+    /**
+     * Returns a number of kept candidates, which are not known to be final yet.
+     */
+    int candidatesCount() {
+        return candidates.size();
+    }
+
+    private static BigDecimal score(final double distance) {
+        return BigDecimal.valueOf(distance)
+                .setScale(UNIFIED_BIG_DECIMAL_SCALE, UNIFIED_BIG_DECIMAL_ROUNDING_MODE);
+    }
+
+    /**
+     * A scored resource of a block waiting until it is known to be final.
+     * The resource is resolved once, when it is about to be emitted.
+     */
+    private static final class Candidate<K extends DataResourceKey, D>
+            implements Comparable<Candidate<K, D>> {
+
+        private final double rank;
+        private final DataMatrixResourceBlock<K, D> block;
+        private final int position;
+        private final UUID uuid;
+        private DataResource<K, D> resource;
+
+        private Candidate(
+                final double rank,
+                final DataMatrixResourceBlock<K, D> block,
+                final int position,
+                final UUID uuid) {
+            this.rank = rank;
+            this.block = block;
+            this.position = position;
+            this.uuid = uuid;
+        }
+
+        private DataResource<K, D> resolve() {
+            if (resource == null) {
+                resource = block.resolve(position);
+            }
+            return resource;
+        }
+
+        @Override
+        public int compareTo(final Candidate<K, D> o) {
+            int result = Double.compare(rank, o.rank);
+            if (result != 0) {
+                return result;
+            }
+            return uuid.compareTo(o.uuid);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Candidate<?, ?> that = (Candidate<?, ?>) o;
+            return rank == that.rank && uuid.equals(that.uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return uuid.hashCode();
+        }
+    }
+}
@@ -3,19 +3,37 @@ package com.h8.nh.nhoodengine.core.impl;
 import com.h8.nh.nhoodengine.core.DataFinder;
 import com.h8.nh.nhoodengine.core.DataFinderCriteria;
 import com.h8.nh.nhoodengine.core.DataFinderFailedException;
+import com.h8.nh.nhoodengine.core.DataFinderRejectedException;
 import com.h8.nh.nhoodengine.core.DataFinderResult;
 import com.h8.nh.nhoodengine.core.DataResource;
 import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
 import com.h8.nh.nhoodengine.matrix.DataMatrixRepository;
 import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBatchIterator;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
 import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
 
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_ROUNDING_MODE;
 import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_SCALE;
@@ -23,16 +41,29 @@ import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_SCA
 /**
  * This is a default implementation {@link DataFinder} interface based on {@link DataMatrixRepository}.
  *
+ * By default chunks of resources are scored sequentially on a calling thread.
+ * When a pool is configured with {@link DataScoreComputationEngineConfiguration},
+ * chunks are prefetched and scored in parallel while sharing a common top-k bound.
+ *
  * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
  * @param <D> a generic type of data resource.
  */
 public final class DataScoreComputationEngine<K extends DataResourceKey, D> implements DataFinder<K, D> {
 
     private final DataMatrixRepository<K, D> repository;
+    private final DataScoreComputationEngineConfiguration configuration;
+    private final AtomicInteger pendingRequests = new AtomicInteger();
 
     public DataScoreComputationEngine(
             final DataMatrixRepository<K, D> repository) {
+        this(repository, DataScoreComputationEngineConfiguration.builder().build());
+    }
+
+    public DataScoreComputationEngine(
+            final DataMatrixRepository<K, D> repository,
+            final DataScoreComputationEngineConfiguration configuration) {
         this.repository = repository;
+        this.configuration = configuration;
     }
 
     @Override
@@ -46,7 +77,14 @@ public final class DataScoreComputationEngine<K extends DataResourceKey, D> impl
 
         try {
             DataMatrixResourceIterator<K, D> iterator =
-                    repository.findNeighbours(criteria.getMetadata());
+                    repository.findNeighbours(criteria.getMetadata(), criteria.getMetric());
+            if (criteria.getRange() != null) {
+                return findWithinRange(criteria, iterator);
+            }
+            Optional<ForkJoinPool> pool = configuration.getPool();
+            if (pool.isPresent()) {
+                return findInParallel(criteria, iterator, pool.get());
+            }
             return find(criteria, iterator);
         } catch (DataMatrixRepositoryFailedException e) {
             throw new DataFinderFailedException(
@@ -54,25 +92,303 @@ public final class DataScoreComputationEngine<K extends DataResourceKey, D> impl
         }
     }
 
+    /**
+     * Scores blocks of packed coordinates, so that only resources kept within the top-k heap
+     * are referenced, and only the final ones are resolved from the repository.
+     */
     private List<DataFinderResult<K, D>> find(
             final DataFinderCriteria<K> criteria,
             final DataMatrixResourceIterator<K, D> iterator) {
-        TreeSet<DataFinderResult<K, D>> sorted =
-                new BoundedTreeSet<>(criteria.getLimit(), DataFinderResult::compareTo);
+        BoundedMaxHeap<BlockEntry<K, D>> heap =
+                new BoundedMaxHeap<>(criteria.getLimit(), BlockEntry::compareTo);
+        DistanceMetric metric = criteria.getMetric();
+        double[] metadata = criteria.getMetadata().unifiedDoubles();
+
+        do {
+            scoreBlock(iterator.nextBlock(), metadata, metric, Double.POSITIVE_INFINITY, heap, null);
+        } while (shouldContinue(iterator, heap, metric));
+
+        return resolvedResults(heap, metric);
+    }
+
+    /**
+     * Offers all resources of a block which may beat the worst of kept ones,
+     * a given rank limit and an optional shared bound.
+     */
+    private static <K extends DataResourceKey, D> void scoreBlock(
+            final DataMatrixResourceBlock<K, D> block,
+            final double[] metadata,
+            final DistanceMetric metric,
+            final double rankLimit,
+            final BoundedMaxHeap<BlockEntry<K, D>> heap,
+            final ConcurrentScoreBound shared) {
+        for (int i = 0; i < block.size(); i++) {
+            double bound = heap.isFull() ? Math.min(heap.peekScore(), rankLimit) : rankLimit;
+            if (shared != null) {
+                bound = Math.min(bound, shared.get());
+            }
+            double rank = block.rank(metric, metadata, i, bound);
+            if (rank > bound) {
+                continue;
+            }
+            UUID uuid = block.getUuid(i);
+            if (uuid == null) {
+                continue;
+            }
+            heap.offer(rank, new BlockEntry<>(block, i, uuid));
+            if (shared != null && heap.isFull()) {
+                shared.lower(heap.peekScore());
+            }
+        }
+    }
+
+    /**
+     * Streams results lazily. Chunks of resources are pulled from the repository
+     * only when a next result is not yet known to be final.
+     */
+    @Override
+    public Stream<DataFinderResult<K, D>> stream(final DataFinderCriteria<K> criteria)
+            throws DataFinderFailedException {
+        validate(criteria);
+
+        if (criteria.getLimit() == 0) {
+            return Stream.empty();
+        }
+
+        try {
+            DataMatrixResourceIterator<K, D> iterator =
+                    repository.findNeighbours(criteria.getMetadata(), criteria.getMetric());
+            double range = criteria.getRange() != null
+                    ? criteria.getRange().doubleValue()
+                    : Double.POSITIVE_INFINITY;
+            DataFinderResultIterator<K, D> results = new DataFinderResultIterator<>(
+                    iterator, criteria.getMetric(), criteria.getMetadata().unifiedDoubles(),
+                    criteria.getLimit(), range);
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL),
+                    false);
+        } catch (DataMatrixRepositoryFailedException e) {
+            throw new DataFinderFailedException(
+                    "Could not find resources because of unexpected error", e);
+        }
+    }
+
+    /**
+     * Performs find operation on a configured executor. Requests exceeding
+     * a configured number of pending requests are rejected immediately,
+     * so overload does not pile up queued work.
+     */
+    @Override
+    public CompletableFuture<List<DataFinderResult<K, D>>> findAsync(final DataFinderCriteria<K> criteria) {
+        CompletableFuture<List<DataFinderResult<K, D>>> future = new CompletableFuture<>();
+        if (pendingRequests.incrementAndGet() > configuration.getMaxPendingRequests()) {
+            pendingRequests.decrementAndGet();
+            future.completeExceptionally(new DataFinderRejectedException(
+                    "Could not accept find request because of too many pending requests"));
+            return future;
+        }
+        try {
+            configuration.getExecutor().execute(() -> complete(future, criteria));
+        } catch (RejectedExecutionException e) {
+            pendingRequests.decrementAndGet();
+            future.completeExceptionally(new DataFinderRejectedException(
+                    "Could not accept find request because it has been rejected by executor", e));
+        }
+        return future;
+    }
+
+    /**
+     * Completes a future of a request with any outcome, errors included,
+     * and releases a slot of the request before the future is completed,
+     * so that callers reacting to completion may submit a next request right away.
+     */
+    private void complete(
+            final CompletableFuture<List<DataFinderResult<K, D>>> future,
+            final DataFinderCriteria<K> criteria) {
+        List<DataFinderResult<K, D>> results = null;
+        Throwable failure = null;
+        try {
+            results = find(criteria);
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            pendingRequests.decrementAndGet();
+        }
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(results);
+        }
+    }
 
+    /**
+     * Scores chunks of resources on a given pool. At most a configured number of chunks
+     * is scored at once, while the iterator is advanced on a calling thread.
+     * Heaps of scored chunks are merged in the order of chunks.
+     */
+    private List<DataFinderResult<K, D>> findInParallel(
+            final DataFinderCriteria<K> criteria,
+            final DataMatrixResourceIterator<K, D> iterator,
+            final ForkJoinPool pool) {
+        BoundedMaxHeap<BlockEntry<K, D>> heap =
+                new BoundedMaxHeap<>(criteria.getLimit(), BlockEntry::compareTo);
+        ConcurrentScoreBound bound = new ConcurrentScoreBound();
+        DistanceMetric metric = criteria.getMetric();
+        double[] metadata = criteria.getMetadata().unifiedDoubles();
+
+        Deque<ForkJoinTask<BoundedMaxHeap<BlockEntry<K, D>>>> scored = new ArrayDeque<>();
         do {
-            Set<DataFinderResult<K, D>> neighbours =
-                    iterator.next()
-                            .stream()
-                            .map(r -> compute(r, criteria))
-                            .collect(Collectors.toSet());
-            sorted.addAll(neighbours);
-        } while (shouldContinue(iterator, sorted, criteria));
+            ChunkScoringTask<K, D> task = new ChunkScoringTask<>(
+                    iterator.nextBlock(), metadata, metric, criteria.getLimit(), bound);
+            scored.add(pool.submit(task));
+            if (scored.size() >= configuration.getPrefetchedChunks()) {
+                merge(heap, scored.poll().join(), bound);
+            }
+        } while (shouldContinue(iterator, bound, metric));
+
+        while (!scored.isEmpty()) {
+            merge(heap, scored.poll().join(), bound);
+        }
+
+        return resolvedResults(heap, metric);
+    }
+
+    private void merge(
+            final BoundedMaxHeap<BlockEntry<K, D>> heap,
+            final BoundedMaxHeap<BlockEntry<K, D>> chunkHeap,
+            final ConcurrentScoreBound bound) {
+        for (int i = 0; i < chunkHeap.size(); i++) {
+            heap.offer(chunkHeap.scoreAt(i), chunkHeap.elementAt(i));
+        }
+        if (heap.isFull()) {
+            bound.lower(heap.peekScore());
+        }
+    }
+
+    @Override
+    public List<List<DataFinderResult<K, D>>> findAll(final List<DataFinderCriteria<K>> criteria)
+            throws DataFinderFailedException {
+        validate(criteria);
+
+        List<List<DataFinderResult<K, D>>> results =
+                new ArrayList<>(Collections.nCopies(criteria.size(), Collections.emptyList()));
+
+        Map<DistanceMetric, List<Integer>> batches = new LinkedHashMap<>();
+        for (int i = 0; i < criteria.size(); i++) {
+            DataFinderCriteria<K> c = criteria.get(i);
+            if (c.getRange() != null) {
+                results.set(i, find(c));
+            } else if (c.getLimit() > 0) {
+                batches.computeIfAbsent(c.getMetric(), m -> new ArrayList<>()).add(i);
+            }
+        }
+
+        try {
+            for (Map.Entry<DistanceMetric, List<Integer>> batch : batches.entrySet()) {
+                findAll(criteria, batch.getKey(), batch.getValue(), results);
+            }
+        } catch (DataMatrixRepositoryFailedException e) {
+            throw new DataFinderFailedException(
+                    "Could not find resources because of unexpected error", e);
+        }
+        return results;
+    }
+
+    /**
+     * Finds results of criteria of the same metric with a single traversal of the repository.
+     * Each block of packed coordinates is scored against all criteria it is relevant for,
+     * and only resources kept within top-k heaps of criteria are resolved once the traversal ends.
+     */
+    private void findAll(
+            final List<DataFinderCriteria<K>> criteria,
+            final DistanceMetric metric,
+            final List<Integer> positions,
+            final List<List<DataFinderResult<K, D>>> results)
+            throws DataMatrixRepositoryFailedException {
+        int size = positions.size();
+        List<K> metadata = new ArrayList<>(size);
+        double[][] entryPoints = new double[size][];
+        List<BoundedMaxHeap<BlockEntry<K, D>>> heaps = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            DataFinderCriteria<K> c = criteria.get(positions.get(i));
+            metadata.add(c.getMetadata());
+            entryPoints[i] = c.getMetadata().unifiedDoubles();
+            heaps.add(new BoundedMaxHeap<>(c.getLimit(), BlockEntry::compareTo));
+        }
+
+        DataMatrixResourceBatchIterator<K, D> iterator = repository.findNeighbours(metadata, metric);
+        while (iterator.hasNext()) {
+            DataMatrixResourceBlock<K, D> block = iterator.nextBlock();
+            for (int i = 0; i < size; i++) {
+                if (!iterator.isRelevantFor(i)) {
+                    continue;
+                }
+                BoundedMaxHeap<BlockEntry<K, D>> heap = heaps.get(i);
+                scoreBlock(block, entryPoints[i], metric, Double.POSITIVE_INFINITY, heap, null);
+                if (heap.isFull()) {
+                    iterator.limitTo(i, metric.toDistance(heap.peekScore()));
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            results.set(positions.get(i), resolvedResults(heaps.get(i), metric));
+        }
+    }
+
+    /**
+     * Scores resources within a range of criteria into a top-k heap of the criteria limit,
+     * which grows with results when the limit is {@link DataFinderCriteria#UNLIMITED}.
+     * Cells are pruned with the range, and once the heap is full, with the worst of kept results.
+     */
+    private List<DataFinderResult<K, D>> findWithinRange(
+            final DataFinderCriteria<K> criteria,
+            final DataMatrixResourceIterator<K, D> iterator) {
+        BoundedMaxHeap<BlockEntry<K, D>> heap =
+                new BoundedMaxHeap<>(criteria.getLimit(), BlockEntry::compareTo);
+        DistanceMetric metric = criteria.getMetric();
+        double[] metadata = criteria.getMetadata().unifiedDoubles();
+        double range = criteria.getRange().doubleValue();
+        double rankLimit = metric.toRank(range);
 
-        return sorted
-                .stream()
-                .limit(criteria.getLimit())
-                .collect(Collectors.toList());
+        while (iterator.hasNextWithinRange(heap.isFull()
+                ? Math.min(range, metric.toDistance(heap.peekScore()))
+                : range)) {
+            scoreBlock(iterator.nextBlock(), metadata, metric, rankLimit, heap, null);
+        }
+
+        return resolvedResults(heap, metric);
+    }
+
+    /**
+     * Resolves resources of kept entries. Resources removed from the repository
+     * in the meantime are skipped.
+     */
+    private List<DataFinderResult<K, D>> resolvedResults(
+            final BoundedMaxHeap<BlockEntry<K, D>> heap,
+            final DistanceMetric metric) {
+        List<DataFinderResult<K, D>> results = new ArrayList<>(heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+            DataResource<K, D> resource = heap.elementAt(i).resolve();
+            if (resource != null) {
+                BigDecimal score = score(metric.toDistance(heap.scoreAt(i)));
+                results.add(new DataFinderResult<>(score, resource));
+            }
+        }
+        results.sort(DataFinderResult::compareTo);
+        return results;
+    }
+
+    private void validate(final List<DataFinderCriteria<K>> criteria)
+            throws DataFinderFailedException {
+        if (criteria == null) {
+            throw new DataFinderFailedException(
+                    "DataFinderCriteria list may not be null");
+        }
+
+        for (DataFinderCriteria<K> c : criteria) {
+            validate(c);
+        }
     }
 
     private void validate(final DataFinderCriteria<K> criteria)
@@ -101,43 +417,129 @@ public final class DataScoreComputationEngine<K extends DataResourceKey, D> impl
             throw new DataFinderFailedException(
                     "DataFinderCriteria limit may not be negative");
         }
+
+        if (criteria.getRange() != null && criteria.getRange().signum() < 0) {
+            throw new DataFinderFailedException(
+                    "DataFinderCriteria range may not be negative");
+        }
+
+        if (criteria.getMetric() == null) {
+            throw new DataFinderFailedException(
+                    "DataFinderCriteria metric may not be null");
+        }
+
+        if (!criteria.getMetric().supports(repository.getMetadataSize())) {
+            throw new DataFinderFailedException(
+                    "DataFinderCriteria metric does not support metadata size of data in repository");
+        }
     }
 
-    private DataFinderResult<K, D> compute(
-            final DataResource<K, D> resource,
-            final DataFinderCriteria<K> criteria) {
-        BigDecimal score = computeDistance(
-                resource.getKey().unified(),
-                criteria.getMetadata().unified());
-        return new DataFinderResult<>(score, resource);
+    private BigDecimal score(final double distance) {
+        return BigDecimal.valueOf(distance)
+                .setScale(UNIFIED_BIG_DECIMAL_SCALE, UNIFIED_BIG_DECIMAL_ROUNDING_MODE);
     }
 
-    private BigDecimal computeDistance(
-            final BigDecimal[] resource,
-            final BigDecimal[] metadata) {
-        BigDecimal sumOfSquares = BigDecimal.ZERO;
-        for (int i = 0; i < resource.length; i++) {
-            BigDecimal d = resource[i].subtract(metadata[i]);
-            sumOfSquares = sumOfSquares.add(d.pow(2));
+    private boolean shouldContinue(
+            final DataMatrixResourceIterator<K, D> iterator,
+            final ConcurrentScoreBound bound,
+            final DistanceMetric metric) {
+        if (bound.isBounded()) {
+            return iterator.hasNextWithinRange(metric.toDistance(bound.get()));
+        } else {
+            return iterator.hasNext();
         }
-        return BigDecimal.valueOf(Math.sqrt(sumOfSquares.doubleValue()))
-                .setScale(UNIFIED_BIG_DECIMAL_SCALE, UNIFIED_BIG_DECIMAL_ROUNDING_MODE);
     }
 
     private boolean shouldContinue(
             final DataMatrixResourceIterator<K, D> iterator,
-            final TreeSet<DataFinderResult<K, D>> sorted,
-            final DataFinderCriteria<K> criteria) {
-        if (limitReached(sorted, criteria)) {
-            return iterator.hasNextWithinRange(sorted.last().getScore());
+            final BoundedMaxHeap<?> heap,
+            final DistanceMetric metric) {
+        if (heap.isFull()) {
+            return iterator.hasNextWithinRange(metric.toDistance(heap.peekScore()));
         } else {
             return iterator.hasNext();
         }
     }
 
-    private boolean limitReached(
-            final TreeSet<DataFinderResult<K, D>> sorted,
-            final DataFinderCriteria<K> criteria) {
-        return sorted.size() >= criteria.getLimit();
+    /**
+     * Scores a single chunk of resources into its own top-k heap.
+     * Resources that cannot beat a shared bound are rejected without being kept.
+     */
+    private static final class ChunkScoringTask<K extends DataResourceKey, D>
+            extends RecursiveTask<BoundedMaxHeap<BlockEntry<K, D>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient DataMatrixResourceBlock<K, D> chunk;
+        private final double[] metadata;
+        private final transient DistanceMetric metric;
+        private final int limit;
+        private final transient ConcurrentScoreBound bound;
+
+        private ChunkScoringTask(
+                final DataMatrixResourceBlock<K, D> chunk,
+                final double[] metadata,
+                final DistanceMetric metric,
+                final int limit,
+                final ConcurrentScoreBound bound) {
+            this.chunk = chunk;
+            this.metadata = metadata;
+            this.metric = metric;
+            this.limit = limit;
+            this.bound = bound;
+        }
+
+        @Override
+        protected BoundedMaxHeap<BlockEntry<K, D>> compute() {
+            BoundedMaxHeap<BlockEntry<K, D>> heap = new BoundedMaxHeap<>(limit, BlockEntry::compareTo);
+            scoreBlock(chunk, metadata, metric, Double.POSITIVE_INFINITY, heap, bound);
+            return heap;
+        }
+    }
+
+    /**
+     * A reference to a scored resource within a block.
+     * Entries are ordered by identifiers of resources, as resources themselves are.
+     */
+    private static final class BlockEntry<K extends DataResourceKey, D>
+            implements Comparable<BlockEntry<K, D>> {
+
+        private final DataMatrixResourceBlock<K, D> block;
+        private final int position;
+        private final UUID uuid;
+
+        private BlockEntry(
+                final DataMatrixResourceBlock<K, D> block,
+                final int position,
+                final UUID uuid) {
+            this.block = block;
+            this.position = position;
+            this.uuid = uuid;
+        }
+
+        private DataResource<K, D> resolve() {
+            return block.resolve(position);
+        }
+
+        @Override
+        public int compareTo(final BlockEntry<K, D> o) {
+            return uuid.compareTo(o.uuid);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            return uuid.equals(((BlockEntry<?, ?>) o).uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return uuid.hashCode();
+        }
     }
 }
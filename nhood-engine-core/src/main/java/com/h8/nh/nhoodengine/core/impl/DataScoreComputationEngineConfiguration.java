@@ -0,0 +1,153 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This is a configuration class for DataScoreComputationEngine
+ */
+public final class DataScoreComputationEngineConfiguration {
+
+    /**
+     * Default value of prefetched chunks.
+     * Used when value is not defined in the builder.
+     */
+    static final int DEFAULT_PREFETCHED_CHUNKS = 8;
+
+    /**
+     * Default value of maximum pending asynchronous requests.
+     * Used when value is not defined in the builder.
+     */
+    static final int DEFAULT_MAX_PENDING_REQUESTS = 1000;
+
+    /**
+     * Defines a pool that scores chunks of resources in parallel.
+     * When not defined, chunks are scored sequentially on a calling thread.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Defines how many chunks of resources are prefetched
+     * and scored in parallel at once.
+     */
+    private final int prefetchedChunks;
+
+    /**
+     * Defines an executor of asynchronous requests.
+     */
+    private final Executor executor;
+
+    /**
+     * Defines an inclusive limit of asynchronous requests that are accepted
+     * but not completed yet. When exceeded new requests are rejected.
+     */
+    private final int maxPendingRequests;
+
+    private DataScoreComputationEngineConfiguration(
+            final ForkJoinPool pool,
+            final int prefetchedChunks,
+            final Executor executor,
+            final int maxPendingRequests) {
+        this.pool = pool;
+        this.prefetchedChunks = prefetchedChunks;
+        this.executor = executor;
+        this.maxPendingRequests = maxPendingRequests;
+        validate();
+    }
+
+    /**
+     * Defines a pool that scores chunks of resources in parallel.
+     * @return a pool if parallel find is enabled
+     */
+    Optional<ForkJoinPool> getPool() {
+        return Optional.ofNullable(pool);
+    }
+
+    /**
+     * Defines how many chunks of resources are prefetched
+     * and scored in parallel at once.
+     * @return current prefetched chunks value
+     */
+    int getPrefetchedChunks() {
+        return prefetchedChunks;
+    }
+
+    /**
+     * Defines an executor of asynchronous requests.
+     * @return current executor
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Defines an inclusive limit of asynchronous requests that are accepted
+     * but not completed yet. When exceeded new requests are rejected.
+     * @return current maximum pending requests value
+     */
+    int getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    private void validate() {
+        if (this.prefetchedChunks <= 0) {
+            throw new IllegalArgumentException("Prefetched chunks must be greater than 0");
+        }
+        if (this.executor == null) {
+            throw new IllegalArgumentException("Executor may not be null");
+        }
+        if (this.maxPendingRequests <= 0) {
+            throw new IllegalArgumentException("Max pending requests must be greater than 0");
+        }
+    }
+
+    public static DataScoreComputationEngineConfigurationBuilder builder() {
+        return new DataScoreComputationEngineConfigurationBuilder();
+    }
+
+    public static final class DataScoreComputationEngineConfigurationBuilder {
+
+        private ForkJoinPool pool;
+        private int prefetchedChunks;
+        private Executor executor;
+        private int maxPendingRequests;
+
+        private DataScoreComputationEngineConfigurationBuilder() {
+            pool = null;
+            prefetchedChunks = DEFAULT_PREFETCHED_CHUNKS;
+            executor = ForkJoinPool.commonPool();
+            maxPendingRequests = DEFAULT_MAX_PENDING_REQUESTS;
+        }
+
+        /**
+         * Enables parallel find on a given pool
+         * @param pool a pool that scores chunks of resources
+         * @return builder
+         */
+        public DataScoreComputationEngineConfigurationBuilder parallel(final ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public DataScoreComputationEngineConfigurationBuilder prefetchedChunks(final int prefetchedChunks) {
+            this.prefetchedChunks = prefetchedChunks;
+            return this;
+        }
+
+        public DataScoreComputationEngineConfigurationBuilder executor(final Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public DataScoreComputationEngineConfigurationBuilder maxPendingRequests(final int maxPendingRequests) {
+            this.maxPendingRequests = maxPendingRequests;
+            return this;
+        }
+
+        public DataScoreComputationEngineConfiguration build() {
+            return new DataScoreComputationEngineConfiguration(
+                    pool, prefetchedChunks, executor, maxPendingRequests);
+        }
+    }
+}
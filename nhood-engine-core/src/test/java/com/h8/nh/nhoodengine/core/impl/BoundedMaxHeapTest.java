@@ -0,0 +1,149 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedMaxHeapTest {
+
+    @Test
+    void shouldNotCreateHeapWithIllegalLimit() {
+        // when / then
+        assertThatThrownBy(() -> new BoundedMaxHeap<Integer>(0, Comparator.naturalOrder()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Heap limit must be greater than 0")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldAcceptElementsUntilLimitIsReached() {
+        // given
+        BoundedMaxHeap<Integer> heap = new BoundedMaxHeap<>(3, Comparator.naturalOrder());
+
+        // when
+        boolean first = heap.offer(3.0, 3);
+        boolean second = heap.offer(1.0, 1);
+
+        // then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(heap.size()).isEqualTo(2);
+        assertThat(heap.isFull()).isFalse();
+        assertThat(heap.peekScore()).isEqualTo(3.0);
+    }
+
+    @Test
+    void shouldRejectElementsWorseThanTheWorstKeptOneWhenFull() {
+        // given
+        BoundedMaxHeap<Integer> heap = new BoundedMaxHeap<>(2, Comparator.naturalOrder());
+        heap.offer(1.0, 1);
+        heap.offer(2.0, 2);
+
+        // when
+        boolean result = heap.offer(5.0, 5);
+
+        // then
+        assertThat(result).isFalse();
+        assertThat(heap.isFull()).isTrue();
+        assertThat(heap.peekScore()).isEqualTo(2.0);
+        assertThat(elements(heap)).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void shouldReplaceTheWorstKeptElementWhenFull() {
+        // given
+        BoundedMaxHeap<Integer> heap = new BoundedMaxHeap<>(2, Comparator.naturalOrder());
+        heap.offer(1.0, 1);
+        heap.offer(4.0, 4);
+
+        // when
+        boolean result = heap.offer(2.0, 2);
+
+        // then
+        assertThat(result).isTrue();
+        assertThat(heap.peekScore()).isEqualTo(2.0);
+        assertThat(elements(heap)).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void shouldUseComparatorWhenScoresAreEqual() {
+        // given
+        BoundedMaxHeap<Integer> heap = new BoundedMaxHeap<>(1, Comparator.naturalOrder());
+        heap.offer(1.0, 7);
+
+        // when
+        boolean lower = heap.offer(1.0, 3);
+        boolean higher = heap.offer(1.0, 9);
+
+        // then
+        assertThat(lower).isTrue();
+        assertThat(higher).isFalse();
+        assertThat(elements(heap)).containsExactly(3);
+    }
+
+    @Test
+    void shouldKeepEqualElementsOfferedMoreThanOnce() {
+        // given
+        BoundedMaxHeap<Integer> heap = new BoundedMaxHeap<>(3, Comparator.naturalOrder());
+        heap.offer(1.0, 1);
+
+        // when
+        boolean again = heap.offer(1.0, 1);
+
+        // then
+        assertThat(again).isTrue();
+        assertThat(heap.size()).isEqualTo(2);
+        assertThat(elements(heap)).containsExactly(1, 1);
+    }
+
+    @Test
+    void shouldKeepElementsOfLowestScores() {
+        // given
+        Random random = new Random(0);
+        List<Integer> values = IntStream.range(0, 1000)
+                .mapToObj(i -> random.nextInt(10000))
+                .collect(Collectors.toList());
+        BoundedMaxHeap<Integer> heap = new BoundedMaxHeap<>(100, Comparator.naturalOrder());
+
+        // when
+        values.forEach(v -> heap.offer(v, v));
+
+        // then
+        List<Integer> expected = values.stream()
+                .sorted()
+                .limit(100)
+                .collect(Collectors.toList());
+        assertThat(elements(heap)).containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(heap.peekScore()).isEqualTo(expected.get(expected.size() - 1).doubleValue());
+    }
+
+    @Test
+    void shouldGrowBeyondInitialCapacityWhenLimitIsHuge() {
+        // given
+        BoundedMaxHeap<Integer> heap = new BoundedMaxHeap<>(Integer.MAX_VALUE, Comparator.naturalOrder());
+
+        // when
+        IntStream.range(0, 1000).forEach(i -> heap.offer(i, i));
+
+        // then
+        assertThat(heap.size()).isEqualTo(1000);
+        assertThat(heap.isFull()).isFalse();
+        assertThat(heap.peekScore()).isEqualTo(999.0);
+    }
+
+    private static List<Integer> elements(final BoundedMaxHeap<Integer> heap) {
+        List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < heap.size(); i++) {
+            elements.add(heap.elementAt(i));
+        }
+        return elements;
+    }
+}
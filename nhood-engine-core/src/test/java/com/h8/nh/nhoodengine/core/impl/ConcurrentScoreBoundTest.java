@@ -0,0 +1,48 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrentScoreBoundTest {
+
+    @Test
+    void shouldNotBeBoundedWhenCreated() {
+        // when
+        ConcurrentScoreBound bound = new ConcurrentScoreBound();
+
+        // then
+        assertThat(bound.isBounded()).isFalse();
+        assertThat(bound.get()).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void shouldOnlyBeLowered() {
+        // given
+        ConcurrentScoreBound bound = new ConcurrentScoreBound();
+
+        // when
+        bound.lower(5.0);
+        bound.lower(7.0);
+
+        // then
+        assertThat(bound.isBounded()).isTrue();
+        assertThat(bound.get()).isEqualTo(5.0);
+    }
+
+    @Test
+    void shouldKeepTheLowestScoreWhenLoweredConcurrently() {
+        // given
+        ConcurrentScoreBound bound = new ConcurrentScoreBound();
+
+        // when
+        IntStream.range(0, 10000)
+                .parallel()
+                .forEach(i -> bound.lower(10000 - i));
+
+        // then
+        assertThat(bound.get()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,133 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import com.h8.nh.nhoodengine.core.DataFinderResult;
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellBasedRepository;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataFinderResultIteratorTest {
+
+    private static final int METADATA_SIZE = 3;
+
+    private static final int RESOURCES_COUNT = 2000;
+
+    private static final int LIMIT = 5;
+
+    private final DistanceMetric metric = DistanceMetrics.euclidean();
+
+    private final DataResourceKey metadata = () -> new BigDecimal[]{
+            BigDecimal.valueOf(500), BigDecimal.valueOf(500), BigDecimal.valueOf(500)};
+
+    private final List<DataResource<DataResourceKey, Object>> resources = new ArrayList<>();
+
+    private final AtomicInteger keyReads = new AtomicInteger();
+
+    private DataMatrixCellBasedRepository<DataResourceKey, Object> repository;
+
+    @BeforeEach
+    void setUp() throws DataMatrixRepositoryFailedException {
+        Random random = new Random(1L);
+        repository = new DataMatrixCellBasedRepository<>(METADATA_SIZE,
+                DataMatrixCellConfiguration.builder()
+                        .cellSize(256)
+                        .build());
+        for (int i = 0; i < RESOURCES_COUNT; i++) {
+            BigDecimal[] key = new BigDecimal[METADATA_SIZE];
+            for (int d = 0; d < METADATA_SIZE; d++) {
+                key[d] = BigDecimal.valueOf(random.nextInt(1000));
+            }
+            DataResource<DataResourceKey, Object> resource = new DataResource<>(() -> {
+                keyReads.incrementAndGet();
+                return key;
+            }, i);
+            resources.add(resource);
+            repository.add(resource);
+        }
+    }
+
+    @Test
+    void shouldKeepNoMoreCandidatesThanRemainingResults() throws DataMatrixRepositoryFailedException {
+        // given
+        DataFinderResultIterator<DataResourceKey, Object> iterator = new DataFinderResultIterator<>(
+                repository.findNeighbours(metadata, metric), metric, metadata.unifiedDoubles(),
+                LIMIT, Double.POSITIVE_INFINITY);
+
+        // when
+        List<DataResource<DataResourceKey, Object>> results = new ArrayList<>();
+        List<Integer> candidatesCounts = new ArrayList<>();
+        while (iterator.hasNext()) {
+            candidatesCounts.add(iterator.candidatesCount());
+            results.add(iterator.next().getResource());
+        }
+
+        // then
+        assertThat(candidatesCounts).hasSize(LIMIT);
+        for (int i = 0; i < LIMIT; i++) {
+            assertThat(candidatesCounts.get(i)).isBetween(1, LIMIT - i);
+        }
+        assertThat(results).containsExactlyElementsOf(nearest(LIMIT));
+    }
+
+    @Test
+    void shouldScorePackedCoordinatesWithoutReadingKeysOfResources() throws DataMatrixRepositoryFailedException {
+        // given
+        DataFinderResultIterator<DataResourceKey, Object> iterator = new DataFinderResultIterator<>(
+                repository.findNeighbours(metadata, metric), metric, metadata.unifiedDoubles(),
+                LIMIT, Double.POSITIVE_INFINITY);
+        keyReads.set(0);
+
+        // when
+        List<DataResource<DataResourceKey, Object>> results = new ArrayList<>();
+        iterator.forEachRemaining(r -> results.add(r.getResource()));
+
+        // then
+        assertThat(keyReads).hasValue(0);
+        assertThat(results).containsExactlyElementsOf(nearest(LIMIT));
+    }
+
+    @Test
+    void shouldEmitAllResourcesInAnOrderOfDistanceWhenUnlimited() throws DataMatrixRepositoryFailedException {
+        // given
+        DataFinderResultIterator<DataResourceKey, Object> iterator = new DataFinderResultIterator<>(
+                repository.findNeighbours(metadata, metric), metric, metadata.unifiedDoubles(),
+                Integer.MAX_VALUE, Double.POSITIVE_INFINITY);
+
+        // when
+        List<DataFinderResult<DataResourceKey, Object>> results = new ArrayList<>();
+        iterator.forEachRemaining(results::add);
+
+        // then
+        assertThat(results)
+                .extracting(DataFinderResult::getResource)
+                .containsExactlyInAnyOrderElementsOf(resources);
+        assertThat(results)
+                .extracting(DataFinderResult::getScore)
+                .isSorted();
+    }
+
+    private List<DataResource<DataResourceKey, Object>> nearest(final int count) {
+        double[] point = metadata.unifiedDoubles();
+        return resources.stream()
+                .sorted(Comparator.<DataResource<DataResourceKey, Object>>comparingDouble(
+                        r -> metric.rank(point, r.getKey().unifiedDoubles()))
+                        .thenComparing(r -> r))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,139 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import com.h8.nh.nhoodengine.core.DataFinderCriteria;
+import com.h8.nh.nhoodengine.core.DataFinderRejectedException;
+import com.h8.nh.nhoodengine.core.DataFinderResult;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellBasedRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataScoreComputationEngineAsyncTest {
+
+    private static final int METADATA_SIZE = 3;
+
+    private final DataFinderCriteria<DataResourceKey> criteria = DataFinderCriteria.<DataResourceKey>builder()
+            .metadata(() -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO})
+            .limit(1)
+            .build();
+
+    @Test
+    void shouldRejectRequestsExceedingMaxPendingRequests() {
+        // given
+        DeferredExecutor executor = new DeferredExecutor();
+        DataScoreComputationEngine<DataResourceKey, Object> engine = engine(executor, 2);
+
+        // when
+        CompletableFuture<List<DataFinderResult<DataResourceKey, Object>>> first = engine.findAsync(criteria);
+        CompletableFuture<List<DataFinderResult<DataResourceKey, Object>>> second = engine.findAsync(criteria);
+        CompletableFuture<List<DataFinderResult<DataResourceKey, Object>>> third = engine.findAsync(criteria);
+
+        // then
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+        assertThatThrownBy(third::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataFinderRejectedException.class)
+                .hasRootCauseMessage("Could not accept find request because of too many pending requests");
+    }
+
+    @Test
+    void shouldAcceptNewRequestsWhenPendingRequestsAreCompleted()
+            throws InterruptedException, ExecutionException {
+        // given
+        DeferredExecutor executor = new DeferredExecutor();
+        DataScoreComputationEngine<DataResourceKey, Object> engine = engine(executor, 1);
+        CompletableFuture<List<DataFinderResult<DataResourceKey, Object>>> first = engine.findAsync(criteria);
+
+        // when
+        executor.runAll();
+        CompletableFuture<List<DataFinderResult<DataResourceKey, Object>>> second = engine.findAsync(criteria);
+        executor.runAll();
+
+        // then
+        assertThat(first.get()).isEmpty();
+        assertThat(second.get()).isEmpty();
+    }
+
+    @Test
+    void shouldCompleteRequestsFailedWithErrorAndAcceptNewRequests()
+            throws InterruptedException, ExecutionException {
+        // given
+        DeferredExecutor executor = new DeferredExecutor();
+        DataScoreComputationEngine<DataResourceKey, Object> engine = engine(executor, 1);
+        DataFinderCriteria<DataResourceKey> failing = DataFinderCriteria.<DataResourceKey>builder()
+                .metadata(() -> {
+                    throw new AssertionError("Metadata could not be read");
+                })
+                .limit(1)
+                .build();
+        CompletableFuture<List<DataFinderResult<DataResourceKey, Object>>> first = engine.findAsync(failing);
+
+        // when
+        executor.runAll();
+        CompletableFuture<List<DataFinderResult<DataResourceKey, Object>>> second = engine.findAsync(criteria);
+        executor.runAll();
+
+        // then
+        assertThatThrownBy(first::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AssertionError.class)
+                .hasRootCauseMessage("Metadata could not be read");
+        assertThat(second.get()).isEmpty();
+    }
+
+    @Test
+    void shouldRejectRequestsRejectedByExecutor() {
+        // given
+        Executor executor = r -> {
+            throw new RejectedExecutionException("Executor is shut down");
+        };
+        DataScoreComputationEngine<DataResourceKey, Object> engine = engine(executor, 1);
+
+        // when
+        CompletableFuture<List<DataFinderResult<DataResourceKey, Object>>> future = engine.findAsync(criteria);
+
+        // then
+        assertThatThrownBy(future::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataFinderRejectedException.class)
+                .hasRootCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    private static DataScoreComputationEngine<DataResourceKey, Object> engine(
+            final Executor executor,
+            final int maxPendingRequests) {
+        return new DataScoreComputationEngine<>(
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE),
+                DataScoreComputationEngineConfiguration.builder()
+                        .executor(executor)
+                        .maxPendingRequests(maxPendingRequests)
+                        .build());
+    }
+
+    private static final class DeferredExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(final Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            List<Runnable> toRun = new ArrayList<>(tasks);
+            tasks.clear();
+            toRun.forEach(Runnable::run);
+        }
+    }
+}
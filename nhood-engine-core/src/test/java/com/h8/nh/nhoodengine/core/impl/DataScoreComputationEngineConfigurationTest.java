@@ -0,0 +1,89 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataScoreComputationEngineConfigurationTest {
+
+    @Test
+    void shouldBuildNewConfigurationWithDefaultValues() {
+        // when
+        DataScoreComputationEngineConfiguration configuration = DataScoreComputationEngineConfiguration.builder()
+                .build();
+
+        // then
+        assertThat(configuration.getPool())
+                .isEmpty();
+        assertThat(configuration.getPrefetchedChunks())
+                .isEqualTo(DataScoreComputationEngineConfiguration.DEFAULT_PREFETCHED_CHUNKS);
+        assertThat(configuration.getExecutor())
+                .isEqualTo(ForkJoinPool.commonPool());
+        assertThat(configuration.getMaxPendingRequests())
+                .isEqualTo(DataScoreComputationEngineConfiguration.DEFAULT_MAX_PENDING_REQUESTS);
+    }
+
+    @Test
+    void shouldBuildNewConfigurationWithGivenValues() {
+        // given
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int prefetchedChunks = 2;
+        Executor executor = Runnable::run;
+        int maxPendingRequests = 3;
+
+        // when
+        DataScoreComputationEngineConfiguration configuration = DataScoreComputationEngineConfiguration.builder()
+                .parallel(pool)
+                .prefetchedChunks(prefetchedChunks)
+                .executor(executor)
+                .maxPendingRequests(maxPendingRequests)
+                .build();
+
+        // then
+        assertThat(configuration.getPool())
+                .contains(pool);
+        assertThat(configuration.getPrefetchedChunks())
+                .isEqualTo(prefetchedChunks);
+        assertThat(configuration.getExecutor())
+                .isEqualTo(executor);
+        assertThat(configuration.getMaxPendingRequests())
+                .isEqualTo(maxPendingRequests);
+    }
+
+    @Test
+    void shouldValidateIllegalPrefetchedChunksWhenConstructed() {
+        // when / then
+        assertThatThrownBy(() -> DataScoreComputationEngineConfiguration.builder()
+                .prefetchedChunks(0)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Prefetched chunks must be greater than 0")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateNullExecutorWhenConstructed() {
+        // when / then
+        assertThatThrownBy(() -> DataScoreComputationEngineConfiguration.builder()
+                .executor(null)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Executor may not be null")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateIllegalMaxPendingRequestsWhenConstructed() {
+        // when / then
+        assertThatThrownBy(() -> DataScoreComputationEngineConfiguration.builder()
+                .maxPendingRequests(0)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Max pending requests must be greater than 0")
+                .hasNoCause();
+    }
+}
@@ -0,0 +1,22 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import com.h8.nh.nhoodengine.core.DataFinderAbstractTest;
+import com.h8.nh.nhoodengine.core.DataFinderTestContext;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellConfiguration;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellStorage;
+
+class DataScoreComputationEngineOffHeapTest extends DataFinderAbstractTest<DataResourceKey, Object> {
+
+    private static final int CELL_SIZE = 10;
+
+    @Override
+    protected DataFinderTestContext<DataResourceKey, Object> initializeContext() {
+        return new DataScoreComputationEngineTestContext(
+                DataScoreComputationEngineConfiguration.builder().build(),
+                DataMatrixCellConfiguration.builder()
+                        .cellSize(CELL_SIZE)
+                        .storage(DataMatrixCellStorage.OFF_HEAP)
+                        .build());
+    }
+}
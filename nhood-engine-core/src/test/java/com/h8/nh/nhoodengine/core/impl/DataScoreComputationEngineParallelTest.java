@@ -0,0 +1,19 @@
+package com.h8.nh.nhoodengine.core.impl;
+
+import com.h8.nh.nhoodengine.core.DataFinderAbstractTest;
+import com.h8.nh.nhoodengine.core.DataFinderTestContext;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+
+import java.util.concurrent.ForkJoinPool;
+
+class DataScoreComputationEngineParallelTest extends DataFinderAbstractTest<DataResourceKey, Object> {
+
+    @Override
+    protected DataFinderTestContext<DataResourceKey, Object> initializeContext() {
+        return new DataScoreComputationEngineTestContext(
+                DataScoreComputationEngineConfiguration.builder()
+                        .parallel(ForkJoinPool.commonPool())
+                        .prefetchedChunks(4)
+                        .build());
+    }
+}
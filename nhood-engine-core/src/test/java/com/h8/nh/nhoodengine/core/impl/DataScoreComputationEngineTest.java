@@ -1,8 +1,25 @@
 package com.h8.nh.nhoodengine.core.impl;
 
 import com.h8.nh.nhoodengine.core.DataFinderAbstractTest;
+import com.h8.nh.nhoodengine.core.DataFinderCriteria;
+import com.h8.nh.nhoodengine.core.DataFinderFailedException;
+import com.h8.nh.nhoodengine.core.DataFinderResult;
 import com.h8.nh.nhoodengine.core.DataFinderTestContext;
+import com.h8.nh.nhoodengine.core.DataResource;
 import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellBasedRepository;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 class DataScoreComputationEngineTest extends DataFinderAbstractTest<DataResourceKey, Object> {
 
@@ -10,4 +27,51 @@ class DataScoreComputationEngineTest extends DataFinderAbstractTest<DataResource
     protected DataFinderTestContext<DataResourceKey, Object> initializeContext() {
         return new DataScoreComputationEngineTestContext();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldFindAllWithoutReadingKeysOfResources()
+            throws DataMatrixRepositoryFailedException, DataFinderFailedException {
+        // given
+        AtomicInteger keyReads = new AtomicInteger();
+        DataMatrixCellBasedRepository<DataResourceKey, Object> repository =
+                new DataMatrixCellBasedRepository<>(3, DataMatrixCellConfiguration.builder()
+                        .cellSize(16)
+                        .build());
+        Random random = new Random(1L);
+        for (int i = 0; i < 500; i++) {
+            BigDecimal[] key = new BigDecimal[]{
+                    BigDecimal.valueOf(random.nextInt(100)),
+                    BigDecimal.valueOf(random.nextInt(100)),
+                    BigDecimal.valueOf(random.nextInt(100))};
+            repository.add(new DataResource<>(() -> {
+                keyReads.incrementAndGet();
+                return key;
+            }, i));
+        }
+        DataScoreComputationEngine<DataResourceKey, Object> engine = new DataScoreComputationEngine<>(repository);
+        List<DataFinderCriteria<DataResourceKey>> criteria = Arrays.asList(criteria(10), criteria(90));
+        keyReads.set(0);
+
+        // when
+        List<List<DataFinderResult<DataResourceKey, Object>>> results = engine.findAll(criteria);
+
+        // then
+        assertThat(keyReads).hasValue(0);
+        for (int i = 0; i < criteria.size(); i++) {
+            assertThat(results.get(i))
+                    .extracting(DataFinderResult::getResource)
+                    .containsExactlyElementsOf(engine.find(criteria.get(i)).stream()
+                            .map(DataFinderResult::getResource)
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    private static DataFinderCriteria<DataResourceKey> criteria(final int value) {
+        BigDecimal[] metadata = new BigDecimal[]{
+                BigDecimal.valueOf(value), BigDecimal.valueOf(value), BigDecimal.valueOf(value)};
+        return DataFinderCriteria.<DataResourceKey>builder()
+                .metadata(() -> metadata)
+                .limit(5)
+                .build();
+    }
+}
@@ -7,6 +7,7 @@ import com.h8.nh.nhoodengine.core.DataResourceKey;
 import com.h8.nh.nhoodengine.matrix.DataMatrixRepository;
 import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
 import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellBasedRepository;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellConfiguration;
 import org.assertj.core.api.Assertions;
 
 import java.util.Arrays;
@@ -17,16 +18,29 @@ public final class DataScoreComputationEngineTestContext
     private static final int METADATA_SIZE = 3;
 
     private final DataMatrixRepository<DataResourceKey, Object> repository;
+    private final DataScoreComputationEngineConfiguration configuration;
 
     private int registered;
 
     DataScoreComputationEngineTestContext() {
-        this.repository = new DataMatrixCellBasedRepository<>(METADATA_SIZE);
+        this(DataScoreComputationEngineConfiguration.builder().build());
+    }
+
+    DataScoreComputationEngineTestContext(
+            final DataScoreComputationEngineConfiguration configuration) {
+        this(configuration, DataMatrixCellConfiguration.builder().build());
+    }
+
+    DataScoreComputationEngineTestContext(
+            final DataScoreComputationEngineConfiguration configuration,
+            final DataMatrixCellConfiguration repositoryConfiguration) {
+        this.repository = new DataMatrixCellBasedRepository<>(METADATA_SIZE, repositoryConfiguration);
+        this.configuration = configuration;
     }
 
     @Override
     public DataFinder<DataResourceKey, Object> initializeDataFinder() {
-        return new DataScoreComputationEngine<>(repository);
+        return new DataScoreComputationEngine<>(repository, configuration);
     }
 
     @Override
@@ -2,7 +2,11 @@ package com.h8.nh.nhoodengine.matrix;
 
 import com.h8.nh.nhoodengine.core.DataResource;
 import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -31,6 +35,27 @@ public interface DataMatrixRepository<K extends DataResourceKey, D> {
     void add(DataResource<K, D> resource)
             throws DataMatrixRepositoryFailedException;
 
+    /**
+     * Add a collection of data resources into data matrix.
+     * Implementations may index the whole collection at once,
+     * which is expected to be much faster than adding resources one by one.
+     *
+     * @param resources a collection of data resources to be indexed
+     *
+     * @throws DataMatrixRepositoryFailedException
+     * when resources may not be added
+     */
+    default void addAll(Collection<DataResource<K, D>> resources)
+            throws DataMatrixRepositoryFailedException {
+        if (resources == null) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Data resources may not be null");
+        }
+        for (DataResource<K, D> resource : resources) {
+            add(resource);
+        }
+    }
+
     /**
      * Find and return data resource from data matrix.
      *
@@ -58,14 +83,63 @@ public interface DataMatrixRepository<K extends DataResourceKey, D> {
             throws DataDoesNotExistException, DataMatrixRepositoryFailedException;
 
     /**
-     * Returns an iterator of data resources closes to the given metadata vector.
+     * Returns an iterator of data resources closes to the given metadata vector
+     * in terms of euclidean distance.
+     *
+     * @param metadata metadata vector
+     * @return an iterator of data resource chunks
+     *
+     * @throws DataMatrixRepositoryFailedException
+     * when find operation cannot be performed
+     */
+    default DataMatrixResourceIterator<K, D> findNeighbours(K metadata)
+            throws DataMatrixRepositoryFailedException {
+        return findNeighbours(metadata, DistanceMetrics.euclidean());
+    }
+
+    /**
+     * Returns an iterator of data resources closes to the given metadata vector
+     * in terms of a given distance metric.
+     * Ranges passed to the returned iterator are expressed as distances of the metric.
      *
      * @param metadata metadata vector
+     * @param metric distance metric
      * @return an iterator of data resource chunks
      *
      * @throws DataMatrixRepositoryFailedException
      * when find operation cannot be performed
      */
-    DataMatrixResourceIterator<K, D> findNeighbours(K metadata)
+    DataMatrixResourceIterator<K, D> findNeighbours(K metadata, DistanceMetric metric)
+            throws DataMatrixRepositoryFailedException;
+
+    /**
+     * Returns a batch iterator of data resources closes to any of the given metadata vectors
+     * in terms of euclidean distance.
+     *
+     * @param metadata a list of metadata vectors
+     * @return a batch iterator of data resource chunks
+     *
+     * @throws DataMatrixRepositoryFailedException
+     * when find operation cannot be performed
+     */
+    default DataMatrixResourceBatchIterator<K, D> findNeighbours(List<K> metadata)
+            throws DataMatrixRepositoryFailedException {
+        return findNeighbours(metadata, DistanceMetrics.euclidean());
+    }
+
+    /**
+     * Returns a batch iterator of data resources closes to any of the given metadata vectors
+     * in terms of a given distance metric.
+     * Each chunk of resources is returned once for the whole batch.
+     * Ranges passed to the returned iterator are expressed as distances of the metric.
+     *
+     * @param metadata a list of metadata vectors
+     * @param metric distance metric
+     * @return a batch iterator of data resource chunks
+     *
+     * @throws DataMatrixRepositoryFailedException
+     * when find operation cannot be performed
+     */
+    DataMatrixResourceBatchIterator<K, D> findNeighbours(List<K> metadata, DistanceMetric metric)
             throws DataMatrixRepositoryFailedException;
 }
@@ -0,0 +1,61 @@
+package com.h8.nh.nhoodengine.matrix;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+
+import java.util.Set;
+
+/**
+ * This interface represents an iterator though all
+ * {@link DataResource} elements returned by the repository
+ * for a batch of entry points.
+ *
+ * Each chunk of resources is returned only once for the whole batch,
+ * together with an information which of entry points it may be relevant for.
+ * Entry points are identified by their position within the batch.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+public interface DataMatrixResourceBatchIterator<K extends DataResourceKey, D> {
+
+    /**
+     * Return a chunk of resources found around any of given entry points.
+     * @return a next chunk of resources
+     */
+    Set<DataResource<K, D>> next();
+
+    /**
+     * Return a chunk of resources found around any of given entry points
+     * as a block of packed coordinates. It is an alternative of {@link #next()}
+     * which lets implementations avoid resolving resources before they are scored.
+     * By default it packs resources returned by {@link #next()}.
+     * @return a next chunk of resources
+     */
+    default DataMatrixResourceBlock<K, D> nextBlock() {
+        return DataMatrixResourceBlock.of(next());
+    }
+
+    /**
+     * Informs if there are more resources that include neighbours
+     * of any of given entry points within their ranges.
+     * @return there is another chunk of resources
+     */
+    boolean hasNext();
+
+    /**
+     * Informs if the latest chunk of resources may include neighbours
+     * of a given entry point within its range.
+     * @param entryPoint a position of an entry point within the batch
+     * @return the latest chunk is relevant for a given entry point
+     */
+    boolean isRelevantFor(int entryPoint);
+
+    /**
+     * Narrows a range of neighbours of a given entry point.
+     * Chunks which are out of ranges of all entry points are skipped.
+     * @param entryPoint a position of an entry point within the batch
+     * @param range a radius of neighbour range.
+     */
+    void limitTo(int entryPoint, double range);
+}
@@ -0,0 +1,81 @@
+package com.h8.nh.nhoodengine.matrix;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * This interface represents a chunk of resources returned by the repository
+ * as a block of packed unified primitive coordinates and identifiers.
+ *
+ * Coordinates of resources may be scored directly within the block,
+ * while {@link DataResource} objects are resolved only for resources of interest.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+public interface DataMatrixResourceBlock<K extends DataResourceKey, D> {
+
+    /**
+     * Returns a number of resources within the block
+     * @return size of the block
+     */
+    int size();
+
+    /**
+     * Returns packed unified primitive coordinates of resources.
+     * Coordinates of a resource are stored contiguously starting from its offset.
+     * @return coordinates of resources
+     */
+    double[] getCoordinates();
+
+    /**
+     * Returns an offset of coordinates of a resource within {@link #getCoordinates()}
+     * @param i a position of a resource within the block
+     * @return an index of the first coordinate of a resource
+     */
+    int getOffset(int i);
+
+    /**
+     * Computes a rank between a point and coordinates of a resource within the block.
+     * Blocks which do not keep coordinates in a heap array should override it
+     * in order to avoid copying all of them with {@link #getCoordinates()}.
+     * @param metric a distance metric
+     * @param point a point of interest
+     * @param i a position of a resource within the block
+     * @param bound a rank above which an exact result is not required
+     * @return a rank between points or any value greater than bound
+     */
+    default double rank(final DistanceMetric metric, final double[] point, final int i, final double bound) {
+        return metric.rank(point, getCoordinates(), getOffset(i), bound);
+    }
+
+    /**
+     * Returns an identifier of a resource
+     * @param i a position of a resource within the block
+     * @return a unique identifier of a resource or null when it has been removed from the block in the meantime
+     */
+    UUID getUuid(int i);
+
+    /**
+     * Resolves a resource of the repository
+     * @param i a position of a resource within the block
+     * @return a resource or null when it has been removed from the repository in the meantime
+     */
+    DataResource<K, D> resolve(int i);
+
+    /**
+     * Creates a block of given resources
+     * @param resources a collection of resources
+     * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+     * @param <D> a generic type of data resource.
+     * @return a block of resources
+     */
+    static <K extends DataResourceKey, D> DataMatrixResourceBlock<K, D> of(
+            final Collection<DataResource<K, D>> resources) {
+        return new DataMatrixResourceCollectionBlock<>(resources);
+    }
+}
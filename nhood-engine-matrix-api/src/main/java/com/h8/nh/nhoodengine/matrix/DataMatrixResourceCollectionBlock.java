@@ -0,0 +1,61 @@
+package com.h8.nh.nhoodengine.matrix;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * A block of resources that have been already resolved.
+ * Coordinates are copied from keys of resources.
+ */
+final class DataMatrixResourceCollectionBlock<K extends DataResourceKey, D>
+        implements DataMatrixResourceBlock<K, D> {
+
+    private final Object[] resources;
+    private final double[] coordinates;
+    private final int stride;
+
+    DataMatrixResourceCollectionBlock(final Collection<DataResource<K, D>> resources) {
+        this.resources = resources.toArray();
+        int size = 0;
+        double[] packed = new double[0];
+        for (int i = 0; i < this.resources.length; i++) {
+            double[] key = resolve(i).getKey().unifiedDoubles();
+            if (i == 0) {
+                size = key.length;
+                packed = new double[this.resources.length * size];
+            }
+            System.arraycopy(key, 0, packed, i * size, size);
+        }
+        this.coordinates = packed;
+        this.stride = size;
+    }
+
+    @Override
+    public int size() {
+        return resources.length;
+    }
+
+    @Override
+    public double[] getCoordinates() {
+        return coordinates;
+    }
+
+    @Override
+    public int getOffset(final int i) {
+        return i * stride;
+    }
+
+    @Override
+    public UUID getUuid(final int i) {
+        return resolve(i).getUuid();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataResource<K, D> resolve(final int i) {
+        return (DataResource<K, D>) resources[i];
+    }
+}
@@ -21,6 +21,17 @@ public interface DataMatrixResourceIterator<K extends DataResourceKey, D> {
      */
     Set<DataResource<K, D>> next();
 
+    /**
+     * Return a chunk of resources found around the given entry point
+     * as a block of packed coordinates. It is an alternative of {@link #next()}
+     * which lets implementations avoid resolving resources before they are scored.
+     * By default it packs resources returned by {@link #next()}.
+     * @return a next chunk of resources
+     */
+    default DataMatrixResourceBlock<K, D> nextBlock() {
+        return DataMatrixResourceBlock.of(next());
+    }
+
     /**
      * Informs if there are more resources that include neighbours
      * of given entry point
@@ -35,4 +46,30 @@ public interface DataMatrixResourceIterator<K extends DataResourceKey, D> {
      * @return there is another chunk of resources within a given radius
      */
     boolean hasNextWithinRange(BigDecimal range);
+
+    /**
+     * Informs if there are more resources that include neighbours
+     * of given entry point within a given range.
+     * This is a primitive counterpart of {@link #hasNextWithinRange(BigDecimal)}
+     * which avoids {@link BigDecimal} conversion while iterating.
+     * Implementations may skip chunks which are out of the latest given range
+     * in subsequent calls of {@link #next()}.
+     * @param range a radius of neighbour range.
+     * @return there is another chunk of resources within a given radius
+     */
+    default boolean hasNextWithinRange(final double range) {
+        return hasNextWithinRange(BigDecimal.valueOf(range));
+    }
+
+    /**
+     * Returns a lower bound of a distance between the entry point
+     * and any resource that has not been returned yet.
+     * Resources already returned and closer than the bound are known
+     * to be closer than any of remaining resources.
+     * By default it is 0, which makes no resource known to be final until iteration ends.
+     * @return a lower bound of a distance of remaining resources
+     */
+    default double remainingLowerBound() {
+        return 0.0;
+    }
 }
@@ -0,0 +1,157 @@
+package com.h8.nh;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataDoesNotExistException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepository;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryTestContext;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * DataMatrixRepositoryAbstractConcurrencyPerformanceTest is an abstract test class
+ * that measures how reads of DataMatrixRepository scale with a number of concurrent threads.
+ * <p>
+ * Readers crawl neighbours of random metadata keys block by block,
+ * while a writer of a mixed group keeps removing and re-adding resources of the repository.
+ * With the smallest data set all resources fit into a single leaf cell,
+ * so that all threads contend for the same cell.
+ * <p>
+ * A number of threads of a group may be adjusted with the JMH -tg option, e.g. -tg 8,1.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+@State(Scope.Group)
+public abstract class DataMatrixRepositoryAbstractConcurrencyPerformanceTest<K extends DataResourceKey, D> {
+
+    private static final int RESOURCE_DATA_POOL_SIZE = 1000;
+
+    private static final int RESOURCE_METADATA_POOL_SIZE = RESOURCE_DATA_POOL_SIZE;
+
+    private static final int RESOURCE_CRAWL_DEPTH = 10;
+
+    private static final int READER_THREADS = 4;
+
+    @Param({"9000", "100000"})
+    private int dataSetSize;
+
+    @Param({"8", "32"})
+    private int metadataSize;
+
+    private DataMatrixRepositoryTestContext<K, D> ctx = null;
+
+    private DataMatrixRepository<K, D> dataMatrixRepository = null;
+
+    private final List<DataResource<K, D>> generatedDataChunk = new ArrayList<>();
+
+    private Integer[][] randomMetadataPool;
+
+    private int nextWrite;
+
+    /**
+     * Creates a new instance of DataMatrixRepositoryTestContext which is ctx for the whole test suite.
+     *
+     * @return an instance of DataMatrixRepositoryTestContext.
+     */
+    protected abstract DataMatrixRepositoryTestContext<K, D> initializeContext();
+
+    final int getMetadataSize() {
+        return metadataSize;
+    }
+
+    @Setup(Level.Trial)
+    public final void prepareTrial()
+            throws DataMatrixRepositoryFailedException {
+        ctx = initializeContext();
+        dataMatrixRepository = ctx.initializerRepository();
+
+        for (int i = 0; i < dataSetSize; i++) {
+            DataResource<K, D> r = generateRandomData();
+            dataMatrixRepository.add(r);
+            if (i < RESOURCE_DATA_POOL_SIZE) {
+                generatedDataChunk.add(r);
+            }
+        }
+
+        randomMetadataPool = new Integer[RESOURCE_METADATA_POOL_SIZE][];
+        for (int i = 0; i < RESOURCE_METADATA_POOL_SIZE; i++) {
+            randomMetadataPool[i] = generateRandomMetadata();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Group("read")
+    @GroupThreads(READER_THREADS)
+    public final void crawlNeighbours(final Blackhole blackhole)
+            throws DataMatrixRepositoryFailedException {
+        crawl(blackhole);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Group("readWrite")
+    @GroupThreads(READER_THREADS)
+    public final void crawlNeighboursWhileWriting(final Blackhole blackhole)
+            throws DataMatrixRepositoryFailedException {
+        crawl(blackhole);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Group("readWrite")
+    @GroupThreads(1)
+    public final void removeAndAddResource()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        DataResource<K, D> r = generatedDataChunk.get(nextWrite);
+        nextWrite = (nextWrite + 1) % generatedDataChunk.size();
+        dataMatrixRepository.remove(r.getUuid());
+        dataMatrixRepository.add(r);
+    }
+
+    private void crawl(final Blackhole blackhole)
+            throws DataMatrixRepositoryFailedException {
+        int idx = ThreadLocalRandom.current().nextInt(RESOURCE_METADATA_POOL_SIZE);
+        K metadata = ctx.dataKey(randomMetadataPool[idx]);
+        DataMatrixResourceIterator<K, D> iterator = dataMatrixRepository.findNeighbours(metadata);
+        for (int i = 0; i < RESOURCE_CRAWL_DEPTH && iterator.hasNext(); i++) {
+            DataMatrixResourceBlock<K, D> block = iterator.nextBlock();
+            double[] coordinates = block.getCoordinates();
+            for (int j = 0; j < block.size(); j++) {
+                blackhole.consume(coordinates[block.getOffset(j)]);
+            }
+        }
+    }
+
+    private DataResource<K, D> generateRandomData() {
+        K metadata = ctx.dataKey(generateRandomMetadata());
+        return DataResource.<K, D>builder()
+                .key(metadata)
+                .data(ctx.data(metadata))
+                .build();
+    }
+
+    private Integer[] generateRandomMetadata() {
+        Integer[] v = new Integer[metadataSize];
+        Arrays.fill(v, ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE) - (Integer.MAX_VALUE / 2));
+        return v;
+    }
+}
@@ -61,6 +61,8 @@ public abstract class DataMatrixRepositoryAbstractPerformanceTest<K extends Data
 
     private Integer[][] randomMetadataPool;
 
+    private final List<DataResource<K, D>> generatedData = new ArrayList<>();
+
     private final List<DataResource<K, D>> generatedDataChunk = new ArrayList<>();
 
     private boolean revertRemovedDataChunk;
@@ -146,6 +148,26 @@ public abstract class DataMatrixRepositoryAbstractPerformanceTest<K extends Data
         }
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public final DataMatrixRepository<K, D> loadGeneratedResources()
+            throws DataMatrixRepositoryFailedException {
+        DataMatrixRepository<K, D> repository = ctx.initializerRepository();
+        for (DataResource<K, D> r : generatedData) {
+            repository.add(r);
+        }
+        return repository;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public final DataMatrixRepository<K, D> bulkLoadGeneratedResources()
+            throws DataMatrixRepositoryFailedException {
+        DataMatrixRepository<K, D> repository = ctx.initializerRepository();
+        repository.addAll(generatedData);
+        return repository;
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.AverageTime)
     public final void resolveNeighboursOfRandomMetadataKey()
@@ -176,6 +198,7 @@ public abstract class DataMatrixRepositoryAbstractPerformanceTest<K extends Data
             for (int i = 0; i < dataSetSize; i++) {
                 DataResource<K, D> r = generateRandomData();
                 dataMatrixRepository.add(r);
+                generatedData.add(r);
                 if (i < RESOURCE_DATA_POOL_SIZE) {
                     generatedDataChunk.add(r);
                 }
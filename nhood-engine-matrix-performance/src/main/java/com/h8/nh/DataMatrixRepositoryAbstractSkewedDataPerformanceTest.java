@@ -0,0 +1,174 @@
+package com.h8.nh;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepository;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryTestContext;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
+import com.h8.nh.nhoodengine.utils.measurement.MeasurementChain;
+import com.h8.nh.nhoodengine.utils.measurement.node.ExecutionTimeMeasurement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataMatrixRepositoryAbstractSkewedDataPerformanceTest is an abstract test class
+ * that measures nearest neighbour queries of DataMatrixRepository over skewed data.
+ * <p>
+ * Each coordinate of generated metadata is a uniformly random value raised to a power of a skew,
+ * so that for a skew greater than 1 resources crowd at the lower end of each dimension,
+ * as popularity-weighted vectors do. Queries are drawn from the same distribution.
+ * <p>
+ * A query crawls blocks of resources until its nearest neighbours are known to be exact.
+ * Beside a query latency, an average number of crawled blocks and resources per query
+ * is printed after each trial, which reveals how well the repository is partitioned.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+@State(Scope.Benchmark)
+public abstract class DataMatrixRepositoryAbstractSkewedDataPerformanceTest<K extends DataResourceKey, D> {
+
+    private static final long RANDOM_SEED = 1L;
+
+    private static final int RESOURCE_METADATA_POOL_SIZE = 1000;
+
+    private static final int NEIGHBOURS_COUNT = 100;
+
+    private static final DistanceMetric METRIC = DistanceMetrics.euclidean();
+
+    @Param({"100000", "1000000"})
+    private int dataSetSize;
+
+    @Param({"8", "32"})
+    private int metadataSize;
+
+    @Param({"1", "4", "16"})
+    private int skew;
+
+    private final Random random = new Random(RANDOM_SEED);
+
+    private DataMatrixRepositoryTestContext<K, D> ctx = null;
+
+    private DataMatrixRepository<K, D> dataMatrixRepository = null;
+
+    private List<K> randomMetadataPool;
+
+    private int nextQuery;
+
+    private long queries;
+
+    private long crawledBlocks;
+
+    private long crawledResources;
+
+    /**
+     * Creates a new instance of DataMatrixRepositoryTestContext which is ctx for the whole test suite.
+     *
+     * @return an instance of DataMatrixRepositoryTestContext.
+     */
+    protected abstract DataMatrixRepositoryTestContext<K, D> initializeContext();
+
+    final int getMetadataSize() {
+        return metadataSize;
+    }
+
+    @Setup(Level.Trial)
+    public final void prepareTrial() {
+        ctx = initializeContext();
+        dataMatrixRepository = ctx.initializerRepository();
+
+        MeasurementChain.of("Data preparation", this::generateInitialRepositoryData)
+                .measure(ExecutionTimeMeasurement.getInstance())
+                .run();
+
+        randomMetadataPool = new ArrayList<>(RESOURCE_METADATA_POOL_SIZE);
+        for (int i = 0; i < RESOURCE_METADATA_POOL_SIZE; i++) {
+            randomMetadataPool.add(ctx.dataKey(generateSkewedMetadata()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public final void reportTrial() {
+        System.out.println(
+                "Measurement::Data size:                   " + dataSetSize);
+        System.out.println(
+                "Measurement::Crawled blocks per query:    " + (double) crawledBlocks / queries);
+        System.out.println(
+                "Measurement::Crawled resources per query: " + (double) crawledResources / queries);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public final void findNearestNeighbours(final Blackhole blackhole)
+            throws DataMatrixRepositoryFailedException {
+        K metadata = randomMetadataPool.get(nextQuery);
+        nextQuery = (nextQuery + 1) % RESOURCE_METADATA_POOL_SIZE;
+
+        double[] key = metadata.unifiedDoubles();
+        PriorityQueue<Double> nearest = new PriorityQueue<>(NEIGHBOURS_COUNT, Collections.reverseOrder());
+        DataMatrixResourceIterator<K, D> iterator = dataMatrixRepository.findNeighbours(metadata, METRIC);
+        while (iterator.hasNext()
+                && (nearest.size() < NEIGHBOURS_COUNT || iterator.remainingLowerBound() < nearest.peek())) {
+            DataMatrixResourceBlock<K, D> block = iterator.nextBlock();
+            for (int i = 0; i < block.size(); i++) {
+                double distance = METRIC.toDistance(block.rank(METRIC, key, i, Double.POSITIVE_INFINITY));
+                if (nearest.size() < NEIGHBOURS_COUNT) {
+                    nearest.add(distance);
+                } else if (distance < nearest.peek()) {
+                    nearest.poll();
+                    nearest.add(distance);
+                }
+            }
+            crawledBlocks++;
+            crawledResources += block.size();
+        }
+        queries++;
+        blackhole.consume(nearest.peek());
+    }
+
+    private void generateInitialRepositoryData() {
+        List<DataResource<K, D>> data = new ArrayList<>(dataSetSize);
+        for (int i = 0; i < dataSetSize; i++) {
+            K metadata = ctx.dataKey(generateSkewedMetadata());
+            data.add(DataResource.<K, D>builder()
+                    .key(metadata)
+                    .data(ctx.data(metadata))
+                    .build());
+        }
+        try {
+            dataMatrixRepository.addAll(data);
+        } catch (DataMatrixRepositoryFailedException e) {
+            throw new IllegalStateException("Could not initialize data", e);
+        }
+    }
+
+    private Integer[] generateSkewedMetadata() {
+        Integer[] v = new Integer[metadataSize];
+        for (int i = 0; i < metadataSize; i++) {
+            double value = Math.pow(random.nextDouble(), skew) * Integer.MAX_VALUE;
+            v[i] = (int) value - (Integer.MAX_VALUE / 2);
+        }
+        return v;
+    }
+}
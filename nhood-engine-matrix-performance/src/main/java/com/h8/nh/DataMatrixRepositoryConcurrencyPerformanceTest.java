@@ -0,0 +1,13 @@
+package com.h8.nh;
+
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryTestContext;
+
+public class DataMatrixRepositoryConcurrencyPerformanceTest
+        extends DataMatrixRepositoryAbstractConcurrencyPerformanceTest<DataResourceKey, Object> {
+
+    @Override
+    protected final DataMatrixRepositoryTestContext<DataResourceKey, Object> initializeContext() {
+        return new DataMatrixRepositoryPerformanceTestContext(this.getMetadataSize());
+    }
+}
@@ -0,0 +1,34 @@
+package com.h8.nh;
+
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryTestContext;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellConfiguration;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellSplitStrategy;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellStorage;
+import org.openjdk.jmh.annotations.Param;
+
+public class DataMatrixRepositoryDimensionalityPerformanceTest
+        extends DataMatrixRepositoryAbstractDimensionalityPerformanceTest<DataResourceKey, Object> {
+
+    private static final int CELL_SIZE = 1000;
+
+    private static final int SPLIT_ITERATIONS = 3;
+
+    @Param({"WIDEST_DIMENSION", "WIDEST_DIMENSIONS", "VARIANCE"})
+    private DataMatrixCellSplitStrategy splitStrategy;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    private DataMatrixCellStorage storage;
+
+    @Override
+    protected final DataMatrixRepositoryTestContext<DataResourceKey, Object> initializeContext() {
+        return new DataMatrixRepositoryPerformanceTestContext(
+                this.getMetadataSize(),
+                DataMatrixCellConfiguration.builder()
+                        .cellSize(CELL_SIZE)
+                        .splitIterations(SPLIT_ITERATIONS)
+                        .splitStrategy(splitStrategy)
+                        .storage(storage)
+                        .build());
+    }
+}
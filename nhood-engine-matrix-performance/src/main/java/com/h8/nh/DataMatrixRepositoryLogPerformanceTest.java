@@ -0,0 +1,108 @@
+package com.h8.nh;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellBasedRepository;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellCodec;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellDataSerializer;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellLogSync;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * DataMatrixRepositoryLogPerformanceTest is a test class
+ * that measures a throughput of logged additions to DataMatrixCellBasedRepository
+ * under each policy of forcing its log file.
+ * <p>
+ * Concurrent writers keep adding new resources, each of them waiting until its modification
+ * is as durable as a policy requires. A number of writers may be adjusted with the JMH -t option.
+ */
+@State(Scope.Benchmark)
+public class DataMatrixRepositoryLogPerformanceTest {
+
+    private static final int WRITER_THREADS = 4;
+
+    private static final DataMatrixCellDataSerializer<Object> DATA = new DataMatrixCellDataSerializer<Object>() {
+        @Override
+        public void write(final Object data, final DataOutput output) throws IOException {
+            output.writeUTF(data.toString());
+        }
+
+        @Override
+        public Object read(final DataInput input) throws IOException {
+            return input.readUTF();
+        }
+    };
+
+    @Param({"EACH_WRITE", "GROUP", "NONE"})
+    private DataMatrixCellLogSync sync;
+
+    @Param({"8"})
+    private int metadataSize;
+
+    private Path directory;
+
+    private Path log;
+
+    private DataMatrixCellBasedRepository<DataResourceKey, Object> dataMatrixRepository;
+
+    @Setup(Level.Trial)
+    public final void prepareTrial()
+            throws IOException, DataMatrixRepositoryFailedException {
+        directory = Files.createTempDirectory("nhood-log");
+        log = directory.resolve("log");
+        dataMatrixRepository = new DataMatrixCellBasedRepository<>(metadataSize);
+        DataMatrixCellCodec<DataResourceKey, Object> codec = DataMatrixCellCodec.<DataResourceKey, Object>builder()
+                .metadataSize(metadataSize)
+                .keys(DataMatrixCellCodec.unifiedKeys())
+                .data(DATA)
+                .build();
+        dataMatrixRepository.attachLog(log, codec, sync);
+    }
+
+    @TearDown(Level.Trial)
+    public final void cleanTrial()
+            throws IOException, DataMatrixRepositoryFailedException {
+        dataMatrixRepository.detachLog();
+        System.out.println(
+                "Measurement::Log size (bytes): " + Files.size(log));
+        Files.deleteIfExists(log);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(WRITER_THREADS)
+    public final void addResource()
+            throws DataMatrixRepositoryFailedException {
+        dataMatrixRepository.add(generateRandomData());
+    }
+
+    private DataResource<DataResourceKey, Object> generateRandomData() {
+        BigDecimal[] v = new BigDecimal[metadataSize];
+        for (int i = 0; i < metadataSize; i++) {
+            v[i] = BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE) - (Integer.MAX_VALUE / 2));
+        }
+        return DataResource.<DataResourceKey, Object>builder()
+                .key(() -> v)
+                .data(Integer.toHexString(v[0].intValue()))
+                .build();
+    }
+}
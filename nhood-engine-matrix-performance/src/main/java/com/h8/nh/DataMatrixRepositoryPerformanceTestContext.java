@@ -4,6 +4,7 @@ import com.h8.nh.nhoodengine.core.DataResourceKey;
 import com.h8.nh.nhoodengine.matrix.DataMatrixRepository;
 import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryTestContext;
 import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellBasedRepository;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellConfiguration;
 
 import java.util.Arrays;
 
@@ -12,13 +13,22 @@ public final class DataMatrixRepositoryPerformanceTestContext
 
     private final int metadataSize;
 
+    private final DataMatrixCellConfiguration configuration;
+
     DataMatrixRepositoryPerformanceTestContext(final int metadataSize) {
+        this(metadataSize, DataMatrixCellConfiguration.builder().build());
+    }
+
+    DataMatrixRepositoryPerformanceTestContext(
+            final int metadataSize,
+            final DataMatrixCellConfiguration configuration) {
         this.metadataSize = metadataSize;
+        this.configuration = configuration;
     }
 
     @Override
     public DataMatrixRepository<DataResourceKey, Object> initializerRepository() {
-        return new DataMatrixCellBasedRepository<>(metadataSize);
+        return new DataMatrixCellBasedRepository<>(metadataSize, configuration);
     }
 
     @Override
@@ -0,0 +1,23 @@
+package com.h8.nh;
+
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryTestContext;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellConfiguration;
+import com.h8.nh.nhoodengine.matrix.impl.DataMatrixCellSplitPolicy;
+import org.openjdk.jmh.annotations.Param;
+
+public class DataMatrixRepositorySkewedDataPerformanceTest
+        extends DataMatrixRepositoryAbstractSkewedDataPerformanceTest<DataResourceKey, Object> {
+
+    @Param({"AVERAGE", "MEDIAN"})
+    private DataMatrixCellSplitPolicy splitPolicy;
+
+    @Override
+    protected final DataMatrixRepositoryTestContext<DataResourceKey, Object> initializeContext() {
+        return new DataMatrixRepositoryPerformanceTestContext(
+                this.getMetadataSize(),
+                DataMatrixCellConfiguration.builder()
+                        .splitPolicy(splitPolicy)
+                        .build());
+    }
+}
@@ -10,7 +10,10 @@ import org.junit.jupiter.api.TestInstance;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -134,6 +137,16 @@ public abstract class DataMatrixRepositoryAbstractTest<K extends DataResourceKey
                 .hasNoCause();
     }
 
+    @Override
+    @Test
+    public final void shouldNotAcceptNullCollectionOfResources() {
+        // given / when / then
+        assertThatThrownBy(() -> dataMatrixRepository.addAll(null))
+                .isInstanceOf(DataMatrixRepositoryFailedException.class)
+                .hasMessage("Data resources may not be null")
+                .hasNoCause();
+    }
+
     @Override
     @Test
     public final void shouldAcceptSameResourceWhenAddedMultipleTimes()
@@ -237,6 +250,75 @@ public abstract class DataMatrixRepositoryAbstractTest<K extends DataResourceKey
                 .contains(resource);
     }
 
+    @Override
+    @Test
+    public final void shouldReturnAllElementsAddedAtOnce()
+            throws DataMatrixRepositoryFailedException {
+        // given
+        List<DataResource<K, D>> resources = generateResources();
+
+        // when
+        dataMatrixRepository.addAll(resources);
+
+        // then
+        DataMatrixResourceIterator<K, D> iterator =
+                dataMatrixRepository.findNeighbours(resources.get(0).getKey());
+
+        List<DataResource<K, D>> retrievedResources = new ArrayList<>();
+
+        while (iterator.hasNext()) {
+            Set<DataResource<K, D>> chunk = iterator.next();
+            assertThat(chunk).isNotEmpty();
+            retrievedResources.addAll(chunk);
+        }
+
+        assertThat(retrievedResources)
+                .containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Override
+    @Test
+    public final void shouldReturnResourceOfAGivenKeyInTheVeryFirstChunkIfAddedAtOnce()
+            throws DataMatrixRepositoryFailedException {
+        // given
+        List<DataResource<K, D>> resources = generateResources();
+        dataMatrixRepository.addAll(resources);
+
+        for (DataResource<K, D> resource : Arrays.asList(
+                resources.get(0), resources.get(resources.size() / 2), resources.get(resources.size() - 1))) {
+            // when
+            DataMatrixResourceIterator<K, D> iterator =
+                    dataMatrixRepository.findNeighbours(resource.getKey());
+
+            // then
+            assertThat(iterator.hasNext()).isTrue();
+            assertThat(iterator.next())
+                    .contains(resource);
+        }
+    }
+
+    @Override
+    @Test
+    public final void shouldNotReturnRemovedDataAddedAtOnceAsNeighbour()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        List<DataResource<K, D>> resources = generateResources();
+        dataMatrixRepository.addAll(resources);
+        DataResource<K, D> resource = resources.get(0);
+
+        DataResource<K, D> removedResource = dataMatrixRepository.remove(resource.getUuid());
+        assertThat(removedResource).isEqualTo(resource);
+
+        // when
+        DataMatrixResourceIterator<K, D> iterator =
+                dataMatrixRepository.findNeighbours(resource.getKey());
+
+        // then
+        while (iterator.hasNext()) {
+            assertThat(iterator.next()).doesNotContain(resource);
+        }
+    }
+
     @Override
     @Test
     public final void shouldReturnNoEmptyChunks()
@@ -420,6 +502,123 @@ public abstract class DataMatrixRepositoryAbstractTest<K extends DataResourceKey
         }
     }
 
+    @Override
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    public final void shouldReturnRemainingDataWhenMostOfDataIsRemoved()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        List<DataResource<K, D>> resources = populateRepositoryWithResources();
+        List<DataResource<K, D>> remainingResources = new ArrayList<>();
+        List<DataResource<K, D>> removedResources = new ArrayList<>();
+        for (int i = 0; i < resources.size(); i++) {
+            if (i % 100 == 0) {
+                remainingResources.add(resources.get(i));
+            } else {
+                removedResources.add(resources.get(i));
+            }
+        }
+
+        // when
+        for (DataResource<K, D> r : removedResources) {
+            dataMatrixRepository.remove(r.getUuid());
+        }
+
+        // then
+        assertThat(retrieveAll(resources.get(0).getKey()))
+                .containsExactlyInAnyOrderElementsOf(remainingResources);
+
+        // when
+        dataMatrixRepository.addAll(removedResources);
+
+        // then
+        assertThat(retrieveAll(resources.get(0).getKey()))
+                .containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Override
+    @Test
+    public final void shouldReturnEmptyBatchIteratorForAnEmptyBatch()
+            throws DataMatrixRepositoryFailedException {
+        // given
+        populateRepositoryWithResources();
+
+        // when
+        DataMatrixResourceBatchIterator<K, D> iterator =
+                dataMatrixRepository.findNeighbours(Collections.emptyList());
+
+        // then
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Override
+    @Test
+    public final void shouldReturnBatchIteratorOfAllElements()
+            throws DataMatrixRepositoryFailedException {
+        // given
+        List<DataResource<K, D>> resources = populateRepositoryWithResources();
+        List<K> keys = Arrays.asList(
+                resources.get(0).getKey(),
+                resources.get(resources.size() - 1).getKey());
+
+        // when
+        DataMatrixResourceBatchIterator<K, D> iterator =
+                dataMatrixRepository.findNeighbours(keys);
+
+        // then
+        List<DataResource<K, D>> retrievedResources = new ArrayList<>();
+
+        while (iterator.hasNext()) {
+            retrievedResources.addAll(iterator.next());
+        }
+
+        assertThat(retrievedResources)
+                .containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Override
+    @Test
+    public final void shouldReturnResourcesOfGivenKeysInBatchChunksRelevantForThem()
+            throws DataMatrixRepositoryFailedException {
+        // given
+        List<DataResource<K, D>> resources = populateRepositoryWithResources();
+        DataResource<K, D> first = resources.get(0);
+        DataResource<K, D> last = resources.get(resources.size() - 1);
+
+        // when
+        DataMatrixResourceBatchIterator<K, D> iterator =
+                dataMatrixRepository.findNeighbours(Arrays.asList(first.getKey(), last.getKey()));
+        iterator.limitTo(0, 0.0);
+        iterator.limitTo(1, 0.0);
+
+        // then
+        List<DataResource<K, D>> retrievedResources = new ArrayList<>();
+
+        while (iterator.hasNext()) {
+            Set<DataResource<K, D>> chunk = iterator.next();
+            if (chunk.contains(first)) {
+                assertThat(iterator.isRelevantFor(0)).isTrue();
+            }
+            if (chunk.contains(last)) {
+                assertThat(iterator.isRelevantFor(1)).isTrue();
+            }
+            retrievedResources.addAll(chunk);
+        }
+
+        assertThat(retrievedResources)
+                .contains(first, last);
+    }
+
+    private List<DataResource<K, D>> retrieveAll(final K key)
+            throws DataMatrixRepositoryFailedException {
+        DataMatrixResourceIterator<K, D> iterator = dataMatrixRepository.findNeighbours(key);
+        List<DataResource<K, D>> retrievedResources = new ArrayList<>();
+        while (iterator.hasNext()) {
+            retrievedResources.addAll(iterator.next());
+        }
+        return retrievedResources;
+    }
+
     private List<DataResource<K, D>> generateResources() {
         return DataKeyGenerator
                 .generate(KEY_VECTOR_MIN_LIMIT, KEY_VECTOR_MAX_LIMIT)
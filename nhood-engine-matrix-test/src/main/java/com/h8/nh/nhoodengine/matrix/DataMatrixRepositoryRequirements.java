@@ -13,6 +13,8 @@ public interface DataMatrixRepositoryRequirements {
 
     void shouldNotAcceptResourcesWithNullResource();
 
+    void shouldNotAcceptNullCollectionOfResources();
+
     void shouldAcceptSameResourceWhenAddedMultipleTimes()
             throws DataMatrixRepositoryFailedException;
 
@@ -28,6 +30,15 @@ public interface DataMatrixRepositoryRequirements {
     void shouldReturnResourceOfAGivenKeyInTheVeryFirstChunkIfExists()
             throws DataMatrixRepositoryFailedException;
 
+    void shouldReturnAllElementsAddedAtOnce()
+            throws DataMatrixRepositoryFailedException;
+
+    void shouldReturnResourceOfAGivenKeyInTheVeryFirstChunkIfAddedAtOnce()
+            throws DataMatrixRepositoryFailedException;
+
+    void shouldNotReturnRemovedDataAddedAtOnceAsNeighbour()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException;
+
     void shouldReturnNoEmptyChunks()
             throws DataMatrixRepositoryFailedException;
 
@@ -57,4 +68,16 @@ public interface DataMatrixRepositoryRequirements {
 
     void shouldNotReturnRemovedDataAsNeighbour()
             throws DataMatrixRepositoryFailedException, DataDoesNotExistException;
+
+    void shouldReturnRemainingDataWhenMostOfDataIsRemoved()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException;
+
+    void shouldReturnEmptyBatchIteratorForAnEmptyBatch()
+            throws DataMatrixRepositoryFailedException;
+
+    void shouldReturnBatchIteratorOfAllElements()
+            throws DataMatrixRepositoryFailedException;
+
+    void shouldReturnResourcesOfGivenKeysInBatchChunksRelevantForThem()
+            throws DataMatrixRepositoryFailedException;
 }
@@ -1,25 +1,45 @@
 package com.h8.nh.nhoodengine.matrix.impl;
 
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.*;
-
-import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_ROUNDING_MODE;
-import static com.h8.nh.nhoodengine.core.DataResourceKey.UNIFIED_BIG_DECIMAL_SCALE;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 final class DataMatrixCell<R extends DataMatrixCellResource<?>> {
 
-    private final UUID uuid = UUID.randomUUID();
+    /**
+     * A number of resources sampled in order to estimate split points of a cell.
+     */
+    private static final int QUANTILE_SAMPLE_SIZE = 4096;
+
+    /**
+     * A number of levels by which a subtree may be deeper than a balanced subtree
+     * of the same number of resources before it is rebuilt.
+     */
+    private static final int REBALANCE_DEPTH_TOLERANCE = 2;
 
     private final DataMatrixCellConfiguration configuration;
 
     private final BigDecimal[] index;
     private final BigDecimal[] closure;
-    private final DoubleSummaryStatistics[] statistics;
+    private final double[] unifiedIndex;
+    private final double[] unifiedClosure;
+    private final AtomicReference<Bounds> bounds;
 
     private final DataMatrixCell<R> parent;
-    private final Set<DataMatrixCell<R>> children;
+    private final DataMatrixCellOrdinals<R> ordinals;
+    private final IntFunction<DataMatrixCellCoordinates> allocator;
+    private volatile Partition<R> children;
+    private volatile boolean retired;
 
-    private final HashSet<R> resources;
+    private final DataMatrixCellStore<R> resources;
 
     DataMatrixCell(
             final BigDecimal[] index,
@@ -32,15 +52,16 @@ final class DataMatrixCell<R extends DataMatrixCellResource<?>> {
 
         this.index = Arrays.copyOf(index, index.length);
         this.closure = Arrays.copyOf(closure, closure.length);
+        this.unifiedIndex = unify(index);
+        this.unifiedClosure = unify(closure);
 
-        this.statistics = new DoubleSummaryStatistics[index.length];
-        for (int i = 0; i < this.statistics.length; i++) {
-            this.statistics[i] = new DoubleSummaryStatistics();
-        }
+        this.bounds = new AtomicReference<>(Bounds.empty(index.length));
 
         this.parent = parent;
-        this.children = new HashSet<>();
-        this.resources = new HashSet<>();
+        this.ordinals = parent != null ? parent.ordinals : new DataMatrixCellOrdinals<>();
+        this.allocator = parent != null ? parent.allocator : configuration.getStorage().allocator(index.length);
+        this.children = Partition.empty();
+        this.resources = new DataMatrixCellStore<>(index.length, configuration.getStorage(), allocator);
         this.configuration = configuration;
     }
 
@@ -52,226 +73,1005 @@ final class DataMatrixCell<R extends DataMatrixCellResource<?>> {
         return closure;
     }
 
+    double[] getUnifiedIndex() {
+        return unifiedIndex;
+    }
+
+    double[] getUnifiedClosure() {
+        return unifiedClosure;
+    }
+
     DataMatrixCell<R> getParent() {
         return parent;
     }
 
     boolean hasChildren() {
-        return !children.isEmpty();
+        return !children.cells.isEmpty();
     }
 
     Set<DataMatrixCell<R>> getChildren() {
-        return Collections.unmodifiableSet(children);
+        return children.cells;
     }
 
     boolean hasResources() {
         return !resources.isEmpty();
     }
 
-    @SuppressWarnings("unchecked")
-    Set<R> getResources() {
-        synchronized (this) {
-            return (Set<R>) resources.clone();
+    /**
+     * Checks whether the cell has neither children nor resources. Both are read from the same state of the cell,
+     * so that a cell being concurrently split or merged is never considered empty.
+     */
+    boolean isEmpty() {
+        while (true) {
+            Partition<R> partition = this.children;
+            if (!partition.cells.isEmpty()) {
+                return false;
+            }
+            boolean empty = resources.isEmpty();
+            if (partition == this.children) {
+                return empty;
+            }
         }
     }
 
-    boolean wrapsKey(final BigDecimal[] key) {
-        for (int i = 0; i < index.length; i++) {
-            boolean isWithin =
-                    key[i].compareTo(index[i]) >= 0
-                            && key[i].compareTo(closure[i]) < 0;
-            if (!isWithin) {
-                return false;
+    Set<R> getResources() {
+        return resources.getBlock().toSet();
+    }
+
+    /**
+     * Returns a view of resources of the cell as a block of packed coordinates.
+     * The view is neither locked nor copied. Further additions are not visible within the view,
+     * while slots of resources removed in the meantime become empty.
+     */
+    DataMatrixCellBlock<R> getBlock() {
+        return resources.getBlock();
+    }
+
+    /**
+     * Returns a view of resources of the cell, or null when the cell has children.
+     * Unlike checking children and reading resources separately, it never returns
+     * a view emptied by a concurrent split nor a view missing resources of children
+     * being concurrently merged into the cell.
+     */
+    DataMatrixCellBlock<R> getLeafBlock() {
+        return getLeafBlock(null);
+    }
+
+    /**
+     * Returns a view of resources of the cell, or null when the cell has children,
+     * in which case the children are added to a given collection. The view and the children
+     * are read from the same state of the cell, so that resources of children being concurrently
+     * merged into the cell are returned either within the view or within the children,
+     * which keep their resources once retired.
+     */
+    DataMatrixCellBlock<R> getLeafBlock(final Collection<DataMatrixCell<R>> children) {
+        while (true) {
+            Partition<R> partition = this.children;
+            if (!partition.cells.isEmpty()) {
+                if (children != null) {
+                    children.addAll(partition.orderedCells);
+                }
+                return null;
+            }
+            DataMatrixCellBlock<R> block = resources.getBlock();
+            if (partition == this.children) {
+                return block;
             }
         }
-        return true;
     }
 
-    boolean wrapsKey(final BigDecimal[] key, final BigDecimal range) {
-        for (int i = 0; i < index.length; i++) {
-            boolean isWithin =
-                    key[i].subtract(range).compareTo(index[i]) >= 0
-                            && key[i].add(range).compareTo(closure[i]) < 0;
-            if (!isWithin) {
+    boolean wrapsKey(final double[] key) {
+        for (int i = 0; i < unifiedIndex.length; i++) {
+            if (key[i] < unifiedIndex[i] || key[i] >= unifiedClosure[i]) {
                 return false;
             }
         }
         return true;
     }
 
-    BigDecimal distanceFrom(final BigDecimal[] key) {
-        BigDecimal sumOfSquares = BigDecimal.ZERO;
-        for (int i = 0; i < index.length; i++) {
-            BigDecimal d = BigDecimal.ZERO;
-            d = d.max(index[i].subtract(key[i]));
-            d = d.max(key[i].subtract(closure[i]));
-            sumOfSquares = sumOfSquares.add(d.pow(2));
+    /**
+     * Lower bound of a metric rank between a given key and any resource ever added into the cell.
+     * It is computed against a bounding box of added resources rather than against cell dimensions,
+     * which are usually much wider. The bounding box is never shrunk on removal, so it remains
+     * a valid (conservative) lower bound.
+     */
+    double lowerBound(final DistanceMetric metric, final double[] key) {
+        Bounds b = bounds.get();
+        if (b.isEmpty()) {
+            return Double.POSITIVE_INFINITY;
         }
-        return BigDecimal.valueOf(Math.sqrt(sumOfSquares.doubleValue()))
-                .setScale(UNIFIED_BIG_DECIMAL_SCALE, UNIFIED_BIG_DECIMAL_ROUNDING_MODE);
+        return metric.lowerBound(key, b.min, b.max);
     }
 
+    /**
+     * Adds a resource. The resource is assigned a dense ordinal of its identifier first,
+     * by which it is known to cells of the tree. A resource of the same identifier held by the tree
+     * is replaced, so that the tree never holds an identifier twice.
+     */
     public void add(final R resource) {
-        if (!this.wrapsKey(resource.getKey().unified())) {
+        if (!this.wrapsKey(resource.getUnifiedKey())) {
             throw new IllegalStateException("Cell does not cover given key");
         }
-        if (this.hasChildren()) {
-            findRelevantChild(resource).add(resource);
-            return;
-        }
-        synchronized (this) {
-            if (this.hasChildren()) {
-                findRelevantChild(resource).add(resource);
-            } else {
-                resources.add(resource);
-                addToStatistics(resource);
-                split();
-            }
+        R previous = ordinals.acquire(resource);
+        if (previous == null) {
+            insert(resource);
+        } else {
+            replace(previous, resource);
         }
     }
 
+    /**
+     * Removes a resource of the same identifier, wherever it is held by the tree.
+     * An ordinal of the identifier is released once the resource is removed, so that it may be reused.
+     */
     public void remove(final R resource) {
-        if (!this.wrapsKey(resource.getKey().unified())) {
+        if (!this.wrapsKey(resource.getUnifiedKey())) {
             throw new IllegalStateException("Cell does not cover given key");
         }
-        if (this.hasChildren()) {
-            findRelevantChild(resource).remove(resource);
-            return;
+        R held = ordinals.get(resource.getUuid());
+        if (held != null && delete(held)) {
+            ordinals.release(held);
         }
-        synchronized (this) {
-            if (this.hasChildren()) {
-                findRelevantChild(resource).remove(resource);
+    }
+
+    /**
+     * Adds a collection of resources at once.
+     *
+     * Instead of descending the tree and splitting cells for every single resource,
+     * resources are partitioned top-down. Whenever resources of a leaf cell exceed its size,
+     * the cell is split according to the configured split policy, and its new children,
+     * which are not yet visible to other threads, are loaded in parallel.
+     * Resources of identifiers already held by the tree replace held ones one by one afterwards.
+     */
+    public void addAll(final List<R> resources) {
+        for (R resource : resources) {
+            if (!this.wrapsKey(resource.getUnifiedKey())) {
+                throw new IllegalStateException("Cell does not cover given key");
+            }
+        }
+        List<R> added = new ArrayList<>(resources.size());
+        List<R> replaced = new ArrayList<>();
+        List<R> replacing = new ArrayList<>();
+        for (R resource : resources) {
+            R previous = ordinals.acquire(resource);
+            if (previous == null) {
+                added.add(resource);
             } else {
-                resources.remove(resource);
-                removeFromStatistics(resource);
+                replaced.add(previous);
+                replacing.add(resource);
             }
         }
+        insertAll(added);
+        for (int i = 0; i < replaced.size(); i++) {
+            replace(replaced.get(i), replacing.get(i));
+        }
     }
 
-    private DataMatrixCell<R> findRelevantChild(final R resource) {
-        return children.stream()
-                .filter(c -> c.wrapsKey(resource.getKey().unified()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("There is no cell covering given key"));
+    /**
+     * Replaces a resource held by the tree with a resource of the same identifier and ordinal.
+     * The held resource is left in place when keys of both resources are equal.
+     */
+    private void replace(final R previous, final R resource) {
+        if (Arrays.equals(previous.getUnifiedKey(), resource.getUnifiedKey())) {
+            return;
+        }
+        delete(previous);
+        insert(resource);
     }
 
-    private void addToStatistics(final R resource) {
-        BigDecimal[] key = resource.getKey().unified();
-        for (int i = 0; i < key.length; i++) {
-            statistics[i].accept(key[i].doubleValue());
+    /**
+     * Adds a resource whose key is known to be covered by the cell.
+     */
+    private void insert(final R resource) {
+        extendBounds(resource.getUnifiedKey());
+        if (!this.hasChildren()) {
+            synchronized (this) {
+                if (this.isLeaf()) {
+                    resources.add(resource);
+                    split();
+                    return;
+                }
+            }
         }
+        findRelevantCell(resource).insert(resource);
     }
 
-    private void removeFromStatistics(final R resource) {
-        BigDecimal[] key = resource.getKey().unified();
-        for (int i = 0; i < key.length; i++) {
-            statistics[i].accept(-1.0 * key[i].doubleValue());
+    /**
+     * Removes a resource whose key is known to be covered by the cell.
+     * @return true when the resource has been removed
+     */
+    private boolean delete(final R resource) {
+        if (!this.hasChildren()) {
+            boolean removed;
+            synchronized (this) {
+                removed = this.isLeaf() && resources.remove(resource);
+            }
+            if (removed) {
+                if (parent != null) {
+                    parent.merge();
+                }
+                return true;
+            }
+            if (this.isLeaf()) {
+                return false;
+            }
         }
+        return findRelevantCell(resource).delete(resource);
     }
 
-    private void split() {
-        if (hasChildren()) {
-            throw new IllegalStateException("Cell has already been split");
+    /**
+     * Informs whether resources are kept by the cell itself. It has to be called with a lock of the cell held.
+     */
+    private boolean isLeaf() {
+        return !this.retired && !this.hasChildren();
+    }
+
+    /**
+     * Returns a cell which a resource should be passed to, once it turns out that the cell is not a leaf.
+     * It is a child covering a key of the resource, or the parent once the cell has been merged into it.
+     * It may be the cell itself, when children have been merged in the meantime.
+     */
+    private DataMatrixCell<R> findRelevantCell(final R resource) {
+        if (this.retired) {
+            return parent;
+        }
+        Partition<R> partition = this.children;
+        if (partition.cells.isEmpty()) {
+            return this;
         }
-        if (this.resources.size() >= configuration.getCellSize()) {
-            int idx = findWidestRangeDimension();
-            split(idx);
+        DataMatrixCell<R> child = partition.find(resource.getUnifiedKey());
+        if (!child.retired) {
+            return child;
         }
+        partition = awaitChildren();
+        return partition.cells.isEmpty() ? this : partition.find(resource.getUnifiedKey());
     }
 
-    private void split(final int idx) {
-        int iterations = this.configuration.getSplitIterations();
+    /**
+     * Returns children of the cell once some of them turn out to be retired,
+     * i.e. once they are being merged into the cell or the subtree is being rebuilt.
+     * Both hold a lock of the cell until children are replaced, so the lock is awaited
+     * rather than passing a resource between the cell and its retired children over and over again.
+     */
+    private Partition<R> awaitChildren() {
+        synchronized (this) {
+            return this.children;
+        }
+    }
 
-        Set<DataMatrixCell<R>> subCells = split(idx, iterations);
-        this.children.addAll(subCells);
+    /**
+     * Adds resources whose keys are known to be covered by the cell.
+     */
+    private void insertAll(final List<R> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        extendBounds(Bounds.of(index.length, added));
+        if (!this.hasChildren()) {
+            synchronized (this) {
+                if (this.isLeaf()) {
+                    List<R> all = this.resources.getBlock().toList();
+                    all.addAll(added);
+                    if (all.size() < configuration.getCellSize() || !loadSplit(all, configuration.getSplitPolicy())) {
+                        this.resources.addAll(added);
+                    }
+                    return;
+                }
+            }
+        }
+        Partition<R> partition = this.children;
+        if (this.retired) {
+            parent.insertAll(added);
+            return;
+        }
+        if (partition.cells.isEmpty()) {
+            insertAll(added);
+            return;
+        }
+        for (DataMatrixCell<R> cell : partition.orderedCells) {
+            if (cell.retired) {
+                awaitChildren();
+                insertAll(added);
+                return;
+            }
+        }
+        List<List<R>> groups = partition.group(added);
+        for (int i = 0; i < groups.size(); i++) {
+            partition.orderedCells.get(i).insertAll(groups.get(i));
+        }
+    }
 
-        this.resources
-                .stream()
-                .filter(r -> this.wrapsKey(r.getKey().unified()))
-                .forEach(this::add);
-        this.resources.clear();
+    /**
+     * Adds a chunk of resources into a cell which is not yet visible to other threads.
+     */
+    private void load(final Chunk chunk, final DataMatrixCellSplitPolicy policy) {
+        Bounds chunkBounds = chunk.bounds();
+        extendBounds(chunkBounds);
+        if (chunk.size() < configuration.getCellSize() || !loadSplit(chunk, chunkBounds, policy)) {
+            this.resources.addAll(chunk.toList());
+        }
     }
 
-    private Set<DataMatrixCell<R>> split(final int idx, final int iterations) {
-        Set<DataMatrixCell<R>> subCells = new HashSet<>();
-        subCells.add(this);
+    /**
+     * Splits a leaf cell into children loaded with a given chunk of resources,
+     * unless resources of the chunk may not be separated.
+     * It is called either with a lock of the cell held or before the cell is visible to other threads,
+     * and it forks loading of children only, which are not visible to other threads either.
+     */
+    private boolean loadSplit(final List<R> all, final DataMatrixCellSplitPolicy policy) {
+        Chunk chunk = Chunk.of(index.length, all);
+        return loadSplit(chunk, chunk.bounds(), policy);
+    }
+
+    private boolean loadSplit(final Chunk chunk, final Bounds chunkBounds, final DataMatrixCellSplitPolicy policy) {
+        Partition<R> partition = createPartition(chunk, chunkBounds, policy);
+        if (partition == null) {
+            return false;
+        }
 
-        int i = iterations;
-        while (i > 0) {
-            Set<DataMatrixCell<R>> created = new HashSet<>();
-            for (DataMatrixCell<R> c : subCells) {
-                BigDecimal splitPoint = c.computeSplitPoint(idx);
-                created.add(c.createLeftCell(idx, splitPoint, this));
-                created.add(c.createRightCell(idx, splitPoint, this));
+        Chunk[] parts = chunk.scatter(partition);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < parts.length; i++) {
+            DataMatrixCell<R> child = partition.orderedCells.get(i);
+            Chunk part = parts[i];
+            if (part.size() >= configuration.getCellSize()) {
+                tasks.add(ForkJoinTask.adapt(() -> child.load(part, policy)));
+            } else if (part.size() > 0) {
+                child.load(part, policy);
             }
-            subCells = created;
-            i--;
         }
+        ForkJoinTask.invokeAll(tasks);
 
-        return subCells;
+        this.children = partition;
+        this.resources.clear();
+        return true;
     }
 
-    private DataMatrixCell<R> createLeftCell(
-            final int idx,
-            final BigDecimal splitPoint,
-            final DataMatrixCell<R> parent) {
-        BigDecimal[] leftIndex = Arrays.copyOf(this.index, this.index.length);
-        BigDecimal[] leftDimensions = Arrays.copyOf(this.closure, this.closure.length);
-        leftDimensions[idx] = splitPoint;
-        return new DataMatrixCell<>(leftIndex, leftDimensions, parent, this.configuration);
+    /**
+     * Creates children of the cell forming a grid over dimensions chosen by a configured split strategy
+     * for a given chunk of resources. Along each of the dimensions, children are split at points
+     * computed by a given split policy from an evenly spaced sample of resources.
+     * Every split point exceeds the lowest value, so that each split separates resources.
+     * Returns null when all resources have the same key and may not be separated.
+     */
+    private Partition<R> createPartition(
+            final Chunk chunk,
+            final Bounds chunkBounds,
+            final DataMatrixCellSplitPolicy policy) {
+        double[] ranges = new double[index.length];
+        for (int d = 0; d < index.length; d++) {
+            ranges[d] = chunkBounds.max[d] - chunkBounds.min[d];
+        }
+        int[] fanOuts = configuration.getSplitStrategy().fanOuts(
+                ranges, d -> chunk.sample(d, QUANTILE_SAMPLE_SIZE), configuration.getSplitIterations());
+        int[] dimensions = IntStream.range(0, index.length).filter(d -> fanOuts[d] > 1).toArray();
+        if (dimensions.length == 0) {
+            return null;
+        }
+
+        BigDecimal[][] boundaries = new BigDecimal[dimensions.length][];
+        for (int j = 0; j < dimensions.length; j++) {
+            boundaries[j] = computeBoundaries(chunk, chunkBounds, policy, dimensions[j], fanOuts[dimensions[j]]);
+        }
+        return createPartition(dimensions, fanOuts, boundaries);
     }
 
-    private DataMatrixCell<R> createRightCell(
+    /**
+     * Creates children of the cell forming a grid over given dimensions,
+     * split along each of the dimensions at given boundaries, including boundaries of the cell.
+     */
+    private Partition<R> createPartition(
+            final int[] dimensions,
+            final int[] fanOuts,
+            final BigDecimal[][] boundaries) {
+        int size = 1;
+        for (int dimension : dimensions) {
+            size *= fanOuts[dimension];
+        }
+
+        List<DataMatrixCell<R>> subCells = new ArrayList<>(size);
+        for (int c = 0; c < size; c++) {
+            BigDecimal[] childIndex = Arrays.copyOf(this.index, this.index.length);
+            BigDecimal[] childClosure = Arrays.copyOf(this.closure, this.closure.length);
+            int position = c;
+            for (int j = dimensions.length - 1; j >= 0; j--) {
+                int count = fanOuts[dimensions[j]];
+                childIndex[dimensions[j]] = boundaries[j][position % count];
+                childClosure[dimensions[j]] = boundaries[j][position % count + 1];
+                position /= count;
+            }
+            subCells.add(new DataMatrixCell<>(childIndex, childClosure, this, this.configuration));
+        }
+        return Partition.of(dimensions, fanOuts, subCells);
+    }
+
+    /**
+     * Computes boundaries of a given number of children along a given dimension, including boundaries of the cell.
+     */
+    private BigDecimal[] computeBoundaries(
+            final Chunk chunk,
+            final Bounds chunkBounds,
+            final DataMatrixCellSplitPolicy policy,
             final int idx,
-            final BigDecimal splitPoint,
-            final DataMatrixCell<R> parent) {
-        BigDecimal[] rightIndex = Arrays.copyOf(this.index, this.index.length);
-        rightIndex[idx] = splitPoint;
-        BigDecimal[] rightDimensions = Arrays.copyOf(this.closure, this.closure.length);
-        return new DataMatrixCell<>(rightIndex, rightDimensions, parent, this.configuration);
+            final int count) {
+        double[] values = chunk.sample(idx, QUANTILE_SAMPLE_SIZE);
+        double lowest = chunkBounds.max[idx];
+        for (double value : values) {
+            if (value > chunkBounds.min[idx]) {
+                lowest = Math.min(lowest, value);
+            }
+        }
+
+        double[] points = policy.splitPoints(values, count, unifiedIndex[idx], unifiedClosure[idx]);
+        BigDecimal[] boundaries = new BigDecimal[count + 1];
+        boundaries[0] = index[idx];
+        boundaries[count] = closure[idx];
+        double previous = lowest;
+        for (int i = 1; i < count; i++) {
+            previous = Math.min(Math.max(previous, points[i - 1]), unifiedClosure[idx]);
+            boundaries[i] = BigDecimal.valueOf(previous);
+        }
+        return boundaries;
     }
 
-    private int findWidestRangeDimension() {
-        int idx = 0;
-        double widestRange = 0.0;
-        for (int i = 0; i < statistics.length; i++) {
-            double range = statistics[i].getMax() - statistics[i].getMin();
-            if (range > widestRange) {
-                idx = i;
-                widestRange = range;
+    /**
+     * Merges children back into the cell once all of them are leaves and their resources
+     * drop below a configured fraction of cell size, and then tries to merge the cell into its parent.
+     * Merged children are retired, so that operations which have already reached them
+     * are passed to the cell instead. Cells are locked top-down, so merges never deadlock with each other.
+     */
+    private void merge() {
+        int mergeSize = (int) Math.ceil(configuration.getCellSize() * configuration.getMergeRatio());
+        Partition<R> partition = this.children;
+        if (!isMergeable(partition, mergeSize)) {
+            return;
+        }
+        synchronized (this) {
+            if (this.retired || partition != this.children
+                    || !merge(partition.orderedCells, 0, new ArrayList<>(), mergeSize)) {
+                return;
             }
         }
-        return idx;
+        if (parent != null) {
+            parent.merge();
+        }
     }
 
-    private BigDecimal computeSplitPoint(final int idx) {
-        if (statistics[idx].getCount() != 0) {
-            return BigDecimal.valueOf(statistics[idx].getAverage());
-        } else {
-            return index[idx].add(closure[idx])
-                    .divide(BigDecimal.valueOf(2), UNIFIED_BIG_DECIMAL_SCALE, UNIFIED_BIG_DECIMAL_ROUNDING_MODE);
+    private static <R extends DataMatrixCellResource<?>> boolean isMergeable(
+            final Partition<R> partition,
+            final int mergeSize) {
+        if (partition.cells.isEmpty()) {
+            return false;
         }
+        int size = 0;
+        for (DataMatrixCell<R> cell : partition.orderedCells) {
+            DataMatrixCellBlock<R> block = cell.getLeafBlock();
+            if (block == null) {
+                return false;
+            }
+            size += block.getResourcesCount();
+        }
+        return size < mergeSize;
     }
 
-    @Override
-    public boolean equals(final Object o) {
-        if (this == o) {
+    /**
+     * Locks children one by one and collects their resources.
+     * Once all of them are locked, moves collected resources into the cell and retires children.
+     */
+    private boolean merge(
+            final List<DataMatrixCell<R>> cells,
+            final int i,
+            final List<R> collected,
+            final int mergeSize) {
+        if (i == cells.size()) {
+            this.resources.addAll(collected);
+            cells.forEach(c -> c.retired = true);
+            this.children = Partition.empty();
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
-            return false;
+        DataMatrixCell<R> cell = cells.get(i);
+        synchronized (cell) {
+            if (cell.hasChildren()) {
+                return false;
+            }
+            collected.addAll(cell.resources.getBlock().toList());
+            return collected.size() < mergeSize && merge(cells, i + 1, collected, mergeSize);
         }
-        DataMatrixCell<?> that = (DataMatrixCell<?>) o;
-        return Objects.equals(uuid, that.uuid);
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(uuid);
+    /**
+     * Measures a shape of a tree of the cell.
+     */
+    DataMatrixCellTreeMetrics metrics() {
+        List<DataMatrixCell<R>> children = new ArrayList<>();
+        DataMatrixCellBlock<R> block = getLeafBlock(children);
+        if (block != null) {
+            return DataMatrixCellTreeMetrics.leaf(block.getResourcesCount());
+        }
+        DataMatrixCellTreeMetrics metrics = DataMatrixCellTreeMetrics.node();
+        for (DataMatrixCell<R> child : children) {
+            metrics = metrics.withChild(child.metrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Rebuilds unbalanced subtrees of the cell and returns a number of rebuilt subtrees.
+     *
+     * A subtree is unbalanced when it is deeper than a subtree of the same number of resources
+     * split at medians by more than {@link #REBALANCE_DEPTH_TOLERANCE} levels.
+     * Subtrees are checked bottom-up, as if unbalanced subtrees below were already rebuilt,
+     * so that the smallest subtrees which leave the whole tree balanced are rebuilt.
+     *
+     * A subtree is rebuilt out of its resources at medians, and its new cells replace previous ones
+     * at once. Readers are never blocked, while writers of the subtree wait until it is rebuilt.
+     */
+    int rebalance() {
+        List<DataMatrixCell<R>> unbalanced = new ArrayList<>();
+        findUnbalanced(unbalanced);
+        int rebuilt = 0;
+        for (DataMatrixCell<R> c : unbalanced) {
+            if (c.rebuild()) {
+                rebuilt++;
+            }
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Collects unbalanced subtrees of the cell and returns metrics of the cell as if they were rebuilt.
+     * Once the cell is unbalanced itself, it replaces unbalanced subtrees below it.
+     */
+    private DataMatrixCellTreeMetrics findUnbalanced(final List<DataMatrixCell<R>> unbalanced) {
+        List<DataMatrixCell<R>> children = new ArrayList<>();
+        DataMatrixCellBlock<R> block = getLeafBlock(children);
+        if (block != null) {
+            return DataMatrixCellTreeMetrics.leaf(block.getResourcesCount());
+        }
+        int found = unbalanced.size();
+        DataMatrixCellTreeMetrics metrics = DataMatrixCellTreeMetrics.node();
+        for (DataMatrixCell<R> child : children) {
+            metrics = metrics.withChild(child.findUnbalanced(unbalanced));
+        }
+        int balancedDepth = balancedDepth(metrics.getResourcesCount());
+        if (metrics.getDepth() > balancedDepth + REBALANCE_DEPTH_TOLERANCE) {
+            unbalanced.subList(found, unbalanced.size()).clear();
+            unbalanced.add(this);
+            return metrics.withDepth(balancedDepth);
+        }
+        return metrics;
+    }
+
+    /**
+     * Returns a depth of a subtree of a given number of resources split at medians.
+     */
+    private int balancedDepth(final long resourcesCount) {
+        int fanOut = 1 << configuration.getSplitIterations();
+        int depth = 0;
+        for (long size = resourcesCount; size >= configuration.getCellSize(); size = (size + fanOut - 1) / fanOut) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Visits cells of the subtree in a breadth-first order, and collects their resources.
+     * Each cell is locked only while it is visited and retired once visited, so that writers reaching it
+     * afterwards are passed up to the cell, whose lock is held until the subtree is rebuilt.
+     * Cells are retired top-down, so writers reaching a cell not visited yet still modify it in place.
+     * Once all of them are visited, children of the cell are replaced with a new subtree at once.
+     * Cells are locked top-down, as with merging, so that rebuilding never deadlocks with merging.
+     */
+    private boolean rebuild() {
+        synchronized (this) {
+            if (this.retired || !this.hasChildren()) {
+                return false;
+            }
+            List<DataMatrixCell<R>> cells = new ArrayList<>(this.children.orderedCells);
+            List<R> collected = new ArrayList<>();
+            for (int i = 0; i < cells.size(); i++) {
+                DataMatrixCell<R> cell = cells.get(i);
+                synchronized (cell) {
+                    Partition<R> partition = cell.children;
+                    if (partition.cells.isEmpty()) {
+                        collected.addAll(cell.resources.getBlock().toList());
+                    } else {
+                        cells.addAll(partition.orderedCells);
+                    }
+                    cell.retired = true;
+                }
+            }
+            if (collected.size() < configuration.getCellSize()
+                    || !loadSplit(collected, DataMatrixCellSplitPolicy.MEDIAN)) {
+                this.resources.addAll(collected);
+                this.children = Partition.empty();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes boundaries of cells of the subtree in a pre-order, so that the subtree may be restored
+     * with {@link #readStructure(DataInput)} without splitting cells again.
+     * For each cell, a number of split dimensions is written, followed by each of the dimensions,
+     * its fan-out and inner boundaries of children along it. Numbers are written as variable-length integers,
+     * so that a leaf cell takes a single byte. Resources are not written.
+     */
+    void writeStructure(final DataOutput output) throws IOException {
+        Partition<R> partition = this.children;
+        DataMatrixCellCodec.writeVarInt(output, partition.dimensions.length);
+        for (int j = 0; j < partition.dimensions.length; j++) {
+            double[] lowerBoundaries = partition.lowerBoundaries[j];
+            DataMatrixCellCodec.writeVarInt(output, partition.dimensions[j]);
+            DataMatrixCellCodec.writeVarInt(output, lowerBoundaries.length);
+            for (int i = 1; i < lowerBoundaries.length; i++) {
+                output.writeDouble(lowerBoundaries[i]);
+            }
+        }
+        for (DataMatrixCell<R> child : partition.orderedCells) {
+            child.writeStructure(output);
+        }
+    }
+
+    /**
+     * Restores children of an empty cell written with {@link #writeStructure(DataOutput)}.
+     * It is called before the cell is visible to other threads.
+     */
+    void readStructure(final DataInput input) throws IOException {
+        int count = DataMatrixCellCodec.readVarInt(input);
+        if (count < 0 || count > index.length) {
+            throw new IOException("Invalid number of split dimensions: " + count);
+        }
+        if (count == 0) {
+            return;
+        }
+        int[] dimensions = new int[count];
+        int[] fanOuts = new int[index.length];
+        Arrays.fill(fanOuts, 1);
+        BigDecimal[][] boundaries = new BigDecimal[count][];
+        long size = 1;
+        for (int j = 0; j < count; j++) {
+            int dimension = DataMatrixCellCodec.readVarInt(input);
+            int fanOut = DataMatrixCellCodec.readVarInt(input);
+            size *= Math.max(fanOut, 1);
+            if (dimension < 0 || dimension >= index.length || fanOut < 2 || Integer.bitCount(fanOut) != 1
+                    || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid split of dimension " + dimension + " into " + fanOut);
+            }
+            dimensions[j] = dimension;
+            fanOuts[dimension] = fanOut;
+            boundaries[j] = new BigDecimal[fanOut + 1];
+            boundaries[j][0] = index[dimension];
+            boundaries[j][fanOut] = closure[dimension];
+            for (int i = 1; i < fanOut; i++) {
+                boundaries[j][i] = BigDecimal.valueOf(input.readDouble());
+            }
+        }
+        Partition<R> partition = createPartition(dimensions, fanOuts, boundaries);
+        for (DataMatrixCell<R> child : partition.orderedCells) {
+            child.readStructure(input);
+        }
+        this.children = partition;
+    }
+
+    private void extendBounds(final Bounds added) {
+        extendBounds(added.min);
+        extendBounds(added.max);
+    }
+
+    private void extendBounds(final double[] key) {
+        Bounds current;
+        do {
+            current = bounds.get();
+            if (current.wraps(key)) {
+                return;
+            }
+        } while (!bounds.compareAndSet(current, current.extend(key)));
+    }
+
+    /**
+     * Splits a leaf cell once it reaches its size. Split points are computed from resources
+     * currently kept in the cell, so removed resources do not affect them.
+     * When resources may not be separated, a next attempt is made once the cell grows by its size again.
+     */
+    private void split() {
+        if (hasChildren()) {
+            throw new IllegalStateException("Cell has already been split");
+        }
+        int size = this.resources.size();
+        int cellSize = configuration.getCellSize();
+        if (size >= cellSize && (size - cellSize) % cellSize == 0) {
+            loadSplit(this.resources.getBlock().toList(), configuration.getSplitPolicy());
+        }
+    }
+
+    private static double[] unify(final BigDecimal[] values) {
+        double[] unified = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            unified[i] = values[i].doubleValue();
+        }
+        return unified;
     }
 
     @Override
     public String toString() {
-        return "DataMatrixCell{" + uuid + '}';
+        return "DataMatrixCell{"
+                + "index=" + Arrays.toString(unifiedIndex)
+                + ", closure=" + Arrays.toString(unifiedClosure)
+                + '}';
+    }
+
+    /**
+     * Children of a cell, which form a grid over split dimensions of the cell,
+     * each of them split into its own fan-out at count - 1 boundaries computed by a split policy.
+     * Children are additionally ordered by their positions within the grid, and lower boundaries
+     * along each split dimension are kept, so that a child covering a key is found with
+     * a binary search per split dimension instead of checking all dimensions of all children.
+     */
+    private static final class Partition<R extends DataMatrixCellResource<?>> {
+
+        private final Set<DataMatrixCell<R>> cells;
+        private final int[] dimensions;
+        private final int[] strides;
+        private final double[][] lowerBoundaries;
+        private final List<DataMatrixCell<R>> orderedCells;
+
+        private Partition(
+                final Set<DataMatrixCell<R>> cells,
+                final int[] dimensions,
+                final int[] fanOuts,
+                final List<DataMatrixCell<R>> orderedCells) {
+            this.cells = cells;
+            this.dimensions = dimensions;
+            this.orderedCells = orderedCells;
+            this.strides = new int[dimensions.length];
+            this.lowerBoundaries = new double[dimensions.length][];
+            int stride = 1;
+            for (int j = dimensions.length - 1; j >= 0; j--) {
+                strides[j] = stride;
+                lowerBoundaries[j] = new double[fanOuts[dimensions[j]]];
+                for (int i = 0; i < lowerBoundaries[j].length; i++) {
+                    lowerBoundaries[j][i] = orderedCells.get(i * stride).unifiedIndex[dimensions[j]];
+                }
+                stride *= lowerBoundaries[j].length;
+            }
+        }
+
+        private static <R extends DataMatrixCellResource<?>> Partition<R> empty() {
+            return new Partition<>(Collections.emptySet(), new int[0], new int[0], Collections.emptyList());
+        }
+
+        /**
+         * Creates a partition of children forming a grid over given dimensions,
+         * ordered by their positions along the dimensions, the last dimension changing fastest.
+         */
+        private static <R extends DataMatrixCellResource<?>> Partition<R> of(
+                final int[] dimensions,
+                final int[] fanOuts,
+                final List<DataMatrixCell<R>> orderedCells) {
+            return new Partition<>(
+                    Collections.unmodifiableSet(new HashSet<>(orderedCells)), dimensions, fanOuts, orderedCells);
+        }
+
+        /**
+         * Finds a child covering a key, assuming that the key is covered by the parent cell.
+         * Along each dimension, it is the last child whose lower boundary does not exceed the key,
+         * which skips children of no width along the dimension.
+         */
+        private DataMatrixCell<R> find(final double[] key) {
+            return orderedCells.get(indexOf(key, 0));
+        }
+
+        /**
+         * Groups resources by children covering their keys, in order of children.
+         */
+        private List<List<R>> group(final List<R> resources) {
+            List<List<R>> groups = new ArrayList<>(orderedCells.size());
+            for (int i = 0; i < orderedCells.size(); i++) {
+                groups.add(new ArrayList<>());
+            }
+            for (R r : resources) {
+                groups.get(indexOf(r.getUnifiedKey(), 0)).add(r);
+            }
+            return groups;
+        }
+
+        /**
+         * Returns a position of a child covering a key stored in given coordinates at a given offset.
+         */
+        private int indexOf(final double[] coordinates, final int offset) {
+            int position = 0;
+            for (int j = 0; j < dimensions.length; j++) {
+                position += strides[j] * indexOf(lowerBoundaries[j], coordinates[offset + dimensions[j]]);
+            }
+            return position;
+        }
+
+        private static int indexOf(final double[] boundaries, final double value) {
+            int low = 0;
+            int high = boundaries.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (boundaries[mid] <= value) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (found < 0) {
+                throw new IllegalStateException("There is no cell covering given key");
+            }
+            return found;
+        }
+    }
+
+    /**
+     * A range of resources being loaded into a cell, together with their packed coordinates.
+     *
+     * Resources are partitioned between children by copying them into spare arrays of the same size,
+     * so that each level of the tree reads and writes coordinates sequentially
+     * rather than dereferencing resources over and over again.
+     * Chunks of sibling cells share arrays, but never overlap.
+     */
+    private static final class Chunk {
+
+        private final int metadataSize;
+        private final Object[] resources;
+        private final double[] coordinates;
+        private final Object[] spareResources;
+        private final double[] spareCoordinates;
+        private final int from;
+        private final int to;
+
+        private Chunk(
+                final int metadataSize,
+                final Object[] resources,
+                final double[] coordinates,
+                final Object[] spareResources,
+                final double[] spareCoordinates,
+                final int from,
+                final int to) {
+            this.metadataSize = metadataSize;
+            this.resources = resources;
+            this.coordinates = coordinates;
+            this.spareResources = spareResources;
+            this.spareCoordinates = spareCoordinates;
+            this.from = from;
+            this.to = to;
+        }
+
+        private static Chunk of(final int metadataSize, final List<? extends DataMatrixCellResource<?>> all) {
+            Object[] resources = all.toArray();
+            double[] coordinates = new double[resources.length * metadataSize];
+            for (int i = 0; i < resources.length; i++) {
+                double[] key = ((DataMatrixCellResource<?>) resources[i]).getUnifiedKey();
+                System.arraycopy(key, 0, coordinates, i * metadataSize, metadataSize);
+            }
+            return new Chunk(metadataSize, resources, coordinates,
+                    new Object[resources.length], new double[coordinates.length], 0, resources.length);
+        }
+
+        private int size() {
+            return to - from;
+        }
+
+        private Bounds bounds() {
+            Bounds b = Bounds.empty(metadataSize);
+            for (int i = from * metadataSize; i < to * metadataSize; i += metadataSize) {
+                for (int d = 0; d < metadataSize; d++) {
+                    b.min[d] = Math.min(b.min[d], coordinates[i + d]);
+                    b.max[d] = Math.max(b.max[d], coordinates[i + d]);
+                }
+            }
+            return b;
+        }
+
+        /**
+         * Returns values of a given dimension of at most a given number of evenly spaced resources.
+         */
+        private double[] sample(final int dimension, final int limit) {
+            int step = Math.max(size() / limit, 1);
+            double[] values = new double[(size() + step - 1) / step];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = coordinates[(from + i * step) * metadataSize + dimension];
+            }
+            return values;
+        }
+
+        /**
+         * Splits the chunk into chunks of children of a given partition, in order of children.
+         */
+        private Chunk[] scatter(final Partition<?> partition) {
+            int[] children = new int[size()];
+            int[] offsets = new int[partition.orderedCells.size() + 1];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = partition.indexOf(coordinates, (from + i) * metadataSize);
+                offsets[children[i] + 1]++;
+            }
+            for (int c = 1; c < offsets.length; c++) {
+                offsets[c] += offsets[c - 1];
+            }
+
+            Chunk[] parts = new Chunk[partition.orderedCells.size()];
+            for (int c = 0; c < parts.length; c++) {
+                parts[c] = new Chunk(metadataSize, spareResources, spareCoordinates, resources, coordinates,
+                        from + offsets[c], from + offsets[c + 1]);
+            }
+            for (int i = 0; i < children.length; i++) {
+                int target = from + offsets[children[i]]++;
+                spareResources[target] = resources[from + i];
+                System.arraycopy(coordinates, (from + i) * metadataSize,
+                        spareCoordinates, target * metadataSize, metadataSize);
+            }
+            return parts;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <R> List<R> toList() {
+            List<R> list = new ArrayList<>(size());
+            for (int i = from; i < to; i++) {
+                list.add((R) resources[i]);
+            }
+            return list;
+        }
+    }
+
+    /**
+     * An immutable bounding box of resources added into a cell.
+     */
+    private static final class Bounds {
+
+        private final double[] min;
+        private final double[] max;
+
+        private Bounds(final double[] min, final double[] max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        private static Bounds of(final int size, final List<? extends DataMatrixCellResource<?>> resources) {
+            Bounds b = empty(size);
+            for (DataMatrixCellResource<?> r : resources) {
+                double[] key = r.getUnifiedKey();
+                for (int i = 0; i < size; i++) {
+                    b.min[i] = Math.min(b.min[i], key[i]);
+                    b.max[i] = Math.max(b.max[i], key[i]);
+                }
+            }
+            return b;
+        }
+
+        private static Bounds empty(final int size) {
+            double[] min = new double[size];
+            double[] max = new double[size];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            return new Bounds(min, max);
+        }
+
+        private boolean isEmpty() {
+            return min.length > 0 && min[0] > max[0];
+        }
+
+        private boolean wraps(final double[] key) {
+            for (int i = 0; i < min.length; i++) {
+                if (key[i] < min[i] || key[i] > max[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Bounds extend(final double[] key) {
+            double[] extendedMin = Arrays.copyOf(min, min.length);
+            double[] extendedMax = Arrays.copyOf(max, max.length);
+            for (int i = 0; i < key.length; i++) {
+                extendedMin[i] = Math.min(extendedMin[i], key[i]);
+                extendedMax[i] = Math.max(extendedMax[i], key[i]);
+            }
+            return new Bounds(extendedMin, extendedMax);
+        }
     }
 }
@@ -2,11 +2,21 @@ package com.h8.nh.nhoodengine.matrix.impl;
 
 import com.h8.nh.nhoodengine.core.DataResource;
 import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
 import com.h8.nh.nhoodengine.matrix.DataDoesNotExistException;
 import com.h8.nh.nhoodengine.matrix.DataMatrixRepository;
 import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBatchIterator;
 import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -25,6 +35,19 @@ public final class DataMatrixCellBasedRepository<K extends DataResourceKey, D>
     private final DataMatrixCell<DataMatrixCellResource<K>> cell;
     private final Map<UUID, DataResource<K, D>> data;
 
+    private volatile DataMatrixCellSnapshot<K> snapshot;
+
+    /**
+     * An index file the repository has been opened from, as long as its resources
+     * have not been restored into the cell tree.
+     */
+    private volatile DataMatrixCellIndex<K, D> index;
+
+    /**
+     * A log file modifications of the repository are appended to, if any.
+     */
+    private volatile DataMatrixCellLog<K, D> log;
+
     public DataMatrixCellBasedRepository(
             final int metadataSize) {
         this(metadataSize, DataMatrixCellConfiguration.builder().build());
@@ -38,6 +61,236 @@ public final class DataMatrixCellBasedRepository<K extends DataResourceKey, D>
         this.data = new ConcurrentHashMap<>();
     }
 
+    /**
+     * Opens a repository from an index file written with {@link #save(Path, DataMatrixCellIndexSerializer)}.
+     * @see #open(Path, DataMatrixCellConfiguration, DataMatrixCellIndexSerializer)
+     */
+    public static <K extends DataResourceKey, D> DataMatrixCellBasedRepository<K, D> open(
+            final Path path,
+            final DataMatrixCellIndexSerializer<K, D> serializer)
+            throws DataMatrixRepositoryFailedException {
+        return open(path, DataMatrixCellConfiguration.builder().build(), serializer);
+    }
+
+    /**
+     * Opens a repository from an index file written with {@link #save(Path, DataMatrixCellIndexSerializer)}.
+     *
+     * The file is memory mapped and nothing is decoded up front. The repository is frozen
+     * on a snapshot kept within the file, so neighbour queries are served straight away,
+     * and resources are decoded from the file only once resolved.
+     * Resources are restored into the cell tree, within cells of the same boundaries and without any splitting,
+     * once the repository is first modified, frozen, unfrozen or rebalanced.
+     * The configuration has to define the same root range as the configuration of the saved repository.
+     * @param path a path of the index file
+     * @param configuration a configuration of cells of the repository
+     * @param serializer a serializer of keys and data of resources
+     * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+     * @param <D> a generic type of data resource.
+     * @return a repository frozen on the index file
+     * @throws DataMatrixRepositoryFailedException when the file could not be opened
+     */
+    public static <K extends DataResourceKey, D> DataMatrixCellBasedRepository<K, D> open(
+            final Path path,
+            final DataMatrixCellConfiguration configuration,
+            final DataMatrixCellIndexSerializer<K, D> serializer)
+            throws DataMatrixRepositoryFailedException {
+        DataMatrixCellIndex<K, D> index;
+        try {
+            index = DataMatrixCellIndex.open(path, serializer);
+        } catch (IOException e) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Could not open index file: " + path, e);
+        }
+        DataMatrixCellBasedRepository<K, D> repository =
+                new DataMatrixCellBasedRepository<>(index.getMetadataSize(), configuration);
+        repository.index = index;
+        repository.snapshot = index.getSnapshot();
+        return repository;
+    }
+
+    /**
+     * Writes a cell tree and resources of the repository into an index file, which may be opened
+     * with {@link #open(Path, DataMatrixCellConfiguration, DataMatrixCellIndexSerializer)}.
+     *
+     * The file is written aside and replaces a previous file only once complete.
+     * Resources added or removed while the repository is being saved may or may not be written.
+     * When a log file is attached, modifications covered by the written file are dropped from the log file.
+     * @param path a path of the index file
+     * @param serializer a serializer of keys and data of resources
+     * @throws DataMatrixRepositoryFailedException when the file could not be written
+     */
+    public void save(
+            final Path path,
+            final DataMatrixCellIndexSerializer<K, D> serializer)
+            throws DataMatrixRepositoryFailedException {
+        restore();
+        DataMatrixCellLog<K, D> l = log;
+        long checkpoint = l != null ? l.checkpoint() : 0L;
+        try {
+            DataMatrixCellIndex.write(path, metadataSize, cell, data, serializer);
+        } catch (IOException e) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Could not write index file: " + path, e);
+        }
+        if (l != null) {
+            try {
+                l.truncate(checkpoint);
+            } catch (IOException e) {
+                throw new DataMatrixRepositoryFailedException(
+                        "Could not truncate log file", e);
+            }
+        }
+    }
+
+    /**
+     * Reads a repository from a stream written with {@link #writeTo(OutputStream, DataMatrixCellCodec)},
+     * e.g. to replicate a repository of another process.
+     *
+     * Cells are restored with their boundaries first, so that resources fill them without any splitting.
+     * The configuration has to define the same root range as the configuration of the written repository.
+     * @param input an input stream, which is closed once read
+     * @param configuration a configuration of cells of the repository
+     * @param codec a codec the stream has been written with
+     * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+     * @param <D> a generic type of data resource.
+     * @return a repository of resources of the stream
+     * @throws DataMatrixRepositoryFailedException when the stream could not be read
+     */
+    public static <K extends DataResourceKey, D> DataMatrixCellBasedRepository<K, D> readFrom(
+            final InputStream input,
+            final DataMatrixCellConfiguration configuration,
+            final DataMatrixCellCodec<K, D> codec)
+            throws DataMatrixRepositoryFailedException {
+        DataMatrixCellBasedRepository<K, D> repository =
+                new DataMatrixCellBasedRepository<>(codec.getMetadataSize(), configuration);
+        List<DataResource<K, D>> resources = new ArrayList<>();
+        try (DataMatrixCellCodec<K, D>.Reader reader = codec.reader(input)) {
+            reader.restoreTree(repository.cell);
+            for (DataResource<K, D> r = reader.read(); r != null; r = reader.read()) {
+                resources.add(r);
+            }
+        } catch (IOException e) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Could not read repository stream", e);
+        }
+        repository.putAll(resources);
+        return repository;
+    }
+
+    /**
+     * Writes a cell tree and resources of the repository into a stream, which may be read
+     * with {@link #readFrom(InputStream, DataMatrixCellConfiguration, DataMatrixCellCodec)}.
+     *
+     * Resources added or removed while the repository is being written may or may not be written.
+     * @param output an output stream, which is closed once written
+     * @param codec a codec of resources
+     * @throws DataMatrixRepositoryFailedException when the stream could not be written
+     */
+    public void writeTo(
+            final OutputStream output,
+            final DataMatrixCellCodec<K, D> codec)
+            throws DataMatrixRepositoryFailedException {
+        if (codec.getMetadataSize() != metadataSize) {
+            String message = String.format(
+                    "Codec has invalid metadata size: %s. Expected: %s",
+                    codec.getMetadataSize(), metadataSize);
+            throw new DataMatrixRepositoryFailedException(message);
+        }
+        restore();
+        try (DataMatrixCellCodec<K, D>.Writer writer = codec.writer(output, cell)) {
+            for (DataResource<K, D> resource : data.values()) {
+                writer.write(resource);
+            }
+        } catch (IOException e) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Could not write repository stream", e);
+        }
+    }
+
+    /**
+     * Replays modifications of a log file on top of a current state of the repository,
+     * and appends all subsequent modifications of the repository to the log file.
+     *
+     * The repository is expected to be opened from a last index file saved while logging,
+     * as saving an index file drops logged modifications it covers from the log file.
+     * Modifications are replayed in order, and a replayed resource replaces a resource of the same identifier,
+     * so that updates of resources saved in the index file are recovered as well.
+     * A log file is created when it does not exist, and a torn modification ending it is discarded.
+     * A frozen repository is frozen again once modifications are replayed, so that queries see them.
+     * A log file should be attached before the repository is modified concurrently.
+     * @param path a path of the log file
+     * @param serializer a serializer of keys and data of resources
+     * @param sync a policy of forcing the log file to a storage device
+     * @throws DataMatrixRepositoryFailedException when the file could not be opened or replayed
+     */
+    public void attachLog(
+            final Path path,
+            final DataMatrixCellIndexSerializer<K, D> serializer,
+            final DataMatrixCellLogSync sync)
+            throws DataMatrixRepositoryFailedException {
+        if (serializer == null || sync == null) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Log serializer and sync policy may not be null");
+        }
+        synchronized (this) {
+            if (log != null) {
+                throw new DataMatrixRepositoryFailedException(
+                        "Log file is already attached");
+            }
+            DataMatrixCellLog<K, D> l = null;
+            try {
+                l = DataMatrixCellLog.open(path, metadataSize, serializer, sync);
+                boolean replayed = !l.isEmpty();
+                if (replayed) {
+                    restore();
+                }
+                l.replay(new DataMatrixCellLog.Replay<K, D>() {
+                    @Override
+                    public void added(final DataResource<K, D> resource) {
+                        put(resource);
+                    }
+
+                    @Override
+                    public void removed(final UUID uuid) {
+                        delete(uuid);
+                    }
+                });
+                if (replayed && snapshot != null) {
+                    snapshot = DataMatrixCellSnapshot.of(metadataSize, cell);
+                }
+            } catch (IOException e) {
+                close(l);
+                throw new DataMatrixRepositoryFailedException(
+                        "Could not replay log file: " + path, e);
+            } catch (DataMatrixRepositoryFailedException | RuntimeException e) {
+                close(l);
+                throw e;
+            }
+            log = l;
+        }
+    }
+
+    /**
+     * Stops appending modifications of the repository to a log file, and closes the file.
+     * @throws DataMatrixRepositoryFailedException when the file could not be closed
+     */
+    public void detachLog()
+            throws DataMatrixRepositoryFailedException {
+        DataMatrixCellLog<K, D> l;
+        synchronized (this) {
+            l = log;
+            log = null;
+        }
+        if (l != null) {
+            try {
+                l.close();
+            } catch (IOException e) {
+                throw new DataMatrixRepositoryFailedException(
+                        "Could not close log file", e);
+            }
+        }
+    }
+
     @Override
     public int getMetadataSize() {
         return metadataSize;
@@ -47,15 +300,64 @@ public final class DataMatrixCellBasedRepository<K extends DataResourceKey, D>
     public void add(final DataResource<K, D> resource)
             throws DataMatrixRepositoryFailedException {
         validate(resource);
-        data.put(resource.getUuid(), resource);
-        DataMatrixCellResource<K> r = DataMatrixCellResource.form(resource);
-        cell.add(r);
+        restore();
+        DataMatrixCellLog<K, D> l = log;
+        if (l == null) {
+            put(resource);
+            return;
+        }
+        long position;
+        l.lock();
+        try {
+            position = l.appendAdded(Collections.singletonList(resource));
+            put(resource);
+        } catch (IOException e) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Could not write to log file", e);
+        } finally {
+            l.unlock();
+        }
+        await(l, position);
+    }
+
+    /**
+     * Adds a collection of resources by partitioning all of them top-down at once.
+     * No resource is added unless all of them are valid.
+     */
+    @Override
+    public void addAll(final Collection<DataResource<K, D>> resources)
+            throws DataMatrixRepositoryFailedException {
+        if (resources == null) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Data resources may not be null");
+        }
+        for (DataResource<K, D> resource : resources) {
+            validate(resource);
+        }
+        restore();
+        DataMatrixCellLog<K, D> l = log;
+        if (l == null) {
+            putAll(resources);
+            return;
+        }
+        long position;
+        l.lock();
+        try {
+            position = l.appendAdded(resources);
+            putAll(resources);
+        } catch (IOException e) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Could not write to log file", e);
+        } finally {
+            l.unlock();
+        }
+        await(l, position);
     }
 
     @Override
     public DataResource<K, D> find(UUID uuid)
             throws DataDoesNotExistException {
-        DataResource<K, D> resource = data.get(uuid);
+        DataResource<K, D> resource = resources().get(uuid);
         if (resource == null) {
             String message = String.format(
                     "Could not find resource for given uuid: %s", uuid);
@@ -67,21 +369,226 @@ public final class DataMatrixCellBasedRepository<K extends DataResourceKey, D>
     @Override
     public DataResource<K, D> remove(UUID uuid)
             throws DataDoesNotExistException {
-        DataResource<K, D> resource = data.remove(uuid);
+        restoreUnchecked();
+        DataMatrixCellLog<K, D> l = log;
+        DataResource<K, D> resource;
+        long position = 0L;
+        if (l == null) {
+            resource = delete(uuid);
+        } else {
+            l.lock();
+            try {
+                if (data.containsKey(uuid)) {
+                    position = l.appendRemoved(uuid);
+                }
+                resource = delete(uuid);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write to log file", e);
+            } finally {
+                l.unlock();
+            }
+        }
         if (resource == null) {
             String message = String.format(
                     "Could not find resource for given uuid: %s", uuid);
             throw new DataDoesNotExistException(message);
         }
-        DataMatrixCellResource<K> r = DataMatrixCellResource.form(resource);
-        cell.remove(r);
+        if (l != null) {
+            try {
+                l.await(position);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not force log file", e);
+            }
+        }
         return resource;
     }
 
     @Override
     public DataMatrixResourceIterator<K, D> findNeighbours(
-            final DataResourceKey metadata) {
-        return DataMatrixCellIterator.startWith(metadata.unified(), cell, data);
+            final K metadata,
+            final DistanceMetric metric)
+            throws DataMatrixRepositoryFailedException {
+        if (metric == null) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Distance metric may not be null");
+        }
+        DataMatrixCellSnapshot<K> s = snapshot;
+        if (s != null) {
+            return DataMatrixCellSnapshotIterator.startWith(metadata.unifiedDoubles(), metric, s, resources());
+        }
+        return DataMatrixCellIterator.startWith(metadata.unifiedDoubles(), metric, cell, data);
+    }
+
+    @Override
+    public DataMatrixResourceBatchIterator<K, D> findNeighbours(
+            final List<K> metadata,
+            final DistanceMetric metric)
+            throws DataMatrixRepositoryFailedException {
+        if (metadata == null) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Metadata list may not be null");
+        }
+        if (metric == null) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Distance metric may not be null");
+        }
+        double[][] entryPoints = new double[metadata.size()][];
+        for (int i = 0; i < entryPoints.length; i++) {
+            entryPoints[i] = metadata.get(i).unifiedDoubles();
+        }
+        DataMatrixCellSnapshot<K> s = snapshot;
+        if (s != null) {
+            return DataMatrixCellSnapshotBatchIterator.startWith(entryPoints, metric, s, resources());
+        }
+        return DataMatrixCellBatchIterator.startWith(entryPoints, metric, cell, data);
+    }
+
+    /**
+     * Compiles a current state of the repository into an immutable, array-backed snapshot
+     * and makes all subsequent neighbour queries run against it.
+     *
+     * Resources removed after a snapshot is taken are not returned by queries,
+     * but resources added afterwards are not visible to queries until the snapshot is rebuilt.
+     * Read-mostly workloads are expected to call this method periodically
+     * in order to swap accumulated writes in.
+     */
+    public void freeze() {
+        restoreUnchecked();
+        snapshot = DataMatrixCellSnapshot.of(metadataSize, cell);
+    }
+
+    /**
+     * Drops a snapshot of the repository, so that neighbour queries run against
+     * the mutable cell tree and see all writes immediately.
+     */
+    public void unfreeze() {
+        restoreUnchecked();
+        snapshot = null;
+    }
+
+    /**
+     * Informs whether neighbour queries run against a snapshot of the repository.
+     * @return true when the repository is frozen
+     */
+    public boolean isFrozen() {
+        return snapshot != null;
+    }
+
+    /**
+     * Measures a shape of a tree of cells of the repository,
+     * i.e. its depth and a distribution of resources among its leaves.
+     * @return metrics of the tree
+     */
+    public DataMatrixCellTreeMetrics getTreeMetrics() {
+        restoreUnchecked();
+        return cell.metrics();
+    }
+
+    /**
+     * Rebuilds subtrees of cells which grew much deeper than their resources require,
+     * e.g. after skewed resources were added one by one.
+     *
+     * Rebuilt subtrees are swapped in at once, so neighbour queries are never blocked
+     * and see either a previous or a rebuilt subtree. Modifications of a subtree wait until it is rebuilt.
+     * The repository does not rebalance itself, it is expected to be scheduled by a caller
+     * in the background, e.g. with a {@link java.util.concurrent.ScheduledExecutorService}.
+     * @return a number of rebuilt subtrees
+     */
+    public int rebalance() {
+        restoreUnchecked();
+        return cell.rebalance();
+    }
+
+    /**
+     * Returns resources of the repository, or a view of resources of an index file
+     * the repository has been opened from, as long as they have not been restored.
+     */
+    private Map<UUID, DataResource<K, D>> resources() {
+        DataMatrixCellIndex<K, D> i = index;
+        return i != null ? i.getResources() : data;
+    }
+
+    /**
+     * Restores resources of an index file the repository has been opened from into the cell tree.
+     * Cells are restored with their boundaries first, so that resources fill them without any splitting.
+     */
+    private void restore() throws DataMatrixRepositoryFailedException {
+        if (index == null) {
+            return;
+        }
+        synchronized (this) {
+            DataMatrixCellIndex<K, D> i = index;
+            if (i == null) {
+                return;
+            }
+            List<DataResource<K, D>> resources;
+            try {
+                resources = i.readAll();
+                i.restoreStructure(cell);
+            } catch (IOException e) {
+                throw new DataMatrixRepositoryFailedException(
+                        "Could not restore resources of index file", e);
+            }
+            List<DataMatrixCellResource<K>> rs = new ArrayList<>(resources.size());
+            for (DataResource<K, D> resource : resources) {
+                data.put(resource.getUuid(), resource);
+                rs.add(DataMatrixCellResource.form(resource));
+            }
+            cell.addAll(rs);
+            index = null;
+        }
+    }
+
+    private void put(final DataResource<K, D> resource) {
+        data.put(resource.getUuid(), resource);
+        DataMatrixCellResource<K> r = DataMatrixCellResource.form(resource);
+        cell.add(r);
+    }
+
+    private void putAll(final Collection<DataResource<K, D>> resources) {
+        List<DataMatrixCellResource<K>> rs = new ArrayList<>(resources.size());
+        for (DataResource<K, D> resource : resources) {
+            data.put(resource.getUuid(), resource);
+            rs.add(DataMatrixCellResource.form(resource));
+        }
+        cell.addAll(rs);
+    }
+
+    private DataResource<K, D> delete(final UUID uuid) {
+        DataResource<K, D> resource = data.remove(uuid);
+        if (resource != null) {
+            DataMatrixCellResource<K> r = DataMatrixCellResource.form(resource);
+            cell.remove(r);
+        }
+        return resource;
+    }
+
+    private static void await(final DataMatrixCellLog<?, ?> log, final long position)
+            throws DataMatrixRepositoryFailedException {
+        try {
+            log.await(position);
+        } catch (IOException e) {
+            throw new DataMatrixRepositoryFailedException(
+                    "Could not force log file", e);
+        }
+    }
+
+    private static void close(final DataMatrixCellLog<?, ?> log) {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException ignored) {
+                // the log is abandoned anyway
+            }
+        }
+    }
+
+    private void restoreUnchecked() {
+        try {
+            restore();
+        } catch (DataMatrixRepositoryFailedException e) {
+            throw new IllegalStateException(e.getMessage(), e.getCause());
+        }
     }
 
     private void validate(final DataResource<K, D> resource)
@@ -0,0 +1,187 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBatchIterator;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A batch iterator that traverses cells once for all entry points.
+ *
+ * Cells are visited in an order of the lowest lower bound among all entry points.
+ * A cell is returned when it may be relevant for at least one entry point,
+ * and the traversal stops once no pending cell is within a range of any entry point.
+ */
+final class DataMatrixCellBatchIterator<K extends DataResourceKey, D>
+        implements DataMatrixResourceBatchIterator<K, D> {
+
+    private final double[][] entryPoints;
+    private final DistanceMetric metric;
+    private final Map<UUID, DataResource<K, D>> data;
+
+    private final double[] rankLimits;
+    private double highestRankLimit;
+
+    private final PriorityQueue<PendingCell<K>> queue;
+    private PendingCell<K> current;
+
+    private DataMatrixCellBatchIterator(
+            final double[][] entryPoints,
+            final DistanceMetric metric,
+            final DataMatrixCell<DataMatrixCellResource<K>> cell,
+            final Map<UUID, DataResource<K, D>> data) {
+        this.entryPoints = entryPoints;
+        this.metric = metric;
+        this.data = data;
+        this.rankLimits = new double[entryPoints.length];
+        Arrays.fill(this.rankLimits, Double.POSITIVE_INFINITY);
+        this.highestRankLimit = Double.POSITIVE_INFINITY;
+        this.queue = new PriorityQueue<>(Comparator.comparingDouble(PendingCell::getLowestLowerBound));
+        push(cell, null);
+    }
+
+    public static <K extends DataResourceKey, D> DataMatrixCellBatchIterator<K, D> startWith(
+            final double[][] entryPoints,
+            final DistanceMetric metric,
+            final DataMatrixCell<DataMatrixCellResource<K>> cell,
+            final Map<UUID, DataResource<K, D>> data) {
+        return new DataMatrixCellBatchIterator<>(entryPoints, metric, cell, data);
+    }
+
+    @Override
+    public Set<DataResource<K, D>> next() {
+        DataMatrixCellBlock<DataMatrixCellResource<K>> block = nextLeafBlock();
+        if (block == null) {
+            return Collections.emptySet();
+        }
+        return block.toSet()
+                .stream()
+                .map(r -> data.get(r.getUuid()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns a next chunk of resources as a block of coordinates packed within a cell,
+     * so that resources are resolved only on demand.
+     */
+    @Override
+    public DataMatrixResourceBlock<K, D> nextBlock() {
+        DataMatrixCellBlock<DataMatrixCellResource<K>> block = nextLeafBlock();
+        if (block == null) {
+            return DataMatrixResourceBlock.of(Collections.emptySet());
+        }
+        return new DataMatrixCellResourceBlock<>(block, data);
+    }
+
+    private DataMatrixCellBlock<DataMatrixCellResource<K>> nextLeafBlock() {
+        current = null;
+        while (!queue.isEmpty()) {
+            PendingCell<K> pending = queue.poll();
+            if (!isRelevant(pending)) {
+                continue;
+            }
+            List<DataMatrixCell<DataMatrixCellResource<K>>> children = new ArrayList<>();
+            DataMatrixCellBlock<DataMatrixCellResource<K>> block = pending.cell.getLeafBlock(children);
+            if (block == null) {
+                children.forEach(c -> push(c, pending));
+                continue;
+            }
+            current = pending;
+            return block;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!queue.isEmpty()) {
+            PendingCell<K> pending = queue.peek();
+            if (pending.getLowestLowerBound() > highestRankLimit) {
+                queue.clear();
+                return false;
+            }
+            if (isRelevant(pending)) {
+                return true;
+            }
+            queue.poll();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isRelevantFor(final int entryPoint) {
+        return current != null && current.lowerBounds[entryPoint] <= rankLimits[entryPoint];
+    }
+
+    @Override
+    public void limitTo(final int entryPoint, final double range) {
+        rankLimits[entryPoint] = metric.toRank(range);
+        double highest = Double.NEGATIVE_INFINITY;
+        for (double limit : rankLimits) {
+            highest = Math.max(highest, limit);
+        }
+        highestRankLimit = highest;
+    }
+
+    private boolean isRelevant(final PendingCell<K> pending) {
+        if (pending.cell.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < entryPoints.length; i++) {
+            if (pending.lowerBounds[i] <= rankLimits[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resources of a child cell are bounded by resources of its parent, so a child cell
+     * is never relevant for entry points its parent has already been out of range of.
+     */
+    private void push(
+            final DataMatrixCell<DataMatrixCellResource<K>> cell,
+            final PendingCell<K> parent) {
+        double[] lowerBounds = new double[entryPoints.length];
+        double lowest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < entryPoints.length; i++) {
+            if (parent != null && parent.lowerBounds[i] > rankLimits[i]) {
+                lowerBounds[i] = Double.POSITIVE_INFINITY;
+            } else {
+                lowerBounds[i] = cell.lowerBound(metric, entryPoints[i]);
+                lowest = Math.min(lowest, lowerBounds[i]);
+            }
+        }
+        if (lowest <= highestRankLimit) {
+            queue.add(new PendingCell<>(cell, lowerBounds, lowest));
+        }
+    }
+
+    /**
+     * A cell waiting for a visit together with its lower bounds for all entry points.
+     */
+    private static final class PendingCell<K extends DataResourceKey> {
+
+        private final DataMatrixCell<DataMatrixCellResource<K>> cell;
+        private final double[] lowerBounds;
+        private final double lowestLowerBound;
+
+        private PendingCell(
+                final DataMatrixCell<DataMatrixCellResource<K>> cell,
+                final double[] lowerBounds,
+                final double lowestLowerBound) {
+            this.cell = cell;
+            this.lowerBounds = lowerBounds;
+            this.lowestLowerBound = lowestLowerBound;
+        }
+
+        private double getLowestLowerBound() {
+            return lowestLowerBound;
+        }
+    }
+}
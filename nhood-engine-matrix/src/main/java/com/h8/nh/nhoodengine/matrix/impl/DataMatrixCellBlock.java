@@ -0,0 +1,125 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A view of resources of a leaf cell.
+ *
+ * Resources are kept in a compact array together with a packed block of their
+ * unified primitive coordinates, so that a whole leaf may be scored without
+ * dereferencing resources one by one. A view is published by {@link DataMatrixCellStore}
+ * and its coordinates are never modified afterwards, so it may be read without any synchronization.
+ * A slot of a resource removed in the meantime becomes empty.
+ *
+ * @param <R> a generic type of cell resource.
+ */
+final class DataMatrixCellBlock<R extends DataMatrixCellResource<?>> {
+
+    private final int metadataSize;
+    private final Object[] resources;
+    private final DataMatrixCellCoordinates coordinates;
+    private final int size;
+    private final int resourcesCount;
+
+    DataMatrixCellBlock(
+            final int metadataSize,
+            final Object[] resources,
+            final DataMatrixCellCoordinates coordinates,
+            final int size,
+            final int resourcesCount) {
+        this.metadataSize = metadataSize;
+        this.resources = resources;
+        this.coordinates = coordinates;
+        this.size = size;
+        this.resourcesCount = resourcesCount;
+    }
+
+    /**
+     * Returns a number of slots of the view, including empty ones.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Informs whether there were no resources at the moment the view was published.
+     */
+    boolean isEmpty() {
+        return resourcesCount == 0;
+    }
+
+    /**
+     * Returns a number of resources at the moment the view was published, excluding empty slots.
+     */
+    int getResourcesCount() {
+        return resourcesCount;
+    }
+
+    int getMetadataSize() {
+        return metadataSize;
+    }
+
+    /**
+     * Returns a resource of a given slot or null when the slot is empty.
+     */
+    @SuppressWarnings("unchecked")
+    R get(final int i) {
+        return (R) resources[i];
+    }
+
+    /**
+     * Returns packed coordinates of resources. Coordinates of the i-th resource
+     * start at {@code i * getMetadataSize()}. The array may be longer than the view.
+     * Coordinates stored off heap are copied.
+     */
+    double[] getCoordinates() {
+        return coordinates.array();
+    }
+
+    /**
+     * Copies coordinates of a resource of a given slot into a vector.
+     */
+    void getCoordinates(final int i, final double[] target, final int targetOffset) {
+        coordinates.get(i * metadataSize, target, targetOffset, metadataSize);
+    }
+
+    /**
+     * Computes a rank between a point and coordinates of a resource of a given slot.
+     * A given vector of the metadata size may be used as a scratch space.
+     */
+    double rank(
+            final DistanceMetric metric,
+            final double[] point,
+            final int i,
+            final double bound,
+            final double[] scratch) {
+        return coordinates.rank(metric, point, i * metadataSize, bound, scratch);
+    }
+
+    List<R> toList() {
+        List<R> list = new ArrayList<>(resourcesCount);
+        for (int i = 0; i < size; i++) {
+            R r = get(i);
+            if (r != null) {
+                list.add(r);
+            }
+        }
+        return list;
+    }
+
+    Set<R> toSet() {
+        Set<R> set = new HashSet<>(resourcesCount * 2);
+        for (int i = 0; i < size; i++) {
+            R r = get(i);
+            if (r != null) {
+                set.add(r);
+            }
+        }
+        return set;
+    }
+}
@@ -0,0 +1,422 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * A compact binary codec of resources and cell trees of {@link DataMatrixCellBasedRepository}.
+ *
+ * A resource is written as its identifier in two longs, followed by coordinates of its key
+ * in a fixed width given with {@link DataMatrixCellCodecPrecision}, and its data written
+ * with {@link DataMatrixCellDataSerializer}. Keys are read back with a factory of keys of unified coordinates.
+ *
+ * A stream written with {@link Writer} holds a header, i.e. a magic number, a version of the format,
+ * a metadata size and a width of coordinates, followed by an optional cell tree and by resources,
+ * each preceded by a marker byte, until an end marker. A cell tree is written as boundaries of cells
+ * with variable-length integers, and it is length-prefixed, so that readers not interested in it skip it.
+ * Streams of other versions, metadata sizes or widths are rejected.
+ *
+ * The codec is also a {@link DataMatrixCellIndexSerializer}, so that it may be used for index and log files.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+public final class DataMatrixCellCodec<K extends DataResourceKey, D>
+        implements DataMatrixCellIndexSerializer<K, D> {
+
+    static final int MAGIC = 0x4E485253;
+
+    static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int MAX_SECTION_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final int END = 0;
+
+    private static final int RESOURCE = 1;
+
+    private final int metadataSize;
+    private final DataMatrixCellCodecPrecision precision;
+    private final Function<BigDecimal[], K> keys;
+    private final DataMatrixCellDataSerializer<D> data;
+
+    private DataMatrixCellCodec(
+            final int metadataSize,
+            final DataMatrixCellCodecPrecision precision,
+            final Function<BigDecimal[], K> keys,
+            final DataMatrixCellDataSerializer<D> data) {
+        this.metadataSize = metadataSize;
+        this.precision = precision;
+        this.keys = keys;
+        this.data = data;
+        validate();
+    }
+
+    public int getMetadataSize() {
+        return metadataSize;
+    }
+
+    public DataMatrixCellCodecPrecision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Writes coordinates of a key in a fixed width
+     */
+    @Override
+    public void writeKey(final K key, final DataOutput output) throws IOException {
+        double[] unified = key.unifiedDoubles();
+        if (unified.length != metadataSize) {
+            throw new IOException("Key has invalid size: " + unified.length + ". Expected: " + metadataSize);
+        }
+        for (double value : unified) {
+            precision.write(output, value);
+        }
+    }
+
+    @Override
+    public K readKey(final DataInput input) throws IOException {
+        BigDecimal[] unified = new BigDecimal[metadataSize];
+        for (int i = 0; i < metadataSize; i++) {
+            unified[i] = BigDecimal.valueOf(precision.read(input));
+        }
+        return keys.apply(unified);
+    }
+
+    @Override
+    public void writeData(final D value, final DataOutput output) throws IOException {
+        data.write(value, output);
+    }
+
+    @Override
+    public D readData(final DataInput input) throws IOException {
+        return data.read(input);
+    }
+
+    /**
+     * Writes an identifier, a key and data of a resource
+     * @param resource a resource
+     * @param output an output
+     * @throws IOException when the resource could not be written
+     */
+    public void writeResource(final DataResource<K, D> resource, final DataOutput output) throws IOException {
+        output.writeLong(resource.getUuid().getMostSignificantBits());
+        output.writeLong(resource.getUuid().getLeastSignificantBits());
+        writeKey(resource.getKey(), output);
+        writeData(resource.getData(), output);
+    }
+
+    /**
+     * Reads a resource written with {@link #writeResource(DataResource, DataOutput)}
+     * @param input an input
+     * @return a resource
+     * @throws IOException when the resource could not be read
+     */
+    public DataResource<K, D> readResource(final DataInput input) throws IOException {
+        UUID uuid = new UUID(input.readLong(), input.readLong());
+        K key = readKey(input);
+        D value = readData(input);
+        return new DataResource<>(uuid, key, value);
+    }
+
+    /**
+     * Starts a stream of resources
+     * @param output an output stream, which is closed once the writer is closed
+     * @return a writer of resources
+     * @throws IOException when a header of the stream could not be written
+     */
+    public Writer writer(final OutputStream output) throws IOException {
+        return new Writer(output, null);
+    }
+
+    Writer writer(final OutputStream output, final DataMatrixCell<?> root) throws IOException {
+        return new Writer(output, root);
+    }
+
+    /**
+     * Opens a stream of resources written with {@link Writer}
+     * @param input an input stream, which is closed once the reader is closed
+     * @return a reader of resources
+     * @throws IOException when a header of the stream could not be read or is not supported
+     */
+    public Reader reader(final InputStream input) throws IOException {
+        return new Reader(input);
+    }
+
+    /**
+     * Writes a cell tree, i.e. a range of its root followed by a structure of its cells.
+     */
+    static void writeTree(final DataMatrixCell<?> root, final DataOutput output) throws IOException {
+        for (double value : root.getUnifiedIndex()) {
+            output.writeDouble(value);
+        }
+        for (double value : root.getUnifiedClosure()) {
+            output.writeDouble(value);
+        }
+        root.writeStructure(output);
+    }
+
+    /**
+     * Restores a cell tree written with {@link #writeTree(DataMatrixCell, DataOutput)} under an empty root.
+     * The root has to cover the same range as the root of the written tree.
+     */
+    static void readTree(final DataMatrixCell<?> root, final DataInput input) throws IOException {
+        int size = root.getUnifiedIndex().length;
+        double[] index = new double[size];
+        double[] closure = new double[size];
+        for (int i = 0; i < size; i++) {
+            index[i] = input.readDouble();
+        }
+        for (int i = 0; i < size; i++) {
+            closure[i] = input.readDouble();
+        }
+        if (!Arrays.equals(index, root.getUnifiedIndex()) || !Arrays.equals(closure, root.getUnifiedClosure())) {
+            throw new IOException("Cell tree has been written with a different root range");
+        }
+        root.readStructure(input);
+    }
+
+    /**
+     * Writes a non-negative integer in 7-bit groups, least significant first,
+     * with a high bit of each byte set when more bytes follow.
+     */
+    static void writeVarInt(final DataOutput output, final int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            output.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        output.writeByte(v);
+    }
+
+    static int readVarInt(final DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Variable-length integer is too long");
+    }
+
+    /**
+     * Reads a given number of bytes in chunks of a bounded size, so that a corrupted length
+     * ends with an end of a stream rather than with an allocation of the whole length up front.
+     */
+    static byte[] readBytes(final DataInput input, final int length) throws IOException {
+        if (length < 0 || length > MAX_SECTION_SIZE) {
+            throw new IOException("Stream has invalid length of section: " + length);
+        }
+        byte[] bytes = new byte[Math.min(length, BUFFER_SIZE)];
+        int read = 0;
+        while (read < length) {
+            if (read == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * read));
+            }
+            input.readFully(bytes, read, bytes.length - read);
+            read = bytes.length;
+        }
+        return bytes;
+    }
+
+    private void validate() {
+        if (metadataSize <= 0) {
+            throw new IllegalArgumentException("Metadata size must be greater than 0");
+        }
+        if (precision == null) {
+            throw new IllegalArgumentException("Precision must be defined");
+        }
+        if (keys == null) {
+            throw new IllegalArgumentException("Key factory must be defined");
+        }
+        if (data == null) {
+            throw new IllegalArgumentException("Data serializer must be defined");
+        }
+    }
+
+    /**
+     * A factory of plain keys of unified coordinates, for repositories of {@link DataResourceKey} itself
+     * @return a factory of keys
+     */
+    public static Function<BigDecimal[], DataResourceKey> unifiedKeys() {
+        return unified -> () -> unified;
+    }
+
+    public static <K extends DataResourceKey, D> DataMatrixCellCodecBuilder<K, D> builder() {
+        return new DataMatrixCellCodecBuilder<>();
+    }
+
+    /**
+     * A writer of a stream of resources.
+     */
+    public final class Writer implements Closeable, Flushable {
+
+        private final DataOutputStream output;
+
+        private Writer(final OutputStream output, final DataMatrixCell<?> root) throws IOException {
+            this.output = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+            this.output.writeInt(MAGIC);
+            writeVarInt(this.output, VERSION);
+            writeVarInt(this.output, metadataSize);
+            writeVarInt(this.output, precision.getWidth());
+            if (root == null) {
+                writeVarInt(this.output, 0);
+            } else {
+                ByteArrayOutputStream tree = new ByteArrayOutputStream();
+                writeTree(root, new DataOutputStream(tree));
+                writeVarInt(this.output, tree.size());
+                tree.writeTo(this.output);
+            }
+        }
+
+        /**
+         * Writes a next resource of the stream
+         * @param resource a resource
+         * @throws IOException when the resource could not be written
+         */
+        public void write(final DataResource<K, D> resource) throws IOException {
+            output.writeByte(RESOURCE);
+            writeResource(resource, output);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        /**
+         * Ends the stream and closes an underlying output stream.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                output.writeByte(END);
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * A reader of a stream of resources.
+     */
+    public final class Reader implements Closeable {
+
+        private final DataInputStream input;
+        private final byte[] tree;
+        private boolean ended;
+
+        private Reader(final InputStream input) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+            if (this.input.readInt() != MAGIC) {
+                throw new IOException("Stream is not a stream of resources");
+            }
+            int version = readVarInt(this.input);
+            if (version != VERSION) {
+                throw new IOException("Unsupported version of stream: " + version + ". Expected: " + VERSION);
+            }
+            int size = readVarInt(this.input);
+            if (size != metadataSize) {
+                throw new IOException("Stream has been written with metadata size: " + size
+                        + ". Expected: " + metadataSize);
+            }
+            DataMatrixCellCodecPrecision written = DataMatrixCellCodecPrecision.ofWidth(readVarInt(this.input));
+            if (written != precision) {
+                throw new IOException("Stream has been written with precision: " + written
+                        + ". Expected: " + precision);
+            }
+            this.tree = readBytes(this.input, readVarInt(this.input));
+        }
+
+        /**
+         * Reads a next resource of the stream
+         * @return a resource, or null once the stream has ended
+         * @throws IOException when the resource could not be read
+         */
+        public DataResource<K, D> read() throws IOException {
+            if (ended) {
+                return null;
+            }
+            int marker = input.readUnsignedByte();
+            if (marker == END) {
+                ended = true;
+                return null;
+            }
+            if (marker != RESOURCE) {
+                throw new IOException("Invalid marker of stream: " + marker);
+            }
+            return readResource(input);
+        }
+
+        /**
+         * Restores a cell tree of the stream under an empty root, if the stream holds one.
+         */
+        void restoreTree(final DataMatrixCell<?> root) throws IOException {
+            if (tree.length > 0) {
+                readTree(root, new DataInputStream(new ByteArrayInputStream(tree)));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    public static final class DataMatrixCellCodecBuilder<K extends DataResourceKey, D> {
+
+        private int metadataSize;
+        private DataMatrixCellCodecPrecision precision;
+        private Function<BigDecimal[], K> keys;
+        private DataMatrixCellDataSerializer<D> data;
+
+        private DataMatrixCellCodecBuilder() {
+            precision = DataMatrixCellCodecPrecision.DOUBLE;
+        }
+
+        public DataMatrixCellCodecBuilder<K, D> metadataSize(final int metadataSize) {
+            this.metadataSize = metadataSize;
+            return this;
+        }
+
+        public DataMatrixCellCodecBuilder<K, D> precision(final DataMatrixCellCodecPrecision precision) {
+            this.precision = precision;
+            return this;
+        }
+
+        public DataMatrixCellCodecBuilder<K, D> keys(final Function<BigDecimal[], K> keys) {
+            this.keys = keys;
+            return this;
+        }
+
+        public DataMatrixCellCodecBuilder<K, D> data(final DataMatrixCellDataSerializer<D> data) {
+            this.data = data;
+            return this;
+        }
+
+        public DataMatrixCellCodec<K, D> build() {
+            return new DataMatrixCellCodec<>(metadataSize, precision, keys, data);
+        }
+    }
+}
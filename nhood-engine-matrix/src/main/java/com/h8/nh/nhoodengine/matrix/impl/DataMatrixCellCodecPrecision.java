@@ -0,0 +1,81 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Defines a fixed width of coordinates of keys written with {@link DataMatrixCellCodec}.
+ */
+public enum DataMatrixCellCodecPrecision {
+
+    /**
+     * Writes each coordinate as a 4-byte float. It halves a size of keys,
+     * but coordinates are rounded to about 7 significant digits.
+     */
+    FLOAT(Float.BYTES) {
+        @Override
+        void write(final DataOutput output, final double value) throws IOException {
+            output.writeFloat((float) value);
+        }
+
+        @Override
+        double read(final DataInput input) throws IOException {
+            return input.readFloat();
+        }
+    },
+
+    /**
+     * Writes each coordinate as an 8-byte double, i.e. exactly as it is used by the repository.
+     */
+    DOUBLE(Double.BYTES) {
+        @Override
+        void write(final DataOutput output, final double value) throws IOException {
+            output.writeDouble(value);
+        }
+
+        @Override
+        double read(final DataInput input) throws IOException {
+            return input.readDouble();
+        }
+    };
+
+    private final int width;
+
+    DataMatrixCellCodecPrecision(final int width) {
+        this.width = width;
+    }
+
+    /**
+     * A number of bytes of a single coordinate, which also identifies a precision within a stream
+     * @return a width of a coordinate
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Writes a single coordinate
+     * @param output an output
+     * @param value a coordinate
+     * @throws IOException when the coordinate could not be written
+     */
+    abstract void write(DataOutput output, double value) throws IOException;
+
+    /**
+     * Reads a single coordinate
+     * @param input an input
+     * @return a coordinate
+     * @throws IOException when the coordinate could not be read
+     */
+    abstract double read(DataInput input) throws IOException;
+
+    static DataMatrixCellCodecPrecision ofWidth(final int width) throws IOException {
+        for (DataMatrixCellCodecPrecision precision : values()) {
+            if (precision.width == width) {
+                return precision;
+            }
+        }
+        throw new IOException("Unsupported width of coordinates: " + width);
+    }
+}
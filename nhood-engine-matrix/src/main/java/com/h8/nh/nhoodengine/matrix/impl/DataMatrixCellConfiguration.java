@@ -31,6 +31,30 @@ public final class DataMatrixCellConfiguration {
      */
     static final BigDecimal DEFAULT_ROOT_RANGE = MAX_ROOT_RANGE;
 
+    /**
+     * Default split policy.
+     * Used when value is not defined in the builder.
+     */
+    static final DataMatrixCellSplitPolicy DEFAULT_SPLIT_POLICY = DataMatrixCellSplitPolicy.AVERAGE;
+
+    /**
+     * Default split strategy.
+     * Used when value is not defined in the builder.
+     */
+    static final DataMatrixCellSplitStrategy DEFAULT_SPLIT_STRATEGY = DataMatrixCellSplitStrategy.WIDEST_DIMENSION;
+
+    /**
+     * Default storage of coordinates.
+     * Used when value is not defined in the builder.
+     */
+    static final DataMatrixCellStorage DEFAULT_STORAGE = DataMatrixCellStorage.HEAP;
+
+    /**
+     * Default value of merge ratio.
+     * Used when value is not defined in the builder.
+     */
+    static final double DEFAULT_MERGE_RATIO = 0.25;
+
     /**
      * Defines into how many times a single cell is split in half
      * example:
@@ -50,13 +74,42 @@ public final class DataMatrixCellConfiguration {
      */
     private BigDecimal rootRange;
 
+    /**
+     * Defines where a cell is split.
+     */
+    private DataMatrixCellSplitPolicy splitPolicy;
+
+    /**
+     * Defines along which dimensions a cell is split.
+     */
+    private DataMatrixCellSplitStrategy splitStrategy;
+
+    /**
+     * Defines a fraction of cell size. When resources of all sub cells of a cell drop below it,
+     * sub cells are merged back into the cell. Merging is disabled for 0.
+     */
+    private double mergeRatio;
+
+    /**
+     * Defines where coordinates of resources are stored.
+     */
+    private DataMatrixCellStorage storage;
+
     private DataMatrixCellConfiguration(
             final int splitIterations,
             final int cellSize,
-            final BigDecimal rootRange) {
+            final BigDecimal rootRange,
+            final DataMatrixCellSplitPolicy splitPolicy,
+            final DataMatrixCellSplitStrategy splitStrategy,
+            final double mergeRatio,
+            final DataMatrixCellStorage storage) {
         this.splitIterations = splitIterations;
         this.cellSize = cellSize;
         this.rootRange = rootRange;
+        this.splitPolicy = splitPolicy;
+        this.splitStrategy = splitStrategy;
+        this.mergeRatio = mergeRatio;
+        this.storage = storage;
         validate();
     }
 
@@ -111,6 +164,77 @@ public final class DataMatrixCellConfiguration {
         validate();
     }
 
+    /**
+     * Defines where a cell is split.
+     * @return current split policy
+     */
+    DataMatrixCellSplitPolicy getSplitPolicy() {
+        return splitPolicy;
+    }
+
+    /**
+     * Defines where a cell is split.
+     * @param splitPolicy new split policy
+     */
+    void setSplitPolicy(final DataMatrixCellSplitPolicy splitPolicy) {
+        this.splitPolicy = splitPolicy;
+        validate();
+    }
+
+    /**
+     * Defines along which dimensions a cell is split.
+     * @return current split strategy
+     */
+    DataMatrixCellSplitStrategy getSplitStrategy() {
+        return splitStrategy;
+    }
+
+    /**
+     * Defines along which dimensions a cell is split.
+     * @param splitStrategy new split strategy
+     */
+    void setSplitStrategy(final DataMatrixCellSplitStrategy splitStrategy) {
+        this.splitStrategy = splitStrategy;
+        validate();
+    }
+
+    /**
+     * Defines a fraction of cell size. When resources of all sub cells of a cell drop below it,
+     * sub cells are merged back into the cell.
+     * @return current merge ratio
+     */
+    double getMergeRatio() {
+        return mergeRatio;
+    }
+
+    /**
+     * Defines a fraction of cell size. When resources of all sub cells of a cell drop below it,
+     * sub cells are merged back into the cell.
+     * @param mergeRatio new merge ratio
+     */
+    void setMergeRatio(final double mergeRatio) {
+        this.mergeRatio = mergeRatio;
+        validate();
+    }
+
+    /**
+     * Defines where coordinates of resources are stored.
+     * @return current storage
+     */
+    DataMatrixCellStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Defines where coordinates of resources are stored.
+     * Affects cells created afterwards only.
+     * @param storage new storage
+     */
+    void setStorage(final DataMatrixCellStorage storage) {
+        this.storage = storage;
+        validate();
+    }
+
     private void validate() {
         if (this.splitIterations <= 0) {
             throw new IllegalArgumentException("Split iterations must be greater than 0");
@@ -124,6 +248,18 @@ public final class DataMatrixCellConfiguration {
         if (MAX_ROOT_RANGE.compareTo(this.rootRange) < 0) {
             throw new IllegalArgumentException("Root range must be lower than Integer.MAX_VALUE");
         }
+        if (this.splitPolicy == null) {
+            throw new IllegalArgumentException("Split policy must be defined");
+        }
+        if (this.splitStrategy == null) {
+            throw new IllegalArgumentException("Split strategy must be defined");
+        }
+        if (!(this.mergeRatio >= 0.0 && this.mergeRatio < 1.0)) {
+            throw new IllegalArgumentException("Merge ratio must be within [0, 1)");
+        }
+        if (this.storage == null) {
+            throw new IllegalArgumentException("Storage must be defined");
+        }
     }
 
     public static DataMatrixCellConfigurationBuilder builder() {
@@ -135,19 +271,27 @@ public final class DataMatrixCellConfiguration {
         private int splitIterations;
         private int cellSize;
         private BigDecimal rootRange;
+        private DataMatrixCellSplitPolicy splitPolicy;
+        private DataMatrixCellSplitStrategy splitStrategy;
+        private double mergeRatio;
+        private DataMatrixCellStorage storage;
 
         private DataMatrixCellConfigurationBuilder() {
             splitIterations = DEFAULT_SPLIT_ITERATIONS;
             cellSize = DEFAULT_MAX_CELL_SIZE;
             rootRange = DEFAULT_ROOT_RANGE;
+            splitPolicy = DEFAULT_SPLIT_POLICY;
+            splitStrategy = DEFAULT_SPLIT_STRATEGY;
+            mergeRatio = DEFAULT_MERGE_RATIO;
+            storage = DEFAULT_STORAGE;
         }
 
-        DataMatrixCellConfigurationBuilder splitIterations(final int splitIterations) {
+        public DataMatrixCellConfigurationBuilder splitIterations(final int splitIterations) {
             this.splitIterations = splitIterations;
             return this;
         }
 
-        DataMatrixCellConfigurationBuilder cellSize(final int cellSize) {
+        public DataMatrixCellConfigurationBuilder cellSize(final int cellSize) {
             this.cellSize = cellSize;
             return this;
         }
@@ -157,8 +301,29 @@ public final class DataMatrixCellConfiguration {
             return this;
         }
 
+        public DataMatrixCellConfigurationBuilder splitPolicy(final DataMatrixCellSplitPolicy splitPolicy) {
+            this.splitPolicy = splitPolicy;
+            return this;
+        }
+
+        public DataMatrixCellConfigurationBuilder splitStrategy(final DataMatrixCellSplitStrategy splitStrategy) {
+            this.splitStrategy = splitStrategy;
+            return this;
+        }
+
+        public DataMatrixCellConfigurationBuilder mergeRatio(final double mergeRatio) {
+            this.mergeRatio = mergeRatio;
+            return this;
+        }
+
+        public DataMatrixCellConfigurationBuilder storage(final DataMatrixCellStorage storage) {
+            this.storage = storage;
+            return this;
+        }
+
         public DataMatrixCellConfiguration build() {
-            return new DataMatrixCellConfiguration(splitIterations, cellSize, rootRange);
+            return new DataMatrixCellConfiguration(
+                    splitIterations, cellSize, rootRange, splitPolicy, splitStrategy, mergeRatio, storage);
         }
     }
 }
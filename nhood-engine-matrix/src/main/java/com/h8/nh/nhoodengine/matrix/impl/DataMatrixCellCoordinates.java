@@ -0,0 +1,196 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Packed unified primitive coordinates of resources of a leaf cell,
+ * allocated according to {@link DataMatrixCellStorage}.
+ *
+ * Like arrays they are written only by {@link DataMatrixCellStore} before a view is published,
+ * and only read afterwards.
+ */
+abstract class DataMatrixCellCoordinates {
+
+    static DataMatrixCellCoordinates heap(final int length) {
+        return new Heap(new double[length]);
+    }
+
+    static DataMatrixCellCoordinates heap(final double[] values) {
+        return new Heap(values);
+    }
+
+    static DataMatrixCellCoordinates offHeap(final int length) {
+        return new OffHeap(allocateDirect(length));
+    }
+
+    /**
+     * Wraps coordinates of a given buffer, e.g. a section of a memory mapped file
+     * or a region of {@link DataMatrixCellSlab}, without copying them.
+     */
+    static DataMatrixCellCoordinates mapped(final DoubleBuffer values) {
+        return new OffHeap(values);
+    }
+
+    private static DoubleBuffer allocateDirect(final int length) {
+        return ByteBuffer.allocateDirect(length * Double.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asDoubleBuffer();
+    }
+
+    /**
+     * Returns a number of coordinates.
+     */
+    abstract int length();
+
+    abstract double get(int index);
+
+    abstract void set(int index, double value);
+
+    /**
+     * Writes coordinates of a vector at a given offset.
+     */
+    abstract void put(int offset, double[] source, int sourceOffset, int count);
+
+    /**
+     * Reads coordinates at a given offset into a vector.
+     */
+    abstract void get(int offset, double[] target, int targetOffset, int count);
+
+    /**
+     * Returns all coordinates as a heap array, which may be backing the coordinates and must not be modified.
+     */
+    abstract double[] array();
+
+    /**
+     * Computes a rank between a point and a vector stored at a given offset.
+     * A given vector of the same size as the point may be used as a scratch space.
+     */
+    abstract double rank(DistanceMetric metric, double[] point, int offset, double bound, double[] scratch);
+
+    /**
+     * Copies coordinates at a given offset of other coordinates to a given offset.
+     */
+    void copy(final DataMatrixCellCoordinates source, final int sourceOffset, final int offset, final int count) {
+        for (int i = 0; i < count; i++) {
+            set(offset + i, source.get(sourceOffset + i));
+        }
+    }
+
+    private static final class Heap extends DataMatrixCellCoordinates {
+
+        private final double[] values;
+
+        private Heap(final double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        double get(final int index) {
+            return values[index];
+        }
+
+        @Override
+        void set(final int index, final double value) {
+            values[index] = value;
+        }
+
+        @Override
+        void put(final int offset, final double[] source, final int sourceOffset, final int count) {
+            System.arraycopy(source, sourceOffset, values, offset, count);
+        }
+
+        @Override
+        void get(final int offset, final double[] target, final int targetOffset, final int count) {
+            System.arraycopy(values, offset, target, targetOffset, count);
+        }
+
+        @Override
+        double[] array() {
+            return values;
+        }
+
+        @Override
+        double rank(
+                final DistanceMetric metric,
+                final double[] point,
+                final int offset,
+                final double bound,
+                final double[] scratch) {
+            return metric.rank(point, values, offset, bound);
+        }
+
+        @Override
+        void copy(final DataMatrixCellCoordinates source, final int sourceOffset, final int offset, final int count) {
+            source.get(sourceOffset, values, offset, count);
+        }
+    }
+
+    /**
+     * Coordinates kept within a buffer outside of the heap, either a direct buffer of native byte order
+     * or a mapped file. The buffer is released by the garbage collector together with its owner.
+     */
+    private static final class OffHeap extends DataMatrixCellCoordinates {
+
+        private final DoubleBuffer values;
+
+        private OffHeap(final DoubleBuffer values) {
+            this.values = values;
+        }
+
+        @Override
+        int length() {
+            return values.capacity();
+        }
+
+        @Override
+        double get(final int index) {
+            return values.get(index);
+        }
+
+        @Override
+        void set(final int index, final double value) {
+            values.put(index, value);
+        }
+
+        @Override
+        void put(final int offset, final double[] source, final int sourceOffset, final int count) {
+            for (int i = 0; i < count; i++) {
+                values.put(offset + i, source[sourceOffset + i]);
+            }
+        }
+
+        @Override
+        void get(final int offset, final double[] target, final int targetOffset, final int count) {
+            for (int i = 0; i < count; i++) {
+                target[targetOffset + i] = values.get(offset + i);
+            }
+        }
+
+        @Override
+        double[] array() {
+            double[] array = new double[values.capacity()];
+            get(0, array, 0, array.length);
+            return array;
+        }
+
+        @Override
+        double rank(
+                final DistanceMetric metric,
+                final double[] point,
+                final int offset,
+                final double bound,
+                final double[] scratch) {
+            get(offset, scratch, 0, point.length);
+            return metric.rank(point, scratch, 0, bound);
+        }
+    }
+}
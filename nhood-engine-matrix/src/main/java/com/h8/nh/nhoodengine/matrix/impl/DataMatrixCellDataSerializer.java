@@ -0,0 +1,29 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This interface defines how data of resources are written with {@link DataMatrixCellCodec} and read back.
+ *
+ * @param <D> a generic type of data resource.
+ */
+public interface DataMatrixCellDataSerializer<D> {
+
+    /**
+     * Writes data of a resource
+     * @param data data of a resource
+     * @param output an output
+     * @throws IOException when the data could not be written
+     */
+    void write(D data, DataOutput output) throws IOException;
+
+    /**
+     * Reads data of a resource
+     * @param input an input
+     * @return data of a resource
+     * @throws IOException when the data could not be read
+     */
+    D read(DataInput input) throws IOException;
+}
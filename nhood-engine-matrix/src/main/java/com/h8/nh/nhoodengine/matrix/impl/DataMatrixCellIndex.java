@@ -0,0 +1,415 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An index file of {@link DataMatrixCellBasedRepository}, opened as a memory mapped file.
+ *
+ * An index file is written in a big endian order and consists of a fixed header followed by sections:
+ * - a {@link DataMatrixCellSnapshot} of the cell tree, which serves neighbour queries straight from the file,
+ * - keys and data of resources written with {@link DataMatrixCellIndexSerializer}, in an order of the snapshot,
+ * - offsets of keys and data of resources, followed by numbers of resources sorted by their identifiers,
+ * which let a resource be found with a binary search,
+ * - boundaries of cells of the cell tree written with {@link DataMatrixCellCodec},
+ * which let the tree be restored without splitting cells again.
+ *
+ * The header holds a magic number, a version of the format, a metadata size, a number of resources,
+ * and an offset and a size of each section. Files of other versions are rejected.
+ * Each section is limited to 2GB, as it is mapped with a single buffer.
+ *
+ * Nothing is decoded when a file is opened. Keys and data of a resource are decoded whenever it is resolved.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+final class DataMatrixCellIndex<K extends DataResourceKey, D> {
+
+    static final int MAGIC = 0x4E48494D;
+
+    static final int VERSION = 2;
+
+    private static final int SECTIONS = 4;
+
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + 2 * SECTIONS * Long.BYTES;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int metadataSize;
+    private final int resourcesCount;
+    private final DataMatrixCellSnapshot<K> snapshot;
+    private final ByteBuffer payloads;
+    private final LongBuffer offsets;
+    private final IntBuffer order;
+    private final ByteBuffer structure;
+    private final DataMatrixCellIndexSerializer<K, D> serializer;
+    private final Resources resources;
+
+    private DataMatrixCellIndex(
+            final int metadataSize,
+            final int resourcesCount,
+            final ByteBuffer[] sections,
+            final DataMatrixCellIndexSerializer<K, D> serializer) {
+        this.metadataSize = metadataSize;
+        this.resourcesCount = resourcesCount;
+        this.snapshot = DataMatrixCellSnapshot.read(metadataSize, sections[0]);
+        this.payloads = sections[1];
+        ByteBuffer lookup = sections[2];
+        this.offsets = ((ByteBuffer) lookup.duplicate().limit((resourcesCount + 1) * Long.BYTES)).asLongBuffer();
+        lookup.position((resourcesCount + 1) * Long.BYTES);
+        this.order = lookup.slice().asIntBuffer();
+        this.structure = sections[3];
+        this.serializer = serializer;
+        this.resources = new Resources();
+    }
+
+    /**
+     * Writes a current state of a cell tree and resources into a file.
+     * The file is written aside and moved in place once complete, so that a previous file is never corrupted.
+     * Sizes of all sections are checked before, and a file written aside is deleted on any failure.
+     * Resources added or removed at the moment may or may not be written.
+     */
+    static <K extends DataResourceKey, D> void write(
+            final Path path,
+            final int metadataSize,
+            final DataMatrixCell<DataMatrixCellResource<K>> root,
+            final Map<UUID, DataResource<K, D>> data,
+            final DataMatrixCellIndexSerializer<K, D> serializer) throws IOException {
+        DataMatrixCellSnapshot<K> snapshot = DataMatrixCellSnapshot.of(metadataSize, root);
+        int count = snapshot.getFirstResource(snapshot.size() - 1) + snapshot.getResourcesCount(snapshot.size() - 1);
+        long[] sections = new long[2 * SECTIONS];
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.position(HEADER_SIZE);
+                BufferedOutputStream buffered =
+                        new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                DataOutputStream output = new DataOutputStream(buffered);
+
+                sections[0] = channel.position();
+                snapshot.write(output);
+                output.flush();
+                sections[1] = sectionSize(channel.position() - sections[0], path);
+
+                sections[2] = channel.position();
+                DataOutputStream payloadOutput = new DataOutputStream(buffered);
+                long[] payloadOffsets = new long[count + 1];
+                for (int r = 0; r < count; r++) {
+                    DataResource<K, D> resource = data.get(snapshot.getUuid(r));
+                    if (resource != null) {
+                        serializer.writeKey(resource.getKey(), payloadOutput);
+                        serializer.writeData(resource.getData(), payloadOutput);
+                    }
+                    if (payloadOutput.size() == Integer.MAX_VALUE) {
+                        throw new IOException("Section of index file exceeds 2GB: " + path);
+                    }
+                    payloadOffsets[r + 1] = payloadOutput.size();
+                }
+                payloadOutput.flush();
+                sections[3] = sectionSize(channel.position() - sections[2], path);
+
+                sections[4] = channel.position();
+                for (long offset : payloadOffsets) {
+                    output.writeLong(offset);
+                }
+                for (int r : sortedByUuid(snapshot, count)) {
+                    output.writeInt(r);
+                }
+                output.flush();
+                sections[5] = sectionSize(channel.position() - sections[4], path);
+
+                sections[6] = channel.position();
+                DataMatrixCellCodec.writeTree(root, output);
+                output.flush();
+                sections[7] = sectionSize(channel.position() - sections[6], path);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(metadataSize).putInt(count);
+                for (long value : sections) {
+                    header.putLong(value);
+                }
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks a size of a written section against a size of a single mapped buffer.
+     */
+    private static long sectionSize(final long size, final Path path) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Section of index file exceeds 2GB: " + path);
+        }
+        return size;
+    }
+
+    /**
+     * Opens an index file by mapping its sections into memory.
+     */
+    static <K extends DataResourceKey, D> DataMatrixCellIndex<K, D> open(
+            final Path path,
+            final DataMatrixCellIndexSerializer<K, D> serializer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Index file is truncated: " + path);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("File is not an index file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version of index file: " + version + ". Expected: " + VERSION);
+            }
+            int metadataSize = header.getInt();
+            int count = header.getInt();
+
+            ByteBuffer[] sections = new ByteBuffer[SECTIONS];
+            for (int i = 0; i < SECTIONS; i++) {
+                long offset = header.getLong();
+                long size = header.getLong();
+                if (offset < HEADER_SIZE || size < 0 || offset + size > channel.size()) {
+                    throw new IOException("Index file is truncated: " + path);
+                }
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Section of index file exceeds 2GB: " + path);
+                }
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            }
+            try {
+                return new DataMatrixCellIndex<>(metadataSize, count, sections, serializer);
+            } catch (RuntimeException e) {
+                throw new IOException("Index file is corrupted: " + path, e);
+            }
+        }
+    }
+
+    int getMetadataSize() {
+        return metadataSize;
+    }
+
+    DataMatrixCellSnapshot<K> getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns a read-only view of resources of the index, which decodes a resource whenever it is resolved.
+     */
+    Map<UUID, DataResource<K, D>> getResources() {
+        return resources;
+    }
+
+    /**
+     * Decodes all resources of the index.
+     */
+    List<DataResource<K, D>> readAll() throws IOException {
+        List<DataResource<K, D>> all = new ArrayList<>(resourcesCount);
+        for (int r = 0; r < resourcesCount; r++) {
+            DataResource<K, D> resource = read(r);
+            if (resource != null) {
+                all.add(resource);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Restores boundaries of cells of an empty tree of a given root.
+     * The root has to cover the same range as the root of the written tree.
+     */
+    void restoreStructure(final DataMatrixCell<?> root) throws IOException {
+        DataMatrixCellCodec.readTree(root, new DataInputStream(new ByteBufferInputStream(structure.duplicate())));
+    }
+
+    private DataResource<K, D> read(final int r) throws IOException {
+        long from = offsets.get(r);
+        long to = offsets.get(r + 1);
+        if (from == to) {
+            return null;
+        }
+        ByteBuffer payload = payloads.duplicate();
+        payload.limit((int) to).position((int) from);
+        DataInputStream input = new DataInputStream(new ByteBufferInputStream(payload));
+        K key = serializer.readKey(input);
+        D data = serializer.readData(input);
+        return new DataResource<>(snapshot.getUuid(r), key, data);
+    }
+
+    /**
+     * Finds a number of a resource of a given identifier with a binary search, or returns -1.
+     */
+    private int find(final UUID uuid) {
+        int low = 0;
+        int high = resourcesCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int r = order.get(mid);
+            int c = snapshot.getUuid(r).compareTo(uuid);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] sortedByUuid(final DataMatrixCellSnapshot<?> snapshot, final int count) {
+        UUID[] uuids = new UUID[count];
+        Integer[] order = new Integer[count];
+        for (int r = 0; r < count; r++) {
+            uuids[r] = snapshot.getUuid(r);
+            order[r] = r;
+        }
+        Arrays.sort(order, (a, b) -> uuids[a].compareTo(uuids[b]));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * A read-only view of resources of the index.
+     */
+    private final class Resources extends AbstractMap<UUID, DataResource<K, D>> {
+
+        @Override
+        public DataResource<K, D> get(final Object key) {
+            if (!(key instanceof UUID)) {
+                return null;
+            }
+            int r = find((UUID) key);
+            try {
+                return r < 0 ? null : read(r);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read resource: " + key, e);
+            }
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            if (!(key instanceof UUID)) {
+                return false;
+            }
+            int r = find((UUID) key);
+            return r >= 0 && offsets.get(r) != offsets.get(r + 1);
+        }
+
+        @Override
+        public Set<Entry<UUID, DataResource<K, D>>> entrySet() {
+            return new AbstractSet<Entry<UUID, DataResource<K, D>>>() {
+                @Override
+                public Iterator<Entry<UUID, DataResource<K, D>>> iterator() {
+                    return new Iterator<Entry<UUID, DataResource<K, D>>>() {
+                        private int next = skipEmpty(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < resourcesCount;
+                        }
+
+                        @Override
+                        public Entry<UUID, DataResource<K, D>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            UUID uuid = snapshot.getUuid(next);
+                            DataResource<K, D> resource = get(uuid);
+                            next = skipEmpty(next + 1);
+                            return new SimpleImmutableEntry<>(uuid, resource);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (int r = skipEmpty(0); r < resourcesCount; r = skipEmpty(r + 1)) {
+                        size++;
+                    }
+                    return size;
+                }
+            };
+        }
+
+        private int skipEmpty(final int from) {
+            int r = from;
+            while (r < resourcesCount && offsets.get(r) == offsets.get(r + 1)) {
+                r++;
+            }
+            return r;
+        }
+    }
+
+    /**
+     * An input stream reading remaining bytes of a buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This interface defines how keys and data of resources are written into an index file
+ * of {@link DataMatrixCellBasedRepository} and read back.
+ *
+ * Identifiers and coordinates of resources are written by the repository itself.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+public interface DataMatrixCellIndexSerializer<K extends DataResourceKey, D> {
+
+    /**
+     * Writes a key of a resource
+     * @param key a key of a resource
+     * @param output an output of the index file
+     * @throws IOException when the key could not be written
+     */
+    void writeKey(K key, DataOutput output) throws IOException;
+
+    /**
+     * Reads a key of a resource
+     * @param input an input of the index file
+     * @return a key of a resource
+     * @throws IOException when the key could not be read
+     */
+    K readKey(DataInput input) throws IOException;
+
+    /**
+     * Writes data of a resource
+     * @param data data of a resource
+     * @param output an output of the index file
+     * @throws IOException when the data could not be written
+     */
+    void writeData(D data, DataOutput output) throws IOException;
+
+    /**
+     * Reads data of a resource
+     * @param input an input of the index file
+     * @return data of a resource
+     * @throws IOException when the data could not be read
+     */
+    D readData(DataInput input) throws IOException;
+}
@@ -0,0 +1,131 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.util.Arrays;
+
+/**
+ * A map of non-negative int keys to int values kept in primitive arrays.
+ *
+ * Keys are placed with linear probing at a load factor of at most 3/4,
+ * and removed with a backward shift, so that no tombstones are left.
+ * The map is not thread safe.
+ */
+final class DataMatrixCellIntMap {
+
+    static final int ABSENT = -1;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Keys shifted by one, so that zero marks an empty slot.
+     */
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    DataMatrixCellIntMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns a value of a key, or {@link #ABSENT}.
+     */
+    int get(final int key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key + 1) {
+                return values[i];
+            }
+        }
+        return ABSENT;
+    }
+
+    boolean containsKey(final int key) {
+        return get(key) != ABSENT;
+    }
+
+    void put(final int key, final int value) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != 0) {
+            if (keys[i] == key + 1) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key + 1;
+        values[i] = value;
+        if (++size > keys.length - (keys.length >>> 2)) {
+            grow();
+        }
+    }
+
+    /**
+     * Removes a key and returns its value, or {@link #ABSENT}.
+     */
+    int remove(final int key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key + 1) {
+            if (keys[i] == 0) {
+                return ABSENT;
+            }
+            i = (i + 1) & mask;
+        }
+        int value = values[i];
+        size--;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j] - 1, mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        return value;
+    }
+
+    void clear() {
+        if (keys.length > INITIAL_CAPACITY) {
+            allocate(INITIAL_CAPACITY);
+        } else {
+            Arrays.fill(keys, 0);
+        }
+        size = 0;
+    }
+
+    private void grow() {
+        int[] previousKeys = keys;
+        int[] previousValues = values;
+        allocate(2 * previousKeys.length);
+        int mask = keys.length - 1;
+        for (int j = 0; j < previousKeys.length; j++) {
+            if (previousKeys[j] != 0) {
+                int i = slot(previousKeys[j] - 1, mask);
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = previousKeys[j];
+                values[i] = previousValues[j];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Spreads consecutive keys over the table with a Fibonacci hash.
+     */
+    private static int slot(final int key, final int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -2,107 +2,187 @@ package com.h8.nh.nhoodengine.matrix.impl;
 
 import com.h8.nh.nhoodengine.core.DataResource;
 import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
 import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
 
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * An iterator through a tree of cells.
+ *
+ * Cells of the whole tree are visited in an order of their lower bounds with a single priority queue,
+ * so that leaf cells are returned strictly closest first regardless of their position in the tree,
+ * and a lower bound of all remaining resources is always known exactly.
+ * The queue is a {@link DataMatrixCellQueue} of slots of queued cells, which are reused once cells are polled,
+ * and a lower bound of each cell is computed exactly once per traversal, when the cell is queued.
+ */
 final class DataMatrixCellIterator<K extends DataResourceKey, D>
         implements DataMatrixResourceIterator<K, D> {
 
-    private final BigDecimal[] entryPoint;
-    private final DataMatrixCell<DataMatrixCellResource<K>> cell;
-    private final Iterator<DataMatrixCell<DataMatrixCellResource<K>>> cellIterator;
+    private static final int INITIAL_QUEUE_CAPACITY = 16;
+
+    private final double[] entryPoint;
+    private final DistanceMetric metric;
+    private final DataMatrixCell<DataMatrixCellResource<K>> root;
     private final Map<UUID, DataResource<K, D>> data;
 
-    private DataMatrixCellIterator<K, D> nestedCellIterator;
+    private final List<DataMatrixCell<DataMatrixCellResource<K>>> children;
+
+    private final DataMatrixCellQueue queue;
+    private Object[] queuedCells;
+    private int[] freeSlots;
+    private int freeSlotsCount;
+    private int slotsCount;
 
-    private DataMatrixCell<DataMatrixCellResource<K>> current;
-    private DataMatrixCell<DataMatrixCellResource<K>> next;
+    private double rankLimit;
 
     private DataMatrixCellIterator(
-            final BigDecimal[] entryPoint,
+            final double[] entryPoint,
+            final DistanceMetric metric,
             final DataMatrixCell<DataMatrixCellResource<K>> cell,
             final Map<UUID, DataResource<K, D>> data) {
         this.entryPoint = entryPoint;
-        this.cell = cell;
-        this.cellIterator = cell.getChildren()
-                .stream()
-                .sorted(Comparator.comparing(c -> c.distanceFrom(entryPoint)))
-                .iterator();
+        this.metric = metric;
+        this.root = cell;
         this.data = data;
-        next = advance();
+        this.children = new ArrayList<>();
+        this.queue = new DataMatrixCellQueue(INITIAL_QUEUE_CAPACITY);
+        this.queuedCells = new Object[INITIAL_QUEUE_CAPACITY];
+        this.freeSlots = new int[INITIAL_QUEUE_CAPACITY];
+        this.rankLimit = Double.POSITIVE_INFINITY;
+        push(cell, cell.lowerBound(metric, entryPoint));
     }
 
     public static <K extends DataResourceKey, D> DataMatrixCellIterator<K, D> startWith(
-            final BigDecimal[] entryPoint,
+            final double[] entryPoint,
+            final DistanceMetric metric,
             final DataMatrixCell<DataMatrixCellResource<K>> cell,
             final Map<UUID, DataResource<K, D>> data) {
-        return new DataMatrixCellIterator<>(entryPoint, cell, data);
+        return new DataMatrixCellIterator<>(entryPoint, metric, cell, data);
     }
 
+    /**
+     * Returns a next chunk of resources. Cells which are out of a range
+     * given with the latest call of {@link #hasNextWithinRange(double)} are skipped.
+     */
     public Set<DataResource<K, D>> next() {
-        current = nextCell();
-        return current.getResources()
+        DataMatrixCellBlock<DataMatrixCellResource<K>> block = nextLeafBlock();
+        if (block == null) {
+            return Collections.emptySet();
+        }
+        return block.toSet()
                 .stream()
                 .map(r -> data.get(r.getUuid()))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
     }
 
-    public boolean hasNext() {
-        return next != null;
+    /**
+     * Returns a next chunk of resources as a block of coordinates packed within a cell,
+     * so that resources are resolved only on demand.
+     */
+    @Override
+    public DataMatrixResourceBlock<K, D> nextBlock() {
+        DataMatrixCellBlock<DataMatrixCellResource<K>> block = nextLeafBlock();
+        if (block == null) {
+            return DataMatrixResourceBlock.of(Collections.emptySet());
+        }
+        return new DataMatrixCellResourceBlock<>(block, data);
     }
 
-    public boolean hasNextWithinRange(final BigDecimal range) {
-        return hasNext()
-                && !currentWrapsAllPointsAroundTheEntryPointWithinRange(range)
-                && (distanceFromEntryPointToNextIsWithinRange(range)
-                || parentOfNextWrapsAllPointsAroundTheEntryPointWithinRange(range));
+    /**
+     * Visits cells until a leaf cell with resources is found. Children of visited cells are queued,
+     * which also covers leaf cells split after they have been queued.
+     */
+    private DataMatrixCellBlock<DataMatrixCellResource<K>> nextLeafBlock() {
+        while (!queue.isEmpty() && queue.peekPriority() <= rankLimit) {
+            DataMatrixCell<DataMatrixCellResource<K>> cell = poll();
+            DataMatrixCellBlock<DataMatrixCellResource<K>> block = cell.getLeafBlock(children);
+            if (block == null) {
+                for (DataMatrixCell<DataMatrixCellResource<K>> child : children) {
+                    if (isNotEmpty(child)) {
+                        push(child, child.lowerBound(metric, entryPoint));
+                    }
+                }
+                children.clear();
+            } else if (block.getResourcesCount() > 0) {
+                return block;
+            }
+        }
+        return null;
     }
 
-    private DataMatrixCell<DataMatrixCellResource<K>> nextCell() {
-        DataMatrixCell<DataMatrixCellResource<K>> result = next;
-        do {
-            next = advance();
-        } while (next != null && !next.hasResources());
-        return result;
+    public boolean hasNext() {
+        rankLimit = Double.POSITIVE_INFINITY;
+        return hasNextCell();
     }
 
-    private boolean currentWrapsAllPointsAroundTheEntryPointWithinRange(final BigDecimal range) {
-        return current != null && current.wrapsKey(entryPoint, range);
+    public boolean hasNextWithinRange(final BigDecimal range) {
+        return hasNextWithinRange(range.doubleValue());
     }
 
-    private boolean distanceFromEntryPointToNextIsWithinRange(final BigDecimal range) {
-        return next.distanceFrom(entryPoint).compareTo(range) <= 0;
+    @Override
+    public boolean hasNextWithinRange(final double range) {
+        rankLimit = metric.toRank(range);
+        return hasNextCell();
     }
 
-    private boolean parentOfNextWrapsAllPointsAroundTheEntryPointWithinRange(final BigDecimal range) {
-        return next.getParent() != null && next.getParent().wrapsKey(entryPoint, range);
+    /**
+     * Drops cells emptied since they have been queued, and checks whether the closest remaining cell
+     * is within a rank limit. The root cell is never dropped, so that an iterator through
+     * an empty tree returns a single empty chunk.
+     */
+    private boolean hasNextCell() {
+        while (!queue.isEmpty()) {
+            if (queue.peekPriority() > rankLimit) {
+                return false;
+            }
+            Object cell = queuedCells[queue.peek()];
+            if (cell == root || isNotEmpty((DataMatrixCell<?>) cell)) {
+                return true;
+            }
+            poll();
+        }
+        return false;
     }
 
-    private DataMatrixCell<DataMatrixCellResource<K>> advance() {
-        if (itIsInitialAdviseOfResourceCell()) {
-            return cell;
-        }
-        if (!nestedIteratorHasNext() && nestedIteratorCanBeInitializer()) {
-            nestedCellIterator = startWith(entryPoint, cellIterator.next(), data);
-        }
-        if (nestedIteratorHasNext()) {
-            return nestedCellIterator.nextCell();
-        }
-        return null;
+    /**
+     * Lowest lower bound of all cells that are still to be returned by the iterator,
+     * i.e. a lower bound of the head of the queue.
+     */
+    @Override
+    public double remainingLowerBound() {
+        return queue.isEmpty() ? Double.POSITIVE_INFINITY : metric.toDistance(queue.peekPriority());
     }
 
-    private boolean itIsInitialAdviseOfResourceCell() {
-        return next == null && !cell.hasChildren();
+    private void push(final DataMatrixCell<DataMatrixCellResource<K>> cell, final double bound) {
+        int slot;
+        if (freeSlotsCount > 0) {
+            slot = freeSlots[--freeSlotsCount];
+        } else {
+            slot = slotsCount++;
+            if (slot == queuedCells.length) {
+                queuedCells = Arrays.copyOf(queuedCells, slot * 2);
+                freeSlots = Arrays.copyOf(freeSlots, slot * 2);
+            }
+        }
+        queuedCells[slot] = cell;
+        queue.push(slot, bound);
     }
 
-    private boolean nestedIteratorHasNext() {
-        return nestedCellIterator != null && nestedCellIterator.hasNext();
+    @SuppressWarnings("unchecked")
+    private DataMatrixCell<DataMatrixCellResource<K>> poll() {
+        int slot = queue.poll();
+        Object cell = queuedCells[slot];
+        queuedCells[slot] = null;
+        freeSlots[freeSlotsCount++] = slot;
+        return (DataMatrixCell<DataMatrixCellResource<K>>) cell;
     }
 
-    private boolean nestedIteratorCanBeInitializer() {
-        return cellIterator.hasNext();
+    private static boolean isNotEmpty(final DataMatrixCell<?> c) {
+        return !c.isEmpty();
     }
 }
@@ -0,0 +1,459 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log file of modifications of {@link DataMatrixCellBasedRepository},
+ * which is replayed on top of a last index file of the repository after a crash.
+ *
+ * A log file is written in a big endian order and consists of a header, which holds a magic number,
+ * a version of the format and a metadata size, followed by records. Each record holds a length
+ * and a CRC32 checksum of its payload, followed by the payload itself, i.e. a type of a modification,
+ * an identifier of a resource, and a key and data of an added resource written with
+ * {@link DataMatrixCellIndexSerializer}. A torn or corrupted record ends the log,
+ * and is cut off once the log is replayed.
+ *
+ * Records are written to the file before a modifying call returns, and the file is forced
+ * according to {@link DataMatrixCellLogSync}. Positions within the log grow monotonically
+ * even when records covered by an index file are dropped from its beginning.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ * @param <D> a generic type of data resource.
+ */
+final class DataMatrixCellLog<K extends DataResourceKey, D> implements Closeable {
+
+    static final int MAGIC = 0x4E484C47;
+
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte ADDED = 1;
+
+    private static final byte REMOVED = 2;
+
+    private final Path path;
+    private final int metadataSize;
+    private final DataMatrixCellIndexSerializer<K, D> serializer;
+    private final DataMatrixCellLogSync sync;
+
+    /**
+     * Shared by modifications from writing their records until applying them,
+     * and held exclusively when a checkpoint is taken.
+     */
+    private final ReadWriteLock modifications = new ReentrantReadWriteLock();
+
+    private final RecordBuffer buffer = new RecordBuffer();
+    private final DataOutputStream output = new DataOutputStream(buffer);
+    private final CRC32 checksum = new CRC32();
+
+    private final Object forces = new Object();
+
+    private FileChannel channel;
+    private long start;
+    private long end;
+    private IOException failure;
+
+    private long synced;
+    private boolean syncing;
+
+    private DataMatrixCellLog(
+            final Path path,
+            final FileChannel channel,
+            final int metadataSize,
+            final DataMatrixCellIndexSerializer<K, D> serializer,
+            final DataMatrixCellLogSync sync) {
+        this.path = path;
+        this.channel = channel;
+        this.metadataSize = metadataSize;
+        this.serializer = serializer;
+        this.sync = sync;
+    }
+
+    /**
+     * Opens a log file, or creates an empty one. Records of the log have to be replayed
+     * with {@link #replay(Replay)} before any modification is appended.
+     */
+    static <K extends DataResourceKey, D> DataMatrixCellLog<K, D> open(
+            final Path path,
+            final int metadataSize,
+            final DataMatrixCellIndexSerializer<K, D> serializer,
+            final DataMatrixCellLogSync sync) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                channel.truncate(0);
+                writeHeader(channel, metadataSize);
+                channel.force(true);
+            } else {
+                readHeader(channel, path, metadataSize);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new DataMatrixCellLog<>(path, channel, metadataSize, serializer, sync);
+    }
+
+    /**
+     * Informs whether the log holds no records at all.
+     */
+    synchronized boolean isEmpty() throws IOException {
+        return channel.size() <= HEADER_SIZE;
+    }
+
+    /**
+     * Reads all records of the log in order, and cuts off a torn or corrupted record ending the log.
+     */
+    synchronized void replay(final Replay<K, D> replay) throws IOException {
+        long size = channel.size();
+        long valid = HEADER_SIZE;
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(HEADER_SIZE)), BUFFER_SIZE));
+        while (size - valid >= RECORD_HEADER_SIZE) {
+            int length = input.readInt();
+            int expected = input.readInt();
+            if (length <= 0 || length > size - valid - RECORD_HEADER_SIZE) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            input.readFully(payload);
+            checksum.reset();
+            checksum.update(payload, 0, length);
+            if ((int) checksum.getValue() != expected) {
+                break;
+            }
+            apply(new DataInputStream(new ByteArrayInputStream(payload)), replay);
+            valid += RECORD_HEADER_SIZE + length;
+        }
+        if (valid < size) {
+            channel.truncate(valid);
+            channel.force(false);
+        }
+        channel.position(valid);
+        end = valid - HEADER_SIZE;
+        synced = end;
+    }
+
+    /**
+     * Takes a shared lock, which lets a checkpoint wait until modifications
+     * written to the log are applied to the repository.
+     */
+    void lock() {
+        modifications.readLock().lock();
+    }
+
+    void unlock() {
+        modifications.readLock().unlock();
+    }
+
+    /**
+     * Writes records of added resources.
+     * @return a position past the last written record
+     */
+    synchronized long appendAdded(final Collection<DataResource<K, D>> resources) throws IOException {
+        checkFailure();
+        buffer.reset();
+        for (DataResource<K, D> resource : resources) {
+            int from = begin(ADDED, resource.getUuid());
+            serializer.writeKey(resource.getKey(), output);
+            serializer.writeData(resource.getData(), output);
+            finish(from);
+        }
+        return flush();
+    }
+
+    /**
+     * Writes a record of a removed resource.
+     * @return a position past the written record
+     */
+    synchronized long appendRemoved(final UUID uuid) throws IOException {
+        checkFailure();
+        buffer.reset();
+        finish(begin(REMOVED, uuid));
+        return flush();
+    }
+
+    /**
+     * Waits until the log is durable up to a given position, according to a sync policy.
+     */
+    void await(final long position) throws IOException {
+        sync.await(this, position);
+    }
+
+    /**
+     * Forces the log on behalf of a single modification.
+     */
+    void force() throws IOException {
+        synchronized (forces) {
+            FileChannel c;
+            synchronized (this) {
+                c = channel;
+            }
+            c.force(false);
+        }
+    }
+
+    /**
+     * Forces the log unless a position has already been covered. Modifications arriving while the log
+     * is being forced wait for the force to finish, and are all covered with a single next force.
+     */
+    void forceGroup(final long position) throws IOException {
+        while (!beginSync(position)) {
+            long target;
+            FileChannel c;
+            synchronized (this) {
+                target = end;
+                c = channel;
+            }
+            boolean forced = false;
+            try {
+                c.force(false);
+                forced = true;
+            } finally {
+                endSync(forced ? target : 0L);
+            }
+        }
+    }
+
+    /**
+     * Returns a position of the end of the log, once all modifications written so far are applied,
+     * so that an index file written afterwards covers all records up to the position.
+     */
+    long checkpoint() {
+        modifications.writeLock().lock();
+        try {
+            synchronized (this) {
+                return end;
+            }
+        } finally {
+            modifications.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops records before a given position, e.g. once they are covered by an index file.
+     * Remaining records are copied aside into a new file, which replaces the log once complete.
+     */
+    void truncate(final long position) throws IOException {
+        beginSync(-1L);
+        long target = 0L;
+        try {
+            synchronized (this) {
+                checkFailure();
+                if (position <= start) {
+                    return;
+                }
+                Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+                try (FileChannel copy = FileChannel.open(temporary,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    writeHeader(copy, metadataSize);
+                    long from = HEADER_SIZE + position - start;
+                    long count = end - position;
+                    for (long copied = 0; copied < count; ) {
+                        copied += channel.transferTo(from + copied, count - copied, copy);
+                    }
+                    copy.force(true);
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel.close();
+                try {
+                    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    channel.position(channel.size());
+                } catch (IOException e) {
+                    failure = e;
+                    throw e;
+                }
+                start = position;
+                target = end;
+            }
+        } finally {
+            endSync(target);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        beginSync(-1L);
+        try {
+            synchronized (this) {
+                if (channel.isOpen()) {
+                    channel.force(false);
+                    channel.close();
+                }
+                if (failure == null) {
+                    failure = new IOException("Log file has been closed: " + path);
+                }
+            }
+        } finally {
+            endSync(0L);
+        }
+    }
+
+    /**
+     * Waits until no force is in progress, and starts a force unless a given position is already durable.
+     * @return true when the position is durable and no force has been started
+     */
+    private boolean beginSync(final long position) throws InterruptedIOException {
+        synchronized (forces) {
+            while (syncing && (position < 0 || synced < position)) {
+                try {
+                    forces.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for log file to be forced");
+                }
+            }
+            if (position >= 0 && synced >= position) {
+                return true;
+            }
+            syncing = true;
+            return false;
+        }
+    }
+
+    private void endSync(final long target) {
+        synchronized (forces) {
+            synced = Math.max(synced, target);
+            syncing = false;
+            forces.notifyAll();
+        }
+    }
+
+    private int begin(final byte type, final UUID uuid) throws IOException {
+        int from = buffer.size();
+        output.writeLong(0L);
+        output.writeByte(type);
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+        return from;
+    }
+
+    private void finish(final int from) {
+        int length = buffer.size() - from - RECORD_HEADER_SIZE;
+        checksum.reset();
+        checksum.update(buffer.array(), from + RECORD_HEADER_SIZE, length);
+        ByteBuffer.wrap(buffer.array())
+                .putInt(from, length)
+                .putInt(from + Integer.BYTES, (int) checksum.getValue());
+    }
+
+    private long flush() throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(buffer.array(), 0, buffer.size());
+        try {
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        end += buffer.size();
+        return end;
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Log file is no longer writable: " + path, failure);
+        }
+    }
+
+    private void apply(final DataInputStream input, final Replay<K, D> replay) throws IOException {
+        byte type = input.readByte();
+        UUID uuid = new UUID(input.readLong(), input.readLong());
+        if (type == ADDED) {
+            K key = serializer.readKey(input);
+            D data = serializer.readData(input);
+            replay.added(new DataResource<>(uuid, key, data));
+        } else if (type == REMOVED) {
+            replay.removed(uuid);
+        } else {
+            throw new IOException("Unsupported record of log file: " + type);
+        }
+    }
+
+    private static void writeHeader(final FileChannel channel, final int metadataSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(metadataSize).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static void readHeader(
+            final FileChannel channel,
+            final Path path,
+            final int metadataSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new EOFException("Log file is truncated: " + path);
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("File is not a log file: " + path);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version of log file: " + version + ". Expected: " + VERSION);
+        }
+        int size = header.getInt();
+        if (size != metadataSize) {
+            throw new IOException("Log file has been written with metadata size: " + size
+                    + ". Expected: " + metadataSize);
+        }
+    }
+
+    /**
+     * Applies modifications read from a log file.
+     */
+    interface Replay<K extends DataResourceKey, D> {
+
+        void added(DataResource<K, D> resource);
+
+        void removed(UUID uuid);
+    }
+
+    /**
+     * A byte array output stream exposing its array, so that records are framed in place.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        private RecordBuffer() {
+            super(BUFFER_SIZE);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+}
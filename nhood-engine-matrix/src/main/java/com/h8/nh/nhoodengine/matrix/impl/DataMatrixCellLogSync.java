@@ -0,0 +1,54 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.io.IOException;
+
+/**
+ * Defines when modifications written to a log file of {@link DataMatrixCellBasedRepository}
+ * are forced to a storage device, i.e. which modifications survive a crash of an operating system.
+ *
+ * Logged modifications are written to the operating system before a modifying call returns,
+ * so all of them survive a crash of a process regardless of a policy.
+ */
+public enum DataMatrixCellLogSync {
+
+    /**
+     * Forces a log file once per each modifying call, before it returns.
+     * It is the simplest option, but concurrent calls wait for each other's forces one by one.
+     */
+    EACH_WRITE {
+        @Override
+        void await(final DataMatrixCellLog<?, ?> log, final long position) throws IOException {
+            log.force();
+        }
+    },
+
+    /**
+     * Forces a log file before a modifying call returns, but a single force covers all modifications
+     * written until it starts, so that concurrent calls share forces of each other.
+     * Calls are as durable as with {@link #EACH_WRITE}, while a throughput grows with a number of writers.
+     */
+    GROUP {
+        @Override
+        void await(final DataMatrixCellLog<?, ?> log, final long position) throws IOException {
+            log.forceGroup(position);
+        }
+    },
+
+    /**
+     * Never forces a log file, and leaves flushing it to the operating system.
+     * It is the fastest option, but latest modifications may be lost when the operating system crashes.
+     */
+    NONE {
+        @Override
+        void await(final DataMatrixCellLog<?, ?> log, final long position) {
+        }
+    };
+
+    /**
+     * Waits until a log file is durable up to a given position, according to a policy
+     * @param log a log file
+     * @param position a position past a last record of a modifying call
+     * @throws IOException when a log file could not be forced
+     */
+    abstract void await(DataMatrixCellLog<?, ?> log, long position) throws IOException;
+}
@@ -0,0 +1,223 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Dense int ordinals of resources of a cell tree, assigned by identifiers of resources.
+ *
+ * It is the only place where identifiers are hashed on modifications of a tree.
+ * Cells below know resources by their ordinals only, and keep them in primitive collections.
+ * Ordinals of removed resources are reused, so that ordinals stay dense regardless of a number of modifications.
+ *
+ * Besides an ordinal, a resource currently held by the tree is kept for each identifier,
+ * so that a resource re-added with a different key may be found and moved by its previous key.
+ *
+ * Identifiers are spread over independently locked stripes, so that writers of different cells
+ * rarely wait for each other. Within a stripe, held resources are kept in an array by local ordinals,
+ * and the local ordinals are kept in a primitive hash table with linear probing, removed with a backward shift,
+ * so that identifiers themselves are not copied. An ordinal is a local ordinal within a stripe
+ * followed by bits of the stripe.
+ *
+ * @param <R> a generic type of cell resource.
+ */
+final class DataMatrixCellOrdinals<R extends DataMatrixCellResource<?>> {
+
+    static final int ABSENT = -1;
+
+    private static final int STRIPE_BITS = 6;
+
+    private final Stripe[] stripes;
+
+    DataMatrixCellOrdinals() {
+        this.stripes = new Stripe[1 << STRIPE_BITS];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(i);
+        }
+    }
+
+    /**
+     * Assigns an ordinal of an identifier of a resource to the resource, and registers the resource
+     * as the one held by the tree. A new ordinal is assigned when the identifier is not known yet.
+     * @return a resource of the same identifier held by the tree so far, or null
+     */
+    R acquire(final R resource) {
+        UUID uuid = resource.getUuid();
+        long hash = hash(uuid);
+        return cast(stripe(hash).acquire(uuid, hash, resource));
+    }
+
+    /**
+     * Returns a resource of an identifier held by the tree, or null.
+     */
+    R get(final UUID uuid) {
+        long hash = hash(uuid);
+        return cast(stripe(hash).get(uuid, hash));
+    }
+
+    /**
+     * Forgets an identifier of a resource, so that its ordinal may be assigned to another one,
+     * unless the resource has been superseded by another one of the same identifier in the meantime.
+     */
+    void release(final R resource) {
+        UUID uuid = resource.getUuid();
+        long hash = hash(uuid);
+        stripe(hash).release(uuid, hash, resource);
+    }
+
+    /**
+     * Returns a number of identifiers with assigned ordinals.
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripe(final long hash) {
+        return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    private static long hash(final UUID uuid) {
+        return hash(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    private static long hash(final long msb, final long lsb) {
+        return (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R cast(final Object resource) {
+        return (R) resource;
+    }
+
+    private static final class Stripe {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final int index;
+
+        /**
+         * Local ordinals shifted by one, so that zero marks an empty slot.
+         */
+        private int[] slots;
+
+        /**
+         * Resources held by the tree by local ordinals.
+         */
+        private DataMatrixCellResource<?>[] resources;
+        private int size;
+
+        private int next;
+        private int[] released;
+        private int releasedCount;
+
+        private Stripe(final int index) {
+            this.index = index;
+            this.slots = new int[INITIAL_CAPACITY];
+            this.resources = new DataMatrixCellResource<?>[INITIAL_CAPACITY];
+            this.released = new int[INITIAL_CAPACITY];
+        }
+
+        private synchronized Object acquire(
+                final UUID uuid,
+                final long hash,
+                final DataMatrixCellResource<?> resource) {
+            int mask = slots.length - 1;
+            int i = slot(hash, mask);
+            while (slots[i] != 0) {
+                int ordinal = slots[i] - 1;
+                if (resources[ordinal].getUuid().equals(uuid)) {
+                    Object previous = resources[ordinal];
+                    resources[ordinal] = resource;
+                    resource.setOrdinal(global(ordinal));
+                    return previous;
+                }
+                i = (i + 1) & mask;
+            }
+            int ordinal;
+            if (releasedCount > 0) {
+                ordinal = released[--releasedCount];
+            } else {
+                ordinal = next++;
+                if (ordinal == resources.length) {
+                    resources = Arrays.copyOf(resources, 2 * ordinal);
+                }
+            }
+            slots[i] = ordinal + 1;
+            resources[ordinal] = resource;
+            resource.setOrdinal(global(ordinal));
+            if (++size > slots.length - (slots.length >>> 2)) {
+                grow();
+            }
+            return null;
+        }
+
+        private synchronized Object get(final UUID uuid, final long hash) {
+            int i = find(uuid, hash);
+            return i < 0 ? null : resources[slots[i] - 1];
+        }
+
+        private synchronized void release(final UUID uuid, final long hash, final DataMatrixCellResource<?> resource) {
+            int i = find(uuid, hash);
+            if (i < 0 || resources[slots[i] - 1] != resource) {
+                return;
+            }
+            int ordinal = slots[i] - 1;
+            resources[ordinal] = null;
+            if (releasedCount == released.length) {
+                released = Arrays.copyOf(released, 2 * releasedCount);
+            }
+            released[releasedCount++] = ordinal;
+            size--;
+            int mask = slots.length - 1;
+            for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = slot(hash(resources[slots[j] - 1].getUuid()), mask);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    slots[i] = slots[j];
+                    i = j;
+                }
+            }
+            slots[i] = 0;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private int global(final int ordinal) {
+            return (ordinal << STRIPE_BITS) | index;
+        }
+
+        private int find(final UUID uuid, final long hash) {
+            int mask = slots.length - 1;
+            for (int i = slot(hash, mask); slots[i] != 0; i = (i + 1) & mask) {
+                if (resources[slots[i] - 1].getUuid().equals(uuid)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void grow() {
+            int[] previous = slots;
+            slots = new int[2 * previous.length];
+            int mask = slots.length - 1;
+            for (int slot : previous) {
+                if (slot != 0) {
+                    int i = slot(hash(resources[slot - 1].getUuid()), mask);
+                    while (slots[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    slots[i] = slot;
+                }
+            }
+        }
+
+        private static int slot(final long hash, final int mask) {
+            return (int) (hash >>> Integer.SIZE) & mask;
+        }
+    }
+}
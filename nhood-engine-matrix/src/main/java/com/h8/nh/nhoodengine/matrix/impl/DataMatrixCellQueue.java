@@ -0,0 +1,88 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.util.Arrays;
+
+/**
+ * A primitive binary min-heap of int values by double priorities, used by iterators to visit cells
+ * in an order of their lower bounds. Values and priorities are kept in parallel arrays,
+ * so that neither of them is boxed. Values of equal priorities are polled in no particular order.
+ */
+final class DataMatrixCellQueue {
+
+    private int[] values;
+    private double[] priorities;
+    private int size;
+
+    DataMatrixCellQueue(final int capacity) {
+        this.values = new int[Math.max(1, capacity)];
+        this.priorities = new double[values.length];
+    }
+
+    void push(final int value, final double priority) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            priorities = Arrays.copyOf(priorities, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            values[i] = values[parent];
+            priorities[i] = priorities[parent];
+            i = parent;
+        }
+        values[i] = value;
+        priorities[i] = priority;
+    }
+
+    /**
+     * Removes a value of the lowest priority. The queue must not be empty.
+     */
+    int poll() {
+        int result = values[0];
+        int last = --size;
+        int value = values[last];
+        double priority = priorities[last];
+        int i = 0;
+        int half = last >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < last && priorities[child + 1] < priorities[child]) {
+                child++;
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            values[i] = values[child];
+            priorities[i] = priorities[child];
+            i = child;
+        }
+        values[i] = value;
+        priorities[i] = priority;
+        return result;
+    }
+
+    /**
+     * Returns a value of the lowest priority. The queue must not be empty.
+     */
+    int peek() {
+        return values[0];
+    }
+
+    /**
+     * Returns the lowest priority. The queue must not be empty.
+     */
+    double peekPriority() {
+        return priorities[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -3,15 +3,15 @@ package com.h8.nh.nhoodengine.matrix.impl;
 import com.h8.nh.nhoodengine.core.DataResource;
 import com.h8.nh.nhoodengine.core.DataResourceKey;
 
-import java.util.Objects;
 import java.util.UUID;
 
 /**
  * This class represents a simple data resource that is stored within a matrix data cell.
  *
- * DataMatrixCellResource consists of two elements:
+ * DataMatrixCellResource consists of three elements:
  * - uuid identifier
  * - a vector key that represents metadata of data resource
+ * - a primitive copy of the key used for cell navigation
  *
  * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
  */
@@ -28,6 +28,18 @@ public final class DataMatrixCellResource<K extends DataResourceKey>
      */
     private final K key;
 
+    /**
+     * Data metadata key vector of unified primitive type.
+     * Resolved once so that cell navigation does not convert the key over and over again,
+     * unless released once the resource is stored off heap.
+     */
+    private double[] unifiedKey;
+
+    /**
+     * A dense ordinal of the resource within a cell tree, assigned once the resource is added to the tree.
+     */
+    private int ordinal = DataMatrixCellOrdinals.ABSENT;
+
     /**
      * Default constructor.
      * @param uuid A unique identifier
@@ -36,6 +48,7 @@ public final class DataMatrixCellResource<K extends DataResourceKey>
     public DataMatrixCellResource(final UUID uuid, final K key) {
         this.uuid = uuid;
         this.key = key;
+        this.unifiedKey = key.unifiedDoubles();
     }
 
     /**
@@ -65,6 +78,39 @@ public final class DataMatrixCellResource<K extends DataResourceKey>
         return key;
     }
 
+    /**
+     * Data metadata key vector of unified primitive type
+     * @return actual metadata key unified primitive value
+     */
+    double[] getUnifiedKey() {
+        double[] k = unifiedKey;
+        return k != null ? k : key.unifiedDoubles();
+    }
+
+    /**
+     * Drops a primitive copy of the key once coordinates of the resource are kept elsewhere.
+     * The key is converted again whenever it is required afterwards.
+     * It is called by a writer owning a cell of the resource only.
+     */
+    void releaseUnifiedKey() {
+        unifiedKey = null;
+    }
+
+    /**
+     * A dense ordinal of the resource, which identifies the resource within cells of a tree
+     * @return an ordinal, or {@link DataMatrixCellOrdinals#ABSENT} before the resource is added to a tree
+     */
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Assigns an ordinal of the resource. It is called by a cell tree before the resource is passed to cells.
+     */
+    void setOrdinal(final int ordinal) {
+        this.ordinal = ordinal;
+    }
+
     @Override
     public int compareTo(final DataMatrixCellResource<K> o) {
         return this.uuid.compareTo(o.uuid);
@@ -84,7 +130,7 @@ public final class DataMatrixCellResource<K extends DataResourceKey>
 
     @Override
     public int hashCode() {
-        return Objects.hash(uuid);
+        return uuid.hashCode();
     }
 
     @Override
@@ -0,0 +1,63 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A block of resources backed by a published view of resources of a leaf cell.
+ * Resources are resolved from repository data only on demand.
+ * Resources are scored within the view of resources, so that coordinates stored off heap
+ * are read one resource at a time rather than copied as a whole.
+ */
+final class DataMatrixCellResourceBlock<K extends DataResourceKey, D>
+        implements DataMatrixResourceBlock<K, D> {
+
+    private final DataMatrixCellBlock<DataMatrixCellResource<K>> block;
+    private final Map<UUID, DataResource<K, D>> data;
+    private final double[] scratch;
+
+    DataMatrixCellResourceBlock(
+            final DataMatrixCellBlock<DataMatrixCellResource<K>> block,
+            final Map<UUID, DataResource<K, D>> data) {
+        this.block = block;
+        this.data = data;
+        this.scratch = new double[block.getMetadataSize()];
+    }
+
+    @Override
+    public int size() {
+        return block.size();
+    }
+
+    @Override
+    public double[] getCoordinates() {
+        return block.getCoordinates();
+    }
+
+    @Override
+    public double rank(final DistanceMetric metric, final double[] point, final int i, final double bound) {
+        return block.rank(metric, point, i, bound, scratch);
+    }
+
+    @Override
+    public int getOffset(final int i) {
+        return i * block.getMetadataSize();
+    }
+
+    @Override
+    public UUID getUuid(final int i) {
+        DataMatrixCellResource<K> resource = block.get(i);
+        return resource != null ? resource.getUuid() : null;
+    }
+
+    @Override
+    public DataResource<K, D> resolve(final int i) {
+        UUID uuid = getUuid(i);
+        return uuid != null ? data.get(uuid) : null;
+    }
+}
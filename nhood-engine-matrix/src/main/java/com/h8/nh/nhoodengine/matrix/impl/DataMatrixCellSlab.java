@@ -0,0 +1,181 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Allocates off heap coordinates of leaf cells of a tree out of shared slabs of direct memory,
+ * so that a cell costs neither a direct buffer of its own nor a native allocation on every growth.
+ *
+ * A slab is split into regions of a power of two number of vectors, and each region is identified
+ * by a dense id, which keeps its slab, offset and size class in primitive arrays.
+ * Published coordinates are never modified, and readers may hold them without any synchronization,
+ * so a region is not freed explicitly. Instead, it is returned to a free list of its size class
+ * once a garbage collector finds its buffer unreachable, and is zeroed when it is allocated again.
+ * Slabs themselves are kept for a lifetime of a tree.
+ *
+ * Coordinates longer than a fraction of a slab are allocated in direct buffers of their own.
+ * Allocations are synchronized, as they are rare compared to modifications of cells.
+ */
+final class DataMatrixCellSlab implements IntFunction<DataMatrixCellCoordinates> {
+
+    /**
+     * A number of coordinates of a single slab.
+     */
+    static final int SLAB_LENGTH = 1 << 18;
+
+    /**
+     * A number of coordinates of the longest region allocated out of a slab.
+     */
+    static final int MAX_REGION_LENGTH = SLAB_LENGTH >>> 3;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int metadataSize;
+    private final ReferenceQueue<DoubleBuffer> unreachable = new ReferenceQueue<>();
+    private final List<DoubleBuffer> slabs = new ArrayList<>();
+    private int slabPosition = SLAB_LENGTH;
+
+    private int[] regionSlabs = new int[INITIAL_CAPACITY];
+    private int[] regionOffsets = new int[INITIAL_CAPACITY];
+    private byte[] regionClasses = new byte[INITIAL_CAPACITY];
+    private Region[] regionReferences = new Region[INITIAL_CAPACITY];
+    private int regionsCount;
+
+    private final int[][] free = new int[Integer.SIZE][];
+    private final int[] freeCount = new int[Integer.SIZE];
+
+    DataMatrixCellSlab(final int metadataSize) {
+        this.metadataSize = metadataSize;
+    }
+
+    /**
+     * Allocates zeroed coordinates
+     * @param length a number of coordinates
+     * @return coordinates of at least a given length
+     */
+    @Override
+    public synchronized DataMatrixCellCoordinates apply(final int length) {
+        int sizeClass = sizeClass(length);
+        int regionLength = regionLength(sizeClass);
+        if (regionLength > MAX_REGION_LENGTH) {
+            return DataMatrixCellCoordinates.offHeap(length);
+        }
+        reclaim();
+        boolean reused = freeCount[sizeClass] > 0;
+        int id = reused ? free[sizeClass][--freeCount[sizeClass]] : carve(sizeClass, regionLength);
+
+        DoubleBuffer region = slabs.get(regionSlabs[id]).duplicate();
+        region.position(regionOffsets[id]);
+        region.limit(regionOffsets[id] + regionLength);
+        region = region.slice();
+        if (reused) {
+            for (int i = 0; i < regionLength; i++) {
+                region.put(i, 0.0);
+            }
+        }
+        regionReferences[id] = new Region(region, unreachable, id);
+        return DataMatrixCellCoordinates.mapped(region);
+    }
+
+    /**
+     * Returns a number of slabs allocated so far.
+     */
+    synchronized int slabsCount() {
+        return slabs.size();
+    }
+
+    /**
+     * Returns regions whose buffers have been found unreachable to free lists of their size classes.
+     */
+    private void reclaim() {
+        Reference<? extends DoubleBuffer> reference;
+        while ((reference = unreachable.poll()) != null) {
+            int id = ((Region) reference).id;
+            regionReferences[id] = null;
+            release(id);
+        }
+    }
+
+    /**
+     * Takes a new region of a given size class from the current slab. Once the slab is too short,
+     * its remainder is split into free regions of smaller classes and a new slab is allocated.
+     */
+    private int carve(final int sizeClass, final int regionLength) {
+        if (slabPosition + regionLength > SLAB_LENGTH) {
+            for (int c = sizeClass - 1; c >= 0; c--) {
+                if (slabPosition + regionLength(c) <= SLAB_LENGTH) {
+                    release(region(c));
+                    slabPosition += regionLength(c);
+                }
+            }
+            slabs.add(ByteBuffer.allocateDirect(SLAB_LENGTH * Double.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asDoubleBuffer());
+            slabPosition = 0;
+        }
+        int id = region(sizeClass);
+        slabPosition += regionLength;
+        return id;
+    }
+
+    private int region(final int sizeClass) {
+        if (regionsCount == regionSlabs.length) {
+            int capacity = 2 * regionsCount;
+            regionSlabs = Arrays.copyOf(regionSlabs, capacity);
+            regionOffsets = Arrays.copyOf(regionOffsets, capacity);
+            regionClasses = Arrays.copyOf(regionClasses, capacity);
+            regionReferences = Arrays.copyOf(regionReferences, capacity);
+        }
+        int id = regionsCount++;
+        regionSlabs[id] = slabs.size() - 1;
+        regionOffsets[id] = slabPosition;
+        regionClasses[id] = (byte) sizeClass;
+        return id;
+    }
+
+    private void release(final int id) {
+        int sizeClass = regionClasses[id];
+        int[] ids = free[sizeClass];
+        if (ids == null) {
+            ids = free[sizeClass] = new int[INITIAL_CAPACITY];
+        } else if (freeCount[sizeClass] == ids.length) {
+            ids = free[sizeClass] = Arrays.copyOf(ids, 2 * ids.length);
+        }
+        ids[freeCount[sizeClass]++] = id;
+    }
+
+    /**
+     * Returns the smallest size class whose regions fit coordinates of a given length.
+     */
+    private int sizeClass(final int length) {
+        int vectors = Math.max(1, (length + metadataSize - 1) / metadataSize);
+        return Integer.SIZE - Integer.numberOfLeadingZeros(vectors - 1);
+    }
+
+    private int regionLength(final int sizeClass) {
+        long length = (long) metadataSize << sizeClass;
+        return length > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) length;
+    }
+
+    /**
+     * A reference to a buffer of a region, enqueued once the buffer is unreachable.
+     */
+    private static final class Region extends PhantomReference<DoubleBuffer> {
+
+        private final int id;
+
+        private Region(final DoubleBuffer buffer, final ReferenceQueue<DoubleBuffer> queue, final int id) {
+            super(buffer, queue);
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An immutable, array-backed copy of a {@link DataMatrixCell} tree.
+ *
+ * Cells are numbered in a breadth-first order, so children of a cell occupy
+ * a contiguous range of numbers. Bounding boxes of cells are kept in flat primitive arrays,
+ * and resources of leaf cells are packed contiguously together with their coordinates.
+ * Cells that contain no resources are omitted.
+ *
+ * A snapshot may be written into a file, and read back with identifiers and coordinates of resources
+ * left within a buffer of the file, so that a memory mapped file is queried without being copied.
+ *
+ * @param <K> a generic type of data metadata key vector. Extends {@link DataResourceKey}.
+ */
+final class DataMatrixCellSnapshot<K extends DataResourceKey> {
+
+    private final int metadataSize;
+
+    private final double[] lowerCorners;
+    private final double[] upperCorners;
+    private final int[] firstChild;
+    private final int[] childrenCount;
+    private final int[] firstResource;
+    private final int[] resourcesCount;
+
+    private final LongBuffer uuids;
+    private final DataMatrixCellCoordinates coordinates;
+
+    private DataMatrixCellSnapshot(
+            final int metadataSize,
+            final List<DataMatrixCell<DataMatrixCellResource<K>>> cells,
+            final List<DataMatrixCellBlock<DataMatrixCellResource<K>>> blocks,
+            final int[] parents) {
+        this.metadataSize = metadataSize;
+
+        int size = cells.size();
+        this.firstChild = new int[size];
+        this.childrenCount = new int[size];
+        this.firstResource = new int[size];
+        this.resourcesCount = new int[size];
+
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            firstResource[i] = total;
+            DataMatrixCellBlock<DataMatrixCellResource<K>> block = blocks.get(i);
+            for (int r = 0; block != null && r < block.size(); r++) {
+                if (block.get(r) != null) {
+                    resourcesCount[i]++;
+                }
+            }
+            total += resourcesCount[i];
+        }
+        for (int i = 1; i < size; i++) {
+            int parent = parents[i];
+            if (childrenCount[parent] == 0) {
+                firstChild[parent] = i;
+            }
+            childrenCount[parent]++;
+        }
+
+        long[] uuidBits = new long[2 * total];
+        double[] packedCoordinates = new double[total * metadataSize];
+        for (int i = 0; i < size; i++) {
+            DataMatrixCellBlock<DataMatrixCellResource<K>> block = blocks.get(i);
+            if (block == null) {
+                continue;
+            }
+            int position = firstResource[i];
+            for (int r = 0; r < block.size(); r++) {
+                DataMatrixCellResource<K> resource = block.get(r);
+                if (resource == null) {
+                    continue;
+                }
+                uuidBits[2 * position] = resource.getUuid().getMostSignificantBits();
+                uuidBits[2 * position + 1] = resource.getUuid().getLeastSignificantBits();
+                block.getCoordinates(r, packedCoordinates, position * metadataSize);
+                position++;
+            }
+        }
+
+        this.lowerCorners = new double[size * metadataSize];
+        this.upperCorners = new double[size * metadataSize];
+        Arrays.fill(lowerCorners, Double.POSITIVE_INFINITY);
+        Arrays.fill(upperCorners, Double.NEGATIVE_INFINITY);
+        for (int i = size - 1; i >= 0; i--) {
+            for (int r = firstResource[i]; r < firstResource[i] + resourcesCount[i]; r++) {
+                extend(i, packedCoordinates, r * metadataSize);
+            }
+            if (i > 0 && !isEmpty(i)) {
+                extend(parents[i], lowerCorners, i * metadataSize);
+                extend(parents[i], upperCorners, i * metadataSize);
+            }
+        }
+        this.uuids = LongBuffer.wrap(uuidBits);
+        this.coordinates = DataMatrixCellCoordinates.heap(packedCoordinates);
+    }
+
+    private DataMatrixCellSnapshot(
+            final int metadataSize,
+            final int[] firstChild,
+            final int[] childrenCount,
+            final int[] firstResource,
+            final int[] resourcesCount,
+            final double[] lowerCorners,
+            final double[] upperCorners,
+            final LongBuffer uuids,
+            final DataMatrixCellCoordinates coordinates) {
+        this.metadataSize = metadataSize;
+        this.firstChild = firstChild;
+        this.childrenCount = childrenCount;
+        this.firstResource = firstResource;
+        this.resourcesCount = resourcesCount;
+        this.lowerCorners = lowerCorners;
+        this.upperCorners = upperCorners;
+        this.uuids = uuids;
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * Copies a current state of a cell tree.
+     * The tree may be modified concurrently, in which case resources being added
+     * or removed at the moment may or may not be a part of the snapshot.
+     */
+    static <K extends DataResourceKey> DataMatrixCellSnapshot<K> of(
+            final int metadataSize,
+            final DataMatrixCell<DataMatrixCellResource<K>> root) {
+        List<DataMatrixCell<DataMatrixCellResource<K>>> cells = new ArrayList<>();
+        List<DataMatrixCellBlock<DataMatrixCellResource<K>>> blocks = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        List<DataMatrixCell<DataMatrixCellResource<K>>> children = new ArrayList<>();
+
+        cells.add(root);
+        parents.add(-1);
+        for (int i = 0; i < cells.size(); i++) {
+            DataMatrixCell<DataMatrixCellResource<K>> cell = cells.get(i);
+            DataMatrixCellBlock<DataMatrixCellResource<K>> block = cell.getLeafBlock(children);
+            blocks.add(block);
+            if (block != null) {
+                continue;
+            }
+            for (DataMatrixCell<DataMatrixCellResource<K>> child : children) {
+                if (!child.isEmpty()) {
+                    cells.add(child);
+                    parents.add(i);
+                }
+            }
+            children.clear();
+        }
+
+        return new DataMatrixCellSnapshot<>(
+                metadataSize, cells, blocks, parents.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Reads a snapshot written with {@link #write(DataOutput)} from a current position of a buffer,
+     * and moves the position past the snapshot. Cells are copied into heap arrays,
+     * while identifiers and coordinates of resources are left within the buffer.
+     */
+    static <K extends DataResourceKey> DataMatrixCellSnapshot<K> read(
+            final int metadataSize,
+            final ByteBuffer buffer) {
+        int size = buffer.getInt();
+        int total = buffer.getInt();
+        int[] firstChild = readInts(buffer, size);
+        int[] childrenCount = readInts(buffer, size);
+        int[] firstResource = readInts(buffer, size);
+        int[] resourcesCount = readInts(buffer, size);
+        double[] lowerCorners = readDoubles(buffer, size * metadataSize);
+        double[] upperCorners = readDoubles(buffer, size * metadataSize);
+
+        ByteBuffer uuids = buffer.slice();
+        uuids.limit(2 * total * Long.BYTES);
+        buffer.position(buffer.position() + uuids.limit());
+        ByteBuffer coordinates = buffer.slice();
+        coordinates.limit(total * metadataSize * Double.BYTES);
+        buffer.position(buffer.position() + coordinates.limit());
+
+        return new DataMatrixCellSnapshot<>(metadataSize,
+                firstChild, childrenCount, firstResource, resourcesCount, lowerCorners, upperCorners,
+                uuids.asLongBuffer(), DataMatrixCellCoordinates.mapped(coordinates.asDoubleBuffer()));
+    }
+
+    /**
+     * Writes the snapshot in a big endian order: numbers of cells and resources, cells,
+     * corners of cells, identifiers of resources and coordinates of resources.
+     */
+    void write(final DataOutput output) throws IOException {
+        int size = firstChild.length;
+        int total = uuids.limit() / 2;
+        output.writeInt(size);
+        output.writeInt(total);
+        writeInts(output, firstChild);
+        writeInts(output, childrenCount);
+        writeInts(output, firstResource);
+        writeInts(output, resourcesCount);
+        writeDoubles(output, lowerCorners);
+        writeDoubles(output, upperCorners);
+        for (int i = 0; i < 2 * total; i++) {
+            output.writeLong(uuids.get(i));
+        }
+        for (int i = 0; i < total * metadataSize; i++) {
+            output.writeDouble(coordinates.get(i));
+        }
+    }
+
+    int getMetadataSize() {
+        return metadataSize;
+    }
+
+    /**
+     * Returns a number of cells.
+     */
+    int size() {
+        return firstChild.length;
+    }
+
+    int getRoot() {
+        return 0;
+    }
+
+    int getFirstChild(final int cell) {
+        return firstChild[cell];
+    }
+
+    int getChildrenCount(final int cell) {
+        return childrenCount[cell];
+    }
+
+    int getFirstResource(final int cell) {
+        return firstResource[cell];
+    }
+
+    int getResourcesCount(final int cell) {
+        return resourcesCount[cell];
+    }
+
+    UUID getUuid(final int resource) {
+        return new UUID(uuids.get(2 * resource), uuids.get(2 * resource + 1));
+    }
+
+    /**
+     * Returns packed coordinates of all resources. Coordinates of a resource
+     * start at its number multiplied by a metadata size.
+     * Coordinates left within a buffer are copied.
+     */
+    double[] getCoordinates() {
+        return coordinates.array();
+    }
+
+    /**
+     * Computes a rank between a point and coordinates of a resource.
+     * A given vector of the metadata size may be used as a scratch space.
+     */
+    double rank(
+            final DistanceMetric metric,
+            final double[] point,
+            final int resource,
+            final double bound,
+            final double[] scratch) {
+        return coordinates.rank(metric, point, resource * metadataSize, bound, scratch);
+    }
+
+    /**
+     * Informs whether a cell or any of its descendants contains resources.
+     */
+    boolean isEmpty(final int cell) {
+        return metadataSize > 0 && lowerCorners[cell * metadataSize] > upperCorners[cell * metadataSize];
+    }
+
+    /**
+     * Lower bound of a metric rank between a given key and any resource of a cell.
+     * Corners of a cell bounding box are copied into given buffers, which lets callers
+     * reuse them instead of allocating arrays for every visited cell.
+     */
+    double lowerBound(
+            final int cell,
+            final DistanceMetric metric,
+            final double[] key,
+            final double[] lowerCornerBuffer,
+            final double[] upperCornerBuffer) {
+        if (isEmpty(cell)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        System.arraycopy(lowerCorners, cell * metadataSize, lowerCornerBuffer, 0, metadataSize);
+        System.arraycopy(upperCorners, cell * metadataSize, upperCornerBuffer, 0, metadataSize);
+        return metric.lowerBound(key, lowerCornerBuffer, upperCornerBuffer);
+    }
+
+    private static int[] readInts(final ByteBuffer buffer, final int length) {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return values;
+    }
+
+    private static double[] readDoubles(final ByteBuffer buffer, final int length) {
+        double[] values = new double[length];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + length * Double.BYTES);
+        return values;
+    }
+
+    private static void writeInts(final DataOutput output, final int[] values) throws IOException {
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeDoubles(final DataOutput output, final double[] values) throws IOException {
+        for (double value : values) {
+            output.writeDouble(value);
+        }
+    }
+
+    private void extend(final int cell, final double[] values, final int offset) {
+        int cellOffset = cell * metadataSize;
+        for (int d = 0; d < metadataSize; d++) {
+            lowerCorners[cellOffset + d] = Math.min(lowerCorners[cellOffset + d], values[offset + d]);
+            upperCorners[cellOffset + d] = Math.max(upperCorners[cellOffset + d], values[offset + d]);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBatchIterator;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A batch iterator through a {@link DataMatrixCellSnapshot}
+ * that traverses cells once for all entry points.
+ *
+ * It follows {@link DataMatrixCellBatchIterator}, but works on cell numbers of a snapshot.
+ */
+final class DataMatrixCellSnapshotBatchIterator<K extends DataResourceKey, D>
+        implements DataMatrixResourceBatchIterator<K, D> {
+
+    private final double[][] entryPoints;
+    private final DistanceMetric metric;
+    private final DataMatrixCellSnapshot<K> snapshot;
+    private final Map<UUID, DataResource<K, D>> data;
+
+    private final double[] lowerCornerBuffer;
+    private final double[] upperCornerBuffer;
+
+    private final double[] rankLimits;
+    private double highestRankLimit;
+
+    private final PriorityQueue<PendingCell> queue;
+    private PendingCell current;
+
+    private DataMatrixCellSnapshotBatchIterator(
+            final double[][] entryPoints,
+            final DistanceMetric metric,
+            final DataMatrixCellSnapshot<K> snapshot,
+            final Map<UUID, DataResource<K, D>> data) {
+        this.entryPoints = entryPoints;
+        this.metric = metric;
+        this.snapshot = snapshot;
+        this.data = data;
+        this.lowerCornerBuffer = new double[snapshot.getMetadataSize()];
+        this.upperCornerBuffer = new double[snapshot.getMetadataSize()];
+        this.rankLimits = new double[entryPoints.length];
+        Arrays.fill(this.rankLimits, Double.POSITIVE_INFINITY);
+        this.highestRankLimit = Double.POSITIVE_INFINITY;
+        this.queue = new PriorityQueue<>(Comparator.comparingDouble(PendingCell::getLowestLowerBound));
+        push(snapshot.getRoot(), null);
+    }
+
+    public static <K extends DataResourceKey, D> DataMatrixCellSnapshotBatchIterator<K, D> startWith(
+            final double[][] entryPoints,
+            final DistanceMetric metric,
+            final DataMatrixCellSnapshot<K> snapshot,
+            final Map<UUID, DataResource<K, D>> data) {
+        return new DataMatrixCellSnapshotBatchIterator<>(entryPoints, metric, snapshot, data);
+    }
+
+    @Override
+    public Set<DataResource<K, D>> next() {
+        int cell = nextLeafCell();
+        if (cell < 0) {
+            return Collections.emptySet();
+        }
+        return resolve(snapshot.getFirstResource(cell), snapshot.getResourcesCount(cell));
+    }
+
+    /**
+     * Returns a next chunk of resources as a view of coordinates packed within the snapshot.
+     */
+    @Override
+    public DataMatrixResourceBlock<K, D> nextBlock() {
+        int cell = nextLeafCell();
+        if (cell < 0) {
+            return new DataMatrixCellSnapshotBlock<>(snapshot, data, 0, 0);
+        }
+        return new DataMatrixCellSnapshotBlock<>(
+                snapshot, data, snapshot.getFirstResource(cell), snapshot.getResourcesCount(cell));
+    }
+
+    private int nextLeafCell() {
+        current = null;
+        while (!queue.isEmpty()) {
+            PendingCell pending = queue.poll();
+            if (!isRelevant(pending)) {
+                continue;
+            }
+            int children = snapshot.getChildrenCount(pending.cell);
+            int first = snapshot.getFirstChild(pending.cell);
+            for (int c = first; c < first + children; c++) {
+                push(c, pending);
+            }
+            if (snapshot.getResourcesCount(pending.cell) > 0) {
+                current = pending;
+                return pending.cell;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!queue.isEmpty()) {
+            PendingCell pending = queue.peek();
+            if (pending.getLowestLowerBound() > highestRankLimit) {
+                queue.clear();
+                return false;
+            }
+            if (isRelevant(pending)) {
+                return true;
+            }
+            queue.poll();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isRelevantFor(final int entryPoint) {
+        return current != null && current.lowerBounds[entryPoint] <= rankLimits[entryPoint];
+    }
+
+    @Override
+    public void limitTo(final int entryPoint, final double range) {
+        rankLimits[entryPoint] = metric.toRank(range);
+        double highest = Double.NEGATIVE_INFINITY;
+        for (double limit : rankLimits) {
+            highest = Math.max(highest, limit);
+        }
+        highestRankLimit = highest;
+    }
+
+    private boolean isRelevant(final PendingCell pending) {
+        for (int i = 0; i < entryPoints.length; i++) {
+            if (pending.lowerBounds[i] <= rankLimits[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<DataResource<K, D>> resolve(final int first, final int count) {
+        Set<DataResource<K, D>> resources = new HashSet<>(count * 2);
+        for (int r = first; r < first + count; r++) {
+            DataResource<K, D> resource = data.get(snapshot.getUuid(r));
+            if (resource != null) {
+                resources.add(resource);
+            }
+        }
+        return resources;
+    }
+
+    private void push(final int cell, final PendingCell parent) {
+        if (snapshot.isEmpty(cell)) {
+            return;
+        }
+        double[] lowerBounds = new double[entryPoints.length];
+        double lowest = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < entryPoints.length; i++) {
+            if (parent != null && parent.lowerBounds[i] > rankLimits[i]) {
+                lowerBounds[i] = Double.POSITIVE_INFINITY;
+            } else {
+                lowerBounds[i] = snapshot.lowerBound(
+                        cell, metric, entryPoints[i], lowerCornerBuffer, upperCornerBuffer);
+                lowest = Math.min(lowest, lowerBounds[i]);
+            }
+        }
+        if (lowest <= highestRankLimit) {
+            queue.add(new PendingCell(cell, lowerBounds, lowest));
+        }
+    }
+
+    /**
+     * A cell waiting for a visit together with its lower bounds for all entry points.
+     */
+    private static final class PendingCell {
+
+        private final int cell;
+        private final double[] lowerBounds;
+        private final double lowestLowerBound;
+
+        private PendingCell(
+                final int cell,
+                final double[] lowerBounds,
+                final double lowestLowerBound) {
+            this.cell = cell;
+            this.lowerBounds = lowerBounds;
+            this.lowestLowerBound = lowestLowerBound;
+        }
+
+        private double getLowestLowerBound() {
+            return lowestLowerBound;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A range of resources of a {@link DataMatrixCellSnapshot}, i.e. resources of a leaf cell.
+ * Resources are scored within the snapshot, so that coordinates left within a mapped file
+ * are read one resource at a time rather than copied as a whole.
+ */
+final class DataMatrixCellSnapshotBlock<K extends DataResourceKey, D>
+        implements DataMatrixResourceBlock<K, D> {
+
+    private final DataMatrixCellSnapshot<K> snapshot;
+    private final Map<UUID, DataResource<K, D>> data;
+    private final int first;
+    private final int size;
+    private final double[] scratch;
+
+    DataMatrixCellSnapshotBlock(
+            final DataMatrixCellSnapshot<K> snapshot,
+            final Map<UUID, DataResource<K, D>> data,
+            final int first,
+            final int size) {
+        this.snapshot = snapshot;
+        this.data = data;
+        this.first = first;
+        this.size = size;
+        this.scratch = new double[snapshot.getMetadataSize()];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double[] getCoordinates() {
+        return snapshot.getCoordinates();
+    }
+
+    @Override
+    public int getOffset(final int i) {
+        return (first + i) * snapshot.getMetadataSize();
+    }
+
+    @Override
+    public double rank(final DistanceMetric metric, final double[] point, final int i, final double bound) {
+        return snapshot.rank(metric, point, first + i, bound, scratch);
+    }
+
+    @Override
+    public UUID getUuid(final int i) {
+        return snapshot.getUuid(first + i);
+    }
+
+    @Override
+    public DataResource<K, D> resolve(final int i) {
+        return data.get(getUuid(i));
+    }
+}
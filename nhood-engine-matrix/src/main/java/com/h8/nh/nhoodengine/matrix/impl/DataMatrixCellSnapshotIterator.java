@@ -0,0 +1,145 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An iterator through a {@link DataMatrixCellSnapshot}.
+ *
+ * Cells are visited in an order of their lower bounds with a {@link DataMatrixCellQueue} of cell numbers,
+ * and a chunk of resources is returned for every visited leaf cell.
+ */
+final class DataMatrixCellSnapshotIterator<K extends DataResourceKey, D>
+        implements DataMatrixResourceIterator<K, D> {
+
+    private static final int INITIAL_QUEUE_CAPACITY = 16;
+
+    private final double[] entryPoint;
+    private final DistanceMetric metric;
+    private final DataMatrixCellSnapshot<K> snapshot;
+    private final Map<UUID, DataResource<K, D>> data;
+
+    private final double[] lowerCornerBuffer;
+    private final double[] upperCornerBuffer;
+
+    private final DataMatrixCellQueue queue;
+
+    private double rankLimit;
+
+    private DataMatrixCellSnapshotIterator(
+            final double[] entryPoint,
+            final DistanceMetric metric,
+            final DataMatrixCellSnapshot<K> snapshot,
+            final Map<UUID, DataResource<K, D>> data) {
+        this.entryPoint = entryPoint;
+        this.metric = metric;
+        this.snapshot = snapshot;
+        this.data = data;
+        this.lowerCornerBuffer = new double[snapshot.getMetadataSize()];
+        this.upperCornerBuffer = new double[snapshot.getMetadataSize()];
+        this.queue = new DataMatrixCellQueue(INITIAL_QUEUE_CAPACITY);
+        this.rankLimit = Double.POSITIVE_INFINITY;
+        push(snapshot.getRoot());
+    }
+
+    public static <K extends DataResourceKey, D> DataMatrixCellSnapshotIterator<K, D> startWith(
+            final double[] entryPoint,
+            final DistanceMetric metric,
+            final DataMatrixCellSnapshot<K> snapshot,
+            final Map<UUID, DataResource<K, D>> data) {
+        return new DataMatrixCellSnapshotIterator<>(entryPoint, metric, snapshot, data);
+    }
+
+    /**
+     * Returns a next chunk of resources. Cells which are out of a range
+     * given with the latest call of {@link #hasNextWithinRange(double)} are skipped.
+     */
+    @Override
+    public Set<DataResource<K, D>> next() {
+        int cell = nextLeafCell();
+        if (cell < 0) {
+            return Collections.emptySet();
+        }
+        return resolve(snapshot.getFirstResource(cell), snapshot.getResourcesCount(cell));
+    }
+
+    /**
+     * Returns a next chunk of resources as a view of coordinates packed within the snapshot.
+     */
+    @Override
+    public DataMatrixResourceBlock<K, D> nextBlock() {
+        int cell = nextLeafCell();
+        if (cell < 0) {
+            return new DataMatrixCellSnapshotBlock<>(snapshot, data, 0, 0);
+        }
+        return new DataMatrixCellSnapshotBlock<>(
+                snapshot, data, snapshot.getFirstResource(cell), snapshot.getResourcesCount(cell));
+    }
+
+    private int nextLeafCell() {
+        while (!queue.isEmpty() && queue.peekPriority() <= rankLimit) {
+            int cell = queue.poll();
+            int children = snapshot.getChildrenCount(cell);
+            if (children > 0) {
+                int first = snapshot.getFirstChild(cell);
+                for (int c = first; c < first + children; c++) {
+                    push(c);
+                }
+            }
+            if (snapshot.getResourcesCount(cell) > 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        rankLimit = Double.POSITIVE_INFINITY;
+        return !queue.isEmpty();
+    }
+
+    @Override
+    public boolean hasNextWithinRange(final BigDecimal range) {
+        return hasNextWithinRange(range.doubleValue());
+    }
+
+    @Override
+    public boolean hasNextWithinRange(final double range) {
+        rankLimit = metric.toRank(range);
+        return !queue.isEmpty() && queue.peekPriority() <= rankLimit;
+    }
+
+    @Override
+    public double remainingLowerBound() {
+        return queue.isEmpty() ? Double.POSITIVE_INFINITY : metric.toDistance(queue.peekPriority());
+    }
+
+    private Set<DataResource<K, D>> resolve(final int first, final int count) {
+        Set<DataResource<K, D>> resources = new HashSet<>(count * 2);
+        for (int r = first; r < first + count; r++) {
+            DataResource<K, D> resource = data.get(snapshot.getUuid(r));
+            if (resource != null) {
+                resources.add(resource);
+            }
+        }
+        return resources;
+    }
+
+    private void push(final int cell) {
+        if (snapshot.isEmpty(cell)) {
+            return;
+        }
+        queue.push(cell, snapshot.lowerBound(cell, metric, entryPoint, lowerCornerBuffer, upperCornerBuffer));
+    }
+}
@@ -0,0 +1,66 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.util.Arrays;
+
+/**
+ * Defines where a cell is split once it exceeds its size.
+ *
+ * A cell is split into 2 ^ split iterations sub cells forming a grid over dimensions
+ * chosen with {@link DataMatrixCellSplitStrategy}, each of them split into its own fan-out.
+ * For each split dimension of a fan-out of count, a policy computes count - 1 boundaries
+ * between sub cells from values of resources of the cell along that dimension.
+ */
+public enum DataMatrixCellSplitPolicy {
+
+    /**
+     * Splits a cell in half at an average of its resources, and then splits halves at their middles.
+     * It is cheap, but skewed resources end up in lopsided sub cells and in a deep, unbalanced tree.
+     */
+    AVERAGE {
+        @Override
+        double[] splitPoints(final double[] values, final int count, final double lower, final double upper) {
+            double sum = 0.0;
+            for (double value : values) {
+                sum += value;
+            }
+
+            double[] points = new double[count + 1];
+            points[0] = lower;
+            points[count] = upper;
+            points[count / 2] = sum / values.length;
+            for (int step = count / 2; step > 1; step /= 2) {
+                for (int i = step / 2; i < count; i += step) {
+                    points[i] = (points[i - step / 2] + points[i + step / 2]) / 2;
+                }
+            }
+            return Arrays.copyOfRange(points, 1, count);
+        }
+    },
+
+    /**
+     * Splits a cell in half at a median of its resources, and then splits halves at their medians,
+     * so that each sub cell receives a similar number of resources regardless of their distribution.
+     */
+    MEDIAN {
+        @Override
+        double[] splitPoints(final double[] values, final int count, final double lower, final double upper) {
+            Arrays.sort(values);
+
+            double[] points = new double[count - 1];
+            for (int i = 1; i < count; i++) {
+                points[i - 1] = values[(int) ((long) i * values.length / count)];
+            }
+            return points;
+        }
+    };
+
+    /**
+     * Computes ascending boundaries between sub cells of a cell.
+     * @param values values of resources of the cell along a split dimension, which may be reordered
+     * @param count a number of sub cells along the split dimension, i.e. its fan-out
+     * @param lower a lower boundary of the cell along the split dimension
+     * @param upper an upper boundary of the cell along the split dimension
+     * @return count - 1 boundaries between sub cells
+     */
+    abstract double[] splitPoints(double[] values, int count, double lower, double upper);
+}
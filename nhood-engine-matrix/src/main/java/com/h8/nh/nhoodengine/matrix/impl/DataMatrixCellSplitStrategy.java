@@ -0,0 +1,115 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Defines along which dimensions a cell is split once it exceeds its size.
+ *
+ * A cell is split into 2 ^ split iterations sub cells, i.e. each split iteration
+ * doubles a number of sub cells along a single dimension. A strategy distributes
+ * split iterations among dimensions, and sub cells form a grid over the chosen dimensions.
+ */
+public enum DataMatrixCellSplitStrategy {
+
+    /**
+     * Spends all split iterations on the widest dimension, so that sub cells are slices of a cell.
+     * It keeps a tree shallow for few dimensions, but with many dimensions cells become tight
+     * in every dimension only deep down a tree.
+     */
+    WIDEST_DIMENSION {
+        @Override
+        int[] fanOuts(final double[] ranges, final IntFunction<double[]> sample, final int iterations) {
+            int[] fanOuts = ones(ranges.length);
+            int widest = 0;
+            for (int d = 1; d < ranges.length; d++) {
+                if (ranges[d] > ranges[widest]) {
+                    widest = d;
+                }
+            }
+            if (ranges.length > 0 && ranges[widest] > 0.0) {
+                fanOuts[widest] = 1 << iterations;
+            }
+            return fanOuts;
+        }
+    },
+
+    /**
+     * Spends each split iteration on a dimension of the widest range remaining,
+     * assuming that a split in half halves a range. Comparable dimensions are split together,
+     * while a dominant dimension is split into more sub cells.
+     */
+    WIDEST_DIMENSIONS {
+        @Override
+        int[] fanOuts(final double[] ranges, final IntFunction<double[]> sample, final int iterations) {
+            return distribute(ranges.clone(), iterations);
+        }
+    },
+
+    /**
+     * Spends each split iteration on a dimension of the greatest standard deviation of resources remaining,
+     * assuming that a split in half halves a deviation. Unlike ranges, deviations are not
+     * inflated by single outlying resources.
+     */
+    VARIANCE {
+        @Override
+        int[] fanOuts(final double[] ranges, final IntFunction<double[]> sample, final int iterations) {
+            double[] deviations = new double[ranges.length];
+            boolean deviates = false;
+            for (int d = 0; d < ranges.length; d++) {
+                if (ranges[d] > 0.0) {
+                    deviations[d] = deviation(sample.apply(d));
+                    deviates |= deviations[d] > 0.0;
+                }
+            }
+            return distribute(deviates ? deviations : ranges.clone(), iterations);
+        }
+    };
+
+    /**
+     * Computes a number of sub cells along each dimension of a cell.
+     * @param ranges ranges of resources of the cell along each dimension
+     * @param sample provides values of sampled resources of the cell along a given dimension
+     * @param iterations a number of split iterations
+     * @return numbers of sub cells along dimensions, which are powers of 2 and equal to 1
+     *         for dimensions which are not split. Dimensions of no range are never split.
+     */
+    abstract int[] fanOuts(double[] ranges, IntFunction<double[]> sample, int iterations);
+
+    private static int[] ones(final int size) {
+        int[] fanOuts = new int[size];
+        Arrays.fill(fanOuts, 1);
+        return fanOuts;
+    }
+
+    private static int[] distribute(final double[] spreads, final int iterations) {
+        int[] fanOuts = ones(spreads.length);
+        for (int i = 0; i < iterations; i++) {
+            int widest = -1;
+            for (int d = 0; d < spreads.length; d++) {
+                if (spreads[d] > 0.0 && (widest < 0 || spreads[d] > spreads[widest])) {
+                    widest = d;
+                }
+            }
+            if (widest < 0) {
+                break;
+            }
+            fanOuts[widest] *= 2;
+            spreads[widest] /= 2;
+        }
+        return fanOuts;
+    }
+
+    private static double deviation(final double[] values) {
+        double sum = 0.0;
+        for (double value : values) {
+            sum += value;
+        }
+        double mean = sum / values.length;
+        double squares = 0.0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / values.length);
+    }
+}
@@ -0,0 +1,61 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.util.function.IntFunction;
+
+/**
+ * Defines where packed coordinates of resources of leaf cells are stored.
+ *
+ * Only coordinates used for scoring and cell navigation are affected.
+ * Identifiers, keys and data of resources are always kept on heap,
+ * as they are returned by the repository.
+ */
+public enum DataMatrixCellStorage {
+
+    /**
+     * Keeps coordinates in heap arrays, together with a primitive copy of a key of each resource.
+     * It is the fastest option, but each resource costs the garbage collector several objects.
+     */
+    HEAP {
+        @Override
+        IntFunction<DataMatrixCellCoordinates> allocator(final int metadataSize) {
+            return DataMatrixCellCoordinates::heap;
+        }
+
+        @Override
+        boolean retainsUnifiedKeys() {
+            return true;
+        }
+    },
+
+    /**
+     * Keeps coordinates in slabs of direct memory outside of the heap, shared by leaf cells of a tree,
+     * and drops a primitive copy of a key of each resource once it is stored,
+     * so that the heap holds only resources themselves.
+     * Coordinates are copied out of a buffer on scoring, and keys are converted again on cell navigation,
+     * which makes queries and modifications slower.
+     */
+    OFF_HEAP {
+        @Override
+        IntFunction<DataMatrixCellCoordinates> allocator(final int metadataSize) {
+            return new DataMatrixCellSlab(metadataSize);
+        }
+
+        @Override
+        boolean retainsUnifiedKeys() {
+            return false;
+        }
+    };
+
+    /**
+     * Creates an allocator of zeroed coordinates of at least a given length, shared by cells of a tree
+     * @param metadataSize a number of coordinates of a single resource
+     * @return an allocator of coordinates
+     */
+    abstract IntFunction<DataMatrixCellCoordinates> allocator(int metadataSize);
+
+    /**
+     * Informs whether stored resources keep a primitive copy of their keys
+     * @return true when keys are retained
+     */
+    abstract boolean retainsUnifiedKeys();
+}
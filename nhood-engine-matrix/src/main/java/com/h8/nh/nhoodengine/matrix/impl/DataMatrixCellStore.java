@@ -0,0 +1,190 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A store of resources of a leaf cell that lets readers iterate
+ * a consistent view of resources without locking or cloning.
+ *
+ * Every modification publishes a new version of {@link DataMatrixCellBlock} through a volatile field.
+ * Published coordinates are never modified:
+ * - a resource is appended in place, because a slot beyond a size of published views
+ * is not visible to any reader,
+ * - a removed resource is replaced with an empty slot, which readers skip,
+ * - once empty slots outnumber resources, remaining resources are copied into new arrays.
+ *
+ * Coordinates are kept according to {@link DataMatrixCellStorage}, and allocated by an allocator shared
+ * by cells of a tree. A store of no resources, e.g. of an inner or a cleared cell, allocates nothing.
+ * Positions of resources are kept in a primitive map by ordinals of resources,
+ * which have to be assigned with {@link DataMatrixCellOrdinals} before resources are stored.
+ *
+ * Modifications are not thread safe and have to be synchronized by the owning cell.
+ * Reading a published view is thread safe.
+ *
+ * @param <R> a generic type of cell resource.
+ */
+final class DataMatrixCellStore<R extends DataMatrixCellResource<?>> {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static final Object[] NO_RESOURCES = new Object[0];
+    private static final DataMatrixCellCoordinates NO_COORDINATES = DataMatrixCellCoordinates.heap(0);
+
+    private final int metadataSize;
+    private final DataMatrixCellStorage storage;
+    private final IntFunction<DataMatrixCellCoordinates> allocator;
+    private final DataMatrixCellIntMap positions;
+
+    private Object[] resources;
+    private DataMatrixCellCoordinates coordinates;
+    private int size;
+
+    private volatile DataMatrixCellBlock<R> block;
+
+    DataMatrixCellStore(final int metadataSize) {
+        this(metadataSize, DataMatrixCellStorage.HEAP);
+    }
+
+    DataMatrixCellStore(final int metadataSize, final DataMatrixCellStorage storage) {
+        this(metadataSize, storage, storage.allocator(metadataSize));
+    }
+
+    DataMatrixCellStore(
+            final int metadataSize,
+            final DataMatrixCellStorage storage,
+            final IntFunction<DataMatrixCellCoordinates> allocator) {
+        this.metadataSize = metadataSize;
+        this.storage = storage;
+        this.allocator = allocator;
+        this.positions = new DataMatrixCellIntMap();
+        allocate(0);
+        publish();
+    }
+
+    /**
+     * Returns the latest published view of resources.
+     */
+    DataMatrixCellBlock<R> getBlock() {
+        return block;
+    }
+
+    /**
+     * Returns a number of stored resources, excluding empty slots.
+     */
+    int size() {
+        return positions.size();
+    }
+
+    boolean isEmpty() {
+        return block.isEmpty();
+    }
+
+    /**
+     * Adds a resource unless a resource of the same identifier is already stored.
+     */
+    boolean add(final R resource) {
+        if (!append(resource)) {
+            return false;
+        }
+        publish();
+        return true;
+    }
+
+    /**
+     * Adds resources and publishes a single view of all of them.
+     */
+    void addAll(final List<R> added) {
+        for (R resource : added) {
+            append(resource);
+        }
+        publish();
+    }
+
+    boolean remove(final R resource) {
+        int position = positions.remove(ordinal(resource));
+        if (position == DataMatrixCellIntMap.ABSENT) {
+            return false;
+        }
+        resources[position] = null;
+        if (2 * positions.size() < size) {
+            compact();
+        }
+        publish();
+        return true;
+    }
+
+    void clear() {
+        positions.clear();
+        allocate(0);
+        publish();
+    }
+
+    private boolean append(final R resource) {
+        int ordinal = ordinal(resource);
+        if (positions.containsKey(ordinal)) {
+            return false;
+        }
+        if (size == resources.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, 2 * size);
+            DataMatrixCellCoordinates grown = allocator.apply(capacity * metadataSize);
+            grown.copy(coordinates, 0, 0, size * metadataSize);
+            resources = Arrays.copyOf(resources, capacity);
+            coordinates = grown;
+        }
+        resources[size] = resource;
+        coordinates.put(size * metadataSize, resource.getUnifiedKey(), 0, metadataSize);
+        if (!storage.retainsUnifiedKeys()) {
+            resource.releaseUnifiedKey();
+        }
+        positions.put(ordinal, size);
+        size++;
+        return true;
+    }
+
+    private void compact() {
+        Object[] previousResources = resources;
+        DataMatrixCellCoordinates previousCoordinates = coordinates;
+        int previousSize = size;
+
+        int count = positions.size();
+        allocate(count == 0 ? 0 : Math.max(INITIAL_CAPACITY, Integer.highestOneBit(count) << 1));
+        for (int i = 0; i < previousSize; i++) {
+            Object r = previousResources[i];
+            if (r == null) {
+                continue;
+            }
+            resources[size] = r;
+            coordinates.copy(previousCoordinates, i * metadataSize, size * metadataSize, metadataSize);
+            positions.put(((DataMatrixCellResource<?>) r).getOrdinal(), size);
+            size++;
+        }
+    }
+
+    private static int ordinal(final DataMatrixCellResource<?> resource) {
+        int ordinal = resource.getOrdinal();
+        if (ordinal < 0) {
+            throw new IllegalStateException("Resource has no ordinal assigned: " + resource.getUuid());
+        }
+        return ordinal;
+    }
+
+    /**
+     * Allocates arrays of a given capacity, which is a power of two, so that they fit regions of a slab.
+     */
+    private void allocate(final int capacity) {
+        if (capacity == 0) {
+            resources = NO_RESOURCES;
+            coordinates = NO_COORDINATES;
+        } else {
+            resources = new Object[capacity];
+            coordinates = allocator.apply(capacity * metadataSize);
+        }
+        size = 0;
+    }
+
+    private void publish() {
+        block = new DataMatrixCellBlock<>(metadataSize, resources, coordinates, size, positions.size());
+    }
+}
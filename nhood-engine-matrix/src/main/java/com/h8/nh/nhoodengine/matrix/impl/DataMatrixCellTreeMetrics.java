@@ -0,0 +1,114 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+/**
+ * Metrics of a shape of a tree of cells.
+ *
+ * Metrics are collected without locking, so a tree modified concurrently
+ * is measured approximately.
+ */
+public final class DataMatrixCellTreeMetrics {
+
+    private final int depth;
+    private final int cellsCount;
+    private final int leavesCount;
+    private final int emptyLeavesCount;
+    private final long resourcesCount;
+    private final int minLeafSize;
+    private final int maxLeafSize;
+
+    private DataMatrixCellTreeMetrics(
+            final int depth,
+            final int cellsCount,
+            final int leavesCount,
+            final int emptyLeavesCount,
+            final long resourcesCount,
+            final int minLeafSize,
+            final int maxLeafSize) {
+        this.depth = depth;
+        this.cellsCount = cellsCount;
+        this.leavesCount = leavesCount;
+        this.emptyLeavesCount = emptyLeavesCount;
+        this.resourcesCount = resourcesCount;
+        this.minLeafSize = minLeafSize;
+        this.maxLeafSize = maxLeafSize;
+    }
+
+    static DataMatrixCellTreeMetrics leaf(final int size) {
+        return new DataMatrixCellTreeMetrics(0, 1, 1, size == 0 ? 1 : 0, size, size, size);
+    }
+
+    static DataMatrixCellTreeMetrics node() {
+        return new DataMatrixCellTreeMetrics(0, 1, 0, 0, 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Returns metrics of a tree extended with a given subtree of its root.
+     */
+    DataMatrixCellTreeMetrics withChild(final DataMatrixCellTreeMetrics child) {
+        return new DataMatrixCellTreeMetrics(
+                Math.max(depth, child.depth + 1),
+                cellsCount + child.cellsCount,
+                leavesCount + child.leavesCount,
+                emptyLeavesCount + child.emptyLeavesCount,
+                resourcesCount + child.resourcesCount,
+                Math.min(minLeafSize, child.minLeafSize),
+                Math.max(maxLeafSize, child.maxLeafSize));
+    }
+
+    /**
+     * Returns metrics of a tree of a given depth, e.g. of a tree once it is rebuilt.
+     */
+    DataMatrixCellTreeMetrics withDepth(final int newDepth) {
+        return new DataMatrixCellTreeMetrics(
+                newDepth, cellsCount, leavesCount, emptyLeavesCount, resourcesCount, minLeafSize, maxLeafSize);
+    }
+
+    /**
+     * Returns a number of levels below the root cell. It is 0 for a tree of a single cell.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getCellsCount() {
+        return cellsCount;
+    }
+
+    public int getLeavesCount() {
+        return leavesCount;
+    }
+
+    public int getEmptyLeavesCount() {
+        return emptyLeavesCount;
+    }
+
+    public long getResourcesCount() {
+        return resourcesCount;
+    }
+
+    public int getMinLeafSize() {
+        return leavesCount == 0 ? 0 : minLeafSize;
+    }
+
+    public int getMaxLeafSize() {
+        return maxLeafSize;
+    }
+
+    public double getAverageLeafSize() {
+        return leavesCount == 0 ? 0.0 : (double) resourcesCount / leavesCount;
+    }
+
+    @Override
+    public String toString() {
+        return "DataMatrixCellTreeMetrics{"
+                + "depth=" + depth
+                + ", cellsCount=" + cellsCount
+                + ", leavesCount=" + leavesCount
+                + ", emptyLeavesCount=" + emptyLeavesCount
+                + ", resourcesCount=" + resourcesCount
+                + ", minLeafSize=" + getMinLeafSize()
+                + ", maxLeafSize=" + maxLeafSize
+                + ", averageLeafSize=" + getAverageLeafSize()
+                + '}';
+    }
+}
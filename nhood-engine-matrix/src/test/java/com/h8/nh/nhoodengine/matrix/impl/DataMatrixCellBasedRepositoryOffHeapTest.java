@@ -0,0 +1,19 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryAbstractTest;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryTestContext;
+
+class DataMatrixCellBasedRepositoryOffHeapTest extends DataMatrixRepositoryAbstractTest<DataResourceKey, Object> {
+
+    private static final int CELL_SIZE = 10;
+
+    @Override
+    protected DataMatrixRepositoryTestContext<DataResourceKey, Object> initializeContext() {
+        return new DataMatrixCellBasedRepositoryTestContext(
+                DataMatrixCellConfiguration.builder()
+                        .cellSize(CELL_SIZE)
+                        .storage(DataMatrixCellStorage.OFF_HEAP)
+                        .build());
+    }
+}
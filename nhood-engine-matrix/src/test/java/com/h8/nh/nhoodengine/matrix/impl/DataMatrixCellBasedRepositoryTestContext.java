@@ -11,9 +11,19 @@ public final class DataMatrixCellBasedRepositoryTestContext
 
     private static final int METADATA_SIZE = 3;
 
+    private final DataMatrixCellConfiguration configuration;
+
+    public DataMatrixCellBasedRepositoryTestContext() {
+        this(DataMatrixCellConfiguration.builder().build());
+    }
+
+    public DataMatrixCellBasedRepositoryTestContext(final DataMatrixCellConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
     @Override
     public DataMatrixRepository<DataResourceKey, Object> initializerRepository() {
-        return new DataMatrixCellBasedRepository<>(METADATA_SIZE);
+        return new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
     }
 
     @Override
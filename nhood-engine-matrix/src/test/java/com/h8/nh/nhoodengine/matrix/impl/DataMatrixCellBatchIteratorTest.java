@@ -0,0 +1,194 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.h8.nh.nhoodengine.matrix.utils.DataResourceUtils.resource;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataMatrixCellBatchIteratorTest {
+
+    private static final BigDecimal ONE = BigDecimal.ONE;
+    private static final BigDecimal TEN = BigDecimal.TEN;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final DataMatrixCellConfiguration cellConfiguration =
+            DataMatrixCellConfiguration.builder()
+                    .splitIterations(2)
+                    .cellSize(2)
+                    .build();
+
+    private final DataMatrixCell<DataMatrixCellResource<DataResourceKey>> cell =
+            DataMatrixCellFactory.root(3, cellConfiguration);
+
+    private final Map<UUID, DataResource<DataResourceKey, Object>> data = new HashMap<>();
+
+    @Test
+    void shouldReturnNoChunksForAnEmptyBatch() {
+        // given
+        add(resource(() -> new BigDecimal[]{TEN, TEN, TEN}));
+
+        // when
+        DataMatrixCellBatchIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellBatchIterator.startWith(new double[0][], DistanceMetrics.euclidean(), cell, data);
+
+        // then
+        assertThat(iterator.hasNext()).isFalse();
+        assertThat(iterator.next()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnEachChunkOnceForAllEntryPoints() {
+        // given
+        List<DataResource<DataResourceKey, Object>> resources = populateCell();
+
+        // when
+        double[][] entryPoints = new double[][]{
+                {10.0, 10.0, 10.0},
+                {-100.0, -100.0, -100.0}
+        };
+        DataMatrixCellBatchIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellBatchIterator.startWith(entryPoints, DistanceMetrics.euclidean(), cell, data);
+
+        // then
+        List<DataResource<DataResourceKey, Object>> retrievedResources = new ArrayList<>();
+        while (iterator.hasNext()) {
+            retrievedResources.addAll(iterator.next());
+            assertThat(iterator.isRelevantFor(0)).isTrue();
+            assertThat(iterator.isRelevantFor(1)).isTrue();
+        }
+        assertThat(retrievedResources).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    void shouldReturnEachChunkOnceAsBlockOfPackedCoordinates() {
+        // given
+        List<DataResource<DataResourceKey, Object>> resources = populateCell();
+
+        // when
+        double[][] entryPoints = new double[][]{
+                {10.0, 10.0, 10.0},
+                {-100.0, -100.0, -100.0}
+        };
+        DataMatrixCellBatchIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellBatchIterator.startWith(entryPoints, DistanceMetrics.euclidean(), cell, data);
+
+        // then
+        List<DataResource<DataResourceKey, Object>> retrievedResources = new ArrayList<>();
+        while (iterator.hasNext()) {
+            DataMatrixResourceBlock<DataResourceKey, Object> block = iterator.nextBlock();
+            for (int i = 0; i < block.size(); i++) {
+                DataResource<DataResourceKey, Object> resource = block.resolve(i);
+                assertThat(block.getUuid(i)).isEqualTo(resource.getUuid());
+                assertThat(block.rank(DistanceMetrics.euclidean(), resource.getKey().unifiedDoubles(), i,
+                        Double.POSITIVE_INFINITY)).isZero();
+                retrievedResources.add(resource);
+            }
+        }
+        assertThat(retrievedResources).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    void shouldReturnChunksOfTheClosestCellsFirst() {
+        // given
+        populateCell();
+
+        // when
+        double[][] entryPoints = new double[][]{
+                {100.0, 100.0, 100.0},
+                {-100.0, -100.0, -100.0}
+        };
+        DataMatrixCellBatchIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellBatchIterator.startWith(entryPoints, DistanceMetrics.euclidean(), cell, data);
+
+        // then
+        assertThat(iterator.hasNext()).isTrue();
+        Set<DataResource<DataResourceKey, Object>> first = iterator.next();
+        assertThat(iterator.hasNext()).isTrue();
+        Set<DataResource<DataResourceKey, Object>> second = iterator.next();
+
+        assertThat(first).hasSize(1);
+        assertThat(second).hasSize(1);
+        assertThat(first.iterator().next().getKey().unified()[0].abs()).isEqualTo(HUNDRED);
+        assertThat(second.iterator().next().getKey().unified()[0].abs()).isEqualTo(HUNDRED);
+    }
+
+    @Test
+    void shouldSkipChunksOutOfRangesOfAllEntryPoints() {
+        // given
+        populateCell();
+
+        double[][] entryPoints = new double[][]{
+                {100.0, 100.0, 100.0},
+                {-100.0, -100.0, -100.0}
+        };
+        DataMatrixCellBatchIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellBatchIterator.startWith(entryPoints, DistanceMetrics.euclidean(), cell, data);
+
+        // when
+        iterator.limitTo(0, 0.0);
+        iterator.limitTo(1, 0.0);
+
+        // then
+        List<DataResource<DataResourceKey, Object>> retrievedResources = new ArrayList<>();
+        while (iterator.hasNext()) {
+            retrievedResources.addAll(iterator.next());
+        }
+        assertThat(retrievedResources)
+                .extracting(r -> r.getKey().unified()[0].abs())
+                .containsOnly(HUNDRED);
+    }
+
+    @Test
+    void shouldInformWhetherTheLatestChunkIsRelevantForAGivenEntryPoint() {
+        // given
+        populateCell();
+
+        double[][] entryPoints = new double[][]{
+                {100.0, 100.0, 100.0},
+                {-100.0, -100.0, -100.0}
+        };
+        DataMatrixCellBatchIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellBatchIterator.startWith(entryPoints, DistanceMetrics.euclidean(), cell, data);
+
+        // when
+        iterator.limitTo(1, 0.0);
+
+        // then
+        while (iterator.hasNext()) {
+            Set<DataResource<DataResourceKey, Object>> chunk = iterator.next();
+            boolean containsSecondEntryPoint = chunk.stream()
+                    .anyMatch(r -> r.getKey().unified()[0].equals(HUNDRED.negate()));
+            assertThat(iterator.isRelevantFor(0)).isTrue();
+            assertThat(iterator.isRelevantFor(1)).isEqualTo(containsSecondEntryPoint);
+        }
+    }
+
+    private List<DataResource<DataResourceKey, Object>> populateCell() {
+        List<DataResource<DataResourceKey, Object>> resources = new ArrayList<>();
+        resources.add(resource(() -> new BigDecimal[]{ONE, ONE, ONE}));
+        resources.add(resource(() -> new BigDecimal[]{TEN, TEN, TEN}));
+        resources.add(resource(() -> new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED}));
+        resources.add(resource(() -> new BigDecimal[]{TEN.negate(), TEN.negate(), TEN.negate()}));
+        resources.add(resource(() -> new BigDecimal[]{HUNDRED.negate(), HUNDRED.negate(), HUNDRED.negate()}));
+        resources.forEach(this::add);
+        assertThat(cell.hasChildren()).isTrue();
+        return resources;
+    }
+
+    private void add(final DataResource<DataResourceKey, Object> r) {
+        cell.add(DataMatrixCellResource.form(r));
+        data.put(r.getUuid(), r);
+    }
+}
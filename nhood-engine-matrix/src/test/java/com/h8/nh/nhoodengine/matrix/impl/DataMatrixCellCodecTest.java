@@ -0,0 +1,256 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataDoesNotExistException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataMatrixCellCodecTest {
+
+    private static final int METADATA_SIZE = 3;
+
+    private static final DataMatrixCellDataSerializer<String> STRINGS = new DataMatrixCellDataSerializer<String>() {
+        @Override
+        public void write(final String data, final DataOutput output) throws IOException {
+            output.writeUTF(data);
+        }
+
+        @Override
+        public String read(final DataInput input) throws IOException {
+            return input.readUTF();
+        }
+    };
+
+    private final Random random = new Random(1L);
+
+    @Test
+    void shouldReadResourcesOfStreamInOrder() throws IOException {
+        // given
+        DataMatrixCellCodec<DataResourceKey, String> codec = codec(DataMatrixCellCodecPrecision.DOUBLE);
+        List<DataResource<DataResourceKey, String>> resources = resources(100);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // when
+        try (DataMatrixCellCodec<DataResourceKey, String>.Writer writer = codec.writer(bytes)) {
+            for (DataResource<DataResourceKey, String> resource : resources) {
+                writer.write(resource);
+            }
+        }
+        List<DataResource<DataResourceKey, String>> read = new ArrayList<>();
+        try (DataMatrixCellCodec<DataResourceKey, String>.Reader reader =
+                     codec.reader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (DataResource<DataResourceKey, String> r = reader.read(); r != null; r = reader.read()) {
+                read.add(r);
+            }
+        }
+
+        // then
+        assertThat(read).containsExactlyElementsOf(resources);
+        for (int i = 0; i < resources.size(); i++) {
+            assertThat(read.get(i).getKey().unifiedDoubles()).isEqualTo(resources.get(i).getKey().unifiedDoubles());
+            assertThat(read.get(i).getData()).isEqualTo(resources.get(i).getData());
+        }
+    }
+
+    @Test
+    void shouldWriteCoordinatesInFixedWidth() throws IOException {
+        // given
+        DataResource<DataResourceKey, String> resource = resources(1).get(0);
+
+        // when
+        byte[] doubles = write(codec(DataMatrixCellCodecPrecision.DOUBLE), resource);
+        byte[] floats = write(codec(DataMatrixCellCodecPrecision.FLOAT), resource);
+
+        // then
+        int data = 2 + resource.getData().length();
+        assertThat(doubles).hasSize(2 * Long.BYTES + METADATA_SIZE * Double.BYTES + data);
+        assertThat(floats).hasSize(2 * Long.BYTES + METADATA_SIZE * Float.BYTES + data);
+    }
+
+    @Test
+    void shouldRoundCoordinatesToFloatPrecision() throws IOException {
+        // given
+        DataMatrixCellCodec<DataResourceKey, String> codec = codec(DataMatrixCellCodecPrecision.FLOAT);
+        BigDecimal[] key = {new BigDecimal("0.1"), new BigDecimal("-12.5"), new BigDecimal("1000")};
+        DataResource<DataResourceKey, String> resource = new DataResource<>(() -> key, "data");
+
+        // when
+        byte[] bytes = write(codec, resource);
+        DataResource<DataResourceKey, String> read = codec.readResource(
+                new DataInputStream(new ByteArrayInputStream(bytes)));
+
+        // then
+        assertThat(read.getUuid()).isEqualTo(resource.getUuid());
+        assertThat(read.getKey().unifiedDoubles()).containsExactly((double) 0.1f, -12.5, 1000.0);
+    }
+
+    @Test
+    void shouldRejectStreamOfDifferentPrecision() throws IOException {
+        // given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec(DataMatrixCellCodecPrecision.FLOAT).writer(bytes).close();
+
+        // when / then
+        assertThatThrownBy(() -> codec(DataMatrixCellCodecPrecision.DOUBLE)
+                .reader(new ByteArrayInputStream(bytes.toByteArray())))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Stream has been written with precision: FLOAT. Expected: DOUBLE");
+    }
+
+    @Test
+    void shouldRejectStreamOfUnsupportedVersion() throws IOException {
+        // given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec(DataMatrixCellCodecPrecision.DOUBLE).writer(bytes).close();
+        byte[] stream = bytes.toByteArray();
+        stream[Integer.BYTES] = DataMatrixCellCodec.VERSION + 1;
+
+        // when / then
+        assertThatThrownBy(() -> codec(DataMatrixCellCodecPrecision.DOUBLE)
+                .reader(new ByteArrayInputStream(stream)))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Unsupported version of stream");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, Integer.MIN_VALUE})
+    void shouldRejectStreamOfNegativeLengthOfCellTree(final int length) throws IOException {
+        // given
+        byte[] stream = header(length);
+
+        // when / then
+        assertThatThrownBy(() -> codec(DataMatrixCellCodecPrecision.DOUBLE)
+                .reader(new ByteArrayInputStream(stream)))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Stream has invalid length of section: " + length);
+    }
+
+    @Test
+    void shouldRejectTruncatedStreamOfHugeLengthOfCellTree() throws IOException {
+        // given
+        byte[] stream = header(Integer.MAX_VALUE - 16);
+
+        // when / then
+        assertThatThrownBy(() -> codec(DataMatrixCellCodecPrecision.DOUBLE)
+                .reader(new ByteArrayInputStream(stream)))
+                .isInstanceOf(EOFException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE})
+    void shouldWriteVariableLengthIntegers(final int value) throws IOException {
+        // given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // when
+        DataMatrixCellCodec.writeVarInt(new DataOutputStream(bytes), value);
+
+        // then
+        assertThat(bytes.size()).isEqualTo((Integer.SIZE - Integer.numberOfLeadingZeros(value | 1) + 6) / 7);
+        assertThat(DataMatrixCellCodec.readVarInt(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))))
+                .isEqualTo(value);
+    }
+
+    @Test
+    void shouldTransferRepositoryWithItsCellTree()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+                .cellSize(8)
+                .build();
+        DataMatrixCellCodec<DataResourceKey, String> codec = codec(DataMatrixCellCodecPrecision.DOUBLE);
+        DataMatrixCellBasedRepository<DataResourceKey, String> repository =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        List<DataResource<DataResourceKey, String>> resources = resources(200);
+        for (DataResource<DataResourceKey, String> resource : resources) {
+            repository.add(resource);
+        }
+        DataMatrixCellTreeMetrics metrics = repository.getTreeMetrics();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // when
+        repository.writeTo(bytes, codec);
+        DataMatrixCellBasedRepository<DataResourceKey, String> read = DataMatrixCellBasedRepository.readFrom(
+                new ByteArrayInputStream(bytes.toByteArray()), configuration, codec);
+
+        // then
+        DataMatrixCellTreeMetrics restored = read.getTreeMetrics();
+        assertThat(restored.getDepth()).isEqualTo(metrics.getDepth());
+        assertThat(restored.getCellsCount()).isEqualTo(metrics.getCellsCount());
+        assertThat(restored.getLeavesCount()).isEqualTo(metrics.getLeavesCount());
+        assertThat(restored.getResourcesCount()).isEqualTo(resources.size());
+        for (DataResource<DataResourceKey, String> resource : resources) {
+            assertThat(read.find(resource.getUuid()).getData()).isEqualTo(resource.getData());
+        }
+    }
+
+    @Test
+    void shouldNotBuildCodecWithoutKeyFactory() {
+        assertThatThrownBy(() -> DataMatrixCellCodec.<DataResourceKey, String>builder()
+                .metadataSize(METADATA_SIZE)
+                .data(STRINGS)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Key factory must be defined");
+    }
+
+    private static DataMatrixCellCodec<DataResourceKey, String> codec(final DataMatrixCellCodecPrecision precision) {
+        return DataMatrixCellCodec.<DataResourceKey, String>builder()
+                .metadataSize(METADATA_SIZE)
+                .precision(precision)
+                .keys(DataMatrixCellCodec.unifiedKeys())
+                .data(STRINGS)
+                .build();
+    }
+
+    private static byte[] header(final int treeLength) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(DataMatrixCellCodec.MAGIC);
+        DataMatrixCellCodec.writeVarInt(output, DataMatrixCellCodec.VERSION);
+        DataMatrixCellCodec.writeVarInt(output, METADATA_SIZE);
+        DataMatrixCellCodec.writeVarInt(output, DataMatrixCellCodecPrecision.DOUBLE.getWidth());
+        DataMatrixCellCodec.writeVarInt(output, treeLength);
+        output.write(new byte[100]);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] write(
+            final DataMatrixCellCodec<DataResourceKey, String> codec,
+            final DataResource<DataResourceKey, String> resource) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.writeResource(resource, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private List<DataResource<DataResourceKey, String>> resources(final int count) {
+        List<DataResource<DataResourceKey, String>> resources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigDecimal[] key = new BigDecimal[METADATA_SIZE];
+            for (int d = 0; d < METADATA_SIZE; d++) {
+                key[d] = BigDecimal.valueOf(random.nextInt(1000));
+            }
+            resources.add(new DataResource<>(() -> key, "data-" + i));
+        }
+        return resources;
+    }
+}
@@ -22,6 +22,14 @@ class DataMatrixCellConfigurationTest {
                 .isEqualTo(DataMatrixCellConfiguration.DEFAULT_SPLIT_ITERATIONS);
         assertThat(configuration.getRootRange())
                 .isEqualTo(DataMatrixCellConfiguration.DEFAULT_ROOT_RANGE);
+        assertThat(configuration.getSplitPolicy())
+                .isEqualTo(DataMatrixCellConfiguration.DEFAULT_SPLIT_POLICY);
+        assertThat(configuration.getSplitStrategy())
+                .isEqualTo(DataMatrixCellConfiguration.DEFAULT_SPLIT_STRATEGY);
+        assertThat(configuration.getMergeRatio())
+                .isEqualTo(DataMatrixCellConfiguration.DEFAULT_MERGE_RATIO);
+        assertThat(configuration.getStorage())
+                .isEqualTo(DataMatrixCellConfiguration.DEFAULT_STORAGE);
     }
 
     @Test
@@ -30,12 +38,20 @@ class DataMatrixCellConfigurationTest {
         int cellSize = 2;
         int splitIterations = 1;
         BigDecimal rootRange = BigDecimal.valueOf(1000);
+        DataMatrixCellSplitPolicy splitPolicy = DataMatrixCellSplitPolicy.MEDIAN;
+        DataMatrixCellSplitStrategy splitStrategy = DataMatrixCellSplitStrategy.VARIANCE;
+        double mergeRatio = 0.5;
+        DataMatrixCellStorage storage = DataMatrixCellStorage.OFF_HEAP;
 
         // when
         DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
                 .cellSize(cellSize)
                 .splitIterations(splitIterations)
                 .rootRange(rootRange)
+                .splitPolicy(splitPolicy)
+                .splitStrategy(splitStrategy)
+                .mergeRatio(mergeRatio)
+                .storage(storage)
                 .build();
 
         // then
@@ -45,6 +61,14 @@ class DataMatrixCellConfigurationTest {
                 .isEqualTo(splitIterations);
         assertThat(configuration.getRootRange())
                 .isEqualTo(rootRange);
+        assertThat(configuration.getSplitPolicy())
+                .isEqualTo(splitPolicy);
+        assertThat(configuration.getSplitStrategy())
+                .isEqualTo(splitStrategy);
+        assertThat(configuration.getMergeRatio())
+                .isEqualTo(mergeRatio);
+        assertThat(configuration.getStorage())
+                .isEqualTo(storage);
     }
 
     @Test
@@ -221,4 +245,100 @@ class DataMatrixCellConfigurationTest {
                 .hasMessage("Root range must be lower than Integer.MAX_VALUE")
                 .hasNoCause();
     }
+
+    @Test
+    void shouldValidateMissingSplitPolicyWhenConstructed() {
+        // when / then
+        assertThatThrownBy(() -> DataMatrixCellConfiguration.builder()
+                .splitPolicy(null)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Split policy must be defined")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateMissingSplitPolicyWhenModified() {
+        // given
+        DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> configuration.setSplitPolicy(null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Split policy must be defined")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateMissingSplitStrategyWhenConstructed() {
+        // when / then
+        assertThatThrownBy(() -> DataMatrixCellConfiguration.builder()
+                .splitStrategy(null)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Split strategy must be defined")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateMissingSplitStrategyWhenModified() {
+        // given
+        DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> configuration.setSplitStrategy(null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Split strategy must be defined")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateIllegalMergeRatioWhenConstructed() {
+        // when / then
+        assertThatThrownBy(() -> DataMatrixCellConfiguration.builder()
+                .mergeRatio(1.0)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Merge ratio must be within [0, 1)")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateIllegalMergeRatioWhenModified() {
+        // given
+        DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> configuration.setMergeRatio(-0.5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Merge ratio must be within [0, 1)")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateMissingStorageWhenConstructed() {
+        // when / then
+        assertThatThrownBy(() -> DataMatrixCellConfiguration.builder()
+                .storage(null)
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Storage must be defined")
+                .hasNoCause();
+    }
+
+    @Test
+    void shouldValidateMissingStorageWhenModified() {
+        // given
+        DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> configuration.setStorage(null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Storage must be defined")
+                .hasNoCause();
+    }
 }
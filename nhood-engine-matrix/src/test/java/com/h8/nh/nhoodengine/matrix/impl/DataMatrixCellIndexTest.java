@@ -0,0 +1,247 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
+import com.h8.nh.nhoodengine.matrix.DataDoesNotExistException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataMatrixCellIndexTest {
+
+    private static final int METADATA_SIZE = 3;
+
+    private static final int CELL_SIZE = 8;
+
+    private static final int RESOURCES_COUNT = 200;
+
+    private static final DataMatrixCellIndexSerializer<DataResourceKey, String> SERIALIZER =
+            new DataMatrixCellIndexSerializer<DataResourceKey, String>() {
+                @Override
+                public void writeKey(final DataResourceKey key, final DataOutput output) throws IOException {
+                    BigDecimal[] unified = key.unified();
+                    output.writeInt(unified.length);
+                    for (BigDecimal value : unified) {
+                        output.writeUTF(value.toString());
+                    }
+                }
+
+                @Override
+                public DataResourceKey readKey(final DataInput input) throws IOException {
+                    BigDecimal[] unified = new BigDecimal[input.readInt()];
+                    for (int i = 0; i < unified.length; i++) {
+                        unified[i] = new BigDecimal(input.readUTF());
+                    }
+                    return () -> unified;
+                }
+
+                @Override
+                public void writeData(final String data, final DataOutput output) throws IOException {
+                    output.writeUTF(data);
+                }
+
+                @Override
+                public String readData(final DataInput input) throws IOException {
+                    return input.readUTF();
+                }
+            };
+
+    private final DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+            .cellSize(CELL_SIZE)
+            .build();
+
+    private final List<DataResource<DataResourceKey, String>> resources = new ArrayList<>();
+
+    private DataMatrixCellBasedRepository<DataResourceKey, String> repository;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() throws DataMatrixRepositoryFailedException {
+        Random random = new Random(1L);
+        repository = new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        for (int i = 0; i < RESOURCES_COUNT; i++) {
+            BigDecimal[] key = new BigDecimal[METADATA_SIZE];
+            for (int d = 0; d < METADATA_SIZE; d++) {
+                key[d] = BigDecimal.valueOf(random.nextInt(1000));
+            }
+            DataResource<DataResourceKey, String> resource = new DataResource<>(() -> key, "data-" + i);
+            resources.add(resource);
+            repository.add(resource);
+        }
+    }
+
+    @Test
+    void shouldServeNeighbourQueriesFromOpenedIndexFile()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        Path path = directory.resolve("index");
+        repository.save(path, SERIALIZER);
+        repository.freeze();
+        DataResourceKey key = () -> new BigDecimal[]{
+                BigDecimal.valueOf(500), BigDecimal.valueOf(500), BigDecimal.valueOf(500)};
+
+        // when
+        DataMatrixCellBasedRepository<DataResourceKey, String> opened =
+                DataMatrixCellBasedRepository.open(path, configuration, SERIALIZER);
+
+        // then
+        assertThat(opened.isFrozen()).isTrue();
+        assertThat(opened.getMetadataSize()).isEqualTo(METADATA_SIZE);
+        assertThat(uuids(opened.findNeighbours(key, DistanceMetrics.euclidean())))
+                .containsExactlyElementsOf(uuids(repository.findNeighbours(key, DistanceMetrics.euclidean())));
+        for (DataResource<DataResourceKey, String> resource : resources) {
+            DataResource<DataResourceKey, String> found = opened.find(resource.getUuid());
+            assertThat(found).isEqualTo(resource);
+            assertThat(found.getData()).isEqualTo(resource.getData());
+            assertThat(found.getKey().unified()).isEqualTo(resource.getKey().unified());
+        }
+    }
+
+    @Test
+    void shouldRestoreCellTreeWithoutSplittingWhenOpenedIndexIsModified()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        Path path = directory.resolve("index");
+        DataMatrixCellTreeMetrics metrics = repository.getTreeMetrics();
+        repository.save(path, SERIALIZER);
+        DataMatrixCellBasedRepository<DataResourceKey, String> opened =
+                DataMatrixCellBasedRepository.open(path, configuration, SERIALIZER);
+
+        // when
+        opened.remove(resources.get(0).getUuid());
+        opened.unfreeze();
+
+        // then
+        DataMatrixCellTreeMetrics restored = opened.getTreeMetrics();
+        assertThat(restored.getDepth()).isEqualTo(metrics.getDepth());
+        assertThat(restored.getCellsCount()).isEqualTo(metrics.getCellsCount());
+        assertThat(restored.getLeavesCount()).isEqualTo(metrics.getLeavesCount());
+        assertThat(restored.getResourcesCount()).isEqualTo(RESOURCES_COUNT - 1);
+        assertThatThrownBy(() -> opened.find(resources.get(0).getUuid()))
+                .hasMessageContaining(resources.get(0).getUuid().toString());
+        assertThat(opened.find(resources.get(1).getUuid())).isEqualTo(resources.get(1));
+    }
+
+    @Test
+    void shouldNotWriteResourcesRemovedBeforeSaving()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        Path path = directory.resolve("index");
+        UUID removed = resources.get(0).getUuid();
+        repository.remove(removed);
+
+        // when
+        repository.save(path, SERIALIZER);
+        DataMatrixCellBasedRepository<DataResourceKey, String> opened =
+                DataMatrixCellBasedRepository.open(path, configuration, SERIALIZER);
+
+        // then
+        assertThatThrownBy(() -> opened.find(removed))
+                .hasMessageContaining(removed.toString());
+        assertThat(opened.getTreeMetrics().getResourcesCount()).isEqualTo(RESOURCES_COUNT - 1);
+    }
+
+    @Test
+    void shouldKeepPreviousIndexFileAndDeleteTemporaryFileWhenWritingFails()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        Path path = directory.resolve("index");
+        repository.save(path, SERIALIZER);
+        DataMatrixCellIndexSerializer<DataResourceKey, String> failing =
+                new DataMatrixCellIndexSerializer<DataResourceKey, String>() {
+                    @Override
+                    public void writeKey(final DataResourceKey key, final DataOutput output) throws IOException {
+                        SERIALIZER.writeKey(key, output);
+                    }
+
+                    @Override
+                    public DataResourceKey readKey(final DataInput input) throws IOException {
+                        return SERIALIZER.readKey(input);
+                    }
+
+                    @Override
+                    public void writeData(final String data, final DataOutput output) throws IOException {
+                        throw new IOException("Data could not be written");
+                    }
+
+                    @Override
+                    public String readData(final DataInput input) throws IOException {
+                        return SERIALIZER.readData(input);
+                    }
+                };
+
+        // when / then
+        assertThatThrownBy(() -> repository.save(path, failing))
+                .isInstanceOf(DataMatrixRepositoryFailedException.class)
+                .hasStackTraceContaining("Data could not be written");
+        assertThat(directory.resolve("index.tmp")).doesNotExist();
+        DataMatrixCellBasedRepository<DataResourceKey, String> opened =
+                DataMatrixCellBasedRepository.open(path, configuration, SERIALIZER);
+        assertThat(opened.find(resources.get(0).getUuid())).isEqualTo(resources.get(0));
+    }
+
+    @Test
+    void shouldRejectIndexFileOfUnsupportedVersion() throws Exception {
+        // given
+        Path path = directory.resolve("index");
+        repository.save(path, SERIALIZER);
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(Integer.BYTES);
+            file.writeInt(DataMatrixCellIndex.VERSION + 1);
+        }
+
+        // when / then
+        assertThatThrownBy(() -> DataMatrixCellBasedRepository.open(path, configuration, SERIALIZER))
+                .isInstanceOf(DataMatrixRepositoryFailedException.class)
+                .hasCauseInstanceOf(IOException.class)
+                .hasStackTraceContaining("Unsupported version of index file");
+    }
+
+    @Test
+    void shouldRejectIndexFileOfDifferentRootRange() throws DataMatrixRepositoryFailedException {
+        // given
+        Path path = directory.resolve("index");
+        repository.save(path, SERIALIZER);
+        DataMatrixCellBasedRepository<DataResourceKey, String> opened = DataMatrixCellBasedRepository.open(
+                path,
+                DataMatrixCellConfiguration.builder().rootRange(BigDecimal.valueOf(10000)).build(),
+                SERIALIZER);
+
+        // when / then
+        assertThatThrownBy(opened::unfreeze)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Could not restore resources of index file")
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    private static List<UUID> uuids(final DataMatrixResourceIterator<DataResourceKey, String> iterator) {
+        List<UUID> uuids = new ArrayList<>();
+        while (iterator.hasNext()) {
+            DataMatrixResourceBlock<DataResourceKey, String> block = iterator.nextBlock();
+            for (int i = 0; i < block.size(); i++) {
+                uuids.add(block.getUuid(i));
+            }
+        }
+        return uuids;
+    }
+}
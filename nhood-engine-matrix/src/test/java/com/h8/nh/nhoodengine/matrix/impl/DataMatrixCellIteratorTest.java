@@ -2,13 +2,24 @@ package com.h8.nh.nhoodengine.matrix.impl;
 
 import com.h8.nh.nhoodengine.core.DataResource;
 import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBlock;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static com.h8.nh.nhoodengine.matrix.utils.DataResourceUtils.resource;
@@ -44,9 +55,9 @@ class DataMatrixCellIteratorTest {
         assertThat(cell.hasResources()).isTrue();
 
         // when
-        BigDecimal[] entryPoint = new BigDecimal[]{TEN, TEN, TEN};
+        double[] entryPoint = new double[]{10.0, 10.0, 10.0};
         DataMatrixCellIterator<DataResourceKey, Object> iterator =
-                DataMatrixCellIterator.startWith(entryPoint, cell, data);
+                DataMatrixCellIterator.startWith(entryPoint, DistanceMetrics.euclidean(), cell, data);
 
         // then
         assertThat(iterator.hasNext()).isTrue();
@@ -83,9 +94,9 @@ class DataMatrixCellIteratorTest {
         assertThat(cell.hasResources()).isFalse();
 
         // when
-        BigDecimal[] entryPoint = new BigDecimal[]{TEN, TEN, TEN};
+        double[] entryPoint = new double[]{10.0, 10.0, 10.0};
         DataMatrixCellIterator<DataResourceKey, Object> iterator =
-                DataMatrixCellIterator.startWith(entryPoint, cell, data);
+                DataMatrixCellIterator.startWith(entryPoint, DistanceMetrics.euclidean(), cell, data);
 
         // then
         assertThat(iterator.hasNext()).isTrue();
@@ -101,6 +112,8 @@ class DataMatrixCellIteratorTest {
         assertThat(iterator.hasNext()).isTrue();
         assertThat(iterator.hasNextWithinRange(ZERO)).isFalse();
         assertThat(iterator.hasNextWithinRange(HUNDRED)).isTrue();
+        assertThat(iterator.hasNextWithinRange(0.0)).isFalse();
+        assertThat(iterator.hasNextWithinRange(100.0)).isTrue();
     }
 
     @Test
@@ -133,26 +146,202 @@ class DataMatrixCellIteratorTest {
         data.put(r5.getUuid(), r5);
 
         // when
-        BigDecimal[] entryPoint = new BigDecimal[]{TEN, TEN, TEN};
+        double[] entryPoint = new double[]{10.0, 10.0, 10.0};
         DataMatrixCellIterator<DataResourceKey, Object> iterator =
-                DataMatrixCellIterator.startWith(entryPoint, cell, data);
+                DataMatrixCellIterator.startWith(entryPoint, DistanceMetrics.euclidean(), cell, data);
 
         // then
         assertThat(iterator.hasNext()).isTrue();
         assertThat(iterator.next()).containsExactlyInAnyOrder(r2);
 
-        assertThat(iterator.hasNext()).isTrue();
-        assertThat(iterator.next()).containsExactlyInAnyOrder(r3);
-
         assertThat(iterator.hasNext()).isTrue();
         assertThat(iterator.next()).containsExactlyInAnyOrder(r1);
 
         assertThat(iterator.hasNext()).isTrue();
         assertThat(iterator.next()).containsExactlyInAnyOrder(r4);
 
+        assertThat(iterator.hasNext()).isTrue();
+        assertThat(iterator.next()).containsExactlyInAnyOrder(r3);
+
         assertThat(iterator.hasNext()).isTrue();
         assertThat(iterator.next()).containsExactlyInAnyOrder(r5);
 
         assertThat(iterator.hasNext()).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldVisitCellsInIncreasingOrderOfLowerBounds() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<DataResourceKey>> cell =
+                DataMatrixCellFactory.root(3, cellConfiguration);
+        Map<UUID, DataResource<DataResourceKey, Object>> data = new HashMap<>();
+
+        Random random = new Random(1L);
+        for (int i = 0; i < 200; i++) {
+            BigDecimal[] key = new BigDecimal[]{
+                    BigDecimal.valueOf(random.nextInt(200) - 100),
+                    BigDecimal.valueOf(random.nextInt(200) - 100),
+                    BigDecimal.valueOf(random.nextInt(200) - 100)};
+            DataResource<DataResourceKey, Object> r = resource(() -> key);
+            cell.add(DataMatrixCellResource.form(r));
+            data.put(r.getUuid(), r);
+        }
+
+        // when
+        double[] entryPoint = new double[]{10.0, 10.0, 10.0};
+        DistanceMetric metric = DistanceMetrics.euclidean();
+        DataMatrixCellIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellIterator.startWith(entryPoint, metric, cell, data);
+
+        // then
+        int visited = 0;
+        double previousBound = 0.0;
+        while (iterator.hasNext()) {
+            double bound = iterator.remainingLowerBound();
+            assertThat(bound).isGreaterThanOrEqualTo(previousBound);
+
+            DataMatrixResourceBlock<DataResourceKey, Object> block = iterator.nextBlock();
+            for (int i = 0; i < block.size(); i++) {
+                double distance = metric.toDistance(
+                        metric.rank(entryPoint, block.getCoordinates(), block.getOffset(i), Double.POSITIVE_INFINITY));
+                assertThat(distance).isGreaterThanOrEqualTo(bound);
+            }
+            visited += block.size();
+            previousBound = bound;
+        }
+        assertThat(visited).isEqualTo(200);
+    }
+
+    @Test
+    void shouldReturnLowerBoundOfDistanceOfRemainingResources() {
+        // given
+        DataResource<DataResourceKey, Object> r1 =
+                resource(() -> new BigDecimal[]{TEN, TEN, TEN});
+        DataResource<DataResourceKey, Object> r2 =
+                resource(() -> new BigDecimal[]{TEN, TEN, HUNDRED});
+
+        DataMatrixCell<DataMatrixCellResource<DataResourceKey>> cell =
+                DataMatrixCellFactory.root(3, cellConfiguration);
+        Map<UUID, DataResource<DataResourceKey, Object>> data = new HashMap<>();
+
+        cell.add(DataMatrixCellResource.form(r1));
+        data.put(r1.getUuid(), r1);
+        cell.add(DataMatrixCellResource.form(r2));
+        data.put(r2.getUuid(), r2);
+
+        // when
+        double[] entryPoint = new double[]{10.0, 10.0, 10.0};
+        DataMatrixCellIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellIterator.startWith(entryPoint, DistanceMetrics.euclidean(), cell, data);
+
+        // then
+        assertThat(iterator.remainingLowerBound()).isEqualTo(0.0);
+
+        assertThat(iterator.next()).containsExactly(r1);
+        assertThat(iterator.remainingLowerBound()).isGreaterThan(0.0).isLessThanOrEqualTo(90.0);
+
+        assertThat(iterator.next()).containsExactly(r2);
+        assertThat(iterator.remainingLowerBound()).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void shouldReturnBlocksOfPackedCoordinatesResolvedOnDemand() {
+        // given
+        DataResource<DataResourceKey, Object> r1 =
+                resource(() -> new BigDecimal[]{TEN, TEN, TEN});
+        DataResource<DataResourceKey, Object> r2 =
+                resource(() -> new BigDecimal[]{TEN, TEN, HUNDRED});
+
+        DataMatrixCell<DataMatrixCellResource<DataResourceKey>> cell =
+                DataMatrixCellFactory.root(3, cellConfiguration);
+        Map<UUID, DataResource<DataResourceKey, Object>> data = new HashMap<>();
+
+        cell.add(DataMatrixCellResource.form(r1));
+        data.put(r1.getUuid(), r1);
+        cell.add(DataMatrixCellResource.form(r2));
+        data.put(r2.getUuid(), r2);
+
+        // when
+        double[] entryPoint = new double[]{10.0, 10.0, 10.0};
+        DataMatrixCellIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellIterator.startWith(entryPoint, DistanceMetrics.euclidean(), cell, data);
+        data.remove(r2.getUuid());
+
+        // then
+        DataMatrixResourceBlock<DataResourceKey, Object> first = iterator.nextBlock();
+        assertThat(first.size()).isEqualTo(1);
+        assertThat(first.getUuid(0)).isEqualTo(r1.getUuid());
+        assertThat(Arrays.copyOfRange(first.getCoordinates(), first.getOffset(0), first.getOffset(0) + 3))
+                .containsExactly(10.0, 10.0, 10.0);
+        assertThat(first.resolve(0)).isEqualTo(r1);
+
+        DataMatrixResourceBlock<DataResourceKey, Object> second = iterator.nextBlock();
+        assertThat(second.size()).isEqualTo(1);
+        assertThat(second.getUuid(0)).isEqualTo(r2.getUuid());
+        assertThat(second.resolve(0)).isNull();
+
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    void shouldReturnAllResourcesWhileOtherResourcesAreRemovedConcurrently() throws InterruptedException {
+        // given
+        DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+                .splitIterations(1)
+                .cellSize(4)
+                .mergeRatio(0.75)
+                .build();
+        DataMatrixCell<DataMatrixCellResource<DataResourceKey>> cell = DataMatrixCellFactory.root(2, configuration);
+        Map<UUID, DataResource<DataResourceKey, Object>> data = new ConcurrentHashMap<>();
+
+        List<UUID> kept = new ArrayList<>();
+        List<List<DataResource<DataResourceKey, Object>>> removed = new ArrayList<>();
+        for (int g = 0; g < 16; g++) {
+            BigDecimal base = BigDecimal.valueOf(100L * g);
+            DataResource<DataResourceKey, Object> r = resource(() -> new BigDecimal[]{base, base});
+            cell.add(DataMatrixCellResource.form(r));
+            data.put(r.getUuid(), r);
+            kept.add(r.getUuid());
+            List<DataResource<DataResourceKey, Object>> group = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                BigDecimal value = base.add(BigDecimal.valueOf(i));
+                group.add(resource(() -> new BigDecimal[]{value, value}));
+            }
+            removed.add(group);
+        }
+
+        // when
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                for (List<DataResource<DataResourceKey, Object>> group : removed) {
+                    group.forEach(r -> cell.add(DataMatrixCellResource.form(r)));
+                    group.forEach(r -> cell.remove(DataMatrixCellResource.form(r)));
+                }
+            }
+        });
+        writer.start();
+
+        // then
+        try {
+            double[] entryPoint = new double[]{0.0, 0.0};
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (System.nanoTime() < deadline) {
+                DataMatrixCellIterator<DataResourceKey, Object> iterator =
+                        DataMatrixCellIterator.startWith(entryPoint, DistanceMetrics.euclidean(), cell, data);
+                Set<UUID> found = new HashSet<>();
+                while (iterator.hasNext()) {
+                    DataMatrixResourceBlock<DataResourceKey, Object> block = iterator.nextBlock();
+                    for (int j = 0; j < block.size(); j++) {
+                        found.add(block.getUuid(j));
+                    }
+                }
+                assertThat(found).containsAll(kept);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.matrix.DataDoesNotExistException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataMatrixCellLogTest {
+
+    private static final int METADATA_SIZE = 3;
+
+    private static final int RESOURCES_COUNT = 100;
+
+    private static final DataMatrixCellIndexSerializer<DataResourceKey, String> SERIALIZER =
+            new DataMatrixCellIndexSerializer<DataResourceKey, String>() {
+                @Override
+                public void writeKey(final DataResourceKey key, final DataOutput output) throws IOException {
+                    for (BigDecimal value : key.unified()) {
+                        output.writeUTF(value.toString());
+                    }
+                }
+
+                @Override
+                public DataResourceKey readKey(final DataInput input) throws IOException {
+                    BigDecimal[] unified = new BigDecimal[METADATA_SIZE];
+                    for (int i = 0; i < unified.length; i++) {
+                        unified[i] = new BigDecimal(input.readUTF());
+                    }
+                    return () -> unified;
+                }
+
+                @Override
+                public void writeData(final String data, final DataOutput output) throws IOException {
+                    output.writeUTF(data);
+                }
+
+                @Override
+                public String readData(final DataInput input) throws IOException {
+                    return input.readUTF();
+                }
+            };
+
+    private final DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+            .cellSize(8)
+            .build();
+
+    private final Random random = new Random(1L);
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(DataMatrixCellLogSync.class)
+    void shouldReplayLoggedModificationsOnTopOfIndexFile(final DataMatrixCellLogSync sync)
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        Path index = directory.resolve("index");
+        Path log = directory.resolve("log");
+        DataMatrixCellBasedRepository<DataResourceKey, String> repository =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        List<DataResource<DataResourceKey, String>> saved = resources(RESOURCES_COUNT);
+        repository.addAll(saved);
+        repository.attachLog(log, SERIALIZER, sync);
+        repository.save(index, SERIALIZER);
+
+        // when
+        List<DataResource<DataResourceKey, String>> logged = resources(RESOURCES_COUNT);
+        repository.addAll(logged.subList(0, RESOURCES_COUNT / 2));
+        for (DataResource<DataResourceKey, String> resource : logged.subList(RESOURCES_COUNT / 2, RESOURCES_COUNT)) {
+            repository.add(resource);
+        }
+        repository.remove(saved.get(0).getUuid());
+        repository.remove(logged.get(0).getUuid());
+
+        DataMatrixCellBasedRepository<DataResourceKey, String> recovered =
+                DataMatrixCellBasedRepository.open(index, configuration, SERIALIZER);
+        recovered.attachLog(log, SERIALIZER, sync);
+
+        // then
+        assertThat(recovered.getTreeMetrics().getResourcesCount()).isEqualTo(2 * RESOURCES_COUNT - 2);
+        assertThatThrownBy(() -> recovered.find(saved.get(0).getUuid()))
+                .isInstanceOf(DataDoesNotExistException.class);
+        assertThatThrownBy(() -> recovered.find(logged.get(0).getUuid()))
+                .isInstanceOf(DataDoesNotExistException.class);
+        for (DataResource<DataResourceKey, String> resource : logged.subList(1, RESOURCES_COUNT)) {
+            DataResource<DataResourceKey, String> found = recovered.find(resource.getUuid());
+            assertThat(found.getData()).isEqualTo(resource.getData());
+            assertThat(found.getKey().unified()).isEqualTo(resource.getKey().unified());
+        }
+        assertThat(recovered.isFrozen()).isTrue();
+        Set<DataResource<DataResourceKey, String>> neighbours = new HashSet<>();
+        DataMatrixResourceIterator<DataResourceKey, String> iterator =
+                recovered.findNeighbours(logged.get(1).getKey());
+        while (iterator.hasNext()) {
+            neighbours.addAll(iterator.next());
+        }
+        assertThat(neighbours).hasSize(2 * RESOURCES_COUNT - 2);
+        assertThat(neighbours).containsAll(logged.subList(1, RESOURCES_COUNT));
+        assertThat(neighbours).doesNotContain(saved.get(0), logged.get(0));
+        repository.detachLog();
+        recovered.detachLog();
+    }
+
+    @Test
+    void shouldReplayLoggedUpdateOfResourceSavedInIndexFile()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        Path index = directory.resolve("index");
+        Path log = directory.resolve("log");
+        DataMatrixCellBasedRepository<DataResourceKey, String> repository =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        repository.addAll(resources(RESOURCES_COUNT));
+        UUID uuid = UUID.randomUUID();
+        repository.add(new DataResource<>(uuid, key(1), "old"));
+        repository.attachLog(log, SERIALIZER, DataMatrixCellLogSync.GROUP);
+        repository.save(index, SERIALIZER);
+
+        // when
+        repository.add(new DataResource<>(uuid, key(10), "new"));
+        DataMatrixCellBasedRepository<DataResourceKey, String> recovered =
+                DataMatrixCellBasedRepository.open(index, configuration, SERIALIZER);
+        recovered.attachLog(log, SERIALIZER, DataMatrixCellLogSync.GROUP);
+
+        // then
+        DataResource<DataResourceKey, String> found = recovered.find(uuid);
+        assertThat(found.getData()).isEqualTo("new");
+        assertThat(found.getKey().unified()).isEqualTo(key(10).unified());
+        assertThat(recovered.getTreeMetrics().getResourcesCount()).isEqualTo(RESOURCES_COUNT + 1);
+        DataMatrixResourceIterator<DataResourceKey, String> iterator = recovered.findNeighbours(key(10));
+        Set<DataResource<DataResourceKey, String>> neighbours = new HashSet<>();
+        while (iterator.hasNext()) {
+            neighbours.addAll(iterator.next());
+        }
+        assertThat(neighbours).hasSize(RESOURCES_COUNT + 1);
+        assertThat(neighbours).filteredOn(r -> r.getUuid().equals(uuid)).extracting(DataResource::getData)
+                .containsExactly("new");
+        repository.detachLog();
+        recovered.detachLog();
+    }
+
+    @Test
+    void shouldDropModificationsCoveredBySavedIndexFromLog()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException, IOException {
+        // given
+        Path index = directory.resolve("index");
+        Path log = directory.resolve("log");
+        DataMatrixCellBasedRepository<DataResourceKey, String> repository =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        repository.attachLog(log, SERIALIZER, DataMatrixCellLogSync.GROUP);
+        long empty = Files.size(log);
+        repository.addAll(resources(RESOURCES_COUNT));
+        assertThat(Files.size(log)).isGreaterThan(empty);
+
+        // when
+        repository.save(index, SERIALIZER);
+        DataResource<DataResourceKey, String> added = resources(1).get(0);
+        repository.add(added);
+        repository.detachLog();
+
+        // then
+        DataMatrixCellBasedRepository<DataResourceKey, String> replayed =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        replayed.attachLog(log, SERIALIZER, DataMatrixCellLogSync.GROUP);
+        assertThat(replayed.getTreeMetrics().getResourcesCount()).isEqualTo(1);
+        assertThat(replayed.find(added.getUuid()).getData()).isEqualTo(added.getData());
+        replayed.detachLog();
+    }
+
+    @Test
+    void shouldDiscardTornModificationEndingLog()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException, IOException {
+        // given
+        Path log = directory.resolve("log");
+        DataMatrixCellBasedRepository<DataResourceKey, String> repository =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        repository.attachLog(log, SERIALIZER, DataMatrixCellLogSync.NONE);
+        List<DataResource<DataResourceKey, String>> resources = resources(2);
+        repository.add(resources.get(0));
+        long complete = Files.size(log);
+        repository.add(resources.get(1));
+        repository.detachLog();
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        // when
+        DataMatrixCellBasedRepository<DataResourceKey, String> replayed =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        replayed.attachLog(log, SERIALIZER, DataMatrixCellLogSync.NONE);
+
+        // then
+        assertThat(Files.size(log)).isEqualTo(complete);
+        assertThat(replayed.find(resources.get(0).getUuid()).getData()).isEqualTo(resources.get(0).getData());
+        assertThatThrownBy(() -> replayed.find(resources.get(1).getUuid()))
+                .isInstanceOf(DataDoesNotExistException.class);
+
+        // and when
+        replayed.add(resources.get(1));
+        replayed.detachLog();
+        DataMatrixCellBasedRepository<DataResourceKey, String> again =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        again.attachLog(log, SERIALIZER, DataMatrixCellLogSync.NONE);
+
+        // then
+        assertThat(again.getTreeMetrics().getResourcesCount()).isEqualTo(2);
+        again.detachLog();
+    }
+
+    @Test
+    void shouldKeepConcurrentModificationsWithGroupSync() throws Exception {
+        // given
+        Path log = directory.resolve("log");
+        DataMatrixCellBasedRepository<DataResourceKey, String> repository =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        repository.attachLog(log, SERIALIZER, DataMatrixCellLogSync.GROUP);
+        List<DataResource<DataResourceKey, String>> resources = resources(RESOURCES_COUNT);
+
+        // when
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (DataResource<DataResourceKey, String> resource : resources) {
+                futures.add(executor.submit(() -> {
+                    repository.add(resource);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        repository.detachLog();
+
+        // then
+        DataMatrixCellBasedRepository<DataResourceKey, String> replayed =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        replayed.attachLog(log, SERIALIZER, DataMatrixCellLogSync.GROUP);
+        assertThat(replayed.getTreeMetrics().getResourcesCount()).isEqualTo(RESOURCES_COUNT);
+        replayed.detachLog();
+    }
+
+    @Test
+    void shouldRejectLogFileOfDifferentMetadataSize() throws DataMatrixRepositoryFailedException {
+        // given
+        Path log = directory.resolve("log");
+        DataMatrixCellBasedRepository<DataResourceKey, String> repository =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE, configuration);
+        repository.attachLog(log, SERIALIZER, DataMatrixCellLogSync.NONE);
+        repository.detachLog();
+        DataMatrixCellBasedRepository<DataResourceKey, String> other =
+                new DataMatrixCellBasedRepository<>(METADATA_SIZE + 1, configuration);
+
+        // when / then
+        assertThatThrownBy(() -> other.attachLog(log, SERIALIZER, DataMatrixCellLogSync.NONE))
+                .isInstanceOf(DataMatrixRepositoryFailedException.class)
+                .hasCauseInstanceOf(IOException.class)
+                .hasStackTraceContaining("Log file has been written with metadata size");
+    }
+
+    private static DataResourceKey key(final int value) {
+        BigDecimal[] key = new BigDecimal[METADATA_SIZE];
+        Arrays.fill(key, BigDecimal.valueOf(value));
+        return () -> key;
+    }
+
+    private List<DataResource<DataResourceKey, String>> resources(final int count) {
+        List<DataResource<DataResourceKey, String>> resources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigDecimal[] key = new BigDecimal[METADATA_SIZE];
+            for (int d = 0; d < METADATA_SIZE; d++) {
+                key[d] = BigDecimal.valueOf(random.nextInt(1000));
+            }
+            resources.add(new DataResource<>(() -> key, "data-" + random.nextInt()));
+        }
+        return resources;
+    }
+}
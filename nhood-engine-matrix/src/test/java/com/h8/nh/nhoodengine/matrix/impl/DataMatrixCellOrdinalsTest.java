@@ -0,0 +1,115 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataMatrixCellOrdinalsTest {
+
+    private final DataMatrixCellOrdinals<DataMatrixCellResource<DataResourceKey>> ordinals =
+            new DataMatrixCellOrdinals<>();
+
+    @Test
+    void shouldAssignOrdinalsByIdentifiers() {
+        // given
+        DataMatrixCellResource<DataResourceKey> r1 = resource(UUID.randomUUID());
+        DataMatrixCellResource<DataResourceKey> r2 = resource(UUID.randomUUID());
+        DataMatrixCellResource<DataResourceKey> r1Again = resource(r1.getUuid());
+
+        // when
+        DataMatrixCellResource<DataResourceKey> previous1 = ordinals.acquire(r1);
+        DataMatrixCellResource<DataResourceKey> previous2 = ordinals.acquire(r2);
+        DataMatrixCellResource<DataResourceKey> previous1Again = ordinals.acquire(r1Again);
+
+        // then
+        assertThat(previous1).isNull();
+        assertThat(previous2).isNull();
+        assertThat(previous1Again).isSameAs(r1);
+        assertThat(r1.getOrdinal()).isNotNegative().isNotEqualTo(r2.getOrdinal());
+        assertThat(r1Again.getOrdinal()).isEqualTo(r1.getOrdinal());
+        assertThat(ordinals.get(r1.getUuid())).isSameAs(r1Again);
+        assertThat(ordinals.get(UUID.randomUUID())).isNull();
+        assertThat(ordinals.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReuseReleasedOrdinals() {
+        // given
+        DataMatrixCellResource<DataResourceKey> r = resource(UUID.randomUUID());
+        ordinals.acquire(r);
+        int ordinal = r.getOrdinal();
+
+        // when
+        ordinals.release(r);
+        DataMatrixCellResource<DataResourceKey> released = ordinals.get(r.getUuid());
+        DataMatrixCellResource<DataResourceKey> rAgain = resource(r.getUuid());
+        DataMatrixCellResource<DataResourceKey> previous = ordinals.acquire(rAgain);
+
+        // then
+        assertThat(released).isNull();
+        assertThat(previous).isNull();
+        assertThat(rAgain.getOrdinal()).isEqualTo(ordinal);
+        assertThat(ordinals.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotReleaseOrdinalOfSupersededResource() {
+        // given
+        DataMatrixCellResource<DataResourceKey> r = resource(UUID.randomUUID());
+        DataMatrixCellResource<DataResourceKey> rAgain = resource(r.getUuid());
+        ordinals.acquire(r);
+        ordinals.acquire(rAgain);
+
+        // when
+        ordinals.release(r);
+
+        // then
+        assertThat(ordinals.get(r.getUuid())).isSameAs(rAgain);
+        assertThat(ordinals.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepDenseOrdinalsOfRemainingIdentifiersOnRelease() {
+        // given
+        List<DataMatrixCellResource<DataResourceKey>> resources = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            DataMatrixCellResource<DataResourceKey> r = resource(UUID.randomUUID());
+            resources.add(r);
+            ordinals.acquire(r);
+        }
+
+        // when
+        for (int i = 0; i < resources.size(); i += 2) {
+            ordinals.release(resources.get(i));
+        }
+        for (int i = 0; i < resources.size(); i += 2) {
+            ordinals.acquire(resource(UUID.randomUUID()));
+        }
+
+        // then
+        Set<Integer> assigned = new HashSet<>();
+        for (int i = 0; i < resources.size(); i++) {
+            DataMatrixCellResource<DataResourceKey> r = resources.get(i);
+            if (i % 2 == 0) {
+                assertThat(ordinals.get(r.getUuid())).isNull();
+            } else {
+                assertThat(ordinals.get(r.getUuid())).isSameAs(r);
+                assertThat(assigned.add(r.getOrdinal())).isTrue();
+            }
+        }
+        assertThat(ordinals.size()).isEqualTo(resources.size());
+        assertThat(assigned).allMatch(o -> o < 2 * resources.size());
+    }
+
+    private static DataMatrixCellResource<DataResourceKey> resource(final UUID uuid) {
+        return new DataMatrixCellResource<>(uuid, () -> new BigDecimal[]{BigDecimal.ONE});
+    }
+}
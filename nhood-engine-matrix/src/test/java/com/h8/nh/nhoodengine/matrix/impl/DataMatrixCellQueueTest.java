@@ -0,0 +1,71 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataMatrixCellQueueTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void shouldPollValuesInOrderOfPrioritiesUnderManyPushesAndPolls() {
+        // given
+        DataMatrixCellQueue queue = new DataMatrixCellQueue(1);
+        double[] priorities = new double[20000];
+        for (int v = 0; v < priorities.length; v++) {
+            priorities[v] = random.nextInt(1000);
+        }
+        boolean[] polled = new boolean[priorities.length];
+
+        // when
+        List<Integer> values = new ArrayList<>();
+        int pushed = 0;
+        while (pushed < priorities.length || !queue.isEmpty()) {
+            if (pushed < priorities.length && (queue.isEmpty() || random.nextInt(3) > 0)) {
+                queue.push(pushed, priorities[pushed]);
+                pushed++;
+            } else {
+                double lowest = queue.peekPriority();
+                int value = queue.poll();
+                assertThat(priorities[value]).isEqualTo(lowest);
+                if (!queue.isEmpty()) {
+                    assertThat(queue.peekPriority()).isGreaterThanOrEqualTo(lowest);
+                }
+                values.add(value);
+            }
+        }
+
+        // then
+        assertThat(values).hasSize(priorities.length);
+        for (int value : values) {
+            assertThat(polled[value]).isFalse();
+            polled[value] = true;
+        }
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void shouldPollAllValuesInAscendingOrderOfPriorities() {
+        // given
+        DataMatrixCellQueue queue = new DataMatrixCellQueue(16);
+        for (int v = 0; v < 1000; v++) {
+            queue.push(v, random.nextDouble());
+        }
+
+        // when
+        List<Double> polled = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            double priority = queue.peekPriority();
+            queue.poll();
+            polled.add(priority);
+        }
+
+        // then
+        assertThat(polled).hasSize(1000).isSorted();
+    }
+}
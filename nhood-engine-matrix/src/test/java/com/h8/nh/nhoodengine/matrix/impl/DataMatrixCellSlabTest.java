@@ -0,0 +1,70 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataMatrixCellSlabTest {
+
+    private static final int METADATA_SIZE = 3;
+
+    private final DataMatrixCellSlab slab = new DataMatrixCellSlab(METADATA_SIZE);
+
+    @Test
+    void shouldAllocateDisjointCoordinatesOfSlabs() {
+        // given
+        List<DataMatrixCellCoordinates> allocated = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 10000; i++) {
+            DataMatrixCellCoordinates coordinates = slab.apply((1 + i % 40) * METADATA_SIZE);
+            for (int j = 0; j < coordinates.length(); j++) {
+                coordinates.set(j, i);
+            }
+            allocated.add(coordinates);
+        }
+
+        // then
+        for (int i = 0; i < allocated.size(); i++) {
+            DataMatrixCellCoordinates coordinates = allocated.get(i);
+            assertThat(coordinates.length()).isGreaterThanOrEqualTo((1 + i % 40) * METADATA_SIZE);
+            for (int j = 0; j < coordinates.length(); j++) {
+                assertThat(coordinates.get(j)).isEqualTo(i);
+            }
+        }
+        assertThat(slab.slabsCount()).isGreaterThan(1);
+    }
+
+    @Test
+    void shouldAllocateCoordinatesLongerThanRegionsOutsideOfSlabs() {
+        // when
+        DataMatrixCellCoordinates coordinates = slab.apply(DataMatrixCellSlab.MAX_REGION_LENGTH + 1);
+
+        // then
+        assertThat(coordinates.length()).isEqualTo(DataMatrixCellSlab.MAX_REGION_LENGTH + 1);
+        assertThat(slab.slabsCount()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldReuseZeroedRegionsOfUnreachableCoordinates() {
+        // given
+        int regionsPerSlab = DataMatrixCellSlab.SLAB_LENGTH / (4 * METADATA_SIZE);
+        int rounds = 16;
+
+        // when
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < regionsPerSlab; i++) {
+                DataMatrixCellCoordinates coordinates = slab.apply(4 * METADATA_SIZE);
+                assertThat(coordinates.get(0)).isEqualTo(0.0);
+                coordinates.set(0, round + 1);
+            }
+            System.gc();
+        }
+
+        // then
+        assertThat(slab.slabsCount()).isLessThan(rounds);
+    }
+}
@@ -0,0 +1,239 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResource;
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
+import com.h8.nh.nhoodengine.matrix.DataDoesNotExistException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixRepositoryFailedException;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceBatchIterator;
+import com.h8.nh.nhoodengine.matrix.DataMatrixResourceIterator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.h8.nh.nhoodengine.matrix.utils.DataResourceUtils.resource;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataMatrixCellSnapshotTest {
+
+    private static final BigDecimal ONE = BigDecimal.ONE;
+    private static final BigDecimal TEN = BigDecimal.TEN;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final DataMatrixCellConfiguration cellConfiguration =
+            DataMatrixCellConfiguration.builder()
+                    .splitIterations(2)
+                    .cellSize(2)
+                    .build();
+
+    private final DataMatrixCell<DataMatrixCellResource<DataResourceKey>> cell =
+            DataMatrixCellFactory.root(3, cellConfiguration);
+
+    private final Map<UUID, DataResource<DataResourceKey, Object>> data = new HashMap<>();
+
+    @Test
+    void shouldReturnNoChunksForAnEmptySnapshot() {
+        // given
+        DataMatrixCellSnapshot<DataResourceKey> snapshot = DataMatrixCellSnapshot.of(3, cell);
+
+        // when
+        DataMatrixCellSnapshotIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellSnapshotIterator.startWith(
+                        new double[]{10.0, 10.0, 10.0}, DistanceMetrics.euclidean(), snapshot, data);
+
+        // then
+        assertThat(iterator.hasNext()).isFalse();
+        assertThat(iterator.next()).isEmpty();
+        assertThat(iterator.remainingLowerBound()).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void shouldReturnExpectedSequenceOfCells() {
+        // given
+        List<DataResource<DataResourceKey, Object>> r = populateCell();
+        DataMatrixCellSnapshot<DataResourceKey> snapshot = DataMatrixCellSnapshot.of(3, cell);
+
+        // when
+        DataMatrixCellSnapshotIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellSnapshotIterator.startWith(
+                        new double[]{10.0, 10.0, 10.0}, DistanceMetrics.euclidean(), snapshot, data);
+
+        // then
+        assertThat(iterator.hasNext()).isTrue();
+        assertThat(iterator.next()).containsExactlyInAnyOrder(r.get(1));
+
+        assertThat(iterator.hasNext()).isTrue();
+        assertThat(iterator.next()).containsExactlyInAnyOrder(r.get(0));
+
+        assertThat(iterator.hasNext()).isTrue();
+        assertThat(iterator.next()).containsExactlyInAnyOrder(r.get(3));
+
+        assertThat(iterator.hasNext()).isTrue();
+        assertThat(iterator.next()).containsExactlyInAnyOrder(r.get(2));
+
+        assertThat(iterator.hasNext()).isTrue();
+        assertThat(iterator.next()).containsExactlyInAnyOrder(r.get(4));
+
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    void shouldReturnLowerBoundOfDistanceOfRemainingResources() {
+        // given
+        populateCell();
+        DataMatrixCellSnapshot<DataResourceKey> snapshot = DataMatrixCellSnapshot.of(3, cell);
+
+        // when
+        DataMatrixCellSnapshotIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellSnapshotIterator.startWith(
+                        new double[]{10.0, 10.0, 10.0}, DistanceMetrics.euclidean(), snapshot, data);
+
+        // then
+        double bound = iterator.remainingLowerBound();
+        while (iterator.hasNext()) {
+            for (DataResource<DataResourceKey, Object> resource : iterator.next()) {
+                double distance = DistanceMetrics.euclidean().toDistance(DistanceMetrics.euclidean()
+                        .rank(new double[]{10.0, 10.0, 10.0}, resource.getKey().unifiedDoubles()));
+                assertThat(distance).isGreaterThanOrEqualTo(bound);
+            }
+            assertThat(iterator.remainingLowerBound()).isGreaterThanOrEqualTo(bound);
+            bound = iterator.remainingLowerBound();
+        }
+        assertThat(bound).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void shouldSkipChunksOutOfRange() {
+        // given
+        populateCell();
+        DataMatrixCellSnapshot<DataResourceKey> snapshot = DataMatrixCellSnapshot.of(3, cell);
+
+        // when
+        DataMatrixCellSnapshotIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellSnapshotIterator.startWith(
+                        new double[]{10.0, 10.0, 10.0}, DistanceMetrics.euclidean(), snapshot, data);
+
+        // then
+        List<DataResource<DataResourceKey, Object>> retrievedResources = new ArrayList<>();
+        while (iterator.hasNextWithinRange(ONE)) {
+            retrievedResources.addAll(iterator.next());
+        }
+        assertThat(retrievedResources)
+                .extracting(r -> r.getKey().unified()[0])
+                .containsExactly(TEN);
+        assertThat(iterator.hasNext()).isTrue();
+    }
+
+    @Test
+    void shouldReturnEachChunkOnceForAllEntryPoints() {
+        // given
+        List<DataResource<DataResourceKey, Object>> resources = populateCell();
+        DataMatrixCellSnapshot<DataResourceKey> snapshot = DataMatrixCellSnapshot.of(3, cell);
+
+        // when
+        double[][] entryPoints = new double[][]{
+                {10.0, 10.0, 10.0},
+                {-100.0, -100.0, -100.0}
+        };
+        DataMatrixCellSnapshotBatchIterator<DataResourceKey, Object> iterator =
+                DataMatrixCellSnapshotBatchIterator.startWith(
+                        entryPoints, DistanceMetrics.euclidean(), snapshot, data);
+
+        // then
+        List<DataResource<DataResourceKey, Object>> retrievedResources = new ArrayList<>();
+        while (iterator.hasNext()) {
+            retrievedResources.addAll(iterator.next());
+            assertThat(iterator.isRelevantFor(0)).isTrue();
+            assertThat(iterator.isRelevantFor(1)).isTrue();
+        }
+        assertThat(retrievedResources).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    void shouldQueryFrozenRepositoryUntilItIsFrozenAgain()
+            throws DataMatrixRepositoryFailedException, DataDoesNotExistException {
+        // given
+        DataMatrixCellBasedRepository<DataResourceKey, Object> repository =
+                new DataMatrixCellBasedRepository<>(3, cellConfiguration);
+        DataResource<DataResourceKey, Object> r1 = resource(() -> new BigDecimal[]{ONE, ONE, ONE});
+        DataResource<DataResourceKey, Object> r2 = resource(() -> new BigDecimal[]{TEN, TEN, TEN});
+        DataResource<DataResourceKey, Object> r3 = resource(() -> new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED});
+        repository.add(r1);
+        repository.add(r2);
+
+        // when
+        repository.freeze();
+        repository.add(r3);
+        repository.remove(r1.getUuid());
+
+        // then
+        assertThat(repository.isFrozen()).isTrue();
+        assertThat(retrieveAll(repository)).containsExactlyInAnyOrder(r2);
+        assertThat(retrieveAllInBatch(repository)).containsExactlyInAnyOrder(r2);
+
+        // when
+        repository.freeze();
+
+        // then
+        assertThat(retrieveAll(repository)).containsExactlyInAnyOrder(r2, r3);
+        assertThat(retrieveAllInBatch(repository)).containsExactlyInAnyOrder(r2, r3);
+
+        // when
+        repository.unfreeze();
+        repository.remove(r3.getUuid());
+        repository.add(r1);
+
+        // then
+        assertThat(repository.isFrozen()).isFalse();
+        assertThat(retrieveAll(repository)).containsExactlyInAnyOrder(r1, r2);
+    }
+
+    private static List<DataResource<DataResourceKey, Object>> retrieveAll(
+            final DataMatrixCellBasedRepository<DataResourceKey, Object> repository)
+            throws DataMatrixRepositoryFailedException {
+        DataMatrixResourceIterator<DataResourceKey, Object> iterator =
+                repository.findNeighbours(() -> new BigDecimal[]{TEN, TEN, TEN});
+        List<DataResource<DataResourceKey, Object>> resources = new ArrayList<>();
+        while (iterator.hasNext()) {
+            resources.addAll(iterator.next());
+        }
+        return resources;
+    }
+
+    private static List<DataResource<DataResourceKey, Object>> retrieveAllInBatch(
+            final DataMatrixCellBasedRepository<DataResourceKey, Object> repository)
+            throws DataMatrixRepositoryFailedException {
+        DataMatrixResourceBatchIterator<DataResourceKey, Object> iterator =
+                repository.findNeighbours(Arrays.asList(
+                        () -> new BigDecimal[]{TEN, TEN, TEN},
+                        () -> new BigDecimal[]{ONE, ONE, ONE}));
+        List<DataResource<DataResourceKey, Object>> resources = new ArrayList<>();
+        while (iterator.hasNext()) {
+            resources.addAll(iterator.next());
+        }
+        return resources;
+    }
+
+    private List<DataResource<DataResourceKey, Object>> populateCell() {
+        List<DataResource<DataResourceKey, Object>> resources = new ArrayList<>();
+        resources.add(resource(() -> new BigDecimal[]{ONE, ONE, ONE}));
+        resources.add(resource(() -> new BigDecimal[]{TEN, TEN, TEN}));
+        resources.add(resource(() -> new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED}));
+        resources.add(resource(() -> new BigDecimal[]{TEN.negate(), TEN.negate(), TEN.negate()}));
+        resources.add(resource(() -> new BigDecimal[]{HUNDRED.negate(), HUNDRED.negate(), HUNDRED.negate()}));
+        resources.forEach(this::add);
+        assertThat(cell.hasChildren()).isTrue();
+        return resources;
+    }
+
+    private void add(final DataResource<DataResourceKey, Object> r) {
+        cell.add(DataMatrixCellResource.form(r));
+        data.put(r.getUuid(), r);
+    }
+}
@@ -0,0 +1,202 @@
+package com.h8.nh.nhoodengine.matrix.impl;
+
+import com.h8.nh.nhoodengine.core.DataResourceKey;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.h8.nh.nhoodengine.matrix.utils.DataResourceUtils.matrixCellResource;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataMatrixCellStoreTest {
+
+    private static final BigDecimal ONE = BigDecimal.ONE;
+    private static final BigDecimal TEN = BigDecimal.TEN;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final DataMatrixCellOrdinals<DataMatrixCellResource<DataResourceKey>> ordinals =
+            new DataMatrixCellOrdinals<>();
+    private final DataMatrixCellStore<DataMatrixCellResource<DataResourceKey>> store = new DataMatrixCellStore<>(2);
+
+    @Test
+    void shouldPackCoordinatesOfAddedResources() {
+        // given
+        DataMatrixCellResource<DataResourceKey> r1 = resource(() -> new BigDecimal[]{ONE, TEN});
+        DataMatrixCellResource<DataResourceKey> r2 = resource(() -> new BigDecimal[]{TEN, HUNDRED});
+
+        // when
+        store.add(r1);
+        store.add(r2);
+
+        // then
+        DataMatrixCellBlock<DataMatrixCellResource<DataResourceKey>> block = store.getBlock();
+        assertThat(block.size()).isEqualTo(2);
+        assertThat(block.get(0)).isEqualTo(r1);
+        assertThat(block.get(1)).isEqualTo(r2);
+        assertThat(block.getCoordinates()).startsWith(1.0, 10.0, 10.0, 100.0);
+    }
+
+    @Test
+    void shouldNotAddResourceOfTheSameIdentifierTwice() {
+        // given
+        DataMatrixCellResource<DataResourceKey> r = resource(() -> new BigDecimal[]{ONE, TEN});
+
+        // when
+        boolean added = store.add(r);
+        boolean addedAgain = store.add(r);
+
+        // then
+        assertThat(added).isTrue();
+        assertThat(addedAgain).isFalse();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.getBlock().size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLeaveEmptySlotOfRemovedResourceUntilStoreIsCompacted() {
+        // given
+        DataMatrixCellResource<DataResourceKey> r1 = resource(() -> new BigDecimal[]{ONE, ONE});
+        DataMatrixCellResource<DataResourceKey> r2 = resource(() -> new BigDecimal[]{TEN, TEN});
+        DataMatrixCellResource<DataResourceKey> r3 = resource(() -> new BigDecimal[]{HUNDRED, HUNDRED});
+        store.add(r1);
+        store.add(r2);
+        store.add(r3);
+
+        // when
+        boolean removed = store.remove(r1);
+        boolean removedAgain = store.remove(r1);
+
+        // then
+        DataMatrixCellBlock<DataMatrixCellResource<DataResourceKey>> block = store.getBlock();
+        assertThat(removed).isTrue();
+        assertThat(removedAgain).isFalse();
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(block.size()).isEqualTo(3);
+        assertThat(block.get(0)).isNull();
+        assertThat(block.toSet()).containsExactlyInAnyOrder(r2, r3);
+
+        // when
+        store.remove(r2);
+
+        // then
+        block = store.getBlock();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(block.size()).isEqualTo(1);
+        assertThat(block.get(0)).isEqualTo(r3);
+        assertThat(block.getCoordinates()).startsWith(100.0, 100.0);
+    }
+
+    @Test
+    void shouldKeepCoordinatesOfPublishedViewOnFurtherModifications() {
+        // given
+        DataMatrixCellResource<DataResourceKey> r1 = resource(() -> new BigDecimal[]{ONE, ONE});
+        DataMatrixCellResource<DataResourceKey> r2 = resource(() -> new BigDecimal[]{TEN, TEN});
+        DataMatrixCellResource<DataResourceKey> r3 = resource(() -> new BigDecimal[]{HUNDRED, HUNDRED});
+        store.add(r1);
+        store.add(r2);
+
+        // when
+        DataMatrixCellBlock<DataMatrixCellResource<DataResourceKey>> view = store.getBlock();
+        store.add(r3);
+        store.remove(r1);
+        store.remove(r2);
+        store.add(r1);
+
+        // then
+        assertThat(view.size()).isEqualTo(2);
+        assertThat(view.get(0)).isNull();
+        assertThat(view.get(1)).isNull();
+        assertThat(view.getCoordinates()).startsWith(1.0, 1.0, 10.0, 10.0);
+        assertThat(store.getBlock().toSet()).containsExactlyInAnyOrder(r1, r3);
+    }
+
+    @Test
+    void shouldKeepCoordinatesOffHeapWhenConfigured() {
+        // given
+        DataMatrixCellStore<DataMatrixCellResource<DataResourceKey>> offHeapStore =
+                new DataMatrixCellStore<>(2, DataMatrixCellStorage.OFF_HEAP);
+        DataMatrixCellResource<DataResourceKey> r1 = resource(() -> new BigDecimal[]{ONE, ONE});
+        DataMatrixCellResource<DataResourceKey> r2 = resource(() -> new BigDecimal[]{TEN, TEN});
+        DataMatrixCellResource<DataResourceKey> r3 = resource(() -> new BigDecimal[]{HUNDRED, HUNDRED});
+        offHeapStore.add(r1);
+        offHeapStore.add(r2);
+        offHeapStore.add(r3);
+
+        // when
+        offHeapStore.remove(r1);
+        offHeapStore.remove(r2);
+
+        // then
+        DataMatrixCellBlock<DataMatrixCellResource<DataResourceKey>> block = offHeapStore.getBlock();
+        double[] coordinates = new double[2];
+        block.getCoordinates(0, coordinates, 0);
+        assertThat(block.size()).isEqualTo(1);
+        assertThat(block.get(0)).isEqualTo(r3);
+        assertThat(block.getCoordinates()).startsWith(100.0, 100.0);
+        assertThat(coordinates).containsExactly(100.0, 100.0);
+        assertThat(block.rank(DistanceMetrics.euclidean(), new double[]{97.0, 96.0}, 0,
+                Double.POSITIVE_INFINITY, new double[2])).isEqualTo(25.0);
+        assertThat(r3.getUnifiedKey()).containsExactly(100.0, 100.0);
+    }
+
+    @Test
+    void shouldKeepCoordinatesOffHeapWhenGrown() {
+        // given
+        DataMatrixCellStore<DataMatrixCellResource<DataResourceKey>> offHeapStore =
+                new DataMatrixCellStore<>(2, DataMatrixCellStorage.OFF_HEAP);
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            BigDecimal value = BigDecimal.valueOf(i);
+            offHeapStore.add(resource(() -> new BigDecimal[]{value, value}));
+        }
+
+        // then
+        DataMatrixCellBlock<DataMatrixCellResource<DataResourceKey>> block = offHeapStore.getBlock();
+        double[] coordinates = new double[2];
+        assertThat(block.size()).isEqualTo(20);
+        for (int i = 0; i < 20; i++) {
+            block.getCoordinates(i, coordinates, 0);
+            assertThat(coordinates).containsExactly(i, i);
+        }
+    }
+
+    @Test
+    void shouldAllocateCoordinatesOnlyWhileResourcesAreStored() {
+        // given
+        List<Integer> allocated = new ArrayList<>();
+        DataMatrixCellStore<DataMatrixCellResource<DataResourceKey>> countingStore = new DataMatrixCellStore<>(
+                2, DataMatrixCellStorage.HEAP, length -> {
+                    allocated.add(length);
+                    return DataMatrixCellCoordinates.heap(length);
+                });
+        DataMatrixCellResource<DataResourceKey> r1 = resource(() -> new BigDecimal[]{ONE, ONE});
+        DataMatrixCellResource<DataResourceKey> r2 = resource(() -> new BigDecimal[]{TEN, TEN});
+
+        // when
+        List<Integer> allocatedWhenCreated = new ArrayList<>(allocated);
+        countingStore.add(r1);
+        countingStore.add(r2);
+        countingStore.remove(r1);
+        countingStore.remove(r2);
+        List<Integer> allocatedWhenEmptied = new ArrayList<>(allocated);
+        countingStore.add(r1);
+        countingStore.clear();
+
+        // then
+        assertThat(allocatedWhenCreated).isEmpty();
+        assertThat(allocatedWhenEmptied).containsExactly(8);
+        assertThat(allocated).containsExactly(8, 8);
+        assertThat(countingStore.getBlock().isEmpty()).isTrue();
+        assertThat(countingStore.getBlock().getCoordinates()).isEmpty();
+    }
+
+    private DataMatrixCellResource<DataResourceKey> resource(final DataResourceKey key) {
+        DataMatrixCellResource<DataResourceKey> resource = matrixCellResource(key);
+        ordinals.acquire(resource);
+        return resource;
+    }
+}
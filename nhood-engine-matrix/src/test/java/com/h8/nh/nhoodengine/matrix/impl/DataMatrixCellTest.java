@@ -1,5 +1,7 @@
 package com.h8.nh.nhoodengine.matrix.impl;
 
+import com.h8.nh.nhoodengine.core.DistanceMetric;
+import com.h8.nh.nhoodengine.core.DistanceMetrics;
 import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -7,6 +9,12 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import static com.h8.nh.nhoodengine.matrix.utils.DataResourceUtils.matrixCellResource;
@@ -18,12 +26,10 @@ class DataMatrixCellTest {
     private static final BigDecimal ZERO = BigDecimal.ZERO;
     private static final BigDecimal ONE = BigDecimal.ONE;
     private static final BigDecimal TEN = BigDecimal.TEN;
-    private static final BigDecimal TEN_PLUS = BigDecimal.TEN.add(BigDecimal.valueOf(Double.MIN_VALUE));
 
     private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
-    private static final BigDecimal HUNDRED_MINUS = HUNDRED.subtract(BigDecimal.valueOf(Double.MIN_VALUE));
 
-    private static final Offset<BigDecimal> OFFSET = Offset.offset(BigDecimal.valueOf(0.0001));
+    private static final Offset<Double> PRIMITIVE_OFFSET = Offset.offset(0.0001);
 
     private final DataMatrixCellConfiguration cellConfiguration =
             DataMatrixCellConfiguration.builder()
@@ -150,6 +156,559 @@ class DataMatrixCellTest {
         assertThat(r2Cell.getParent()).isEqualTo(cell);
     }
 
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldPlaceResourcesIntoChildrenCoveringTheirKeys() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(2)
+                        .cellSize(3)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 100; i += 3) {
+            BigDecimal v = BigDecimal.valueOf(i);
+            BigDecimal w = BigDecimal.valueOf(99 - i);
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, w, v}));
+        }
+
+        // when
+        resources.forEach(cell::add);
+
+        // then
+        assertThat(cell.hasChildren()).isTrue();
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+
+        // when
+        resources.forEach(cell::remove);
+
+        // then
+        assertThat(collectResourcesOfWrappingLeaves(cell)).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldSplitCellAtMediansWhenResourcesAreAddedAtOnce() {
+        // given
+        DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+                .splitIterations(2)
+                .cellSize(10)
+                .splitPolicy(DataMatrixCellSplitPolicy.MEDIAN)
+                .build();
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                configuration);
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 36; i++) {
+            BigDecimal v = BigDecimal.valueOf(i);
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, ONE, ONE}));
+        }
+
+        // when
+        cell.addAll(resources);
+
+        // then
+        assertThat(cell.getChildren()).hasSize(4);
+        assertThat(cell.getChildren())
+                .allSatisfy(c -> assertThat(c.getResources()).hasSize(9));
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+
+        // when
+        DataMatrixCellResource<?> added = matrixCellResource(() -> new BigDecimal[]{TEN, TEN, TEN});
+        cell.add(added);
+        cell.remove(resources.get(0));
+
+        // then
+        resources.add(added);
+        resources.remove(0);
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldSplitCellAlongSeveralDimensionsWhenConfigured() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(2)
+                        .cellSize(8)
+                        .splitStrategy(DataMatrixCellSplitStrategy.WIDEST_DIMENSIONS)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            BigDecimal x = BigDecimal.valueOf(10 + 50 * (i % 2));
+            BigDecimal y = BigDecimal.valueOf(10 + 50 * (i / 2 % 2));
+            resources.add(matrixCellResource(() -> new BigDecimal[]{x, y, ONE}));
+        }
+
+        // when
+        cell.addAll(resources);
+
+        // then
+        assertThat(cell.getChildren()).hasSize(4);
+        assertThat(cell.getChildren())
+                .allSatisfy(c -> assertThat(c.getResources()).hasSize(2))
+                .allSatisfy(c -> assertThat(c.getIndex()[2]).isEqualTo(ZERO))
+                .allSatisfy(c -> assertThat(c.getClosure()[2]).isEqualTo(HUNDRED));
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+
+        // when
+        DataMatrixCellResource<?> added = matrixCellResource(() -> new BigDecimal[]{TEN, BigDecimal.valueOf(90), TEN});
+        cell.add(added);
+
+        // then
+        resources.add(added);
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldSplitCellAlongDimensionOfGreatestVarianceWhenConfigured() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(8)
+                        .splitStrategy(DataMatrixCellSplitStrategy.VARIANCE)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            BigDecimal x = i == 0 ? BigDecimal.valueOf(90) : ONE;
+            BigDecimal y = BigDecimal.valueOf(10 + 70 * (i % 2));
+            resources.add(matrixCellResource(() -> new BigDecimal[]{x, y, ONE}));
+        }
+
+        // when
+        cell.addAll(resources);
+
+        // then
+        assertThat(cell.getChildren()).hasSize(2);
+        assertThat(cell.getChildren())
+                .allSatisfy(c -> assertThat(c.getIndex()[0]).isEqualTo(ZERO))
+                .allSatisfy(c -> assertThat(c.getClosure()[0]).isEqualTo(HUNDRED));
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldNotSplitCellWhenResourcesOfTheSameKeyAreAddedAtOnce() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                cellConfiguration);
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            resources.add(matrixCellResource(() -> new BigDecimal[]{TEN, TEN, TEN}));
+        }
+
+        // when
+        cell.addAll(resources);
+
+        // then
+        assertThat(cell.getChildren()).isEmpty();
+        assertThat(cell.getResources()).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldSplitSkewedResourcesAtMedianWhenResourcesAreAddedOneByOne() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(8)
+                        .splitPolicy(DataMatrixCellSplitPolicy.MEDIAN)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            BigDecimal v = BigDecimal.valueOf(1 << i).divide(TEN);
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, ONE, ONE}));
+        }
+
+        // when
+        resources.forEach(cell::add);
+
+        // then
+        assertThat(cell.getChildren()).hasSize(2);
+        assertThat(cell.getChildren())
+                .allSatisfy(c -> assertThat(c.getResources()).hasSize(4));
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldNotTakeRemovedResourcesIntoAccountWhenSplittingCell() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(3)
+                        .build());
+
+        DataMatrixCellResource<?> r1 = matrixCellResource(() -> new BigDecimal[]{ZERO, ZERO, ZERO});
+        DataMatrixCellResource<?> removed =
+                matrixCellResource(() -> new BigDecimal[]{ZERO, BigDecimal.valueOf(90), ZERO});
+        DataMatrixCellResource<?> r2 = matrixCellResource(() -> new BigDecimal[]{TEN, ONE, ZERO});
+        DataMatrixCellResource<?> r3 = matrixCellResource(() -> new BigDecimal[]{TEN.add(TEN), ONE, ZERO});
+
+        // when
+        cell.add(r1);
+        cell.add(removed);
+        cell.remove(removed);
+        cell.add(r2);
+        cell.add(r3);
+
+        // then
+        assertThat(cell.getChildren()).hasSize(2);
+        assertThat(cell.getChildren())
+                .allSatisfy(c -> {
+                    assertThat(c.getIndex()[1]).isEqualTo(ZERO);
+                    assertThat(c.getClosure()[1]).isEqualTo(HUNDRED);
+                });
+        assertThat(cell.getChildren())
+                .anySatisfy(c -> assertThat(c.getResources()).containsExactly(r1))
+                .anySatisfy(c -> assertThat(c.getResources()).containsExactlyInAnyOrder(r2, r3));
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldMergeChildrenBackIntoCellWhenMostOfResourcesAreRemoved() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(4)
+                        .mergeRatio(0.5)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            BigDecimal v = BigDecimal.valueOf(10 * i);
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, ONE, ONE}));
+        }
+        resources.forEach(cell::add);
+        assertThat(cell.hasChildren()).isTrue();
+
+        // when
+        cell.remove(resources.get(0));
+        cell.remove(resources.get(1));
+
+        // then
+        assertThat(cell.hasChildren()).isTrue();
+
+        // when
+        cell.remove(resources.get(2));
+
+        // then
+        assertThat(cell.hasChildren()).isFalse();
+        assertThat(cell.getResources()).containsExactly(resources.get(3));
+
+        // when
+        resources.subList(0, 3).forEach(cell::add);
+
+        // then
+        assertThat(cell.hasChildren()).isTrue();
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldCollapseWholeSubtreeWhenAllResourcesAreRemoved() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(2)
+                        .cellSize(3)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 100; i += 3) {
+            BigDecimal v = BigDecimal.valueOf(i);
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, v, ONE}));
+        }
+        resources.forEach(cell::add);
+        assertThat(cell.hasChildren()).isTrue();
+
+        // when
+        resources.forEach(cell::remove);
+
+        // then
+        assertThat(cell.hasChildren()).isFalse();
+        assertThat(cell.getResources()).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldNotMergeChildrenWhenMergingIsDisabled() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(2)
+                        .mergeRatio(0.0)
+                        .build());
+
+        DataMatrixCellResource<?> r1 = matrixCellResource(() -> new BigDecimal[]{ZERO, ZERO, ZERO});
+        DataMatrixCellResource<?> r2 = matrixCellResource(() -> new BigDecimal[]{TEN, TEN, TEN});
+        cell.add(r1);
+        cell.add(r2);
+
+        // when
+        cell.remove(r1);
+        cell.remove(r2);
+
+        // then
+        assertThat(cell.hasChildren()).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldMeasureShapeOfTreeOfCell() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(4)
+                        .build());
+
+        // when
+        DataMatrixCellTreeMetrics empty = cell.metrics();
+
+        // then
+        assertThat(empty.getDepth()).isEqualTo(0);
+        assertThat(empty.getCellsCount()).isEqualTo(1);
+        assertThat(empty.getLeavesCount()).isEqualTo(1);
+        assertThat(empty.getEmptyLeavesCount()).isEqualTo(1);
+        assertThat(empty.getResourcesCount()).isEqualTo(0);
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            BigDecimal v = BigDecimal.valueOf(10 * i);
+            cell.add(matrixCellResource(() -> new BigDecimal[]{v, ONE, ONE}));
+        }
+        DataMatrixCellTreeMetrics split = cell.metrics();
+
+        // then
+        assertThat(split.getDepth()).isEqualTo(1);
+        assertThat(split.getCellsCount()).isEqualTo(3);
+        assertThat(split.getLeavesCount()).isEqualTo(2);
+        assertThat(split.getEmptyLeavesCount()).isEqualTo(0);
+        assertThat(split.getResourcesCount()).isEqualTo(4);
+        assertThat(split.getMinLeafSize()).isEqualTo(2);
+        assertThat(split.getMaxLeafSize()).isEqualTo(2);
+        assertThat(split.getAverageLeafSize()).isEqualTo(2.0);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldRebuildUnbalancedSubtreeWhenRebalancingCell() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(4)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            BigDecimal v = BigDecimal.valueOf(90 * Math.pow(0.75, i));
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, ONE, ONE}));
+        }
+        resources.forEach(cell::add);
+        DataMatrixCellTreeMetrics before = cell.metrics();
+
+        // when
+        int rebuilt = cell.rebalance();
+        DataMatrixCellTreeMetrics after = cell.metrics();
+
+        // then
+        assertThat(rebuilt).isGreaterThan(0);
+        assertThat(after.getDepth()).isLessThan(before.getDepth());
+        assertThat(after.getResourcesCount()).isEqualTo(resources.size());
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+        assertThat(cell.rebalance()).isEqualTo(0);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldRebuildSubtreeOfManyCellsWithinSmallStack() throws InterruptedException {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(4)
+                        .build());
+
+        Random random = new Random(42);
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 8000; i++) {
+            BigDecimal[] key = new BigDecimal[]{
+                    BigDecimal.valueOf(random.nextDouble() * 90),
+                    BigDecimal.valueOf(random.nextDouble() * 90),
+                    BigDecimal.valueOf(random.nextDouble() * 90)};
+            resources.add(matrixCellResource(() -> key));
+        }
+        for (int i = 0; i < 64; i++) {
+            BigDecimal v = BigDecimal.valueOf(90 * Math.pow(0.75, i));
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, ONE, ONE}));
+        }
+        resources.forEach(cell::add);
+        int cellsCount = cell.metrics().getCellsCount();
+
+        // when
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger rebuilt = new AtomicInteger();
+        Thread rebalancing = new Thread(null, () -> {
+            try {
+                rebuilt.set(cell.rebalance());
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "rebalancing", 256 * 1024);
+        rebalancing.start();
+        rebalancing.join();
+
+        // then
+        assertThat(cellsCount).isGreaterThan(4000);
+        assertThat(failure.get()).isNull();
+        assertThat(rebuilt.get()).isGreaterThan(0);
+        assertThat(cell.metrics().getCellsCount()).isLessThan(cellsCount);
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(resources);
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldNotRebuildBalancedTreeWhenRebalancingCell() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(4)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            BigDecimal v = BigDecimal.valueOf(i);
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, ONE, ONE}));
+        }
+        cell.addAll(resources);
+        DataMatrixCellTreeMetrics before = cell.metrics();
+
+        // when
+        int rebuilt = cell.rebalance();
+
+        // then
+        assertThat(rebuilt).isEqualTo(0);
+        assertThat(cell.metrics().getCellsCount()).isEqualTo(before.getCellsCount());
+    }
+
+    @Test
+    @SuppressWarnings("checkstyle:magicnumber")
+    void shouldMoveResourceReAddedWithDifferentKey() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                DataMatrixCellConfiguration.builder()
+                        .splitIterations(1)
+                        .cellSize(4)
+                        .mergeRatio(0.0)
+                        .build());
+
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            BigDecimal v = BigDecimal.valueOf(10 + 20 * i);
+            resources.add(matrixCellResource(() -> new BigDecimal[]{v, ONE, ONE}));
+        }
+        resources.forEach(cell::add);
+        assertThat(cell.hasChildren()).isTrue();
+
+        UUID uuid = UUID.randomUUID();
+        DataMatrixCellResource<?> r = new DataMatrixCellResource<>(uuid, () -> new BigDecimal[]{ONE, ONE, ONE});
+        BigDecimal far = BigDecimal.valueOf(90);
+        DataMatrixCellResource<?> moved = new DataMatrixCellResource<>(uuid, () -> new BigDecimal[]{far, ONE, ONE});
+        DataMatrixCellResource<?> other = matrixCellResource(() -> new BigDecimal[]{ONE, ONE, ONE});
+
+        // when
+        cell.add(r);
+        cell.add(moved);
+
+        // then
+        List<DataMatrixCellResource<?>> afterMove = collectResourcesOfWrappingLeaves(cell);
+        assertThat(afterMove).filteredOn(c -> c.getUuid().equals(uuid)).hasSize(1);
+        assertThat(afterMove.stream().filter(c -> c.getUuid().equals(uuid)).findFirst().get().getUnifiedKey())
+                .containsExactly(moved.getUnifiedKey());
+
+        // when
+        cell.remove(moved);
+        cell.add(other);
+
+        // then
+        List<DataMatrixCellResource<?>> expected = new ArrayList<>(resources);
+        expected.add(other);
+        assertThat(collectResourcesOfWrappingLeaves(cell)).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    private static List<DataMatrixCellResource<?>> collectResourcesOfWrappingLeaves(
+            final DataMatrixCell<DataMatrixCellResource<?>> cell) {
+        List<DataMatrixCellResource<?>> resources = new ArrayList<>();
+        for (DataMatrixCellResource<?> r : cell.getResources()) {
+            assertThat(cell.wrapsKey(r.getUnifiedKey())).isTrue();
+            resources.add(r);
+        }
+        for (DataMatrixCell<DataMatrixCellResource<?>> child : cell.getChildren()) {
+            resources.addAll(collectResourcesOfWrappingLeaves(child));
+        }
+        return resources;
+    }
+
     @Test
     void shouldNotSplitCellWhenNumberOfResourcesIsBelowLimit() {
         // given
@@ -171,10 +730,41 @@ class DataMatrixCellTest {
 
     @ParameterizedTest
     @MethodSource("pointsAndDistances")
-    void shouldReturnProperDistanceFromGivenPoint(
+    void shouldReturnProperPrimitiveDistanceFromGivenPoint(
             final BigDecimal[] point,
             final BigDecimal expectedDistance) {
         // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = cellWithResourcesWithinHundred();
+        DistanceMetric metric = DistanceMetrics.euclidean();
+
+        // when
+        double actualDistance = metric.toDistance(cell.lowerBound(metric, unified(point)));
+
+        // then
+        assertThat(actualDistance)
+                .isCloseTo(expectedDistance.doubleValue(), PRIMITIVE_OFFSET);
+    }
+
+    @ParameterizedTest
+    @MethodSource("metricsAndPointsAndLowerBounds")
+    void shouldReturnProperLowerBoundOfGivenMetricFromGivenPoint(
+            final DistanceMetric metric,
+            final double[] point,
+            final double expectedLowerBound) {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = cellWithResourcesWithinHundred();
+
+        // when
+        double actualLowerBound = cell.lowerBound(metric, point);
+
+        // then
+        assertThat(actualLowerBound)
+                .isCloseTo(expectedLowerBound, PRIMITIVE_OFFSET);
+    }
+
+    @Test
+    void shouldReturnInfiniteLowerBoundOfEmptyCell() {
+        // given
         DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
                 new BigDecimal[]{ZERO, ZERO, ZERO},
                 new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
@@ -182,11 +772,39 @@ class DataMatrixCellTest {
                 cellConfiguration);
 
         // when
-        BigDecimal actualDistance = cell.distanceFrom(point);
+        double actualLowerBound = cell.lowerBound(DistanceMetrics.euclidean(), new double[]{10.0, 10.0, 10.0});
 
         // then
-        assertThat(actualDistance)
-                .isCloseTo(expectedDistance, OFFSET);
+        assertThat(actualLowerBound).isEqualTo(Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void shouldComputeLowerBoundAgainstAddedResourcesRatherThanCellDimensions() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                cellConfiguration);
+        cell.add(matrixCellResource(() -> new BigDecimal[]{TEN, TEN, TEN}));
+
+        // when
+        double actualLowerBound = cell.lowerBound(DistanceMetrics.euclidean(), new double[]{0.0, 10.0, 10.0});
+
+        // then
+        assertThat(actualLowerBound).isCloseTo(100.0, PRIMITIVE_OFFSET);
+    }
+
+    private static Stream<Arguments> metricsAndPointsAndLowerBounds() {
+        return Stream.of(
+                Arguments.of(DistanceMetrics.manhattan(), new double[]{10.0, 10.0, 10.0}, 0.0),
+                Arguments.of(DistanceMetrics.manhattan(), new double[]{-10.0, 110.0, 10.0}, 20.0),
+                Arguments.of(DistanceMetrics.chebyshev(), new double[]{10.0, 10.0, 10.0}, 0.0),
+                Arguments.of(DistanceMetrics.chebyshev(), new double[]{-10.0, 120.0, 10.0}, 20.0),
+                Arguments.of(DistanceMetrics.weightedEuclidean(4.0, 1.0, 0.0), new double[]{-10.0, 10.0, 200.0}, 400.0),
+                Arguments.of(DistanceMetrics.cosine(), new double[]{1.0, 1.0, 1.0}, 0.0),
+                Arguments.of(DistanceMetrics.cosine(), new double[]{-1.0, -1.0, -1.0}, 1.0)
+        );
     }
 
     private static Stream<Arguments> pointsAndDistances() {
@@ -211,9 +829,9 @@ class DataMatrixCellTest {
     }
 
     @ParameterizedTest
-    @MethodSource("pointsAndWrapResults")
-    void shouldReturnWrapResultForGivenPoints(
-            final BigDecimal[] point,
+    @MethodSource("primitivePointsAndWrapResults")
+    void shouldReturnWrapResultForGivenPrimitivePoints(
+            final double[] point,
             final boolean expectedResult) {
         // given
         DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
@@ -229,28 +847,28 @@ class DataMatrixCellTest {
         assertThat(actualResult).isEqualTo(expectedResult);
     }
 
-    private static Stream<Arguments> pointsAndWrapResults() {
+    private static Stream<Arguments> primitivePointsAndWrapResults() {
         return Stream.of(
-                Arguments.of(new BigDecimal[]{ZERO, ZERO, ZERO}, true),
-                Arguments.of(new BigDecimal[]{TEN, TEN, TEN}, true),
-                Arguments.of(new BigDecimal[]{HUNDRED_MINUS, HUNDRED_MINUS, HUNDRED_MINUS}, true),
-                Arguments.of(new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED}, false),
-
-                Arguments.of(new BigDecimal[]{HUNDRED.add(ONE), ZERO, ZERO}, false),
-                Arguments.of(new BigDecimal[]{ZERO, HUNDRED.add(TEN), ZERO}, false),
-                Arguments.of(new BigDecimal[]{ZERO, ZERO, HUNDRED.add(HUNDRED)}, false),
-
-                Arguments.of(new BigDecimal[]{ONE.negate(), ZERO, ZERO}, false),
-                Arguments.of(new BigDecimal[]{ZERO, TEN.negate(), ZERO}, false),
-                Arguments.of(new BigDecimal[]{ZERO, ZERO, HUNDRED.negate()}, false)
+                Arguments.of(new double[]{0.0, 0.0, 0.0}, true),
+                Arguments.of(new double[]{10.0, 10.0, 10.0}, true),
+                Arguments.of(new double[]{99.9999, 99.9999, 99.9999}, true),
+                Arguments.of(new double[]{100.0, 100.0, 100.0}, false),
+
+                Arguments.of(new double[]{101.0, 0.0, 0.0}, false),
+                Arguments.of(new double[]{0.0, 110.0, 0.0}, false),
+                Arguments.of(new double[]{0.0, 0.0, 200.0}, false),
+
+                Arguments.of(new double[]{-1.0, 0.0, 0.0}, false),
+                Arguments.of(new double[]{0.0, -10.0, 0.0}, false),
+                Arguments.of(new double[]{0.0, 0.0, -100.0}, false)
         );
     }
 
     @ParameterizedTest
-    @MethodSource("pointsAndRangesAndWrapResults")
-    void shouldReturnWrapResultForGivenPointsAndRanges(
-            final BigDecimal[] point,
-            final BigDecimal range,
+    @MethodSource("primitivePointsAndRangesAndWrapResults")
+    void shouldReturnEuclideanRangeWrapResultForGivenPointsAndRanges(
+            final double[] point,
+            final double range,
             final boolean expectedResult) {
         // given
         DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
@@ -260,23 +878,96 @@ class DataMatrixCellTest {
                 cellConfiguration);
 
         // when
-        boolean actualResult = cell.wrapsKey(point, range);
+        boolean actualResult = DistanceMetrics.euclidean().isWrappedBy(
+                point, range, cell.getUnifiedIndex(), cell.getUnifiedClosure());
 
         // then
         assertThat(actualResult).isEqualTo(expectedResult);
     }
 
-    private static Stream<Arguments> pointsAndRangesAndWrapResults() {
+    private static Stream<Arguments> primitivePointsAndRangesAndWrapResults() {
         return Stream.of(
-                Arguments.of(new BigDecimal[]{ZERO, ZERO, ZERO}, ZERO, true),
-                Arguments.of(new BigDecimal[]{TEN, TEN, TEN}, ZERO, true),
-                Arguments.of(new BigDecimal[]{HUNDRED_MINUS, HUNDRED_MINUS, HUNDRED_MINUS}, ZERO, true),
-                Arguments.of(new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED}, ZERO, false),
-
-                Arguments.of(new BigDecimal[]{ZERO, ZERO, ZERO}, TEN, false),
-                Arguments.of(new BigDecimal[]{TEN, TEN, TEN}, TEN, true),
-                Arguments.of(new BigDecimal[]{TEN, TEN, TEN}, TEN_PLUS, false),
-                Arguments.of(new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED}, TEN, false)
+                Arguments.of(new double[]{0.0, 0.0, 0.0}, 0.0, true),
+                Arguments.of(new double[]{10.0, 10.0, 10.0}, 0.0, true),
+                Arguments.of(new double[]{99.9999, 99.9999, 99.9999}, 0.0, true),
+                Arguments.of(new double[]{100.0, 100.0, 100.0}, 0.0, false),
+
+                Arguments.of(new double[]{0.0, 0.0, 0.0}, 10.0, false),
+                Arguments.of(new double[]{10.0, 10.0, 10.0}, 10.0, true),
+                Arguments.of(new double[]{10.0, 10.0, 10.0}, 10.0001, false),
+                Arguments.of(new double[]{100.0, 100.0, 100.0}, 10.0, false)
         );
     }
+
+    @Test
+    void shouldNotWrapRangeOfCosineMetric() {
+        // given
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED},
+                null,
+                cellConfiguration);
+
+        // when
+        boolean actualResult = DistanceMetrics.cosine().isWrappedBy(
+                new double[]{10.0, 10.0, 10.0}, 0.0, cell.getUnifiedIndex(), cell.getUnifiedClosure());
+
+        // then
+        assertThat(actualResult).isFalse();
+    }
+
+    @Test
+    void shouldKeepResourcesWithinChildrenReadBeforeTheyHaveBeenMerged() {
+        // given
+        DataMatrixCellConfiguration configuration = DataMatrixCellConfiguration.builder()
+                .splitIterations(1)
+                .cellSize(4)
+                .mergeRatio(0.75)
+                .build();
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO},
+                new BigDecimal[]{HUNDRED, HUNDRED},
+                null,
+                configuration);
+        DataMatrixCellResource<?> kept = matrixCellResource(() -> new BigDecimal[]{ONE, ONE});
+        cell.add(kept);
+        List<DataMatrixCellResource<?>> removed = new ArrayList<>();
+        for (int i = 2; i <= 5; i++) {
+            BigDecimal value = BigDecimal.valueOf(10L * i);
+            removed.add(matrixCellResource(() -> new BigDecimal[]{value, value}));
+        }
+        removed.forEach(cell::add);
+
+        List<DataMatrixCell<DataMatrixCellResource<?>>> children = new ArrayList<>();
+        assertThat(cell.getLeafBlock(children)).isNull();
+
+        // when
+        removed.forEach(cell::remove);
+
+        // then
+        assertThat(cell.hasChildren()).isFalse();
+        assertThat(cell.getChildren()).isEmpty();
+        assertThat(children).isNotEmpty();
+        assertThat(children.stream().flatMap(c -> c.getBlock().toSet().stream())).contains(kept);
+    }
+
+    private DataMatrixCell<DataMatrixCellResource<?>> cellWithResourcesWithinHundred() {
+        BigDecimal twoHundred = HUNDRED.add(HUNDRED);
+        DataMatrixCell<DataMatrixCellResource<?>> cell = new DataMatrixCell<>(
+                new BigDecimal[]{ZERO, ZERO, ZERO},
+                new BigDecimal[]{twoHundred, twoHundred, twoHundred},
+                null,
+                cellConfiguration);
+        cell.add(matrixCellResource(() -> new BigDecimal[]{ZERO, ZERO, ZERO}));
+        cell.add(matrixCellResource(() -> new BigDecimal[]{HUNDRED, HUNDRED, HUNDRED}));
+        return cell;
+    }
+
+    private static double[] unified(final BigDecimal[] point) {
+        double[] unified = new double[point.length];
+        for (int i = 0; i < point.length; i++) {
+            unified[i] = point[i].doubleValue();
+        }
+        return unified;
+    }
 }